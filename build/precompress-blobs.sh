@@ -0,0 +1,64 @@
+#!/bin/bash
+
+# Precompress Blobs Script
+# Writes .gz and .zst variants next to the blobs under the blob store root, which
+# GET /rest/blobs/{id} serves by Accept-Encoding without compressing per request.
+# Uploads get a .gz variant from the server itself; zstd variants only come from here.
+# Variants older than their blob are stale (the blob was replaced) and are rewritten.
+
+set -e
+
+BLOB_ROOT=${BLOB_ROOT:-testdata/blocking}
+# variants that save less than this percentage of the original are not kept
+MIN_SAVING_PERCENT=${MIN_SAVING_PERCENT:-10}
+
+if [ ! -d "$BLOB_ROOT" ]; then
+    echo "❌ Blob root $BLOB_ROOT does not exist"
+    exit 1
+fi
+
+HAVE_ZSTD=false
+if command -v zstd > /dev/null; then
+    HAVE_ZSTD=true
+else
+    echo "⚠️  zstd not found, writing gzip variants only"
+fi
+
+echo "🗜️  Precompressing blobs under $BLOB_ROOT..."
+
+kept=0
+skipped=0
+
+# keep_variant <original> <temp> <variant>
+keep_variant() {
+    local original_size variant_size
+    original_size=$(stat -c %s "$1")
+    variant_size=$(stat -c %s "$2")
+    if [ $((variant_size * 100)) -le $((original_size * (100 - MIN_SAVING_PERCENT))) ]; then
+        mv "$2" "$3"
+        kept=$((kept + 1))
+    else
+        # a stale variant of a replaced blob must not stay around either
+        rm -f "$2" "$3"
+        skipped=$((skipped + 1))
+    fi
+}
+
+# the FILE_IO corpus and temp files are not served as blobs
+while IFS= read -r -d '' blob; do
+    dir=$(dirname "$blob")
+    if [ ! -f "$blob.gz" ] || [ "$blob.gz" -ot "$blob" ]; then
+        tmp=$(mktemp "$dir/.precompress-XXXXXX")
+        gzip -9 -c "$blob" > "$tmp"
+        keep_variant "$blob" "$tmp" "$blob.gz"
+    fi
+    if [ "$HAVE_ZSTD" = "true" ] && { [ ! -f "$blob.zst" ] || [ "$blob.zst" -ot "$blob" ]; }; then
+        tmp=$(mktemp "$dir/.precompress-XXXXXX")
+        zstd -q -19 -c "$blob" > "$tmp"
+        keep_variant "$blob" "$tmp" "$blob.zst"
+    fi
+done < <(find "$BLOB_ROOT" -type f ! -name '*.gz' ! -name '*.zst' ! -name '.*' \
+    ! -path '*/.tmp/*' ! -path '*/.uploads/*' ! -path '*/corpus/*' -print0)
+
+echo "✅ Stored $kept variants, skipped $skipped that did not compress"
+echo "Variants are picked up by the server within brm.blobs.representations.expire-after-write-ms"
@@ -0,0 +1,28 @@
+#!/bin/bash
+
+# JMH Benchmark Runner
+# Builds the benchmarks in src/jmh/java and runs them with GC allocation profiling
+
+set -e
+
+# Default JMH arguments (can be overridden via environment variables)
+# Pass a benchmark regex as the first argument to run a subset, e.g. SimpleResponse
+BENCHMARK_FILTER=${1:-""}
+FORKS=${FORKS:-1}
+WARMUP_ITERATIONS=${WARMUP_ITERATIONS:-3}
+ITERATIONS=${ITERATIONS:-5}
+ITERATION_TIME=${ITERATION_TIME:-2s}
+TIMESTAMP=$(date +%Y%m%d-%H%M%S)
+RESULT_FILE="logs/jmh-result-$TIMESTAMP.json"
+
+mkdir -p logs
+
+JMH_ARGS="$BENCHMARK_FILTER -prof gc -f $FORKS -wi $WARMUP_ITERATIONS -w $ITERATION_TIME -i $ITERATIONS -r $ITERATION_TIME -rf json -rff $RESULT_FILE"
+
+echo "=== BRM API Server - JMH Benchmarks ==="
+echo "Filter: ${BENCHMARK_FILTER:-<all>}"
+echo "JMH args: $JMH_ARGS"
+echo "Results: $RESULT_FILE"
+echo "========================================"
+
+./mvnw -B -Pjmh -DskipTests verify "-Djmh.args=$JMH_ARGS" 2>&1 | tee "logs/jmh-$TIMESTAMP.log"
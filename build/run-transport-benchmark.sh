@@ -0,0 +1,30 @@
+#!/bin/bash
+
+# REST vs gRPC Transport Benchmark
+# Runs the closed-loop benchmark in src/grpc/java against a server started with
+# SERVER_STACK=grpc ./build/start-limited.sh; extra arguments are passed on, e.g. --calls batch
+
+set -e
+
+# Default benchmark settings (can be overridden via environment variables)
+REST_URL=${REST_URL:-http://127.0.0.1:8080}
+GRPC_ADDRESS=${GRPC_ADDRESS:-127.0.0.1:9090}
+CONCURRENCY=${CONCURRENCY:-64}
+DURATION=${DURATION:-10}
+WARMUP=${WARMUP:-3}
+BYTES_CALLS=${BYTES_CALLS:-1000}
+TIMESTAMP=$(date +%Y%m%d-%H%M%S)
+RESULT_FILE="logs/transport-result-$TIMESTAMP.json"
+
+mkdir -p logs
+
+BENCHMARK_ARGS="--rest $REST_URL --grpc $GRPC_ADDRESS --concurrency $CONCURRENCY --duration $DURATION --warmup $WARMUP --bytes-calls $BYTES_CALLS --output $RESULT_FILE $*"
+
+echo "=== BRM API Server - REST vs gRPC ==="
+echo "REST: $REST_URL, gRPC: $GRPC_ADDRESS"
+echo "Benchmark args: $BENCHMARK_ARGS"
+echo "Results: $RESULT_FILE"
+echo "====================================="
+
+./mvnw -B -q -Pgrpc -DskipTests verify "-Dgrpc.main=org.brm.apiserver.grpc.TransportBenchmark" \
+    "-Dgrpc.args=$BENCHMARK_ARGS" 2>&1 | tee "logs/transport-$TIMESTAMP.log"
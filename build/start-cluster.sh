@@ -0,0 +1,72 @@
+#!/bin/bash
+
+# Local Cluster Startup Script
+# Starts several BRM API server instances on one machine that shard blobs over a consistent
+# hash ring. Every node gets its own port, blob store, index file, metadata log and access log.
+# Stop them with ./build/stop-limited.sh.
+
+set -e
+
+NODES=${NODES:-3}
+BASE_PORT=${BASE_PORT:-8081}
+HOST=${HOST:-127.0.0.1}
+HEAP_MB=${HEAP_MB:-256}
+VIRTUAL_NODES=${VIRTUAL_NODES:-160}
+READ_THROUGH_CACHE=${READ_THROUGH_CACHE:-true}
+EXTRA_JVM_OPTS=${EXTRA_JVM_OPTS:-""}
+
+JAR_FILE="target/brm-apiserver-0.0.1-SNAPSHOT.jar"
+if [ ! -f "$JAR_FILE" ]; then
+    echo "Building application..."
+    ./mvnw clean package -DskipTests
+fi
+
+mkdir -p logs
+
+NODE_URIS=()
+for ((i=0; i<NODES; i++)); do
+    NODE_URIS+=("http://$HOST:$((BASE_PORT + i))")
+done
+ALL_NODES=$(IFS=,; echo "${NODE_URIS[*]}")
+
+echo "=== BRM API Server - Local Cluster ==="
+echo "Nodes: $ALL_NODES"
+echo "Virtual nodes per node: $VIRTUAL_NODES"
+echo "======================================"
+
+for ((i=0; i<NODES; i++)); do
+    PORT=$((BASE_PORT + i))
+    NODE_DIR="node-$PORT"
+    java -Xmx${HEAP_MB}m --enable-preview $EXTRA_JVM_OPTS -jar "$JAR_FILE" \
+        --server.port="$PORT" \
+        --brm.cluster.enabled=true \
+        --brm.cluster.self="${NODE_URIS[$i]}" \
+        --brm.cluster.nodes="$ALL_NODES" \
+        --brm.cluster.virtual-nodes="$VIRTUAL_NODES" \
+        --brm.cluster.read-through-cache="$READ_THROUGH_CACHE" \
+        --brm.blobs.root="testdata/cluster/$NODE_DIR" \
+        --brm.index.file="data/cluster/$NODE_DIR/artifacts.idx" \
+        --brm.journal.directory="data/cluster/$NODE_DIR/journal" \
+        --brm.access-log.file="logs/access-$NODE_DIR.log" \
+        > "logs/cluster-$NODE_DIR.log" 2>&1 &
+    echo "Started node $PORT (PID: $!), log: logs/cluster-$NODE_DIR.log"
+done
+
+echo "Waiting for nodes to be ready..."
+for ((i=0; i<NODES; i++)); do
+    PORT=$((BASE_PORT + i))
+    for attempt in {1..60}; do
+        if curl -s "http://$HOST:$PORT/rest/simple" > /dev/null 2>&1; then
+            echo "✅ Node $PORT is ready"
+            break
+        fi
+        if [ "$attempt" -eq 60 ]; then
+            echo "❌ Node $PORT failed to start within 60 seconds"
+            exit 1
+        fi
+        sleep 1
+    done
+done
+
+curl -s "http://$HOST:$BASE_PORT/rest/cluster"
+echo ""
@@ -11,6 +11,18 @@ HEAP_MB=${HEAP_MB:-256}
 MIN_HEAP_MB=${MIN_HEAP_MB:-128}
 PLATFORM_THREADS=${PLATFORM_THREADS:-2}
 EXTRA_JVM_OPTS=${EXTRA_JVM_OPTS:-""}
+# servlet: Tomcat with virtual threads, reactive: WebFlux on Netty (reactive Maven profile),
+# grpc: servlet stack plus the gRPC server on brm.grpc.port (grpc Maven profile)
+SERVER_STACK=${SERVER_STACK:-servlet}
+# NETWORK_IO: connect (TEST-NET connect timeouts, comparable with earlier runs) or backend (echo backend exchanges)
+NETWORK_IO_MODE=${NETWORK_IO_MODE:-connect}
+# Share of each type picked by MIXED, passed to every stack so their workloads match
+MIXED_WEIGHTS=${MIXED_WEIGHTS:-SLEEP=1,FILE_IO=1,NETWORK_IO=1,CPU_BOUND=0,ALLOCATION_HEAVY=0}
+
+if [ "$SERVER_STACK" = "reactive" ] && [ "$NETWORK_IO_MODE" != "connect" ]; then
+    echo "The reactive stack only supports NETWORK_IO_MODE=connect" >&2
+    exit 1
+fi
 
 # Calculate derived values
 METASPACE_MB=$((HEAP_MB / 2))
@@ -22,11 +34,14 @@ echo "Heap Memory: ${MIN_HEAP_MB}MB - ${HEAP_MB}MB"
 echo "Metaspace: ${METASPACE_MB}MB"
 echo "Direct Memory: ${DIRECT_MEMORY_MB}MB"
 echo "Platform Threads: $PLATFORM_THREADS"
+echo "Server Stack: $SERVER_STACK"
+echo "NETWORK_IO Mode: $NETWORK_IO_MODE"
+echo "MIXED Weights: $MIXED_WEIGHTS"
 echo "=============================================="
 
 # Build the application if JAR doesn't exist
 JAR_FILE="target/brm-apiserver-0.0.1-SNAPSHOT.jar"
-if [ ! -f "$JAR_FILE" ]; then
+if [ "$SERVER_STACK" = "servlet" ] && [ ! -f "$JAR_FILE" ]; then
     echo "Building application..."
     ./mvnw clean package -DskipTests
 fi
@@ -42,6 +57,7 @@ JVM_ARGS=(
     "-XX:MaxGCPauseMillis=200"
     "-XX:+UnlockExperimentalVMOptions"
     "-XX:+UseStringDeduplication"
+    "--enable-preview"
     "-Dspring.profiles.active=limited"
     "-Dserver.tomcat.threads.max=$PLATFORM_THREADS"
     "-Dserver.tomcat.threads.min-spare=1"
@@ -49,6 +65,8 @@ JVM_ARGS=(
     "-Dserver.tomcat.accept-count=10"
     "-Dserver.tomcat.connection-timeout=20000"
     "-Dserver.tomcat.keep-alive-timeout=60000"
+    "-Dbrm.blocking.network-io.mode=$NETWORK_IO_MODE"
+    "-Dbrm.blocking.mixed-weights=$MIXED_WEIGHTS"
 )
 
 # Add extra JVM options if provided
@@ -75,11 +93,20 @@ else
     done
 fi
 
+if [ "$SERVER_STACK" = "reactive" ]; then
+    # Maven compiles src/reactive/java and forks a JVM with the same arguments, which inherits the CPU affinity
+    SERVER_COMMAND=(./mvnw -B -q -Preactive -DskipTests verify "-Dreactive.jvm.args=${JVM_ARGS[*]}")
+elif [ "$SERVER_STACK" = "grpc" ]; then
+    SERVER_COMMAND=(./mvnw -B -q -Pgrpc -DskipTests verify "-Dgrpc.jvm.args=${JVM_ARGS[*]}")
+else
+    SERVER_COMMAND=(java "${JVM_ARGS[@]}" -jar "$JAR_FILE")
+fi
+
 # Check if taskset is available
 if command -v taskset >/dev/null 2>&1; then
     echo "Using taskset to limit CPU cores to: $CPU_MASK"
-    taskset -c "$CPU_MASK" java "${JVM_ARGS[@]}" -jar "$JAR_FILE"
+    taskset -c "$CPU_MASK" "${SERVER_COMMAND[@]}"
 else
     echo "Warning: taskset not available, using JVM processor count only"
-    java "${JVM_ARGS[@]}" -jar "$JAR_FILE"
+    "${SERVER_COMMAND[@]}"
 fi
@@ -0,0 +1,108 @@
+#!/bin/bash
+
+# Startup Benchmark
+# Measures time to the first successful /rest/simple response and the RSS at that moment for
+# the plain JVM jar, the JVM with Spring AOT and a JDK AOT cache, and the GraalVM native image.
+#
+# Build the variants first (kept separate, a native build takes minutes):
+#   ./mvnw -B -Paot-cache package -DskipTests     # jvm + aot-cache
+#   ./mvnw -B -Pnative native:compile -DskipTests  # native
+# Missing variants are skipped.
+
+set -e
+
+VARIANTS=${VARIANTS:-"jvm aot-cache native"}
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+POLL_INTERVAL=${POLL_INTERVAL:-0.005}
+STARTUP_TIMEOUT_S=${STARTUP_TIMEOUT_S:-60}
+EXTRA_JVM_OPTS=${EXTRA_JVM_OPTS:-""}
+TIMESTAMP=$(date +%Y%m%d-%H%M%S)
+RESULT_FILE="logs/startup-$TIMESTAMP.csv"
+
+JAR_FILE="target/brm-apiserver-0.0.1-SNAPSHOT.jar"
+AOT_DIR="target/application"
+AOT_JAR="$AOT_DIR/brm-apiserver-0.0.1-SNAPSHOT.jar"
+AOT_CACHE="$AOT_DIR/app.aot"
+NATIVE_BINARY="target/brm-apiserver"
+URL="http://localhost:$PORT/rest/simple"
+
+mkdir -p logs
+echo "variant,run,first_response_ms,rss_mb" > "$RESULT_FILE"
+
+echo "=== BRM API Server - Startup Benchmark ==="
+echo "Variants: $VARIANTS"
+echo "Runs per variant: $RUNS"
+echo "Results: $RESULT_FILE"
+echo "=========================================="
+
+# Prints the command line for a variant, or nothing if it is not built
+variant_command() {
+    case "$1" in
+        jvm)
+            [ -f "$JAR_FILE" ] && echo "java --enable-preview $EXTRA_JVM_OPTS -jar $JAR_FILE"
+            ;;
+        aot-cache)
+            [ -f "$AOT_CACHE" ] && echo "java --enable-preview -XX:AOTCache=$AOT_CACHE -Dspring.aot.enabled=true $EXTRA_JVM_OPTS -jar $AOT_JAR"
+            ;;
+        native)
+            [ -x "$NATIVE_BINARY" ] && echo "$NATIVE_BINARY"
+            ;;
+    esac
+    return 0
+}
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+for variant in $VARIANTS; do
+    COMMAND=$(variant_command "$variant")
+    if [ -z "$COMMAND" ]; then
+        echo "Skipping $variant: not built"
+        continue
+    fi
+
+    for run in $(seq 1 "$RUNS"); do
+        START_MS=$(now_ms)
+        $COMMAND --server.port="$PORT" > "logs/startup-$TIMESTAMP-$variant-$run.log" 2>&1 &
+        PID=$!
+
+        FIRST_RESPONSE_MS=""
+        while kill -0 "$PID" 2>/dev/null; do
+            if curl -sf -o /dev/null "$URL"; then
+                FIRST_RESPONSE_MS=$(( $(now_ms) - START_MS ))
+                break
+            fi
+            if [ $(( $(now_ms) - START_MS )) -gt $(( STARTUP_TIMEOUT_S * 1000 )) ]; then
+                break
+            fi
+            sleep "$POLL_INTERVAL"
+        done
+
+        RSS_KB=$(ps -o rss= -p "$PID" 2>/dev/null | tr -d ' ')
+        kill "$PID" 2>/dev/null || true
+        wait "$PID" 2>/dev/null || true
+
+        if [ -z "$FIRST_RESPONSE_MS" ]; then
+            echo "$variant run $run: no response, see logs/startup-$TIMESTAMP-$variant-$run.log"
+            continue
+        fi
+        RSS_MB=$(( ${RSS_KB:-0} / 1024 ))
+        echo "$variant run $run: first response after ${FIRST_RESPONSE_MS}ms, RSS ${RSS_MB}MB"
+        echo "$variant,$run,$FIRST_RESPONSE_MS,$RSS_MB" >> "$RESULT_FILE"
+    done
+done
+
+echo ""
+echo "=== Median per variant ==="
+for variant in $VARIANTS; do
+    COUNT=$(grep -c "^$variant," "$RESULT_FILE" || true)
+    if [ "$COUNT" -eq 0 ]; then
+        continue
+    fi
+    MIDDLE=$(( (COUNT + 1) / 2 ))
+    MEDIAN_MS=$(grep "^$variant," "$RESULT_FILE" | cut -d, -f3 | sort -n | sed -n "${MIDDLE}p")
+    MEDIAN_RSS=$(grep "^$variant," "$RESULT_FILE" | cut -d, -f4 | sort -n | sed -n "${MIDDLE}p")
+    printf "%-10s first response %6s ms   RSS %5s MB   (%s runs)\n" "$variant" "$MEDIAN_MS" "$MEDIAN_RSS" "$COUNT"
+done
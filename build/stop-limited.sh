@@ -6,7 +6,7 @@
 echo "🛑 Stopping BRM API Server..."
 
 # Find and kill the Java process running brm-apiserver
-SERVER_PIDS=$(pgrep -f "java.*brm-apiserver.*jar" || true)
+SERVER_PIDS=$(pgrep -f "java.*(brm-apiserver.*jar|org.brm.apiserver.reactive.ReactiveApplication|org.brm.apiserver.grpc.GrpcApplication)" || true)
 
 if [ -z "$SERVER_PIDS" ]; then
     echo "No BRM API server process found."
@@ -25,7 +25,7 @@ done
 sleep 3
 
 # Force kill if still running
-REMAINING_PIDS=$(pgrep -f "java.*brm-apiserver.*jar" || true)
+REMAINING_PIDS=$(pgrep -f "java.*(brm-apiserver.*jar|org.brm.apiserver.reactive.ReactiveApplication|org.brm.apiserver.grpc.GrpcApplication)" || true)
 if [ -n "$REMAINING_PIDS" ]; then
     echo "Force stopping remaining processes..."
     for pid in $REMAINING_PIDS; do
@@ -35,7 +35,7 @@ if [ -n "$REMAINING_PIDS" ]; then
 fi
 
 # Verify all processes are stopped
-FINAL_CHECK=$(pgrep -f "java.*brm-apiserver.*jar" || true)
+FINAL_CHECK=$(pgrep -f "java.*(brm-apiserver.*jar|org.brm.apiserver.reactive.ReactiveApplication|org.brm.apiserver.grpc.GrpcApplication)" || true)
 if [ -z "$FINAL_CHECK" ]; then
     echo "✅ BRM API server stopped successfully."
 else
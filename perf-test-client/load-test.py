@@ -50,7 +50,8 @@ class LoadTester:
         }
         
         try:
-            req = urllib.request.Request(self.url)
+            # the server stops working on requests the client has given up on
+            req = urllib.request.Request(self.url, headers={'X-Request-Timeout-Ms': str(self.timeout * 1000)})
             with urllib.request.urlopen(req, timeout=self.timeout) as response:
                 end_time = time.time()
                 response_time = (end_time - start_time) * 1000  # Convert to milliseconds
@@ -13,7 +13,7 @@ OUTPUT_FILE=${OUTPUT_FILE:-"logs/pidstat-$(date +%Y%m%d-%H%M%S).log"}
 # Function to find the BRM API server process
 find_server_pid() {
     # Look for the specific Java process running brm-apiserver
-    local pids=$(pgrep -f "java.*brm-apiserver.*jar")
+    local pids=$(pgrep -f "java.*org.brm.apiserver.(reactive.ReactiveApplication|grpc.GrpcApplication)" || pgrep -f "java.*brm-apiserver.*jar")
     
     if [ -z "$pids" ]; then
         echo "Error: No BRM API server process found. Make sure the server is running." >&2
@@ -27,14 +27,17 @@ show_usage() {
     echo "  HEAP_MB                      Max heap size in MB (default: 256)"
     echo "  MIN_HEAP_MB                  Initial heap size in MB (default: 128)"
     echo "  PLATFORM_THREADS             Max platform threads (default: 2)"
+    echo "  SERVER_STACK                 servlet (Tomcat, virtual threads) or reactive (WebFlux, Netty) (default: servlet)"
     echo ""
     echo "  # Test client variables (passed through to run-test-client.sh):"
-    echo "  OPERATION_TYPE               Operation type: SLEEP, FILE_IO, NETWORK_IO, MIXED (default: MIXED)"
+    echo "  OPERATION_TYPE               Operation type: SLEEP, FILE_IO, NETWORK_IO, MIXED, CPU_BOUND, ALLOCATION_HEAVY (default: MIXED)"
     echo "  MIN_BLOCK_PERIOD_MS          Minimum block period in milliseconds (default: 500)"
     echo "  MAX_BLOCK_PERIOD_MS          Maximum block period in milliseconds (default: 2000)"
     echo "  CONCURRENT_REQUESTS          Number of concurrent requests (default: 50)"
     echo "  TOTAL_REQUESTS               Total number of requests (default: 1000)"
     echo "  TIMEOUT_SECONDS              Request timeout in seconds (default: 30)"
+    echo "  LOAD_GENERATOR               python (closed-loop) or java (open-loop) (default: python)"
+    echo "  ARRIVAL_RATE, RAMP_TO_RATE, DURATION_SECONDS, ARRIVALS   Open-loop arrival settings for LOAD_GENERATOR=java"
     echo ""
     echo "Examples:"
     echo "  $0                                    # Use defaults or .env file"
@@ -116,28 +119,30 @@ TIMESTAMP=$(date +%Y%m%d-%H%M%S)
 echo "🚀 Running BRM Performance Test Orchestrator"
 echo "==========================================="
 echo "Server Resources: ${CPU_CORES} cores, ${HEAP_MB}MB heap, ${PLATFORM_THREADS} platform threads"
+echo "Server Stack: ${SERVER_STACK:-servlet}"
 echo "Timestamp: $TIMESTAMP"
 echo ""
 
 # Check if server is running, start if not
 SERVER_STARTED_BY_SCRIPT="false"
-if ! pgrep -f "java.*brm-apiserver.*jar" > /dev/null; then
+if ! pgrep -f "java.*(brm-apiserver.*jar|org.brm.apiserver.reactive.ReactiveApplication)" > /dev/null; then
     echo "📋 Starting BRM API server..."
     CPU_CORES="$CPU_CORES" HEAP_MB="$HEAP_MB" MIN_HEAP_MB="$MIN_HEAP_MB" PLATFORM_THREADS="$PLATFORM_THREADS" \
-        ./build/start-limited.sh > "logs/server-$TIMESTAMP.log" 2>&1 &
+        SERVER_STACK="${SERVER_STACK:-servlet}" ./build/start-limited.sh > "logs/server-$TIMESTAMP.log" 2>&1 &
     SERVER_PID=$!
     SERVER_STARTED_BY_SCRIPT="true"
     echo "Server started with PID: $SERVER_PID"
     
     # Wait for server to start
     echo "Waiting for server to be ready..."
-    for i in {1..30}; do
+    # the reactive stack is compiled by Maven before it starts
+    for i in {1..90}; do
         if curl -s http://localhost:8080/rest/simple > /dev/null 2>&1; then
             echo "✅ Server is ready!"
             break
         fi
-        if [ $i -eq 30 ]; then
-            echo "❌ Server failed to start within 30 seconds"
+        if [ $i -eq 90 ]; then
+            echo "❌ Server failed to start within 90 seconds"
             exit 1
         fi
         sleep 1
@@ -176,6 +181,21 @@ else
     echo "❌ Performance test completed with errors (exit code: $TEST_CLIENT_EXIT_CODE)"
 fi
 
+# Summarize the open-loop load generator results, if it was used
+LOADGEN_RESULT="logs/loadgen-$TIMESTAMP.json"
+if [ -f "$LOADGEN_RESULT" ]; then
+    echo ""
+    echo "📈 Open-loop results (latency corrected for coordinated omission):"
+    python3 - "$LOADGEN_RESULT" <<'EOF'
+import json, sys
+r = json.load(open(sys.argv[1]))
+c, s = r["correctedLatencyMs"], r["serviceLatencyMs"]
+print(f"  Achieved rate: {r['achievedRate']:.1f} req/s ({r['successful']}/{r['totalRequests']} OK, peak in flight {r['peakInFlight']})")
+print(f"  Corrected p50/p99/p99.9: {c['p50']:.1f} / {c['p99']:.1f} / {c['p999']:.1f} ms")
+print(f"  Service   p50/p99/p99.9: {s['p50']:.1f} / {s['p99']:.1f} / {s['p999']:.1f} ms")
+EOF
+fi
+
 echo ""
 echo "📁 Log files:"
 if [ "$SERVER_STARTED_BY_SCRIPT" = "true" ]; then
@@ -183,5 +203,8 @@ if [ "$SERVER_STARTED_BY_SCRIPT" = "true" ]; then
 fi
 echo "  Performance: logs/pidstat-$TIMESTAMP.log"
 echo "  Monitor:     logs/monitor-$TIMESTAMP.log"
+if [ -f "$LOADGEN_RESULT" ]; then
+    echo "  Load test:   $LOADGEN_RESULT"
+fi
 
 exit $TEST_CLIENT_EXIT_CODE
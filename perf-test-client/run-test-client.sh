@@ -15,6 +15,13 @@ MAX_BLOCK_PERIOD_MS=${MAX_BLOCK_PERIOD_MS:-"2000"}
 CONCURRENT_REQUESTS=${CONCURRENT_REQUESTS:-50}
 TOTAL_REQUESTS=${TOTAL_REQUESTS:-1000}
 TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-30}
+
+# Load generator: python (closed-loop load-test.py) or java (open-loop, see src/loadgen/java)
+LOAD_GENERATOR=${LOAD_GENERATOR:-"python"}
+ARRIVAL_RATE=${ARRIVAL_RATE:-100}
+RAMP_TO_RATE=${RAMP_TO_RATE:-""}
+DURATION_SECONDS=${DURATION_SECONDS:-""}
+ARRIVALS=${ARRIVALS:-"constant"}
 TIMESTAMP=${TIMESTAMP:-$(date +%Y%m%d-%H%M%S)}
 
 # Function to show usage
@@ -29,12 +36,17 @@ show_usage() {
     echo ""
     echo "Environment variables (can be set via shell or .env file):"
     echo "  BASE_URL                     Server base URL (default: http://localhost:8080)"
-    echo "  OPERATION_TYPE               Operation type: SLEEP, FILE_IO, NETWORK_IO, MIXED (default: MIXED)"
+    echo "  OPERATION_TYPE               Operation type: SLEEP, FILE_IO, NETWORK_IO, MIXED, CPU_BOUND, ALLOCATION_HEAVY (default: MIXED)"
     echo "  MIN_BLOCK_PERIOD_MS          Minimum block period in milliseconds (default: 500)"
     echo "  MAX_BLOCK_PERIOD_MS          Maximum block period in milliseconds (default: 2000)"
     echo "  CONCURRENT_REQUESTS          Number of concurrent requests (default: 50)"
     echo "  TOTAL_REQUESTS               Total number of requests (default: 1000)"
     echo "  TIMEOUT_SECONDS              Request timeout in seconds (default: 30)"
+    echo "  LOAD_GENERATOR               python (closed-loop) or java (open-loop) (default: python)"
+    echo "  ARRIVAL_RATE                 java only: requests per second (default: 100)"
+    echo "  RAMP_TO_RATE                 java only: ramp the rate to this value, needs DURATION_SECONDS"
+    echo "  DURATION_SECONDS             java only: run length, replaces TOTAL_REQUESTS"
+    echo "  ARRIVALS                     java only: constant or poisson gaps between requests (default: constant)"
     echo "  TIMESTAMP                    Timestamp for log files (default: generated)"
     echo ""
     echo "Examples:"
@@ -42,6 +54,7 @@ show_usage() {
     echo "  BASE_URL=http://remote:8080 $0        # Test remote server"
     echo "  $0 --env-file environments/fast-test.env"
     echo "  OPERATION_TYPE=SLEEP CONCURRENT_REQUESTS=200 $0"
+    echo "  LOAD_GENERATOR=java ARRIVAL_RATE=50 RAMP_TO_RATE=500 DURATION_SECONDS=60 $0"
 }
 
 # Default .env file location
@@ -110,6 +123,16 @@ if [ "$CONCURRENT_REQUESTS" -gt "$TOTAL_REQUESTS" ]; then
     exit 1
 fi
 
+if [ "$LOAD_GENERATOR" != "python" ] && [ "$LOAD_GENERATOR" != "java" ]; then
+    echo "Error: LOAD_GENERATOR must be python or java"
+    exit 1
+fi
+
+if [ -n "$RAMP_TO_RATE" ] && [ -z "$DURATION_SECONDS" ]; then
+    echo "Error: RAMP_TO_RATE requires DURATION_SECONDS"
+    exit 1
+fi
+
 # Create logs directory if it doesn't exist
 mkdir -p logs
 
@@ -118,7 +141,11 @@ echo "=================================="
 echo "Base URL: $BASE_URL"
 echo "Operation Type: $OPERATION_TYPE"
 echo "Block Period: ${MIN_BLOCK_PERIOD_MS}ms - ${MAX_BLOCK_PERIOD_MS}ms"
-echo "Load Test: ${CONCURRENT_REQUESTS} concurrent, ${TOTAL_REQUESTS} total requests, ${TIMEOUT_SECONDS}s timeout"
+if [ "$LOAD_GENERATOR" = "java" ]; then
+    echo "Load Test: open-loop ${ARRIVAL_RATE}${RAMP_TO_RATE:+ -> $RAMP_TO_RATE} req/s, ${DURATION_SECONDS:+${DURATION_SECONDS}s}${DURATION_SECONDS:-${TOTAL_REQUESTS} requests}, ${TIMEOUT_SECONDS}s timeout"
+else
+    echo "Load Test: ${CONCURRENT_REQUESTS} concurrent, ${TOTAL_REQUESTS} total requests, ${TIMEOUT_SECONDS}s timeout"
+fi
 echo "Timestamp: $TIMESTAMP"
 echo ""
 
@@ -129,11 +156,23 @@ echo "Test URL: $LOAD_TEST_URL"
 echo ""
 
 # Run the load test
-python3 perf-test-client/load-test.py \
-    --url "$LOAD_TEST_URL" \
-    --concurrent "$CONCURRENT_REQUESTS" \
-    --total "$TOTAL_REQUESTS" \
-    --timeout "$TIMEOUT_SECONDS"
+if [ "$LOAD_GENERATOR" = "java" ]; then
+    RESULT_FILE="logs/loadgen-$TIMESTAMP.json"
+    LOADGEN_ARGS="--url $LOAD_TEST_URL --rate $ARRIVAL_RATE --total $TOTAL_REQUESTS --arrivals $ARRIVALS --warmup $CONCURRENT_REQUESTS --timeout $TIMEOUT_SECONDS --output $RESULT_FILE"
+    if [ -n "$DURATION_SECONDS" ]; then
+        LOADGEN_ARGS="$LOADGEN_ARGS --duration $DURATION_SECONDS"
+    fi
+    if [ -n "$RAMP_TO_RATE" ]; then
+        LOADGEN_ARGS="$LOADGEN_ARGS --ramp-to $RAMP_TO_RATE"
+    fi
+    ./mvnw -B -q -Ploadgen -DskipTests verify "-Dloadgen.args=$LOADGEN_ARGS"
+else
+    python3 perf-test-client/load-test.py \
+        --url "$LOAD_TEST_URL" \
+        --concurrent "$CONCURRENT_REQUESTS" \
+        --total "$TOTAL_REQUESTS" \
+        --timeout "$TIMEOUT_SECONDS"
+fi
 
 LOAD_TEST_EXIT_CODE=$?
 
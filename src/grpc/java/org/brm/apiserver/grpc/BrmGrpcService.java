@@ -0,0 +1,161 @@
+package org.brm.apiserver.grpc;
+
+import io.grpc.Context;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import org.brm.apiserver.batch.BatchExecutor;
+import org.brm.apiserver.controller.rest.BatchRestController;
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.deadline.Deadline;
+import org.brm.apiserver.deadline.DeadlineExceededException;
+import org.brm.apiserver.limit.ConcurrencyLimiter;
+import org.brm.apiserver.limit.OperationLimiters;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.misc.CorpusNotReadyException;
+import org.brm.apiserver.misc.Utils;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code brm.v1.BrmService}: /rest/simple, /rest/blocking and /rest/batch over gRPC, on the same
+ * {@link BlockingSimulator}, limiters and {@link BatchExecutor} as the REST endpoints.
+ * <p>
+ * Calls run on the server's virtual thread executor and block like the servlet handlers do. The
+ * call deadline sent by the client is bound as {@link Deadline#CURRENT}, so blocking operations
+ * are capped by it the same way as by {@code X-Request-Timeout-Ms}. Responses carry the REST path
+ * in {@code path_string}, so both transports send the same payload.
+ */
+class BrmGrpcService {
+
+    private static final Logger log = LoggerFactory.getLogger(BrmGrpcService.class);
+
+    private final BlockingSimulator blockingSimulator;
+    private final OperationLimiters operationLimiters;
+    private final BatchExecutor batchExecutor;
+    private final int maxBatchOperations;
+    private final long batchTimeoutMs;
+
+    BrmGrpcService(BlockingSimulator blockingSimulator, OperationLimiters operationLimiters,
+                   BatchExecutor batchExecutor, int maxBatchOperations, long batchTimeoutMs) {
+        this.blockingSimulator = blockingSimulator;
+        this.operationLimiters = operationLimiters;
+        this.batchExecutor = batchExecutor;
+        this.maxBatchOperations = maxBatchOperations;
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    ServerServiceDefinition definition() {
+        return ServerServiceDefinition.builder(BrmProtocol.SERVICE)
+                .addMethod(BrmProtocol.SIMPLE, ServerCalls.asyncUnaryCall(this::simple))
+                .addMethod(BrmProtocol.BLOCKING, ServerCalls.asyncUnaryCall(this::blocking))
+                .addMethod(BrmProtocol.BATCH, ServerCalls.asyncServerStreamingCall(this::batch))
+                .build();
+    }
+
+    private void simple(BrmProtocol.Empty request, StreamObserver<SimpleResponse> responseObserver) {
+        responseObserver.onNext(Utils.newSimpleResponse(SimpleRestController.PATH_SIMPLE));
+        responseObserver.onCompleted();
+    }
+
+    private void blocking(BatchOperation request, StreamObserver<SimpleResponse> responseObserver) {
+        // Admission control per performed type, excess load is rejected instead of queued
+        OperationType resolvedOperationType = blockingSimulator.resolveOperationType(request.operationType());
+        OperationType performedOperationType = blockingSimulator.selectOperationType(resolvedOperationType);
+        ConcurrencyLimiter.Permit permit = operationLimiters.tryAcquire(performedOperationType);
+        if (permit == null) {
+            responseObserver.onError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Too many concurrent " + performedOperationType + " operations")
+                    .asRuntimeException());
+            return;
+        }
+
+        int plannedMs;
+        try {
+            plannedMs = withCallDeadline(() -> blockingSimulator.performBlockingOperation(resolvedOperationType,
+                    performedOperationType, request.minBlockPeriodMs(), request.maxBlockPeriodMs()));
+        } catch (RuntimeException | Error e) {
+            permit.releaseWithoutSample();
+            responseObserver.onError(toStatus(e));
+            return;
+        }
+        permit.release(TimeUnit.MILLISECONDS.toNanos(plannedMs));
+
+        responseObserver.onNext(Utils.newSimpleResponse(SimpleRestController.PATH_BLOCKING));
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Streams one result per operation in completion order. The batch runs until the call
+     * deadline, or {@code brm.batch.timeout-ms} without one; a cancelled call cancels the batch.
+     */
+    private void batch(BrmProtocol.BatchRequest request, StreamObserver<BatchResult> responseObserver) {
+        if (request.operations().isEmpty() || request.operations().size() > maxBatchOperations) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                    .withDescription("A batch takes 1 to " + maxBatchOperations + " operations")
+                    .asRuntimeException());
+            return;
+        }
+        Context context = Context.current();
+        long timeoutMs = batchTimeoutMs;
+        if (context.getDeadline() != null) {
+            timeoutMs = Math.min(timeoutMs, context.getDeadline().timeRemaining(TimeUnit.MILLISECONDS));
+        }
+
+        try {
+            batchExecutor.execute(request.operations(), Duration.ofMillis(Math.max(1, timeoutMs)),
+                    BatchRestController.PATH_BATCH, result -> {
+                        if (context.isCancelled()) {
+                            throw new IOException("Call cancelled by the client");
+                        }
+                        responseObserver.onNext(result);
+                    });
+            responseObserver.onCompleted();
+        } catch (IOException e) {
+            // the client is gone, nobody is left to tell
+            log.debug("Batch call cancelled: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            responseObserver.onError(Status.CANCELLED.withDescription("Server shutting down").asRuntimeException());
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus(e));
+        }
+    }
+
+    /**
+     * Runs {@code operation} under the call deadline, if the client sent one: bound as
+     * {@link Deadline#CURRENT} and interrupting the call's thread once it passes, as for REST
+     */
+    private static <T> T withCallDeadline(ScopedValue.CallableOp<T, RuntimeException> operation) {
+        io.grpc.Deadline callDeadline = Context.current().getDeadline();
+        if (callDeadline == null) {
+            return operation.call();
+        }
+        return Deadline.run(Deadline.after(Duration.ofNanos(callDeadline.timeRemaining(TimeUnit.NANOSECONDS))),
+                operation);
+    }
+
+    private static StatusRuntimeException toStatus(Throwable e) {
+        if (e instanceof DeadlineExceededException) {
+            return Status.DEADLINE_EXCEEDED.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof CorpusNotReadyException) {
+            return Status.UNAVAILABLE.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+        }
+        log.warn("gRPC call failed", e);
+        return Status.INTERNAL.withDescription(e.getMessage()).withCause(e).asRuntimeException();
+    }
+}
@@ -0,0 +1,430 @@
+package org.brm.apiserver.grpc;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Methods and protobuf wire format of {@code brm.v1.BrmService}, see src/grpc/proto/brm/v1/brm.proto.
+ * <p>
+ * Messages are the existing model classes, encoded by hand with {@link CodedOutputStream} like
+ * {@link org.brm.apiserver.misc.SimpleResponseEncoder} writes their JSON: no generated classes, no
+ * copies between generated and model types. Enum numbers are mapped explicitly, 0 being
+ * unspecified in proto3; BrmProtocolTests checks every message against the descriptor compiled
+ * from brm.proto.
+ */
+final class BrmProtocol {
+
+    static final String SERVICE = "brm.v1.BrmService";
+
+    static final MethodDescriptor<Empty, SimpleResponse> SIMPLE = MethodDescriptor.<Empty, SimpleResponse>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, "Simple"))
+            .setRequestMarshaller(new EmptyMarshaller())
+            .setResponseMarshaller(new SimpleResponseMarshaller())
+            .setSafe(true)
+            .setIdempotent(true)
+            .build();
+
+    static final MethodDescriptor<BatchOperation, SimpleResponse> BLOCKING =
+            MethodDescriptor.<BatchOperation, SimpleResponse>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, "Blocking"))
+                    .setRequestMarshaller(new BlockingRequestMarshaller())
+                    .setResponseMarshaller(new SimpleResponseMarshaller())
+                    .build();
+
+    static final MethodDescriptor<BatchRequest, BatchResult> BATCH =
+            MethodDescriptor.<BatchRequest, BatchResult>newBuilder()
+                    .setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, "Batch"))
+                    .setRequestMarshaller(new BatchRequestMarshaller())
+                    .setResponseMarshaller(new BatchResultMarshaller())
+                    .build();
+
+    private BrmProtocol() {
+    }
+
+    /**
+     * Request of the Simple method
+     */
+    record Empty() {
+        static final Empty INSTANCE = new Empty();
+    }
+
+    /**
+     * Request of the Batch method; its operations are BlockingRequest messages
+     */
+    record BatchRequest(List<BatchOperation> operations) {
+    }
+
+    /// marshalling
+    /// -----------
+
+    /**
+     * Encodes into an exactly sized array and decodes from the stream gRPC hands over; unknown
+     * fields are skipped, as protobuf requires
+     */
+    private abstract static class Marshaller<T> implements MethodDescriptor.Marshaller<T> {
+
+        abstract int size(T value);
+
+        abstract void write(T value, CodedOutputStream out) throws IOException;
+
+        abstract T read(CodedInputStream in) throws IOException;
+
+        @Override
+        public InputStream stream(T value) {
+            byte[] bytes = new byte[size(value)];
+            CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+            try {
+                write(value, out);
+                out.checkNoSpaceLeft();
+            } catch (IOException e) {
+                throw Status.INTERNAL.withDescription("Failed to encode " + value).withCause(e).asRuntimeException();
+            }
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public T parse(InputStream stream) {
+            try {
+                return read(CodedInputStream.newInstance(stream));
+            } catch (IOException | IllegalArgumentException e) {
+                throw Status.INVALID_ARGUMENT.withDescription("Malformed message: " + e.getMessage())
+                        .withCause(e).asRuntimeException();
+            }
+        }
+    }
+
+    private static final class EmptyMarshaller extends Marshaller<Empty> {
+
+        @Override
+        int size(Empty value) {
+            return 0;
+        }
+
+        @Override
+        void write(Empty value, CodedOutputStream out) {
+        }
+
+        @Override
+        Empty read(CodedInputStream in) throws IOException {
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                in.skipField(tag);
+            }
+            return Empty.INSTANCE;
+        }
+    }
+
+    private static final class SimpleResponseMarshaller extends Marshaller<SimpleResponse> {
+
+        @Override
+        int size(SimpleResponse value) {
+            return stringSize(1, value.getHostString()) + stringSize(2, value.getPathString())
+                    + stringSize(3, value.getTimeString()) + int32Size(4, value.getRandomInteger())
+                    + stringSize(5, value.getThreadID());
+        }
+
+        @Override
+        void write(SimpleResponse value, CodedOutputStream out) throws IOException {
+            writeString(out, 1, value.getHostString());
+            writeString(out, 2, value.getPathString());
+            writeString(out, 3, value.getTimeString());
+            writeInt32(out, 4, value.getRandomInteger());
+            writeString(out, 5, value.getThreadID());
+        }
+
+        @Override
+        SimpleResponse read(CodedInputStream in) throws IOException {
+            SimpleResponse value = new SimpleResponse();
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> value.setHostString(in.readStringRequireUtf8());
+                    case 2 -> value.setPathString(in.readStringRequireUtf8());
+                    case 3 -> value.setTimeString(in.readStringRequireUtf8());
+                    case 4 -> value.setRandomInteger(in.readInt32());
+                    case 5 -> value.setThreadID(in.readStringRequireUtf8());
+                    default -> in.skipField(tag);
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * BlockingRequest message, a {@link BatchOperation} on the Java side. Its fields are proto3
+     * optional, so they are sent whenever they are set, even as 0.
+     */
+    private static final class BlockingRequestMarshaller extends Marshaller<BatchOperation> {
+
+        @Override
+        int size(BatchOperation value) {
+            int size = 0;
+            if (value.operationType() != null) {
+                size += CodedOutputStream.computeStringSize(1, value.operationType());
+            }
+            if (value.minBlockPeriodMs() != null) {
+                size += CodedOutputStream.computeInt32Size(2, value.minBlockPeriodMs());
+            }
+            if (value.maxBlockPeriodMs() != null) {
+                size += CodedOutputStream.computeInt32Size(3, value.maxBlockPeriodMs());
+            }
+            return size;
+        }
+
+        @Override
+        void write(BatchOperation value, CodedOutputStream out) throws IOException {
+            if (value.operationType() != null) {
+                out.writeString(1, value.operationType());
+            }
+            if (value.minBlockPeriodMs() != null) {
+                out.writeInt32(2, value.minBlockPeriodMs());
+            }
+            if (value.maxBlockPeriodMs() != null) {
+                out.writeInt32(3, value.maxBlockPeriodMs());
+            }
+        }
+
+        @Override
+        BatchOperation read(CodedInputStream in) throws IOException {
+            String operationType = null;
+            Integer minBlockPeriodMs = null;
+            Integer maxBlockPeriodMs = null;
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> operationType = in.readStringRequireUtf8();
+                    case 2 -> minBlockPeriodMs = in.readInt32();
+                    case 3 -> maxBlockPeriodMs = in.readInt32();
+                    default -> in.skipField(tag);
+                }
+            }
+            return new BatchOperation(operationType, minBlockPeriodMs, maxBlockPeriodMs);
+        }
+    }
+
+    private static final class BatchRequestMarshaller extends Marshaller<BatchRequest> {
+
+        private final BlockingRequestMarshaller operation = new BlockingRequestMarshaller();
+
+        @Override
+        int size(BatchRequest value) {
+            int size = 0;
+            for (BatchOperation batchOperation : value.operations()) {
+                size += messageSize(1, operation.size(batchOperation));
+            }
+            return size;
+        }
+
+        @Override
+        void write(BatchRequest value, CodedOutputStream out) throws IOException {
+            for (BatchOperation batchOperation : value.operations()) {
+                out.writeTag(1, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(operation.size(batchOperation));
+                operation.write(batchOperation, out);
+            }
+        }
+
+        @Override
+        BatchRequest read(CodedInputStream in) throws IOException {
+            List<BatchOperation> operations = new ArrayList<>();
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                if (WireFormat.getTagFieldNumber(tag) == 1) {
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    operations.add(operation.read(in));
+                    in.popLimit(limit);
+                } else {
+                    in.skipField(tag);
+                }
+            }
+            return new BatchRequest(operations);
+        }
+    }
+
+    private static final class BatchResultMarshaller extends Marshaller<BatchResult> {
+
+        private final SimpleResponseMarshaller response = new SimpleResponseMarshaller();
+
+        @Override
+        int size(BatchResult value) {
+            int size = int32Size(1, value.index()) + enumSize(2, number(value.operationType()))
+                    + enumSize(3, number(value.performedOperationType())) + enumSize(4, number(value.status()))
+                    + int32Size(5, value.plannedMs()) + doubleSize(6, value.durationMs())
+                    + doubleSize(7, value.completedAtMs());
+            if (value.response() != null) {
+                size += messageSize(8, response.size(value.response()));
+            }
+            return size;
+        }
+
+        @Override
+        void write(BatchResult value, CodedOutputStream out) throws IOException {
+            writeInt32(out, 1, value.index());
+            writeEnum(out, 2, number(value.operationType()));
+            writeEnum(out, 3, number(value.performedOperationType()));
+            writeEnum(out, 4, number(value.status()));
+            writeInt32(out, 5, value.plannedMs());
+            writeDouble(out, 6, value.durationMs());
+            writeDouble(out, 7, value.completedAtMs());
+            if (value.response() != null) {
+                out.writeTag(8, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeUInt32NoTag(response.size(value.response()));
+                response.write(value.response(), out);
+            }
+        }
+
+        @Override
+        BatchResult read(CodedInputStream in) throws IOException {
+            int index = 0;
+            OperationType operationType = null;
+            OperationType performedOperationType = null;
+            BatchResult.Status status = null;
+            int plannedMs = 0;
+            double durationMs = 0;
+            double completedAtMs = 0;
+            SimpleResponse simpleResponse = null;
+            int tag;
+            while ((tag = in.readTag()) != 0) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case 1 -> index = in.readInt32();
+                    case 2 -> operationType = operationType(in.readEnum());
+                    case 3 -> performedOperationType = operationType(in.readEnum());
+                    case 4 -> status = status(in.readEnum());
+                    case 5 -> plannedMs = in.readInt32();
+                    case 6 -> durationMs = in.readDouble();
+                    case 7 -> completedAtMs = in.readDouble();
+                    case 8 -> {
+                        int limit = in.pushLimit(in.readRawVarint32());
+                        simpleResponse = response.read(in);
+                        in.popLimit(limit);
+                    }
+                    default -> in.skipField(tag);
+                }
+            }
+            return new BatchResult(index, operationType, performedOperationType, status, plannedMs,
+                    durationMs, completedAtMs, simpleResponse);
+        }
+    }
+
+    /// proto3 scalars, default values are not sent
+    /// ---------------------------------------------
+
+    private static int stringSize(int field, String value) {
+        return value == null || value.isEmpty() ? 0 : CodedOutputStream.computeStringSize(field, value);
+    }
+
+    private static int int32Size(int field, Integer value) {
+        return value == null || value == 0 ? 0 : CodedOutputStream.computeInt32Size(field, value);
+    }
+
+    private static int doubleSize(int field, double value) {
+        return value == 0 ? 0 : CodedOutputStream.computeDoubleSize(field, value);
+    }
+
+    private static int enumSize(int field, int number) {
+        return number == 0 ? 0 : CodedOutputStream.computeEnumSize(field, number);
+    }
+
+    private static int messageSize(int field, int size) {
+        return CodedOutputStream.computeTagSize(field) + CodedOutputStream.computeUInt32SizeNoTag(size) + size;
+    }
+
+    private static void writeString(CodedOutputStream out, int field, String value) throws IOException {
+        if (value != null && !value.isEmpty()) {
+            out.writeString(field, value);
+        }
+    }
+
+    private static void writeInt32(CodedOutputStream out, int field, Integer value) throws IOException {
+        if (value != null && value != 0) {
+            out.writeInt32(field, value);
+        }
+    }
+
+    private static void writeDouble(CodedOutputStream out, int field, double value) throws IOException {
+        if (value != 0) {
+            out.writeDouble(field, value);
+        }
+    }
+
+    private static void writeEnum(CodedOutputStream out, int field, int number) throws IOException {
+        if (number != 0) {
+            out.writeEnum(field, number);
+        }
+    }
+
+    /// enum numbers of brm.proto, switches without default so a new constant does not compile unmapped
+    /// ---------------------------------------------------------------------------------------------
+
+    static int number(OperationType value) {
+        if (value == null) {
+            return 0;
+        }
+        return switch (value) {
+            case SLEEP -> 1;
+            case FILE_IO -> 2;
+            case NETWORK_IO -> 3;
+            case MIXED -> 4;
+            case CPU_BOUND -> 5;
+            case ALLOCATION_HEAVY -> 6;
+        };
+    }
+
+    static int number(BatchResult.Status value) {
+        if (value == null) {
+            return 0;
+        }
+        return switch (value) {
+            case OK -> 1;
+            case REJECTED -> 2;
+            case TIMEOUT -> 3;
+            case CANCELLED -> 4;
+            case FAILED -> 5;
+        };
+    }
+
+    /**
+     * @return null for unspecified and numbers this side does not know yet
+     */
+    static OperationType operationType(int number) {
+        return switch (number) {
+            case 1 -> OperationType.SLEEP;
+            case 2 -> OperationType.FILE_IO;
+            case 3 -> OperationType.NETWORK_IO;
+            case 4 -> OperationType.MIXED;
+            case 5 -> OperationType.CPU_BOUND;
+            case 6 -> OperationType.ALLOCATION_HEAVY;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return null for unspecified and numbers this side does not know yet
+     */
+    static BatchResult.Status status(int number) {
+        return switch (number) {
+            case 1 -> BatchResult.Status.OK;
+            case 2 -> BatchResult.Status.REJECTED;
+            case 3 -> BatchResult.Status.TIMEOUT;
+            case 4 -> BatchResult.Status.CANCELLED;
+            case 5 -> BatchResult.Status.FAILED;
+            default -> null;
+        };
+    }
+}
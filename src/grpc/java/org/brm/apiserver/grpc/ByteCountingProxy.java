@@ -0,0 +1,106 @@
+package org.brm.apiserver.grpc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loopback TCP proxy that counts the bytes relayed in each direction, so both transports are
+ * measured the same way, below HTTP. One virtual thread per direction and connection.
+ */
+final class ByteCountingProxy implements Closeable {
+
+    private final InetSocketAddress target;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final LongAdder upstreamBytes = new LongAdder();
+    private final LongAdder downstreamBytes = new LongAdder();
+    private final AtomicLong connections = new AtomicLong();
+
+    ByteCountingProxy(InetSocketAddress target) throws IOException {
+        this.target = target;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().name("byte-counting-proxy").start(this::accept);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    long upstreamBytes() {
+        return upstreamBytes.sum();
+    }
+
+    long downstreamBytes() {
+        return downstreamBytes.sum();
+    }
+
+    long connections() {
+        return connections.get();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                // closed
+                continue;
+            }
+            sockets.add(client);
+            try {
+                Socket server = new Socket(target.getAddress(), target.getPort());
+                sockets.add(server);
+                client.setTcpNoDelay(true);
+                server.setTcpNoDelay(true);
+                connections.incrementAndGet();
+                Thread.ofVirtual().start(() -> relay(client, server, upstreamBytes));
+                Thread.ofVirtual().start(() -> relay(server, client, downstreamBytes));
+            } catch (IOException e) {
+                // the target refused, the client sees the connection closed
+                closeQuietly(client);
+            }
+        }
+    }
+
+    private void relay(Socket from, Socket to, LongAdder counter) {
+        byte[] buffer = new byte[16 * 1024];
+        try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+                counter.add(read);
+            }
+        } catch (IOException e) {
+            // either side went away
+        } finally {
+            closeQuietly(from);
+            closeQuietly(to);
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        sockets.remove(socket);
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sockets.forEach(this::closeQuietly);
+    }
+}
@@ -0,0 +1,44 @@
+package org.brm.apiserver.grpc;
+
+import org.brm.apiserver.BrmApiserverApplication;
+import org.brm.apiserver.batch.BatchExecutor;
+import org.brm.apiserver.limit.OperationLimiters;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+
+/**
+ * The servlet application plus a gRPC server for {@code brm.v1.BrmService} on {@code brm.grpc.port},
+ * so REST and gRPC can be compared in one process, on the same simulator and limiters.
+ * <p>
+ * Deliberately not a {@code @Configuration}, for the same reason as the reactive application: the
+ * {@code grpc} Maven profile puts it on the servlet application's class path, and its component
+ * scan must not pick it up. Run with {@code ./mvnw -Pgrpc -DskipTests verify}, or
+ * {@code SERVER_STACK=grpc ./build/start-limited.sh}.
+ */
+public class GrpcApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(BrmApiserverApplication.class, GrpcApplication.class).run(args);
+    }
+
+    /**
+     * Started with the context and stopped before the beans its calls use
+     */
+    @Bean(destroyMethod = "close")
+    public GrpcServer grpcServer(
+            BlockingSimulator blockingSimulator,
+            OperationLimiters operationLimiters,
+            BatchExecutor batchExecutor,
+            @Value("${brm.grpc.port:9090}") int port,
+            @Value("${brm.grpc.max-inbound-message-kb:4096}") int maxInboundMessageKb,
+            @Value("${brm.batch.max-operations:1000}") int maxBatchOperations,
+            @Value("${brm.batch.timeout-ms:30000}") long batchTimeoutMs) throws IOException {
+        BrmGrpcService service = new BrmGrpcService(blockingSimulator, operationLimiters, batchExecutor,
+                maxBatchOperations, batchTimeoutMs);
+        return GrpcServer.start(service, port, maxInboundMessageKb);
+    }
+}
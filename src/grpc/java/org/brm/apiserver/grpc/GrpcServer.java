@@ -0,0 +1,72 @@
+package org.brm.apiserver.grpc;
+
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plaintext HTTP/2 server for {@link BrmGrpcService}. Every call runs on its own virtual thread;
+ * Netty's event loop only moves bytes.
+ */
+public class GrpcServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(GrpcServer.class);
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    private final Server server;
+    private final ExecutorService executor;
+
+    private GrpcServer(Server server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    static GrpcServer start(BrmGrpcService service, int port, int maxInboundMessageKb) throws IOException {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        Server server = Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+                .executor(executor)
+                .addService(service.definition())
+                .maxInboundMessageSize(maxInboundMessageKb * 1024)
+                .build();
+        try {
+            server.start();
+        } catch (IOException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+        log.info("gRPC server listening on port {}", server.getPort());
+        return new GrpcServer(server, executor);
+    }
+
+    int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * Stop accepting calls and give running calls a grace period before they are cancelled
+     */
+    @Override
+    public void close() {
+        server.shutdown();
+        try {
+            if (!server.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                server.shutdownNow();
+                server.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            server.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
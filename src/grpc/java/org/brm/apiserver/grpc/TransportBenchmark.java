@@ -0,0 +1,315 @@
+package org.brm.apiserver.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Grpc;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import org.brm.apiserver.controller.rest.BatchRestController;
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.deadline.DeadlineFilter;
+import org.brm.apiserver.metrics.LatencyHistogram;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop comparison of the REST endpoints and {@code brm.v1.BrmService} on one server over
+ * loopback: throughput and latency per call and transport, then bytes on the wire per call.
+ * <p>
+ * Each run keeps {@code --concurrency} virtual thread workers busy, each sending its next call as
+ * soon as the previous one returned. REST goes over HTTP/1.1 with a connection per worker, as the
+ * load generator and most clients do; gRPC multiplexes all workers over one HTTP/2 connection.
+ * Responses are decoded on both sides. Bytes are counted by a separate sequential pass through a
+ * {@link ByteCountingProxy}, so the proxy hop does not distort the latencies.
+ * Run with {@code ./build/run-transport-benchmark.sh} against {@code SERVER_STACK=grpc ./build/start-limited.sh}.
+ */
+public final class TransportBenchmark {
+
+    private final TransportOptions options;
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    TransportBenchmark(TransportOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        TransportOptions options;
+        try {
+            options = TransportOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(TransportOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        TransportReport report = new TransportBenchmark(options).run();
+        report.print();
+        if (options.output() != null) {
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(new File(options.output()), report);
+            System.out.println("Results written to " + options.output());
+        }
+    }
+
+    TransportReport run() throws Exception {
+        List<TransportReport.Result> results = new ArrayList<>();
+        for (String call : options.calls()) {
+            for (String transport : options.transports()) {
+                TransportReport.Wire wire = options.bytesCalls() > 0 ? measureWire(call, transport) : null;
+                try (Client client = client(transport, null)) {
+                    System.out.printf("%s/%s: warmup %ds, run %ds%n", call, transport,
+                            options.warmup().toSeconds(), options.duration().toSeconds());
+                    closedLoop(client, call, options.warmup());
+                    results.add(closedLoop(client, call, options.duration()).result(call, transport, wire));
+                }
+            }
+        }
+        return new TransportReport(options.concurrency(), options.duration().toMillis() / 1000.0,
+                options.operationType(), options.minBlockPeriodMs(), options.maxBlockPeriodMs(),
+                options.batchSize(), results);
+    }
+
+    private Run closedLoop(Client client, String call, Duration duration) {
+        Run run = new Run();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + duration.toNanos();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.concurrency(); i++) {
+                workers.execute(() -> {
+                    while (System.nanoTime() - endNanos < 0) {
+                        long callStartNanos = System.nanoTime();
+                        try {
+                            client.call(call);
+                        } catch (Exception e) {
+                            run.fail(e);
+                        }
+                        run.latency.recordNanos(System.nanoTime() - callStartNanos);
+                        run.calls.increment();
+                    }
+                });
+            }
+        }
+        run.elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        return run;
+    }
+
+    /**
+     * Sequential calls through the proxy; connection setup is spread over all of them
+     */
+    private TransportReport.Wire measureWire(String call, String transport) throws Exception {
+        InetSocketAddress target = transport.equals("rest")
+                ? new InetSocketAddress(options.restUri().getHost(), options.restUri().getPort())
+                : new InetSocketAddress(options.grpcHost(), options.grpcPort());
+        try (ByteCountingProxy proxy = new ByteCountingProxy(target)) {
+            try (Client client = client(transport, proxy)) {
+                for (int i = 0; i < options.bytesCalls(); i++) {
+                    client.call(call);
+                }
+            }
+            return new TransportReport.Wire(options.bytesCalls(),
+                    (double) proxy.upstreamBytes() / options.bytesCalls(),
+                    (double) proxy.downstreamBytes() / options.bytesCalls(), proxy.connections());
+        }
+    }
+
+    private Client client(String transport, ByteCountingProxy proxy) {
+        if (transport.equals("rest")) {
+            URI base = proxy != null
+                    ? URI.create(options.restUri().getScheme() + "://127.0.0.1:" + proxy.getPort())
+                    : options.restUri();
+            return new RestClient(base);
+        }
+        return proxy != null
+                ? new GrpcClient("127.0.0.1", proxy.getPort())
+                : new GrpcClient(options.grpcHost(), options.grpcPort());
+    }
+
+    private List<BatchOperation> batchOperations() {
+        return Collections.nCopies(options.batchSize(), blockingOperation());
+    }
+
+    private BatchOperation blockingOperation() {
+        return new BatchOperation(options.operationType(), options.minBlockPeriodMs(), options.maxBlockPeriodMs());
+    }
+
+    /**
+     * Counters of one closed-loop run
+     */
+    private static final class Run {
+
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder calls = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        double elapsedSeconds;
+
+        void fail(Exception e) {
+            failed.increment();
+            String error = switch (e) {
+                case StatusRuntimeException s -> s.getStatus().getCode().name();
+                case HttpTimeoutException t -> "timeout";
+                default -> e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+            };
+            errors.computeIfAbsent(error, k -> new LongAdder()).increment();
+        }
+
+        TransportReport.Result result(String call, String transport, TransportReport.Wire wire) {
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((error, count) -> errorCounts.put(error, count.sum()));
+            return new TransportReport.Result(call, transport, calls.sum(), failed.sum(),
+                    calls.sum() / elapsedSeconds, TransportReport.Latency.of(latency.snapshot()), wire, errorCounts);
+        }
+    }
+
+    /// clients
+    /// -------
+
+    private interface Client extends AutoCloseable {
+
+        /**
+         * One call, with the response decoded; fails unless every result is OK
+         */
+        void call(String call) throws Exception;
+
+        @Override
+        void close();
+    }
+
+    private final class RestClient implements Client {
+
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final HttpClient client;
+        private final HttpRequest simple;
+        private final HttpRequest blocking;
+        private final HttpRequest batch;
+
+        RestClient(URI base) {
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(options.timeout())
+                    .executor(executor)
+                    .build();
+            String rest = base + SimpleRestController.PATH;
+            simple = request(rest + SimpleRestController.PATH_SIMPLE).GET().build();
+            blocking = request(rest + SimpleRestController.PATH_BLOCKING
+                    + "?operation-type=" + options.operationType()
+                    + "&min-block-period-ms=" + options.minBlockPeriodMs()
+                    + "&max-block-period-ms=" + options.maxBlockPeriodMs()).GET().build();
+            batch = request(rest + BatchRestController.PATH_BATCH + "?timeout-ms=" + options.timeout().toMillis())
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(jsonMapper.writeValueAsBytes(batchOperations())))
+                    .build();
+        }
+
+        // the server cancels work for calls this client has already given up on, like a gRPC deadline
+        private HttpRequest.Builder request(String uri) {
+            return HttpRequest.newBuilder(URI.create(uri))
+                    .timeout(options.timeout())
+                    .header(DeadlineFilter.HEADER_TIMEOUT, Long.toString(options.timeout().toMillis()));
+        }
+
+        @Override
+        public void call(String call) throws IOException, InterruptedException {
+            HttpRequest request = switch (call) {
+                case "simple" -> simple;
+                case "blocking" -> blocking;
+                default -> batch;
+            };
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode());
+            }
+            if (request != batch) {
+                jsonMapper.readValue(response.body(), SimpleResponse.class);
+                return;
+            }
+            for (String line : response.body().split("\n")) {
+                BatchResult result = jsonMapper.readValue(line, BatchResult.class);
+                if (result.status() != BatchResult.Status.OK) {
+                    throw new IOException("Batch operation " + result.status());
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            client.close();
+            executor.close();
+        }
+    }
+
+    private final class GrpcClient implements Client {
+
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        private final ManagedChannel channel;
+        private final BatchOperation blocking = blockingOperation();
+        private final BrmProtocol.BatchRequest batch = new BrmProtocol.BatchRequest(batchOperations());
+
+        GrpcClient(String host, int port) {
+            channel = Grpc.newChannelBuilderForAddress(host, port, InsecureChannelCredentials.create())
+                    .executor(executor)
+                    .build();
+        }
+
+        @Override
+        public void call(String call) throws IOException {
+            CallOptions callOptions = CallOptions.DEFAULT
+                    .withDeadlineAfter(options.timeout().toMillis(), TimeUnit.MILLISECONDS);
+            switch (call) {
+                case "simple" -> ClientCalls.blockingUnaryCall(channel, BrmProtocol.SIMPLE, callOptions,
+                        BrmProtocol.Empty.INSTANCE);
+                case "blocking" -> ClientCalls.blockingUnaryCall(channel, BrmProtocol.BLOCKING, callOptions, blocking);
+                default -> {
+                    Iterator<BatchResult> results = ClientCalls.blockingServerStreamingCall(channel,
+                            BrmProtocol.BATCH, callOptions, batch);
+                    // drained to the end, an abandoned iterator would leave the call open
+                    BatchResult.Status failed = null;
+                    while (results.hasNext()) {
+                        BatchResult result = results.next();
+                        if (result.status() != BatchResult.Status.OK) {
+                            failed = result.status();
+                        }
+                    }
+                    if (failed != null) {
+                        throw new IOException("Batch operation " + failed);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            channel.shutdownNow();
+            try {
+                channel.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor.close();
+        }
+    }
+}
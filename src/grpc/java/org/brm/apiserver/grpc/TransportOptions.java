@@ -0,0 +1,82 @@
+package org.brm.apiserver.grpc;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the transport benchmark
+ */
+record TransportOptions(URI restUri, String grpcHost, int grpcPort, List<String> calls, List<String> transports,
+                        int concurrency, Duration duration, Duration warmup, int bytesCalls, int batchSize,
+                        String operationType, int minBlockPeriodMs, int maxBlockPeriodMs, Duration timeout,
+                        String output) {
+
+    static final List<String> CALLS = List.of("simple", "blocking", "batch");
+    static final List<String> TRANSPORTS = List.of("rest", "grpc");
+
+    static final String USAGE = """
+            Usage: TransportBenchmark [options]
+              --rest URL                     REST base URL (default: http://127.0.0.1:8080)
+              --grpc HOST:PORT               gRPC address (default: 127.0.0.1:9090)
+              --calls LIST                   simple, blocking, batch (default: simple,blocking)
+              --transports LIST              rest, grpc (default: rest,grpc)
+              --concurrency N                Closed-loop workers per call and transport (default: 64)
+              --duration SECONDS             Measured run per call and transport (default: 10)
+              --warmup SECONDS               Unmeasured run before each measured one (default: 3)
+              --bytes-calls N                Sequential calls through the byte counting proxy (default: 1000)
+              --batch-size N                 Operations per batch call (default: 10)
+              --operation-type TYPE          Blocking operation type (default: sleep)
+              --min-block-period-ms MS       (default: 10)
+              --max-block-period-ms MS       (default: 10)
+              --timeout SECONDS              Call timeout and deadline (default: 30)
+              --output FILE                  JSON result file (default: print only)
+            """;
+
+    static TransportOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + args[i]);
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+
+        URI restUri = URI.create(values.getOrDefault("rest", "http://127.0.0.1:8080"));
+        String grpc = values.getOrDefault("grpc", "127.0.0.1:9090");
+        int colon = grpc.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("--grpc takes HOST:PORT, got: " + grpc);
+        }
+        List<String> calls = list(values.getOrDefault("calls", "simple,blocking"), CALLS);
+        List<String> transports = list(values.getOrDefault("transports", "rest,grpc"), TRANSPORTS);
+        int concurrency = Integer.parseInt(values.getOrDefault("concurrency", "64"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "10")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "3")));
+        int bytesCalls = Integer.parseInt(values.getOrDefault("bytes-calls", "1000"));
+        int batchSize = Integer.parseInt(values.getOrDefault("batch-size", "10"));
+        int minBlockPeriodMs = Integer.parseInt(values.getOrDefault("min-block-period-ms", "10"));
+        int maxBlockPeriodMs = Integer.parseInt(values.getOrDefault("max-block-period-ms", "10"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeout", "30")));
+        if (concurrency <= 0 || duration.isZero() || warmup.isNegative() || bytesCalls < 0 || batchSize <= 0
+                || minBlockPeriodMs < 0 || maxBlockPeriodMs < minBlockPeriodMs || timeout.isZero()) {
+            throw new IllegalArgumentException("Counts, durations and block periods must be positive");
+        }
+        return new TransportOptions(restUri, grpc.substring(0, colon), Integer.parseInt(grpc.substring(colon + 1)),
+                calls, transports, concurrency, duration, warmup, bytesCalls, batchSize,
+                values.getOrDefault("operation-type", "sleep"), minBlockPeriodMs, maxBlockPeriodMs, timeout,
+                values.get("output"));
+    }
+
+    private static List<String> list(String value, List<String> allowed) {
+        List<String> list = List.of(value.toLowerCase().split(","));
+        for (String item : list) {
+            if (!allowed.contains(item)) {
+                throw new IllegalArgumentException("Unknown " + item + ", expected one of " + allowed);
+            }
+        }
+        return list;
+    }
+}
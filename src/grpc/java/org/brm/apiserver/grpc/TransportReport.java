@@ -0,0 +1,65 @@
+package org.brm.apiserver.grpc;
+
+import org.brm.apiserver.metrics.LatencyHistogram;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of one transport benchmark run. Bytes are counted on the TCP connections, so they include
+ * HTTP headers and HTTP/2 framing, amortized connection setup and, for gRPC, flow control frames.
+ */
+public record TransportReport(int concurrency, double durationSeconds, String operationType,
+                              int minBlockPeriodMs, int maxBlockPeriodMs, int batchSize,
+                              List<Result> results) {
+
+    /**
+     * One call over one transport
+     */
+    public record Result(String call, String transport, long calls, long failed, double throughput,
+                         Latency latencyMs, Wire wire, Map<String, Long> errors) {
+    }
+
+    /**
+     * Latency distribution in milliseconds
+     */
+    public record Latency(double mean, double p50, double p90, double p99, double p999, double max) {
+
+        static Latency of(LatencyHistogram.Snapshot snapshot) {
+            return new Latency(snapshot.meanMicros() / 1000, snapshot.p50Micros() / 1000.0,
+                    snapshot.p90Micros() / 1000.0, snapshot.p99Micros() / 1000.0,
+                    snapshot.p999Micros() / 1000.0, snapshot.maxMicros() / 1000.0);
+        }
+    }
+
+    /**
+     * Bytes per call in each direction, measured over sequential calls on one client
+     */
+    public record Wire(long calls, double requestBytes, double responseBytes, long connections) {
+    }
+
+    void print() {
+        System.out.println();
+        System.out.println("=".repeat(100));
+        System.out.printf("=== Transport Benchmark: %d workers, %.0fs per run, %s %d-%dms ===%n",
+                concurrency, durationSeconds, operationType, minBlockPeriodMs, maxBlockPeriodMs);
+        System.out.printf("%-9s %-5s %10s %7s %10s %8s %8s %8s %8s %9s %9s%n", "Call", "Stack", "Calls",
+                "Failed", "Calls/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "Req B", "Resp B");
+        for (Result result : results) {
+            System.out.printf("%-9s %-5s %10d %7d %10.1f %8.2f %8.2f %8.2f %8.2f %9.1f %9.1f%n",
+                    result.call(), result.transport(), result.calls(), result.failed(), result.throughput(),
+                    result.latencyMs().p50(), result.latencyMs().p90(), result.latencyMs().p99(),
+                    result.latencyMs().p999(),
+                    result.wire() != null ? result.wire().requestBytes() : Double.NaN,
+                    result.wire() != null ? result.wire().responseBytes() : Double.NaN);
+        }
+        for (Result result : results) {
+            if (!result.errors().isEmpty()) {
+                System.out.println();
+                System.out.println("Errors " + result.call() + "/" + result.transport() + ":");
+                result.errors().forEach((error, count) -> System.out.printf("  %s: %d%n", error, count));
+            }
+        }
+        System.out.println("=".repeat(100));
+    }
+}
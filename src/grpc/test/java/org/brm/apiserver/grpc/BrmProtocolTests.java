@@ -0,0 +1,268 @@
+package org.brm.apiserver.grpc;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.DescriptorProtos.FileDescriptorSet;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumDescriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.google.protobuf.UnknownFieldSet;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the hand-written encoding against the descriptor protoc compiles from brm.proto (see the
+ * grpc Maven profile): what BrmProtocol writes must be what a generated client writes, byte for byte,
+ * and what a generated client writes must read back the same.
+ */
+class BrmProtocolTests {
+
+    private static FileDescriptor proto;
+
+    @BeforeAll
+    static void loadDescriptor() throws Exception {
+        try (InputStream in = BrmProtocolTests.class.getResourceAsStream("/brm.desc")) {
+            assertNotNull(in, "brm.desc is missing, build with -Pgrpc");
+            FileDescriptorSet set = FileDescriptorSet.parseFrom(in);
+            proto = FileDescriptor.buildFrom(set.getFile(0), new FileDescriptor[0]);
+        }
+    }
+
+    private static Descriptor message(String name) {
+        return proto.findMessageTypeByName(name);
+    }
+
+    private static <T> byte[] encode(MethodDescriptor.Marshaller<T> marshaller, T value) throws IOException {
+        try (InputStream in = marshaller.stream(value)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static <T> T decode(MethodDescriptor.Marshaller<T> marshaller, byte[] bytes) {
+        return marshaller.parse(new ByteArrayInputStream(bytes));
+    }
+
+    private static DynamicMessage simpleResponse(String host, String path, String time, int random, String thread) {
+        Descriptor type = message("SimpleResponse");
+        return DynamicMessage.newBuilder(type)
+                .setField(type.findFieldByName("host_string"), host)
+                .setField(type.findFieldByName("path_string"), path)
+                .setField(type.findFieldByName("time_string"), time)
+                .setField(type.findFieldByName("random_integer"), random)
+                .setField(type.findFieldByName("thread_id"), thread)
+                .build();
+    }
+
+    @Test
+    void simpleResponseMatchesTheProto() throws Exception {
+        MethodDescriptor.Marshaller<SimpleResponse> marshaller = BrmProtocol.SIMPLE.getResponseMarshaller();
+        SimpleResponse value = new SimpleResponse("host-1", "/simple", "2026-10-16T10:00:00Z", -7, "VirtualThread[#42]");
+        DynamicMessage expected = simpleResponse("host-1", "/simple", "2026-10-16T10:00:00Z", -7, "VirtualThread[#42]");
+        assertArrayEquals(expected.toByteArray(), encode(marshaller, value));
+
+        SimpleResponse decoded = decode(marshaller, expected.toByteArray());
+        assertEquals("host-1", decoded.getHostString());
+        assertEquals("/simple", decoded.getPathString());
+        assertEquals("2026-10-16T10:00:00Z", decoded.getTimeString());
+        assertEquals(-7, decoded.getRandomInteger());
+        assertEquals("VirtualThread[#42]", decoded.getThreadID());
+
+        // proto3 defaults are not sent, by either side
+        SimpleResponse defaults = new SimpleResponse("", null, "", 0, null);
+        assertEquals(0, encode(marshaller, defaults).length);
+        assertEquals(0, simpleResponse("", "", "", 0, "").toByteArray().length);
+    }
+
+    @Test
+    void blockingRequestSendsOptionalFieldsSetToZero() throws Exception {
+        MethodDescriptor.Marshaller<BatchOperation> marshaller = BrmProtocol.BLOCKING.getRequestMarshaller();
+        Descriptor type = message("BlockingRequest");
+
+        byte[] encoded = encode(marshaller, new BatchOperation("", 0, 0));
+        DynamicMessage parsed = DynamicMessage.parseFrom(type, encoded);
+        assertTrue(parsed.hasField(type.findFieldByName("operation_type")));
+        assertTrue(parsed.hasField(type.findFieldByName("min_block_period_ms")));
+        assertTrue(parsed.hasField(type.findFieldByName("max_block_period_ms")));
+        DynamicMessage expected = DynamicMessage.newBuilder(type)
+                .setField(type.findFieldByName("operation_type"), "")
+                .setField(type.findFieldByName("min_block_period_ms"), 0)
+                .setField(type.findFieldByName("max_block_period_ms"), 0)
+                .build();
+        assertArrayEquals(expected.toByteArray(), encoded);
+        assertEquals(new BatchOperation("", 0, 0), decode(marshaller, expected.toByteArray()));
+
+        // unset stays unset, so the server configuration applies
+        assertEquals(0, encode(marshaller, new BatchOperation(null, null, null)).length);
+        DynamicMessage onlyMax = DynamicMessage.newBuilder(type)
+                .setField(type.findFieldByName("max_block_period_ms"), 250)
+                .build();
+        assertEquals(new BatchOperation(null, null, 250), decode(marshaller, onlyMax.toByteArray()));
+    }
+
+    @Test
+    void batchRequestNestsEachOperationWithItsLength() throws Exception {
+        MethodDescriptor.Marshaller<BrmProtocol.BatchRequest> marshaller = BrmProtocol.BATCH.getRequestMarshaller();
+        Descriptor type = message("BatchRequest");
+        Descriptor operationType = message("BlockingRequest");
+        List<BatchOperation> operations = List.of(
+                new BatchOperation("SLEEP", 10, 20),
+                new BatchOperation(null, null, null),
+                new BatchOperation("FILE_IO".repeat(40), 0, 100_000));
+
+        DynamicMessage.Builder expected = DynamicMessage.newBuilder(type);
+        for (BatchOperation operation : operations) {
+            DynamicMessage.Builder nested = DynamicMessage.newBuilder(operationType);
+            if (operation.operationType() != null) {
+                nested.setField(operationType.findFieldByName("operation_type"), operation.operationType());
+            }
+            if (operation.minBlockPeriodMs() != null) {
+                nested.setField(operationType.findFieldByName("min_block_period_ms"), operation.minBlockPeriodMs());
+            }
+            if (operation.maxBlockPeriodMs() != null) {
+                nested.setField(operationType.findFieldByName("max_block_period_ms"), operation.maxBlockPeriodMs());
+            }
+            expected.addRepeatedField(type.findFieldByName("operations"), nested.build());
+        }
+        byte[] expectedBytes = expected.build().toByteArray();
+
+        assertArrayEquals(expectedBytes, encode(marshaller, new BrmProtocol.BatchRequest(operations)));
+        assertEquals(operations, decode(marshaller, expectedBytes).operations());
+        assertEquals(List.of(), decode(marshaller, new byte[0]).operations());
+    }
+
+    @Test
+    void enumNumbersMatchTheProto() {
+        EnumDescriptor operationTypes = proto.findEnumTypeByName("OperationType");
+        for (OperationType value : OperationType.values()) {
+            int number = operationTypes.findValueByName(value.name()).getNumber();
+            assertEquals(number, BrmProtocol.number(value), value.name());
+            assertEquals(value, BrmProtocol.operationType(number));
+        }
+        EnumDescriptor statuses = message("BatchResult").findEnumTypeByName("Status");
+        for (BatchResult.Status value : BatchResult.Status.values()) {
+            int number = statuses.findValueByName(value.name()).getNumber();
+            assertEquals(number, BrmProtocol.number(value), value.name());
+            assertEquals(value, BrmProtocol.status(number));
+        }
+        // unspecified and numbers added to the proto later
+        assertNull(BrmProtocol.operationType(0));
+        assertNull(BrmProtocol.operationType(99));
+        assertNull(BrmProtocol.status(0));
+        assertNull(BrmProtocol.status(99));
+    }
+
+    @Test
+    void batchResultMatchesTheProto() throws Exception {
+        MethodDescriptor.Marshaller<BatchResult> marshaller = BrmProtocol.BATCH.getResponseMarshaller();
+        Descriptor type = message("BatchResult");
+        EnumDescriptor operationTypes = proto.findEnumTypeByName("OperationType");
+        EnumDescriptor statuses = type.findEnumTypeByName("Status");
+
+        for (BatchResult.Status status : BatchResult.Status.values()) {
+            boolean ok = status == BatchResult.Status.OK;
+            BatchResult value = new BatchResult(3, OperationType.MIXED, OperationType.NETWORK_IO, status, 120,
+                    123.25, 456.5, ok ? new SimpleResponse("host-1", "/blocking", "now", 5, "t") : null);
+
+            DynamicMessage.Builder expected = DynamicMessage.newBuilder(type)
+                    .setField(type.findFieldByName("index"), 3)
+                    .setField(type.findFieldByName("operation_type"), operationTypes.findValueByName("MIXED"))
+                    .setField(type.findFieldByName("performed_operation_type"),
+                            operationTypes.findValueByName("NETWORK_IO"))
+                    .setField(type.findFieldByName("status"), statuses.findValueByName(status.name()))
+                    .setField(type.findFieldByName("planned_ms"), 120)
+                    .setField(type.findFieldByName("duration_ms"), 123.25)
+                    .setField(type.findFieldByName("completed_at_ms"), 456.5);
+            if (ok) {
+                expected.setField(type.findFieldByName("response"), simpleResponse("host-1", "/blocking", "now", 5, "t"));
+            }
+            byte[] expectedBytes = expected.build().toByteArray();
+            assertArrayEquals(expectedBytes, encode(marshaller, value), status.name());
+
+            BatchResult decoded = decode(marshaller, expectedBytes);
+            assertEquals(3, decoded.index());
+            assertEquals(OperationType.MIXED, decoded.operationType());
+            assertEquals(OperationType.NETWORK_IO, decoded.performedOperationType());
+            assertEquals(status, decoded.status());
+            assertEquals(120, decoded.plannedMs());
+            assertEquals(123.25, decoded.durationMs());
+            assertEquals(456.5, decoded.completedAtMs());
+            if (ok) {
+                assertEquals("/blocking", decoded.response().getPathString());
+                assertEquals(5, decoded.response().getRandomInteger());
+            } else {
+                assertNull(decoded.response());
+            }
+        }
+
+        // index 0, no types yet, nothing measured: an empty message
+        BatchResult empty = new BatchResult(0, null, null, null, 0, 0, 0, null);
+        assertEquals(0, encode(marshaller, empty).length);
+    }
+
+    @Test
+    void skipsUnknownFieldsAtEveryLevel() {
+        UnknownFieldSet unknown = UnknownFieldSet.newBuilder()
+                .addField(20, UnknownFieldSet.Field.newBuilder().addVarint(300).build())
+                .addField(21, UnknownFieldSet.Field.newBuilder().addFixed32(7).build())
+                .addField(22, UnknownFieldSet.Field.newBuilder().addFixed64(8L).build())
+                .addField(23, UnknownFieldSet.Field.newBuilder()
+                        .addLengthDelimited(ByteString.copyFromUtf8("added later")).build())
+                .build();
+        Descriptor type = message("BatchResult");
+        DynamicMessage response = simpleResponse("host-1", "/blocking", "now", 5, "t").toBuilder()
+                .setUnknownFields(unknown)
+                .build();
+        DynamicMessage message = DynamicMessage.newBuilder(type)
+                .setField(type.findFieldByName("index"), 9)
+                // an enum number this side does not know yet
+                .setField(type.findFieldByName("operation_type"),
+                        proto.findEnumTypeByName("OperationType").findValueByNumberCreatingIfUnknown(42))
+                .setField(type.findFieldByName("response"), response)
+                .setField(type.findFieldByName("planned_ms"), 15)
+                .setUnknownFields(unknown)
+                .build();
+
+        BatchResult decoded = decode(BrmProtocol.BATCH.getResponseMarshaller(), message.toByteArray());
+        assertEquals(9, decoded.index());
+        assertNull(decoded.operationType());
+        assertEquals(15, decoded.plannedMs());
+        assertEquals("/blocking", decoded.response().getPathString());
+        assertEquals("t", decoded.response().getThreadID());
+
+        Descriptor requestType = message("BlockingRequest");
+        DynamicMessage request = DynamicMessage.newBuilder(requestType)
+                .setField(requestType.findFieldByName("min_block_period_ms"), 5)
+                .setUnknownFields(unknown)
+                .build();
+        assertEquals(new BatchOperation(null, 5, null),
+                decode(BrmProtocol.BLOCKING.getRequestMarshaller(), request.toByteArray()));
+        assertSame(BrmProtocol.Empty.INSTANCE,
+                decode(BrmProtocol.SIMPLE.getRequestMarshaller(), unknown.toByteArray()));
+    }
+
+    @Test
+    void rejectsTruncatedMessages() throws Exception {
+        byte[] encoded = encode(BrmProtocol.BATCH.getResponseMarshaller(), new BatchResult(1, OperationType.SLEEP,
+                OperationType.SLEEP, BatchResult.Status.OK, 10, 10.5, 11.0,
+                new SimpleResponse("host-1", "/blocking", "now", 5, "t")));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+        StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> decode(BrmProtocol.BATCH.getResponseMarshaller(), truncated));
+        assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+    }
+}
@@ -0,0 +1,68 @@
+package org.brm.apiserver.benchmark;
+
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.fileio.ReadStrategy;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of {@link BlockingSimulator#performBlockingOperation(String, Integer, Integer)}
+ * when run on a pooled platform thread (Tomcat's classic model) versus a fresh virtual thread
+ * per call (spring.threads.virtual.enabled).
+ * <p>
+ * The block period is fixed, so everything above {@code blockPeriodMs} in the reported time is
+ * overhead of the mode and of the thread hand-off. With -prof gc, the gc.alloc.rate.norm column
+ * shows bytes allocated per call. NETWORK_IO runs in its default {@code connect} mode here, the
+ * {@code backend} mode is compared in {@link BlockingSimulatorNetworkIoBenchmark}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class BlockingSimulatorBenchmark {
+
+    @Param({"SLEEP", "FILE_IO", "NETWORK_IO", "CPU_BOUND", "ALLOCATION_HEAVY"})
+    public String operationType;
+
+    @Param({"platform", "virtual"})
+    public String threadKind;
+
+    @Param({"1"})
+    public int blockPeriodMs;
+
+    // FILE_IO read path, e.g. -p readStrategy=STREAM,CHANNEL,MMAP,DIRECT
+    @Param({"STREAM"})
+    public String readStrategy;
+
+    private BlockingSimulator blockingSimulator;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        blockingSimulator = new BlockingSimulator(new LatencyMetrics(), null, AccessLog.disabled(),
+                new FileReadEngine(ReadStrategy.valueOf(readStrategy), 256 * 1024, 16, 4096));
+        executor = "virtual".equals(threadKind)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(4);
+        // first FILE_IO call creates the test data files, keep that out of the measurement
+        blockingSimulator.performBlockingOperation(operationType, blockPeriodMs, blockPeriodMs);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void performBlockingOperation() throws ExecutionException, InterruptedException {
+        executor.submit(() -> blockingSimulator.performBlockingOperation(operationType, blockPeriodMs, blockPeriodMs))
+                .get();
+    }
+}
@@ -0,0 +1,72 @@
+package org.brm.apiserver.benchmark;
+
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.fileio.ReadStrategy;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.net.BackendClient;
+import org.brm.apiserver.net.EchoBackendServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of NETWORK_IO in both brm.blocking.network-io.mode settings, on platform versus
+ * virtual threads like {@link BlockingSimulatorBenchmark}: timed-out connects to TEST-NET
+ * addresses, or exchanges with an embedded echo backend over pooled connections. Kept apart so
+ * that the mode is not crossed with operation types it does not affect.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class BlockingSimulatorNetworkIoBenchmark {
+
+    @Param({"connect", "backend"})
+    public String networkIoMode;
+
+    @Param({"platform", "virtual"})
+    public String threadKind;
+
+    @Param({"1"})
+    public int blockPeriodMs;
+
+    private EchoBackendServer backendServer;
+    private BackendClient backendClient;
+    private BlockingSimulator blockingSimulator;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws IOException {
+        backendServer = new EchoBackendServer(new InetSocketAddress("127.0.0.1", 0));
+        backendClient = new BackendClient(backendServer.getAddress(), 64, Duration.ofSeconds(5));
+        blockingSimulator = new BlockingSimulator(new LatencyMetrics(), backendClient, AccessLog.disabled(),
+                new FileReadEngine(ReadStrategy.STREAM, 256 * 1024, 16, 4096));
+        blockingSimulator.setNetworkIoMode(networkIoMode);
+        executor = "virtual".equals(threadKind)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(4);
+        // opens the first backend connections outside the measurement
+        blockingSimulator.performBlockingOperation("NETWORK_IO", blockPeriodMs, blockPeriodMs);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        backendClient.close();
+        backendServer.close();
+    }
+
+    @Benchmark
+    public void performNetworkIo() throws ExecutionException, InterruptedException {
+        executor.submit(() -> blockingSimulator.performBlockingOperation("NETWORK_IO", blockPeriodMs, blockPeriodMs))
+                .get();
+    }
+}
@@ -0,0 +1,60 @@
+package org.brm.apiserver.benchmark;
+
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.misc.SimpleResponseEncoder;
+import org.brm.apiserver.misc.Utils;
+import org.brm.apiserver.model.SimpleResponse;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of /rest/simple: building the response and serializing it the way
+ * Spring MVC does, through a Jackson mapper, compared with the pre-encoded fast path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class SimpleResponseBenchmark {
+
+    private JsonMapper jsonMapper;
+    private SimpleResponse simpleResponse;
+    private SimpleResponseEncoder simpleResponseEncoder;
+    private byte[] encodeBuffer;
+
+    @Setup
+    public void setup() {
+        jsonMapper = JsonMapper.builder().build();
+        simpleResponse = Utils.newSimpleResponse(SimpleRestController.PATH_SIMPLE);
+        simpleResponseEncoder = new SimpleResponseEncoder(Utils.getHostname(), SimpleRestController.PATH_SIMPLE);
+        encodeBuffer = new byte[1024];
+    }
+
+    @Benchmark
+    public SimpleResponse newSimpleResponse() {
+        return Utils.newSimpleResponse(SimpleRestController.PATH_SIMPLE);
+    }
+
+    @Benchmark
+    public byte[] serializeSimpleResponse() {
+        return jsonMapper.writeValueAsBytes(simpleResponse);
+    }
+
+    @Benchmark
+    public byte[] newAndSerializeSimpleResponse() {
+        return jsonMapper.writeValueAsBytes(Utils.newSimpleResponse(SimpleRestController.PATH_SIMPLE));
+    }
+
+    @Benchmark
+    public SimpleResponseSnapshot newSimpleResponseSnapshot() {
+        return Utils.newSimpleResponseSnapshot(SimpleRestController.PATH_SIMPLE);
+    }
+
+    @Benchmark
+    public int newAndEncodeSimpleResponseSnapshot() {
+        return simpleResponseEncoder.encode(
+                Utils.newSimpleResponseSnapshot(SimpleRestController.PATH_SIMPLE), encodeBuffer);
+    }
+}
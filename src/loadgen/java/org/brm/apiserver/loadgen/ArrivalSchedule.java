@@ -0,0 +1,88 @@
+package org.brm.apiserver.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Intended send times of an open-loop load, independent of how fast the server answers.
+ * <p>
+ * The arrival rate ramps linearly from {@code startRate} to {@code endRate} over
+ * {@code durationSeconds}; equal rates give a constant rate. Request {@code i} is due when the
+ * integral of the rate reaches {@code i}, so the total is the area under the ramp.
+ * <p>
+ * {@link Arrivals#POISSON} instead draws exponential gaps of mean 1 in units of that integral,
+ * so arrivals are independent as from many clients, but follow the ramp on average. The gaps
+ * come from a seeded generator, so a run can be repeated with the same arrivals.
+ */
+final class ArrivalSchedule {
+
+    enum Arrivals {
+        CONSTANT, POISSON
+    }
+
+    private final double startRate;
+    private final double slope;
+    private final long totalRequests;
+    private final Arrivals arrivals;
+    private final long seed;
+
+    ArrivalSchedule(double startRate, double endRate, double durationSeconds, Arrivals arrivals, long seed) {
+        if (startRate <= 0 || endRate <= 0 || durationSeconds <= 0) {
+            throw new IllegalArgumentException("Rates and duration must be positive");
+        }
+        this.startRate = startRate;
+        this.slope = (endRate - startRate) / durationSeconds;
+        this.totalRequests = Math.round((startRate + endRate) / 2 * durationSeconds);
+        this.arrivals = arrivals;
+        this.seed = seed;
+    }
+
+    /**
+     * Schedule for a fixed number of requests at {@code rate} on average
+     */
+    static ArrivalSchedule ofTotal(double rate, long totalRequests, Arrivals arrivals, long seed) {
+        return new ArrivalSchedule(rate, rate, totalRequests / rate, arrivals, seed);
+    }
+
+    long totalRequests() {
+        return totalRequests;
+    }
+
+    /**
+     * Offsets from the start of the run at which the requests should be sent, in order
+     */
+    Offsets offsets() {
+        return new Offsets();
+    }
+
+    /**
+     * Offset at which the integral of the rate reaches {@code area}
+     */
+    private long offsetNanos(double area) {
+        // solve startRate * t + slope / 2 * t^2 = area for t
+        double seconds = slope == 0
+                ? area / startRate
+                : (Math.sqrt(startRate * startRate + 2 * slope * area) - startRate) / slope;
+        return (long) (seconds * 1_000_000_000L);
+    }
+
+    final class Offsets {
+
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private long index;
+        private double area;
+
+        /**
+         * Offset of the next request in nanoseconds, never before the previous one
+         */
+        long next() {
+            if (arrivals == Arrivals.POISSON) {
+                // nextDouble is in [0, 1), so the logarithm stays finite
+                area += -Math.log(1 - random.nextDouble());
+            } else {
+                area = index;
+            }
+            index++;
+            return offsetNanos(area);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.brm.apiserver.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator: requests are sent on a fixed schedule, each on its own virtual
+ * thread, whether or not earlier requests have been answered.
+ * <p>
+ * Latency is measured from the moment a request was due, not from when it was actually sent, so
+ * time spent queued behind a slow server or a lagging generator is part of the result (the
+ * coordinated omission correction). The uncorrected send-to-response time is reported alongside.
+ * Run with {@code ./mvnw -Ploadgen -DskipTests verify -Dloadgen.args="..."}, see
+ * perf-test-client/run-test-client.sh.
+ */
+public final class LoadGenerator implements AutoCloseable {
+
+    // microseconds, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final LoadOptions options;
+    private final ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+    private final HttpRequest request;
+
+    private final Histogram correctedLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram serviceLatency = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Map<String, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder successful = new LongAdder();
+
+    LoadGenerator(LoadOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(options.timeout())
+                .executor(clientExecutor)
+                .build();
+        // the server cancels work for requests this client has already given up on
+        this.request = HttpRequest.newBuilder(options.uri())
+                .timeout(options.timeout())
+                .header("X-Request-Timeout-Ms", Long.toString(options.timeout().toMillis()))
+                .GET()
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.err.print(LoadOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        LoadReport report;
+        try (LoadGenerator generator = new LoadGenerator(options)) {
+            generator.warmup();
+            report = generator.run();
+        }
+        report.print();
+        if (options.output() != null) {
+            JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(new File(options.output()), report);
+            System.out.println("Results written to " + options.output());
+        }
+    }
+
+    private void warmup() throws InterruptedException {
+        if (options.warmupRequests() == 0) {
+            return;
+        }
+        System.out.println("Warmup... (" + options.warmupRequests() + " requests)");
+        try (ExecutorService warmupExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.warmupRequests(); i++) {
+                warmupExecutor.execute(() -> {
+                    try {
+                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                    } catch (IOException | InterruptedException e) {
+                        // warmup errors are ignored, as in load-test.py
+                    }
+                });
+            }
+        }
+        System.out.println("Warmup complete. Starting test in 1 second...");
+        Thread.sleep(1000);
+    }
+
+    LoadReport run() {
+        ArrivalSchedule schedule = options.schedule();
+        long total = schedule.totalRequests();
+        long progressStep = Math.max(1, total / 20);
+        long maxDispatchLagNanos = 0;
+
+        System.out.printf("%nRunning load test: %.0f -> %.0f req/s (%s arrivals), %d requests%n",
+                options.rate(), options.rampToRate(), options.arrivals().name().toLowerCase(), total);
+        ArrivalSchedule.Offsets offsets = schedule.offsets();
+        long startNanos = System.nanoTime();
+        try (ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; i < total; i++) {
+                long intendedNanos = startNanos + offsets.next();
+                long waitNanos;
+                while ((waitNanos = intendedNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+                maxDispatchLagNanos = Math.max(maxDispatchLagNanos, System.nanoTime() - intendedNanos);
+                requestExecutor.execute(() -> send(intendedNanos));
+                if ((i + 1) % progressStep == 0) {
+                    System.out.printf("\rDispatched %d/%d, in flight %d", i + 1, total, inFlight.get());
+                }
+            }
+            System.out.println();
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        return new LoadReport(options.uri().toString(), options.rate(), options.rampToRate(),
+                total, successful.sum(), total - successful.sum(), elapsedSeconds, total / elapsedSeconds,
+                peakInFlight.get(), maxDispatchLagNanos / 1e6,
+                LoadReport.Latency.of(correctedLatency), LoadReport.Latency.of(serviceLatency),
+                sums(statusCodes), sums(errors));
+    }
+
+    private void send(long intendedNanos) {
+        long sentNanos = System.nanoTime();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            count(statusCodes, Integer.toString(response.statusCode()));
+            if (response.statusCode() == 200) {
+                successful.increment();
+            }
+        } catch (HttpTimeoutException e) {
+            count(errors, "timeout");
+        } catch (IOException e) {
+            count(errors, e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : ""));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            count(errors, "interrupted");
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        long endNanos = System.nanoTime();
+        record(correctedLatency, endNanos - intendedNanos);
+        record(serviceLatency, endNanos - sentNanos);
+    }
+
+    private static void record(Histogram histogram, long nanos) {
+        histogram.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    private static void count(Map<String, LongAdder> counters, String key) {
+        counters.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((key, counter) -> sums.put(key, counter.sum()));
+        return sums;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        clientExecutor.close();
+    }
+}
@@ -0,0 +1,91 @@
+package org.brm.apiserver.loadgen;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line of the load generator. Accepts the same URL and blocking parameters as
+ * perf-test-client/load-test.py, plus the open-loop arrival rate.
+ */
+record LoadOptions(URI uri, double rate, double rampToRate, Double durationSeconds, long totalRequests,
+                   ArrivalSchedule.Arrivals arrivals, long seed, int warmupRequests, Duration timeout,
+                   String output) {
+
+    static final String USAGE = """
+            Usage: LoadGenerator --url URL [options]
+              --url URL                      Target URL
+              --operation-type TYPE          Appended as operation-type query parameter
+              --min-block-period-ms MS       Appended as min-block-period-ms query parameter
+              --max-block-period-ms MS       Appended as max-block-period-ms query parameter
+              --rate N                       Arrival rate in requests per second (default: 100)
+              --ramp-to N                    Ramp the rate linearly up or down to N over the run
+              --duration SECONDS             Run length, required with --ramp-to
+              --total N                      Total requests at a constant rate (default: 1000)
+              --arrivals constant|poisson    Evenly spaced or exponential gaps (default: constant)
+              --seed N                       Seed of the poisson gaps (default: 1)
+              --warmup N                     Concurrent warmup requests before the run (default: 0)
+              --timeout SECONDS              Request timeout (default: 30)
+              --output FILE                  JSON result file (default: print only)
+            """;
+
+    static LoadOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs, got: " + args[i]);
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+        if (values.containsKey("concurrent")) {
+            // an open-loop load has no fixed concurrency, see --rate
+            throw new IllegalArgumentException("--concurrent is not supported, the load is set by --rate;"
+                    + " use --warmup for concurrent warmup requests");
+        }
+
+        String url = values.get("url");
+        if (url == null) {
+            throw new IllegalArgumentException("--url is required");
+        }
+        List<String> query = new ArrayList<>();
+        for (String parameter : List.of("operation-type", "min-block-period-ms", "max-block-period-ms")) {
+            if (values.containsKey(parameter)) {
+                query.add(parameter + "=" + values.get(parameter));
+            }
+        }
+        if (!query.isEmpty()) {
+            url += (url.contains("?") ? "&" : "?") + String.join("&", query);
+        }
+
+        double rate = Double.parseDouble(values.getOrDefault("rate", "100"));
+        double rampToRate = Double.parseDouble(values.getOrDefault("ramp-to", Double.toString(rate)));
+        Double durationSeconds = values.containsKey("duration") ? Double.parseDouble(values.get("duration")) : null;
+        if (rampToRate != rate && durationSeconds == null) {
+            throw new IllegalArgumentException("--ramp-to requires --duration");
+        }
+        long totalRequests = Long.parseLong(values.getOrDefault("total", "1000"));
+        ArrivalSchedule.Arrivals arrivals;
+        try {
+            arrivals = ArrivalSchedule.Arrivals.valueOf(values.getOrDefault("arrivals", "constant").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--arrivals must be constant or poisson, got: " + values.get("arrivals"));
+        }
+        long seed = Long.parseLong(values.getOrDefault("seed", "1"));
+        int warmupRequests = Integer.parseInt(values.getOrDefault("warmup", "0"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(values.getOrDefault("timeout", "30")));
+        if (rate <= 0 || rampToRate <= 0 || totalRequests <= 0 || warmupRequests < 0 || timeout.isZero()) {
+            throw new IllegalArgumentException("Rates, total and timeout must be positive");
+        }
+        return new LoadOptions(URI.create(url), rate, rampToRate, durationSeconds, totalRequests,
+                arrivals, seed, warmupRequests, timeout, values.get("output"));
+    }
+
+    ArrivalSchedule schedule() {
+        return durationSeconds != null
+                ? new ArrivalSchedule(rate, rampToRate, durationSeconds, arrivals, seed)
+                : ArrivalSchedule.ofTotal(rate, totalRequests, arrivals, seed);
+    }
+}
@@ -0,0 +1,72 @@
+package org.brm.apiserver.loadgen;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+
+/**
+ * Result of one load generator run, written as JSON for perf-test-client/run-performance-test.sh.
+ * {@code correctedLatencyMs} is measured from the intended send time, {@code serviceLatencyMs}
+ * from the actual send time; a large gap between the two means requests queued.
+ */
+public record LoadReport(String url, double rate, double rampToRate, long totalRequests,
+                         long successful, long failed, double elapsedSeconds, double achievedRate,
+                         int peakInFlight, double maxDispatchLagMs,
+                         Latency correctedLatencyMs, Latency serviceLatencyMs,
+                         Map<String, Long> statusCodes, Map<String, Long> errors) {
+
+    /**
+     * Latency distribution in milliseconds
+     */
+    public record Latency(double mean, double min, double p50, double p90, double p95,
+                          double p99, double p999, double max) {
+
+        static Latency of(Histogram microsHistogram) {
+            if (microsHistogram.getTotalCount() == 0) {
+                return new Latency(0, 0, 0, 0, 0, 0, 0, 0);
+            }
+            return new Latency(microsHistogram.getMean() / 1000,
+                    microsHistogram.getMinValue() / 1000.0,
+                    microsHistogram.getValueAtPercentile(50) / 1000.0,
+                    microsHistogram.getValueAtPercentile(90) / 1000.0,
+                    microsHistogram.getValueAtPercentile(95) / 1000.0,
+                    microsHistogram.getValueAtPercentile(99) / 1000.0,
+                    microsHistogram.getValueAtPercentile(99.9) / 1000.0,
+                    microsHistogram.getMaxValue() / 1000.0);
+        }
+    }
+
+    void print() {
+        double successRate = totalRequests > 0 ? 100.0 * successful / totalRequests : 0;
+        System.out.println();
+        System.out.println("=".repeat(50));
+        System.out.println("=== Load Test Results ===");
+        System.out.printf("Total requests: %d%n", totalRequests);
+        System.out.printf("Successful (200 OK): %d (%.1f%%)%n", successful, successRate);
+        System.out.printf("Failed/Timeout: %d (%.1f%%)%n", failed, 100 - successRate);
+        System.out.printf("Total elapsed time: %.2fs%n", elapsedSeconds);
+        System.out.printf("Arrival rate: %.1f -> %.1f req/s, achieved %.1f req/s%n", rate, rampToRate, achievedRate);
+        System.out.printf("Peak in flight: %d, max dispatch lag: %.1fms%n", peakInFlight, maxDispatchLagMs);
+        printLatency("Response Time Statistics (ms, corrected for coordinated omission)", correctedLatencyMs);
+        printLatency("Service Time Statistics (ms, from actual send)", serviceLatencyMs);
+        if (!errors.isEmpty()) {
+            System.out.println();
+            System.out.println("Error Breakdown:");
+            errors.forEach((error, count) -> System.out.printf("  %s: %d%n", error, count));
+        }
+        System.out.println("=".repeat(50));
+    }
+
+    private static void printLatency(String title, Latency latency) {
+        System.out.println();
+        System.out.println(title + ":");
+        System.out.printf("  Average: %.1f%n", latency.mean());
+        System.out.printf("  Median (50th): %.1f%n", latency.p50());
+        System.out.printf("  Min: %.1f%n", latency.min());
+        System.out.printf("  Max: %.1f%n", latency.max());
+        System.out.printf("  90th percentile: %.1f%n", latency.p90());
+        System.out.printf("  95th percentile: %.1f%n", latency.p95());
+        System.out.printf("  99th percentile: %.1f%n", latency.p99());
+        System.out.printf("  99.9th percentile: %.1f%n", latency.p999());
+    }
+}
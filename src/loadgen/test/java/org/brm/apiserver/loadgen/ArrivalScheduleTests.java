@@ -0,0 +1,85 @@
+package org.brm.apiserver.loadgen;
+
+import org.brm.apiserver.loadgen.ArrivalSchedule.Arrivals;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrivalScheduleTests {
+
+    private static long[] offsets(ArrivalSchedule schedule) {
+        ArrivalSchedule.Offsets offsets = schedule.offsets();
+        long[] result = new long[(int) schedule.totalRequests()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = offsets.next();
+        }
+        return result;
+    }
+
+    @Test
+    void constantArrivalsAreEvenlySpacedAtTheRate() {
+        ArrivalSchedule schedule = ArrivalSchedule.ofTotal(200, 1000, Arrivals.CONSTANT, 1);
+        long[] offsets = offsets(schedule);
+
+        assertEquals(1000, offsets.length);
+        assertEquals(0, offsets[0]);
+        for (int i = 1; i < offsets.length; i++) {
+            // 5ms apart, give or take the truncation to whole nanoseconds
+            assertEquals(5_000_000, offsets[i] - offsets[i - 1], 1);
+        }
+    }
+
+    @Test
+    void rampingArrivalsGetCloserAndFillTheDuration() {
+        ArrivalSchedule schedule = new ArrivalSchedule(10, 100, 10, Arrivals.CONSTANT, 1);
+        long[] offsets = offsets(schedule);
+
+        assertEquals(550, offsets.length);
+        // 10t + 4.5t^2 reaches 1 after 95.9ms, and 549 after 9.990s, 10.0ms after 548
+        assertEquals(95_864_000, offsets[1] - offsets[0], 100_000);
+        assertEquals(10_013_000, offsets[549] - offsets[548], 100_000);
+        assertEquals(9_989_995_000L, offsets[549], 1_000_000);
+    }
+
+    @Test
+    void poissonArrivalsHaveExponentialGapsAtTheRate() {
+        ArrivalSchedule schedule = ArrivalSchedule.ofTotal(500, 20_000, Arrivals.POISSON, 42);
+        long[] offsets = offsets(schedule);
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        long previous = 0;
+        for (long offset : offsets) {
+            long gap = offset - previous;
+            assertTrue(gap >= 0, "arrivals out of order");
+            sum += gap;
+            sumOfSquares += (double) gap * gap;
+            previous = offset;
+        }
+        double mean = sum / offsets.length;
+        double deviation = Math.sqrt(sumOfSquares / offsets.length - mean * mean);
+        // an exponential distribution has its standard deviation equal to its mean, 2ms at 500/s
+        assertEquals(2_000_000, mean, 2_000_000 * 0.03);
+        assertEquals(mean, deviation, mean * 0.05);
+    }
+
+    @Test
+    void poissonArrivalsFollowTheRampAndRepeatWithTheSeed() {
+        ArrivalSchedule schedule = new ArrivalSchedule(100, 1000, 20, Arrivals.POISSON, 7);
+        long[] offsets = offsets(schedule);
+
+        // the rate integrates to 290 over the first and 1910 over the last 2 seconds, ~4 deviations apart
+        long early = 0;
+        long late = 0;
+        for (long offset : offsets) {
+            if (offset < 2_000_000_000L) {
+                early++;
+            } else if (offset >= 18_000_000_000L) {
+                late++;
+            }
+        }
+        assertEquals(290, early, 70);
+        assertEquals(1910, late, 180);
+        assertArrayEquals(offsets, offsets(new ArrivalSchedule(100, 1000, 20, Arrivals.POISSON, 7)));
+    }
+}
@@ -0,0 +1,32 @@
+package org.brm.apiserver.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadOptionsTests {
+
+    @Test
+    void parsesArrivalsAndWarmup() {
+        LoadOptions options = LoadOptions.parse(new String[]{"--url", "http://localhost:8080/rest/blocking",
+                "--operation-type", "SLEEP", "--rate", "50", "--arrivals", "poisson", "--seed", "3", "--warmup", "5"});
+
+        assertEquals("http://localhost:8080/rest/blocking?operation-type=SLEEP", options.uri().toString());
+        assertEquals(ArrivalSchedule.Arrivals.POISSON, options.arrivals());
+        assertEquals(3, options.seed());
+        assertEquals(5, options.warmupRequests());
+    }
+
+    @Test
+    void rejectsTheClosedLoopConcurrencyFlag() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse(
+                new String[]{"--url", "http://localhost:8080/rest/simple", "--concurrent", "10"}));
+        assertTrue(e.getMessage().contains("--warmup"), e.getMessage());
+    }
+
+    @Test
+    void rejectsUnknownArrivals() {
+        assertThrows(IllegalArgumentException.class, () -> LoadOptions.parse(
+                new String[]{"--url", "http://localhost:8080/rest/simple", "--arrivals", "bursty"}));
+    }
+}
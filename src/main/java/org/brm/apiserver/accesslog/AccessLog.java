@@ -0,0 +1,255 @@
+package org.brm.apiserver.accesslog;
+
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access and operation log that keeps formatting and file I/O off the request threads.
+ * <p>
+ * Request threads put a fixed-size record into a {@link RecordRing} without allocating or
+ * blocking; when the ring is full the record is dropped and counted. A single writer thread
+ * drains the ring every flush interval, or sooner when it fills up, formats the records as JSON
+ * lines and appends each batch to the file with one write.
+ */
+public class AccessLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+
+    private static final long KIND_REQUEST = 1;
+    private static final long KIND_OPERATION = 2;
+    private static final int MAX_ENDPOINTS = 1 << 16;
+    private static final int OTHER_ENDPOINT = 0;
+    private static final int BUFFER_BYTES = 256 * 1024;
+    private static final int MAX_LINE_BYTES = 1024;
+    private static final OperationType[] OPERATION_TYPES = OperationType.values();
+
+    private final RecordRing ring;
+    private final Path file;
+    private final FileChannel channel;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // endpoint patterns are few, the request side only looks them up
+    private final ConcurrentHashMap<String, Integer> endpointCodes = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<String> endpoints = new CopyOnWriteArrayList<>();
+
+    // writer thread only, the counters are read by statistics()
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final StringBuilder line = new StringBuilder(256);
+    private final RecordRing.RecordConsumer appender = this::append;
+    private volatile long written;
+    private volatile long batches;
+    private volatile long bytesWritten;
+    private volatile long writeFailures;
+
+    public AccessLog(Path file, int capacity, Duration flushInterval) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.ring = new RecordRing(capacity);
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.flushIntervalNanos = Math.max(1, flushInterval.toNanos());
+        endpoints.add("other");
+        this.writer = Thread.ofVirtual().name("access-log-writer").start(this::runWriter);
+        log.info("Access log writing to {} (ring capacity {}, flush every {}ms)", file, ring.capacity(),
+                flushInterval.toMillis());
+    }
+
+    private AccessLog() {
+        this.ring = null;
+        this.file = null;
+        this.channel = null;
+        this.flushIntervalNanos = 0;
+        this.writer = null;
+    }
+
+    /**
+     * Access log that discards everything
+     */
+    public static AccessLog disabled() {
+        return new AccessLog();
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    /**
+     * Log a completed request under its endpoint pattern
+     */
+    public void logRequest(String endpoint, int status, long wallNanos, long cpuNanos) {
+        if (ring == null) {
+            return;
+        }
+        long header = KIND_REQUEST << 56 | (long) endpointCode(endpoint) << 32 | (status & 0xFFFFFFFFL);
+        ring.offer(System.currentTimeMillis(), Thread.currentThread().threadId(), wallNanos, cpuNanos, header, 0);
+    }
+
+    /**
+     * Log a blocking operation, {@code performed} differs from {@code resolved} for MIXED
+     */
+    public void logOperation(OperationType resolved, OperationType performed, int plannedMs,
+                             long wallNanos, long cpuNanos, boolean cancelled) {
+        if (ring == null) {
+            return;
+        }
+        long header = KIND_OPERATION << 56 | (long) resolved.ordinal() << 32 | (plannedMs & 0xFFFFFFFFL);
+        long detail = (long) performed.ordinal() << 1 | (cancelled ? 1 : 0);
+        ring.offer(System.currentTimeMillis(), Thread.currentThread().threadId(), wallNanos, cpuNanos, header, detail);
+    }
+
+    private int endpointCode(String endpoint) {
+        Integer code = endpointCodes.get(endpoint);
+        if (code != null) {
+            return code;
+        }
+        synchronized (endpoints) {
+            if (endpoints.size() >= MAX_ENDPOINTS) {
+                return OTHER_ENDPOINT;
+            }
+            return endpointCodes.computeIfAbsent(endpoint, key -> {
+                endpoints.add(key);
+                return endpoints.size() - 1;
+            });
+        }
+    }
+
+    private void runWriter() {
+        while (!closed) {
+            drainAndWrite();
+            // batch by time unless the ring is filling up
+            if (ring.size() < ring.capacity() / 2) {
+                LockSupport.parkNanos(flushIntervalNanos);
+            }
+        }
+        while (drainAndWrite() > 0) {
+            // flush what was logged before close
+        }
+    }
+
+    private int drainAndWrite() {
+        int drained = ring.drain(appender, ring.capacity());
+        if (buffer.position() > 0) {
+            flushBuffer();
+        }
+        if (drained > 0) {
+            written += drained;
+            batches++;
+        }
+        return drained;
+    }
+
+    private void append(long[] slots, int offset) {
+        long header = slots[offset + 4];
+        int kind = (int) (header >>> 56);
+        int code = (int) (header >>> 32) & 0xFFFFFF;
+        int value = (int) header;
+
+        line.setLength(0);
+        line.append("{\"time\":").append(slots[offset])
+                .append(",\"thread\":").append(slots[offset + 1]);
+        if (kind == KIND_REQUEST) {
+            line.append(",\"kind\":\"request\",\"endpoint\":\"");
+            appendEscaped(code < endpoints.size() ? endpoints.get(code) : endpoints.get(OTHER_ENDPOINT));
+            line.append("\",\"status\":").append(value);
+        } else {
+            long detail = slots[offset + 5];
+            line.append(",\"kind\":\"operation\",\"type\":\"").append(OPERATION_TYPES[code].name())
+                    .append("\",\"performed\":\"").append(OPERATION_TYPES[(int) (detail >>> 1)].name())
+                    .append("\",\"plannedMs\":").append(value)
+                    .append(",\"cancelled\":").append((detail & 1) != 0);
+        }
+        line.append(",\"wallUs\":").append(slots[offset + 2] / 1_000);
+        // null on virtual threads, whose CPU time cannot be measured
+        long cpuNanos = slots[offset + 3];
+        line.append(",\"cpuUs\":");
+        if (cpuNanos < 0) {
+            line.append("null");
+        } else {
+            line.append(cpuNanos / 1_000);
+        }
+        line.append("}\n");
+
+        if (buffer.remaining() < MAX_LINE_BYTES) {
+            flushBuffer();
+        }
+        // endpoint patterns are ASCII, anything else is replaced
+        for (int i = 0; i < line.length() && buffer.hasRemaining(); i++) {
+            char c = line.charAt(i);
+            buffer.put(c < 0x80 ? (byte) c : (byte) '?');
+        }
+    }
+
+    private void appendEscaped(String value) {
+        int limit = Math.min(value.length(), MAX_LINE_BYTES / 2);
+        for (int i = 0; i < limit; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\');
+            }
+            line.append(c);
+        }
+    }
+
+    private void flushBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                bytesWritten += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            if (writeFailures++ == 0) {
+                log.warn("Failed to write access log {}, dropping the batch", file, e);
+            }
+        }
+        buffer.clear();
+    }
+
+    public Statistics statistics() {
+        if (ring == null) {
+            return new Statistics(null, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new Statistics(file.toString(), ring.capacity(), ring.size(), written, ring.dropped(), batches,
+                bytesWritten, writeFailures);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ring == null || closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * @param pending records in the ring that are not written yet
+     * @param dropped records rejected because the ring was full
+     */
+    public record Statistics(String file, int capacity, long pending, long written, long dropped, long batches,
+                             long bytesWritten, long writeFailures) {
+    }
+}
@@ -0,0 +1,28 @@
+package org.brm.apiserver.accesslog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class AccessLogConfiguration {
+
+    /**
+     * Access log for requests and blocking operations, statistics at /rest/metrics/access-log
+     */
+    @Bean(destroyMethod = "close")
+    public AccessLog accessLog(
+            @Value("${brm.access-log.enabled:true}") boolean enabled,
+            @Value("${brm.access-log.file:logs/access.log}") String file,
+            @Value("${brm.access-log.capacity:65536}") int capacity,
+            @Value("${brm.access-log.flush-interval-ms:10}") long flushIntervalMs) throws IOException {
+        if (!enabled) {
+            return AccessLog.disabled();
+        }
+        return new AccessLog(Path.of(file), capacity, Duration.ofMillis(flushIntervalMs));
+    }
+}
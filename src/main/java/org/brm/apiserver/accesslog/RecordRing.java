@@ -0,0 +1,104 @@
+package org.brm.apiserver.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer ring of fixed-size records.
+ * <p>
+ * Records are {@value #RECORD_LONGS} longs written straight into one preallocated array, so
+ * producers never allocate. A producer claims a sequence with a CAS on the tail, writes its slot
+ * and publishes it by storing {@code sequence + 1} in the slot's marker; the consumer only reads
+ * slots whose marker says so, in order. A full ring rejects the record instead of waiting.
+ */
+final class RecordRing {
+
+    static final int RECORD_LONGS = 6;
+
+    private final int capacity;
+    private final int mask;
+    private final long[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * @param capacity number of records, rounded up to a power of two
+     */
+    RecordRing(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.slots = new long[this.capacity * RECORD_LONGS];
+        this.published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * @return false if the ring is full, the record is then counted as dropped
+     */
+    boolean offer(long r0, long r1, long r2, long r3, long r4, long r5) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.getAcquire() >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        int base = index * RECORD_LONGS;
+        slots[base] = r0;
+        slots[base + 1] = r1;
+        slots[base + 2] = r2;
+        slots[base + 3] = r3;
+        slots[base + 4] = r4;
+        slots[base + 5] = r5;
+        published.setRelease(index, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Hand up to {@code maxRecords} published records to {@code consumer}, in order, then free
+     * their slots. Only one thread may drain.
+     *
+     * @return the number of records drained
+     */
+    int drain(RecordConsumer consumer, int maxRecords) {
+        long sequence = head.getPlain();
+        int drained = 0;
+        while (drained < maxRecords) {
+            int index = (int) (sequence & mask);
+            if (published.getAcquire(index) != sequence + 1) {
+                break;
+            }
+            consumer.accept(slots, index * RECORD_LONGS);
+            sequence++;
+            drained++;
+        }
+        if (drained > 0) {
+            head.setRelease(sequence);
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long size() {
+        return Math.max(0, tail.get() - head.getAcquire());
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    @FunctionalInterface
+    interface RecordConsumer {
+        /**
+         * @param offset index of the record's first long in {@code slots}
+         */
+        void accept(long[] slots, int offset);
+    }
+}
@@ -0,0 +1,203 @@
+package org.brm.apiserver.batch;
+
+import org.brm.apiserver.deadline.CancellationReason;
+import org.brm.apiserver.deadline.Deadline;
+import org.brm.apiserver.deadline.DeadlineExceededException;
+import org.brm.apiserver.limit.ConcurrencyLimiter;
+import org.brm.apiserver.limit.OperationLimiters;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.misc.CorpusNotReadyException;
+import org.brm.apiserver.misc.Utils;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.BatchResult.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.StructuredTaskScope.Joiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the operations of a batch concurrently, one virtual thread each, inside a
+ * {@link StructuredTaskScope} bounded by the batch deadline.
+ * <p>
+ * Results are delivered in completion order while the batch is still running, as NDJSON lines
+ * or to any other {@link ResultSink}. The batch deadline is bound as {@link Deadline#CURRENT} in
+ * every operation; when it passes the scope interrupts the remaining operations and they are
+ * reported as {@link Status#TIMEOUT}. When the client goes away the scope is cancelled as soon as
+ * the next operation completes, and the interrupted operations count as
+ * {@link CancellationReason#CLIENT_DISCONNECT}. Every operation
+ * passes the same admission control as {@code /rest/blocking}.
+ */
+@Component
+public class BatchExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchExecutor.class);
+    private static final byte NEWLINE = '\n';
+
+    private final BlockingSimulator blockingSimulator;
+    private final OperationLimiters operationLimiters;
+    private final LatencyMetrics latencyMetrics;
+    private final JsonMapper jsonMapper;
+
+    public BatchExecutor(BlockingSimulator blockingSimulator, OperationLimiters operationLimiters,
+                         LatencyMetrics latencyMetrics, JsonMapper jsonMapper) {
+        this.blockingSimulator = blockingSimulator;
+        this.operationLimiters = operationLimiters;
+        this.latencyMetrics = latencyMetrics;
+        this.jsonMapper = jsonMapper;
+    }
+
+    /**
+     * Run all operations and write one {@link BatchResult} line per operation to {@code out}
+     */
+    public void execute(List<BatchOperation> operations, Duration timeout, String pathString, OutputStream out)
+            throws IOException, InterruptedException {
+        execute(operations, timeout, pathString, result -> {
+            out.write(jsonMapper.writeValueAsBytes(result));
+            out.write(NEWLINE);
+            out.flush();
+        });
+    }
+
+    /**
+     * Run all operations and pass one {@link BatchResult} per operation to {@code sink}, from the
+     * calling thread only
+     */
+    public void execute(List<BatchOperation> operations, Duration timeout, String pathString, ResultSink sink)
+            throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        // created before the scope, so it has passed by the time the scope times out
+        Deadline deadline = Deadline.after(timeout);
+        BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+        boolean[] reported = new boolean[operations.size()];
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+        // a failed write means the client is gone, the next completing operation cancels the rest
+        try (var scope = StructuredTaskScope.open(
+                Joiner.<BatchResult>allUntil(subtask -> writeFailure.get() != null),
+                config -> config.withTimeout(timeout))) {
+            for (int i = 0; i < operations.size(); i++) {
+                int index = i;
+                BatchOperation operation = operations.get(i);
+                scope.fork(() -> {
+                    BatchResult result = ScopedValue.where(Deadline.CURRENT, deadline)
+                            .call(() -> perform(index, operation, pathString, startNanos));
+                    completed.add(result);
+                    return result;
+                });
+            }
+
+            for (int received = 0; received < operations.size() && writeFailure.get() == null; received++) {
+                BatchResult result = completed.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    break;
+                }
+                reported[result.index()] = true;
+                deliver(sink, result, writeFailure);
+            }
+
+            try {
+                scope.join();
+            } catch (StructuredTaskScope.TimeoutException e) {
+                log.debug("Batch of {} operations hit its {}ms deadline", operations.size(), timeout.toMillis());
+            }
+        }
+
+        // results that raced with the deadline, then everything the scope cancelled
+        BatchResult late;
+        while ((late = completed.poll()) != null) {
+            reported[late.index()] = true;
+            deliver(sink, late, writeFailure);
+        }
+        double elapsedMs = millisSince(startNanos);
+        for (int i = 0; i < operations.size(); i++) {
+            if (!reported[i]) {
+                OperationType operationType = blockingSimulator.resolveOperationType(operations.get(i).operationType());
+                deliver(sink, new BatchResult(i, operationType, null, Status.TIMEOUT, 0, elapsedMs, elapsedMs, null),
+                        writeFailure);
+            }
+        }
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+    }
+
+    private BatchResult perform(int index, BatchOperation operation, String pathString, long batchStartNanos) {
+        OperationType resolvedOperationType = blockingSimulator.resolveOperationType(operation.operationType());
+        OperationType performedOperationType = blockingSimulator.selectOperationType(resolvedOperationType);
+        long startNanos = System.nanoTime();
+        ConcurrencyLimiter.Permit permit = operationLimiters.tryAcquire(performedOperationType);
+        if (permit == null) {
+            return new BatchResult(index, resolvedOperationType, performedOperationType, Status.REJECTED, 0,
+                    millisSince(startNanos), millisSince(batchStartNanos), null);
+        }
+
+        int plannedMs;
+        try {
+            plannedMs = blockingSimulator.performBlockingOperation(resolvedOperationType, performedOperationType,
+                    operation.minBlockPeriodMs(), operation.maxBlockPeriodMs());
+        } catch (DeadlineExceededException e) {
+            permit.releaseWithoutSample();
+            return new BatchResult(index, resolvedOperationType, performedOperationType, Status.TIMEOUT, 0,
+                    millisSince(startNanos), millisSince(batchStartNanos), null);
+        } catch (CorpusNotReadyException e) {
+            permit.releaseWithoutSample();
+            return new BatchResult(index, resolvedOperationType, performedOperationType, Status.REJECTED, 0,
+                    millisSince(startNanos), millisSince(batchStartNanos), null);
+        } catch (RuntimeException e) {
+            permit.releaseWithoutSample();
+            log.warn("Batch operation {} failed", index, e);
+            return new BatchResult(index, resolvedOperationType, performedOperationType, Status.FAILED, 0,
+                    millisSince(startNanos), millisSince(batchStartNanos), null);
+        }
+        // interrupted before the deadline: the scope was cancelled because the client went away
+        if (Thread.currentThread().isInterrupted()) {
+            permit.releaseWithoutSample();
+            latencyMetrics.recordCancellation(performedOperationType, CancellationReason.CLIENT_DISCONNECT);
+            return new BatchResult(index, resolvedOperationType, performedOperationType, Status.CANCELLED, plannedMs,
+                    millisSince(startNanos), millisSince(batchStartNanos), null);
+        }
+        permit.release(TimeUnit.MILLISECONDS.toNanos(plannedMs));
+        return new BatchResult(index, resolvedOperationType, performedOperationType, Status.OK, plannedMs,
+                millisSince(startNanos), millisSince(batchStartNanos), Utils.newSimpleResponse(pathString));
+    }
+
+    /**
+     * Deliver one result, unless an earlier delivery failed; the first failure is kept
+     */
+    private static void deliver(ResultSink sink, BatchResult result, AtomicReference<IOException> writeFailure) {
+        if (writeFailure.get() != null) {
+            return;
+        }
+        try {
+            sink.accept(result);
+        } catch (IOException e) {
+            writeFailure.set(e);
+        }
+    }
+
+    /**
+     * Receives the results of a batch; an exception means the client is gone
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(BatchResult result) throws IOException;
+    }
+
+    private static double millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,31 @@
+package org.brm.apiserver.blob;
+
+import org.brm.apiserver.http.ContentCoding;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Validators and precompressed variants of a blob: its SHA-256 digest, length and modification
+ * time, and the length of each variant stored next to it.
+ *
+ * @param contentAddressed the blob was uploaded and is stored under its digest, so it never changes
+ */
+public record BlobRepresentation(String digest, long length, long lastModified, boolean contentAddressed,
+                                 Map<ContentCoding, Long> variants) {
+
+    /**
+     * Strong ETag of the blob in the given coding, each coding is a different representation
+     */
+    public String etag(ContentCoding coding) {
+        return coding == ContentCoding.IDENTITY ? "\"" + digest + "\"" : "\"" + digest + "-" + coding.getToken() + "\"";
+    }
+
+    public Set<ContentCoding> codings() {
+        return variants.keySet();
+    }
+
+    public long variantLength(ContentCoding coding) {
+        return coding == ContentCoding.IDENTITY ? length : variants.get(coding);
+    }
+}
@@ -0,0 +1,225 @@
+package org.brm.apiserver.blob;
+
+import org.brm.apiserver.cache.TinyLfuCache;
+import org.brm.apiserver.http.ContentCoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ETags, modification times and precompressed variants of blobs, so that revalidations and
+ * Accept-Encoding negotiation cost one stat and no hashing or compression per request.
+ * <p>
+ * Uploaded blobs are named by their digest; other blobs are hashed once and cached until their
+ * size or modification time changes. Variants are files next to the blob with the extension of
+ * their {@link ContentCoding}. A variant older than its blob is stale, e.g. left over from
+ * before a named blob was replaced, and is neither listed nor served. Gzip variants of uploads are
+ * written after the upload by a single background thread with a bounded queue, so an upload burst
+ * cannot take the CPU from request handling; uploads beyond the queue are not precompressed.
+ * Zstd variants are not written here, since the JDK has no zstd encoder, but are served when
+ * present, e.g. created by build/precompress-blobs.sh. New variants are noticed once the cached
+ * entry expires.
+ */
+@Component
+public class BlobRepresentations implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobRepresentations.class);
+
+    // variants that save less than this are not worth a second copy
+    private static final double MAX_VARIANT_RATIO = 0.9;
+    private static final int HASH_BUFFER_BYTES = 64 * 1024;
+
+    private final BlobStore blobStore;
+    private final TinyLfuCache<Path, BlobRepresentation> cache;
+    private final boolean precompress;
+    private final ThreadPoolExecutor precompressor;
+
+    public BlobRepresentations(
+            BlobStore blobStore,
+            @Value("${brm.blobs.representations.cache-entries:10000}") int cacheEntries,
+            @Value("${brm.blobs.representations.expire-after-write-ms:60000}") long expireAfterWriteMs,
+            @Value("${brm.blobs.precompress:true}") boolean precompress,
+            @Value("${brm.blobs.precompress-queue:64}") int precompressQueue) {
+        this.blobStore = blobStore;
+        this.cache = new TinyLfuCache<>(cacheEntries, cacheEntries, representation -> 1,
+                Duration.ofMillis(expireAfterWriteMs), Duration.ZERO, Runnable::run);
+        this.precompress = precompress;
+        this.precompressor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, precompressQueue)),
+                Thread.ofPlatform().name("blob-precompress").daemon().factory());
+    }
+
+    /**
+     * Representation of a located blob, hashed only if it is new or changed
+     */
+    public BlobRepresentation describe(Path blob) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(blob, BasicFileAttributes.class);
+        try {
+            BlobRepresentation representation = cache.get(blob, this::load);
+            if (representation.length() != attributes.size()
+                    || representation.lastModified() != attributes.lastModifiedTime().toMillis()) {
+                cache.invalidate(blob);
+                representation = cache.get(blob, this::load);
+            }
+            return representation;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static Path variantPath(Path blob, ContentCoding coding) {
+        return blob.resolveSibling(blob.getFileName() + coding.getExtension());
+    }
+
+    private BlobRepresentation load(Path blob) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(blob, BasicFileAttributes.class);
+            String digest = blobStore.contentDigest(blob);
+            boolean contentAddressed = digest != null;
+            if (!contentAddressed) {
+                digest = hash(blob);
+            }
+            Map<ContentCoding, Long> variants = new EnumMap<>(ContentCoding.class);
+            for (ContentCoding coding : ContentCoding.values()) {
+                if (coding == ContentCoding.IDENTITY) {
+                    continue;
+                }
+                BasicFileAttributes variant = variantAttributes(blob, coding);
+                if (variant == null) {
+                    continue;
+                }
+                // uploads never change, any other blob may have been replaced since its variant was written
+                if (contentAddressed || !isStale(variant, attributes)) {
+                    variants.put(coding, variant.size());
+                } else if (coding == ContentCoding.GZIP) {
+                    log.debug("Gzip variant of {} is older than the blob, regenerating it", blob.getFileName());
+                    precompressLater(blob);
+                }
+            }
+            return new BlobRepresentation(digest, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                    contentAddressed, variants);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Attributes of a variant file, or null if there is none
+     */
+    private static BasicFileAttributes variantAttributes(Path blob, ContentCoding coding) throws IOException {
+        Path variant = variantPath(blob, coding);
+        if (!Files.isRegularFile(variant, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        return Files.readAttributes(variant, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static boolean isStale(BasicFileAttributes variant, BasicFileAttributes blob) {
+        return variant.lastModifiedTime().compareTo(blob.lastModifiedTime()) < 0;
+    }
+
+    private static String hash(Path blob) throws IOException {
+        MessageDigest digest = BlobStore.newSha256();
+        byte[] buffer = new byte[HASH_BUFFER_BYTES];
+        try (InputStream in = Files.newInputStream(blob)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Queue writing the gzip variant of a new or changed blob, or drop it if the queue is full
+     */
+    public void precompressLater(Path blob) {
+        if (!precompress) {
+            return;
+        }
+        try {
+            precompressor.execute(() -> {
+                try {
+                    precompress(blob);
+                } catch (IOException e) {
+                    log.warn("Could not precompress blob {}", blob, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Precompression queue full, not precompressing {}", blob.getFileName());
+        }
+    }
+
+    @Override
+    public void close() {
+        precompressor.shutdownNow();
+    }
+
+    /**
+     * Write the gzip variant of a blob at the best compression level, unless an up to date one
+     * exists already or it would not be noticeably smaller. The variant is renamed into place once
+     * complete, replacing a stale one.
+     *
+     * @return true if a variant was written
+     */
+    public boolean precompress(Path blob) throws IOException {
+        Path target = variantPath(blob, ContentCoding.GZIP);
+        BasicFileAttributes existing = variantAttributes(blob, ContentCoding.GZIP);
+        if (existing != null && !isStale(existing, Files.readAttributes(blob, BasicFileAttributes.class))) {
+            return false;
+        }
+        // leading dot, so the temp file is never located as a blob
+        Path temp = Files.createTempFile(blob.getParent(), ".precompress-", ".tmp");
+        try {
+            try (InputStream in = Files.newInputStream(blob);
+                 OutputStream out = new BestGzipOutputStream(Files.newOutputStream(temp))) {
+                in.transferTo(out);
+            }
+            long original = Files.size(blob);
+            long compressed = Files.size(temp);
+            if (compressed > original * MAX_VARIANT_RATIO) {
+                log.debug("Not keeping gzip variant of {}, {} of {} bytes", blob.getFileName(), compressed, original);
+                if (existing != null) {
+                    Files.deleteIfExists(target);
+                }
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            cache.invalidate(blob);
+            log.debug("Stored gzip variant of {}, {} of {} bytes", blob.getFileName(), compressed, original);
+            return true;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static final class BestGzipOutputStream extends GZIPOutputStream {
+        BestGzipOutputStream(OutputStream out) throws IOException {
+            super(out, HASH_BUFFER_BYTES);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
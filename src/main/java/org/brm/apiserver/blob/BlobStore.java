@@ -0,0 +1,428 @@
+package org.brm.apiserver.blob;
+
+import org.brm.apiserver.misc.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * File system backed blob store.
+ * <p>
+ * Named blobs are plain files below the configured root directory, which defaults to the
+ * test data layout that {@link org.brm.apiserver.misc.BlockingSimulator} creates.
+ * Uploaded blobs are content-addressed: they live under {@code sha256/<2 hex>/<64 hex>}
+ * and are looked up by their digest, so identical uploads are stored once. Blobs assembled
+ * from chunked uploads live under {@code sha256-tree/} and are looked up by their
+ * {@link TreeHash} with a "sha256-tree:" prefix.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    // Blob ids are single path segments; no separators, no leading dot
+    private static final Pattern BLOB_ID = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,254}");
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String DIGEST_DIR = "sha256";
+    private static final String TREE_DIGEST_DIR = "sha256-tree";
+    public static final String TREE_DIGEST_PREFIX = "sha256-tree:";
+    private static final String TEMP_DIR = ".tmp";
+
+    private final Path root;
+    private final Path digestRoot;
+    private final Path treeDigestRoot;
+    private final Path tempRoot;
+    private final DirectBufferPool bufferPool;
+
+    // Disk writes run here so they overlap with hashing and reading the next chunk
+    private final ExecutorService writeExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BlobStore(@Value("${brm.blobs.root:testdata/blocking}") String root,
+                     @Value("${brm.blobs.upload-buffer-kb:128}") int uploadBufferKb,
+                     @Value("${brm.blobs.upload-buffers:64}") int uploadBuffers) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.digestRoot = this.root.resolve(DIGEST_DIR);
+        this.treeDigestRoot = this.root.resolve(TREE_DIGEST_DIR);
+        this.tempRoot = this.root.resolve(TEMP_DIR);
+        if (uploadBuffers < 2) {
+            throw new IllegalArgumentException("brm.blobs.upload-buffers must be at least 2, every upload takes two");
+        }
+        this.bufferPool = new DirectBufferPool(uploadBufferKb * 1024, uploadBuffers);
+        log.info("Blob store root: {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Resolve a blob id to its file, or return null if the id is invalid or no such blob exists.
+     * A 64 character lower case hex id (optionally prefixed with "sha256:") addresses uploaded content,
+     * one prefixed with "sha256-tree:" addresses the content of a chunked upload.
+     */
+    public Path locate(String id) {
+        if (id == null) {
+            return null;
+        }
+        String digest = normalizeDigest(id);
+        String treeDigest = normalizeTreeDigest(id);
+        Path file;
+        if (digest != null) {
+            file = digestPath(digest);
+        } else if (treeDigest != null) {
+            file = treeDigestPath(treeDigest);
+        } else if (BLOB_ID.matcher(id).matches()) {
+            file = root.resolve(id);
+        } else {
+            return null;
+        }
+        if (!file.startsWith(root) || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Digest of a located blob that was uploaded and is stored under its digest, otherwise null
+     */
+    public String contentDigest(Path blob) {
+        if (blob.startsWith(treeDigestRoot)) {
+            return TREE_DIGEST_PREFIX + normalizeDigest(blob.getFileName().toString());
+        }
+        if (!blob.startsWith(digestRoot)) {
+            return null;
+        }
+        return normalizeDigest(blob.getFileName().toString());
+    }
+
+    /**
+     * Size of a located blob in bytes
+     */
+    public long size(Path blob) throws IOException {
+        return Files.size(blob);
+    }
+
+    /**
+     * Store the bytes of a source channel under their SHA-256 digest.
+     * <p>
+     * The content is hashed while it streams through pooled direct buffers into a temp file,
+     * then atomically renamed into place. If the digest is already present, the temp file is
+     * dropped. If the client announces a digest that is already stored, the body is only
+     * hashed for verification and never written to disk.
+     *
+     * @param expectedDigest optional digest announced by the client, verified against the content
+     */
+    public StoredBlob store(ReadableByteChannel source, String expectedDigest) throws IOException {
+        String expected = null;
+        if (expectedDigest != null) {
+            expected = normalizeDigest(expectedDigest);
+            if (expected == null) {
+                throw new IllegalArgumentException("Invalid sha256 digest: " + expectedDigest);
+            }
+            if (Files.isRegularFile(digestPath(expected))) {
+                return verifyExisting(source, expected);
+            }
+        }
+
+        Files.createDirectories(tempRoot);
+        Path temp = Files.createTempFile(tempRoot, "upload-", ".tmp");
+        try {
+            MessageDigest digest = newSha256();
+            long size = writeAndHash(source, temp, digest);
+            String actual = HexFormat.of().formatHex(digest.digest());
+            if (expected != null && !expected.equals(actual)) {
+                throw new DigestMismatchException(expected, actual);
+            }
+
+            Path target = digestPath(actual);
+            if (Files.isRegularFile(target)) {
+                log.debug("Blob sha256:{} already stored, dropping duplicate upload", actual);
+                return new StoredBlob(actual, size, true);
+            }
+            Files.createDirectories(target.getParent());
+            // rename(2) replaces a concurrently stored twin, which holds the same bytes
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(target.getParent());
+            log.debug("Stored blob sha256:{} ({} bytes)", actual, size);
+            return new StoredBlob(actual, size, false);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Move a complete, synced file below the root under its tree hash. The file is dropped
+     * if identical content is stored already.
+     *
+     * @param treeDigest lower case hex tree hash of the file, see {@link TreeHash}
+     */
+    public StoredBlob storeTreeHashed(Path file, String treeDigest) throws IOException {
+        long size = Files.size(file);
+        Path target = treeDigestPath(treeDigest);
+        String id = TREE_DIGEST_PREFIX + treeDigest;
+        if (Files.isRegularFile(target)) {
+            Files.delete(file);
+            log.debug("Blob {} already stored, dropping duplicate upload", id);
+            return new StoredBlob(id, size, true);
+        }
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(target.getParent());
+        log.debug("Stored blob {} ({} bytes)", id, size);
+        return new StoredBlob(id, size, false);
+    }
+
+    /**
+     * Hash an upload whose digest is already stored, without touching the disk
+     */
+    private StoredBlob verifyExisting(ReadableByteChannel source, String expected) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = acquireBuffer();
+        long size = 0;
+        try {
+            int n;
+            while ((n = source.read(buffer.clear())) >= 0) {
+                digest.update(buffer.flip());
+                size += n;
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!expected.equals(actual)) {
+            throw new DigestMismatchException(expected, actual);
+        }
+        log.debug("Blob sha256:{} already stored, upload verified without writing", actual);
+        return new StoredBlob(actual, size, true);
+    }
+
+    /**
+     * Copy the source into the target file with two alternating direct buffers.
+     * While one buffer is written at its position by a background virtual thread,
+     * the caller hashes it and then fills the other buffer from the source.
+     */
+    private long writeAndHash(ReadableByteChannel source, Path target, MessageDigest digest) throws IOException {
+        // both buffers in one step, so concurrent uploads cannot each hold one and wait for a second
+        ByteBuffer[] buffers = acquireBuffers(2);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            Future<?> previousWrite = null;
+            Future<?> pendingWrite = null;
+            try {
+                long position = 0;
+                int current = 0;
+                boolean eof = false;
+                while (!eof) {
+                    ByteBuffer buffer = buffers[current].clear();
+                    while (buffer.hasRemaining()) {
+                        if (source.read(buffer) < 0) {
+                            eof = true;
+                            break;
+                        }
+                    }
+                    buffer.flip();
+                    int length = buffer.remaining();
+                    if (length == 0) {
+                        break;
+                    }
+
+                    Future<?> write = writeExecutor.submit(writeTask(channel, buffer.duplicate(), position));
+                    // track the new write before anything can throw, so cleanup waits for it
+                    previousWrite = pendingWrite;
+                    pendingWrite = write;
+                    digest.update(buffer);
+                    // the other buffer is refilled next, so its write has to be done
+                    awaitWrite(previousWrite);
+                    previousWrite = null;
+                    position += length;
+                    current ^= 1;
+                }
+                awaitWrite(pendingWrite);
+                pendingWrite = null;
+                channel.force(true);
+                return position;
+            } finally {
+                // buffers may only go back to the pool once nobody reads them anymore
+                awaitQuietly(previousWrite);
+                awaitQuietly(pendingWrite);
+            }
+        } finally {
+            bufferPool.release(buffers[0]);
+            bufferPool.release(buffers[1]);
+        }
+    }
+
+    private static Runnable writeTask(FileChannel channel, ByteBuffer chunk, long position) {
+        return () -> {
+            try {
+                long offset = position;
+                while (chunk.hasRemaining()) {
+                    offset += channel.write(chunk, offset);
+                }
+            } catch (IOException e) {
+                throw new BlobWriteException(e);
+            }
+        };
+    }
+
+    private static void awaitWrite(Future<?> write) throws IOException {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.get();
+        } catch (InterruptedException e) {
+            // not cancelled: the write still reads its buffer, cleanup waits for it to finish
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing blob");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BlobWriteException writeException) {
+                throw writeException.getCause();
+            }
+            throw new IOException("Blob write failed", e.getCause());
+        }
+    }
+
+    /**
+     * Wait for a write to finish, ignoring interrupts and failures, which the caller already reports
+     */
+    private static void awaitQuietly(Future<?> write) {
+        if (write == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                write.get();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                log.debug("Pending blob write failed during cleanup", e.getCause());
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ByteBuffer acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+        }
+    }
+
+    private ByteBuffer[] acquireBuffers(int count) throws IOException {
+        try {
+            return bufferPool.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for upload buffers");
+        }
+    }
+
+    /**
+     * Persist a rename by syncing its directory, so the blob survives a crash
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every file system allows opening directories
+            log.debug("Could not sync directory {}", directory, e);
+        }
+    }
+
+    private Path digestPath(String digest) {
+        return digestRoot.resolve(digest.substring(0, 2)).resolve(digest);
+    }
+
+    private Path treeDigestPath(String treeDigest) {
+        return treeDigestRoot.resolve(treeDigest.substring(0, 2)).resolve(treeDigest);
+    }
+
+    /**
+     * Canonical form of a blob id, the same for every way to address the blob, or null if the id is
+     * invalid: the lower case hex digest, the "sha256-tree:" prefixed tree hash, or the blob name
+     */
+    public static String canonicalId(String id) {
+        if (id == null) {
+            return null;
+        }
+        String digest = normalizeDigest(id);
+        if (digest != null) {
+            return digest;
+        }
+        String treeDigest = normalizeTreeDigest(id);
+        if (treeDigest != null) {
+            return TREE_DIGEST_PREFIX + treeDigest;
+        }
+        return BLOB_ID.matcher(id).matches() ? id : null;
+    }
+
+    /**
+     * Lower case hex form of a sha256 digest with optional "sha256:" prefix, or null if malformed
+     */
+    public static String normalizeDigest(String value) {
+        String hex = value.regionMatches(true, 0, "sha256:", 0, 7) ? value.substring(7) : value;
+        hex = hex.toLowerCase();
+        return SHA256_HEX.matcher(hex).matches() ? hex : null;
+    }
+
+    /**
+     * Lower case hex form of a tree hash with "sha256-tree:" prefix, or null if malformed or unprefixed
+     */
+    static String normalizeTreeDigest(String value) {
+        if (!value.regionMatches(true, 0, TREE_DIGEST_PREFIX, 0, TREE_DIGEST_PREFIX.length())) {
+            return null;
+        }
+        return normalizeDigest(value.substring(TREE_DIGEST_PREFIX.length()));
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Carries an IOException out of a background write task
+     */
+    private static final class BlobWriteException extends RuntimeException {
+        BlobWriteException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
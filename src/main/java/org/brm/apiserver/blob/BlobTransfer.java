@@ -0,0 +1,96 @@
+package org.brm.apiserver.blob;
+
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Moves blob bytes from disk to the client without copying them onto the Java heap.
+ * <p>
+ * Contiguous regions are handed to Tomcat's sendfile support, which streams them with
+ * {@link FileChannel#transferTo} straight into the socket once the response completes.
+ * When sendfile is not available (TLS, compression, multipart responses), regions are
+ * memory-mapped in bounded windows and written as {@link java.nio.ByteBuffer}s, so the
+ * only copy is the one from the page cache into the connector's socket buffer.
+ */
+public final class BlobTransfer {
+
+    // Tomcat request attributes, see org.apache.coyote.Constants
+    static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Mapping window, keeps address space usage bounded for very large blobs
+    private static final long MAP_WINDOW_BYTES = 64L * 1024 * 1024;
+
+    private BlobTransfer() {
+    }
+
+    /**
+     * Ask the connector to send a file region with sendfile after the handler returns.
+     * The caller must have set the Content-Length and must not write to the response body.
+     *
+     * @return false if the connector does not support sendfile for this request
+     */
+    public static boolean trySendfile(HttpServletRequest request, Path file, long position, long count) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START_ATTR, position);
+        request.setAttribute(SENDFILE_END_ATTR, position + count);
+        return true;
+    }
+
+    /**
+     * Write a file region to the response through memory-mapped windows.
+     * Each window is unmapped as soon as it has been written.
+     */
+    public static void transfer(FileChannel channel, long position, long count, ServletOutputStream out)
+            throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long window = Math.min(MAP_WINDOW_BYTES, end - position);
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment region = channel.map(FileChannel.MapMode.READ_ONLY, position, window, arena);
+                out.write(region.asByteBuffer());
+            }
+            position += window;
+        }
+    }
+
+    /**
+     * View a request body as a channel. Reads go through {@link ServletInputStream#read(ByteBuffer)},
+     * unlike {@link java.nio.channels.Channels#newChannel(java.io.InputStream)} which stages every
+     * chunk in a heap array.
+     */
+    public static ReadableByteChannel channel(ServletInputStream in) {
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                return in.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package org.brm.apiserver.blob;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded number of bytes in flight. Callers wait for their share before they read a request
+ * body, so a full budget stops reading from the socket and TCP flow control slows the client.
+ * <p>
+ * Permits are counted in KiB, which keeps budgets of many GiB within an int.
+ */
+final class ByteBudget {
+
+    private static final int UNIT_BYTES = 1024;
+
+    private final long capacityBytes;
+    private final Semaphore permits;
+
+    ByteBudget(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+        // fair, so large reservations are not starved by a stream of small ones
+        this.permits = new Semaphore(units(capacityBytes), true);
+    }
+
+    /**
+     * Wait up to {@code timeoutMs} for {@code bytes} to become available
+     *
+     * @return false if the wait timed out, nothing is reserved then
+     */
+    boolean tryAcquire(long bytes, long timeoutMs) throws InterruptedException {
+        return permits.tryAcquire(units(bytes), timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    void release(long bytes) {
+        permits.release(units(bytes));
+    }
+
+    long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    long inFlightBytes() {
+        return capacityBytes - (long) permits.availablePermits() * UNIT_BYTES;
+    }
+
+    private static int units(long bytes) {
+        return Math.toIntExact((bytes + UNIT_BYTES - 1) / UNIT_BYTES);
+    }
+}
@@ -0,0 +1,78 @@
+package org.brm.apiserver.blob;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of a representation, both ends inclusive (RFC 9110, section 14.1.2).
+ */
+public record ByteRange(long first, long last) {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    // Upper bound for ranges in a single request, more than this is treated as abuse
+    private static final int MAX_RANGES = 32;
+
+    public long length() {
+        return last - first + 1;
+    }
+
+    /**
+     * Content-Range header value for this range of a representation of the given length
+     */
+    public String contentRange(long completeLength) {
+        return "bytes " + first + "-" + last + "/" + completeLength;
+    }
+
+    /**
+     * Parse a Range header against a representation length.
+     *
+     * @return null if the header is absent or malformed (the full representation should be sent),
+     *         an empty list if none of the ranges is satisfiable (416),
+     *         otherwise the satisfiable ranges in request order
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return null;
+        }
+
+        String[] specs = header.substring(BYTES_UNIT.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                if (dash == 0) {
+                    // suffix range: last N bytes
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix < 0) {
+                        return null;
+                    }
+                    if (suffix > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffix), length - 1));
+                    }
+                    continue;
+                }
+
+                long first = Long.parseLong(spec.substring(0, dash));
+                long last = dash == spec.length() - 1 ? length - 1 : Long.parseLong(spec.substring(dash + 1));
+                if (first < 0 || last < first && dash != spec.length() - 1) {
+                    return null;
+                }
+                if (first < length) {
+                    ranges.add(new ByteRange(first, Math.min(last, length - 1)));
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+}
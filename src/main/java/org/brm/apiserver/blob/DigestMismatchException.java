@@ -0,0 +1,31 @@
+package org.brm.apiserver.blob;
+
+import java.io.IOException;
+
+/**
+ * Uploaded bytes do not hash to the digest the client announced.
+ */
+public class DigestMismatchException extends IOException {
+
+    private final String expectedDigest;
+    private final String actualDigest;
+
+    public DigestMismatchException(String expectedDigest, String actualDigest) {
+        this("sha256", expectedDigest, actualDigest);
+    }
+
+    public DigestMismatchException(String algorithm, String expectedDigest, String actualDigest) {
+        super("Digest mismatch, expected " + algorithm + ":" + expectedDigest
+                + " but received " + algorithm + ":" + actualDigest);
+        this.expectedDigest = expectedDigest;
+        this.actualDigest = actualDigest;
+    }
+
+    public String getExpectedDigest() {
+        return expectedDigest;
+    }
+
+    public String getActualDigest() {
+        return actualDigest;
+    }
+}
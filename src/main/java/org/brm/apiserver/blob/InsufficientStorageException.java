@@ -0,0 +1,13 @@
+package org.brm.apiserver.blob;
+
+import java.io.IOException;
+
+/**
+ * An upload does not fit into the usable space left on the blob store's file system.
+ */
+public class InsufficientStorageException extends IOException {
+
+    public InsufficientStorageException(long requiredBytes, long usableBytes) {
+        super("Upload of " + requiredBytes + " bytes exceeds the " + usableBytes + " usable bytes of the blob store");
+    }
+}
@@ -0,0 +1,10 @@
+package org.brm.apiserver.blob;
+
+/**
+ * Outcome of storing a blob: its SHA-256 digest (lower case hex), its size,
+ * and whether identical content was already present so nothing new was written.
+ * Blobs assembled from a chunked upload are named by their tree hash instead,
+ * with a "sha256-tree:" prefix, see {@link TreeHash}.
+ */
+public record StoredBlob(String digest, long size, boolean deduplicated) {
+}
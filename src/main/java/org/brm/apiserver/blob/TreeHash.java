@@ -0,0 +1,53 @@
+package org.brm.apiserver.blob;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 tree hash of content split into 1 MiB leaves.
+ * <p>
+ * Every leaf is hashed on its own, so chunks of an upload can be hashed in parallel as they
+ * arrive. The leaf digests are then combined pairwise, level by level, and an odd digest at the
+ * end of a level is carried up unchanged. This is the construction of the Amazon Glacier tree
+ * hash, so content up to one leaf hashes to its plain SHA-256 digest.
+ */
+public final class TreeHash {
+
+    public static final int LEAF_BYTES = 1 << 20;
+
+    private TreeHash() {
+    }
+
+    /**
+     * Number of leaves of content of the given size, at least one
+     */
+    public static int leafCount(long size) {
+        return (int) Math.max(1, (size + LEAF_BYTES - 1) / LEAF_BYTES);
+    }
+
+    /**
+     * Root digest of the leaf digests, lower case hex
+     */
+    public static String root(byte[][] leaves) {
+        if (leaves.length == 0) {
+            throw new IllegalArgumentException("Tree hash needs at least one leaf");
+        }
+        MessageDigest digest = BlobStore.newSha256();
+        byte[][] level = leaves.clone();
+        int count = level.length;
+        while (count > 1) {
+            int next = 0;
+            for (int i = 0; i < count; i += 2) {
+                if (i + 1 < count) {
+                    digest.update(level[i]);
+                    digest.update(level[i + 1]);
+                    level[next++] = digest.digest();
+                } else {
+                    level[next++] = level[i];
+                }
+            }
+            count = next;
+        }
+        return HexFormat.of().formatHex(level[0]);
+    }
+}
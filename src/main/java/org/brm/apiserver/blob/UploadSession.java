@@ -0,0 +1,162 @@
+package org.brm.apiserver.blob;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of one chunked upload: the preallocated part file, which chunks are written and the
+ * leaf digests of their content. Chunks are written concurrently at their own offsets, the
+ * bookkeeping is guarded by this.
+ */
+final class UploadSession {
+
+    private final String id;
+    private final long size;
+    private final int chunkSize;
+    private final int chunks;
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBudget budget;
+    private final byte[][] leaves;
+
+    private final BitSet received = new BitSet();
+    private final BitSet writing = new BitSet();
+    private long receivedBytes;
+    private boolean closed;
+    private volatile long lastAccessNanos = System.nanoTime();
+
+    UploadSession(String id, long size, int chunkSize, Path file, FileChannel channel, ByteBudget budget) {
+        this.id = id;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunks = Math.toIntExact((size + chunkSize - 1) / chunkSize);
+        this.file = file;
+        this.channel = channel;
+        this.budget = budget;
+        this.leaves = new byte[TreeHash.leafCount(size)][];
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    FileChannel getChannel() {
+        return channel;
+    }
+
+    ByteBudget getBudget() {
+        return budget;
+    }
+
+    long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Index of the chunk starting at {@code offset}
+     *
+     * @throws IllegalArgumentException if no chunk starts there
+     */
+    int chunkIndex(long offset) {
+        if (offset < 0 || offset >= size || offset % chunkSize != 0) {
+            throw new IllegalArgumentException("Offset " + offset + " is not the start of a chunk of "
+                    + chunkSize + " bytes within " + size + " bytes");
+        }
+        return Math.toIntExact(offset / chunkSize);
+    }
+
+    int chunkLength(int index) {
+        return (int) Math.min(chunkSize, size - (long) index * chunkSize);
+    }
+
+    /**
+     * Claim a chunk for writing. A chunk that was received already may be sent again, e.g. when
+     * its acknowledgement was lost, and is overwritten.
+     *
+     * @throws IllegalStateException if the session is closed or the chunk is being written
+     */
+    synchronized void beginChunk(int index) {
+        if (closed) {
+            throw new IllegalStateException("Upload " + id + " is committed or aborted");
+        }
+        if (writing.get(index)) {
+            throw new IllegalStateException("Chunk " + index + " of upload " + id + " is being written");
+        }
+        writing.set(index);
+    }
+
+    /**
+     * Mark a chunk as written, with the digests of its leaves
+     */
+    synchronized void completeChunk(int index, byte[][] chunkLeaves) {
+        writing.clear(index);
+        if (!received.get(index)) {
+            received.set(index);
+            receivedBytes += chunkLength(index);
+        }
+        int firstLeaf = (int) ((long) index * chunkSize / TreeHash.LEAF_BYTES);
+        System.arraycopy(chunkLeaves, 0, leaves, firstLeaf, chunkLeaves.length);
+    }
+
+    synchronized void failChunk(int index) {
+        writing.clear(index);
+    }
+
+    /**
+     * Close the session for commit
+     *
+     * @return the leaf digests of the complete content
+     * @throws IllegalStateException if the session is closed, or chunks are missing or being written
+     */
+    synchronized byte[][] beginCommit() {
+        if (closed) {
+            throw new IllegalStateException("Upload " + id + " is committed or aborted");
+        }
+        if (!writing.isEmpty()) {
+            throw new IllegalStateException(writing.cardinality() + " chunks of upload " + id + " are being written");
+        }
+        if (received.cardinality() < chunks) {
+            throw new IllegalStateException((chunks - received.cardinality()) + " of " + chunks
+                    + " chunks of upload " + id + " are missing");
+        }
+        closed = true;
+        return leaves.clone();
+    }
+
+    /**
+     * Close the session and its file; chunks still being written fail with a closed channel
+     */
+    void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        channel.close();
+    }
+
+    /**
+     * Bytes still to be written, space the file system has to keep free for this session
+     */
+    synchronized long outstandingBytes() {
+        return closed ? 0 : size - receivedBytes;
+    }
+
+    synchronized UploadStatus status() {
+        List<Integer> missing = new ArrayList<>(chunks - received.cardinality());
+        for (int index = received.nextClearBit(0); index < chunks; index = received.nextClearBit(index + 1)) {
+            missing.add(index);
+        }
+        return new UploadStatus(id, size, chunkSize, chunks, received.cardinality(), receivedBytes, missing);
+    }
+}
@@ -0,0 +1,409 @@
+package org.brm.apiserver.blob;
+
+import org.brm.apiserver.deadline.Deadline;
+import org.brm.apiserver.misc.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resumable chunked uploads into the {@link BlobStore}.
+ * <p>
+ * A session preallocates a part file of the announced size. Chunks are sent at offsets that are
+ * multiples of the chunk size, in any order and concurrently, and are written with positional
+ * writes, so one client can keep several chunks in flight. Every chunk is hashed into its
+ * {@link TreeHash} leaves while it is written; the commit only combines the leaf digests, syncs
+ * the file and renames it into the store under its tree hash. A chunk whose connection broke is
+ * simply sent again, received chunks are never transferred twice.
+ * <p>
+ * Chunks reserve their length from a budget of the session and a global budget before their body
+ * is read, and wait while either is exhausted, up to brm.blobs.uploads.backpressure-wait-ms or the
+ * request deadline. Sessions live in memory and do not survive a restart; idle sessions expire.
+ */
+@Component
+public class UploadSessions {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessions.class);
+
+    private static final String UPLOAD_DIR = ".uploads";
+    private static final String PART_SUFFIX = ".part";
+
+    private final BlobStore blobStore;
+    private final Path uploadRoot;
+    private final int defaultChunkBytes;
+    private final int maxChunkBytes;
+    private final long sessionInFlightBytes;
+    private final long backpressureWaitMs;
+    private final long idleTimeoutNanos;
+    private final int maxSessions;
+    private final ByteBudget globalBudget;
+    private final DirectBufferPool bufferPool;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    // sessions are only added while holding this, removing them needs no lock
+    private final Object admission = new Object();
+
+    private final LongAdder chunksWritten = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder throttledChunks = new LongAdder();
+    private final LongAdder rejectedChunks = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public UploadSessions(
+            BlobStore blobStore,
+            @Value("${brm.blobs.uploads.default-chunk-mb:8}") int defaultChunkMb,
+            @Value("${brm.blobs.uploads.max-chunk-mb:64}") int maxChunkMb,
+            @Value("${brm.blobs.uploads.session-in-flight-mb:64}") int sessionInFlightMb,
+            @Value("${brm.blobs.uploads.in-flight-mb:512}") int inFlightMb,
+            @Value("${brm.blobs.uploads.backpressure-wait-ms:10000}") long backpressureWaitMs,
+            @Value("${brm.blobs.uploads.idle-timeout-ms:3600000}") long idleTimeoutMs,
+            @Value("${brm.blobs.uploads.max-sessions:1000}") int maxSessions,
+            @Value("${brm.blobs.uploads.buffer-kb:128}") int bufferKb,
+            @Value("${brm.blobs.uploads.buffers:64}") int buffers) {
+        if (maxChunkMb > sessionInFlightMb || sessionInFlightMb > inFlightMb) {
+            throw new IllegalArgumentException("Upload budgets must satisfy max-chunk-mb <= session-in-flight-mb"
+                    + " <= in-flight-mb, got " + maxChunkMb + ", " + sessionInFlightMb + ", " + inFlightMb);
+        }
+        this.blobStore = blobStore;
+        this.uploadRoot = blobStore.getRoot().resolve(UPLOAD_DIR);
+        this.defaultChunkBytes = Math.min(defaultChunkMb, maxChunkMb) * TreeHash.LEAF_BYTES;
+        this.maxChunkBytes = maxChunkMb * TreeHash.LEAF_BYTES;
+        this.sessionInFlightBytes = (long) sessionInFlightMb * TreeHash.LEAF_BYTES;
+        this.backpressureWaitMs = backpressureWaitMs;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.maxSessions = maxSessions;
+        this.globalBudget = new ByteBudget((long) inFlightMb * TreeHash.LEAF_BYTES);
+        this.bufferPool = new DirectBufferPool(bufferKb * 1024, buffers);
+        deleteStaleParts();
+    }
+
+    /**
+     * Start a session for content of {@code size} bytes
+     *
+     * @param chunkSize bytes per chunk, a multiple of 1 MiB; null for the default
+     * @throws IllegalArgumentException if the size or chunk size is out of bounds
+     * @throws IllegalStateException if too many sessions are open
+     * @throws InsufficientStorageException if the file system cannot hold the content
+     */
+    public UploadStatus create(long size, Integer chunkSize) throws IOException {
+        int chunkBytes = chunkSize == null ? defaultChunkBytes : chunkSize;
+        if (size <= 0) {
+            throw new IllegalArgumentException("Upload size must be positive, got " + size);
+        }
+        if (chunkBytes < TreeHash.LEAF_BYTES || chunkBytes > maxChunkBytes || chunkBytes % TreeHash.LEAF_BYTES != 0) {
+            throw new IllegalArgumentException("Chunk size must be a multiple of " + TreeHash.LEAF_BYTES
+                    + " bytes up to " + maxChunkBytes + ", got " + chunkBytes);
+        }
+        if ((size + chunkBytes - 1) / chunkBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Upload of " + size + " bytes needs a larger chunk size");
+        }
+        expireIdleSessions();
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many open uploads (" + maxSessions + ")");
+        }
+
+        Files.createDirectories(uploadRoot);
+        String id = UUID.randomUUID().toString();
+        Path file = uploadRoot.resolve(id + PART_SUFFIX);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        UploadSession session;
+        try {
+            // extend the file to its final length, chunks then never grow it
+            channel.write(ByteBuffer.allocate(1), size - 1);
+            session = new UploadSession(id, size, chunkBytes, file, channel, new ByteBudget(sessionInFlightBytes));
+            admit(session);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        log.debug("Started upload {} of {} bytes in chunks of {} bytes", id, size, chunkBytes);
+        return session.status();
+    }
+
+    /**
+     * Check the session count and the usable space and register the session in one step, so
+     * concurrent creates cannot exceed either limit together
+     */
+    private void admit(UploadSession session) throws IOException {
+        synchronized (admission) {
+            if (sessions.size() >= maxSessions) {
+                throw new IllegalStateException("Too many open uploads (" + maxSessions + ")");
+            }
+            // sparse part files only take space as chunks arrive, so keep room for every open session
+            long outstanding = 0;
+            for (UploadSession open : sessions.values()) {
+                outstanding += open.outstandingBytes();
+            }
+            outstanding += session.outstandingBytes();
+            long usable = Files.getFileStore(uploadRoot).getUsableSpace();
+            if (outstanding > usable) {
+                throw new InsufficientStorageException(outstanding, usable);
+            }
+            sessions.put(session.getId(), session);
+        }
+    }
+
+    /**
+     * @throws NoSuchElementException if there is no such session
+     */
+    public UploadStatus status(String id) {
+        return session(id).status();
+    }
+
+    /**
+     * Write the chunk starting at {@code offset} from the source, which has to hold exactly
+     * the chunk's bytes
+     *
+     * @param contentLength announced length of the body, or -1 if unknown
+     * @return the session's progress, or null if the in-flight budgets stayed exhausted
+     * @throws NoSuchElementException if there is no such session
+     * @throws IllegalArgumentException if no chunk starts at the offset or the body has the wrong length
+     * @throws IllegalStateException if the chunk is being written or the session is closed
+     */
+    public UploadStatus writeChunk(String id, long offset, long contentLength, ReadableByteChannel source)
+            throws IOException {
+        UploadSession session = session(id);
+        int index = session.chunkIndex(offset);
+        int length = session.chunkLength(index);
+        if (contentLength >= 0 && contentLength != length) {
+            throw new IllegalArgumentException("Chunk " + index + " has " + length + " bytes, got " + contentLength);
+        }
+
+        long waitMs = Deadline.capToCurrent(backpressureWaitMs);
+        if (!reserve(session.getBudget(), length, waitMs)) {
+            return null;
+        }
+        try {
+            if (!reserve(globalBudget, length, waitMs)) {
+                return null;
+            }
+            try {
+                session.beginChunk(index);
+                boolean complete = false;
+                try {
+                    byte[][] leaves = writeAndHash(session.getChannel(), offset, length, source);
+                    session.completeChunk(index, leaves);
+                    complete = true;
+                } finally {
+                    if (!complete) {
+                        session.failChunk(index);
+                    }
+                }
+            } finally {
+                globalBudget.release(length);
+            }
+        } finally {
+            session.getBudget().release(length);
+        }
+        session.touch();
+        chunksWritten.increment();
+        bytesWritten.add(length);
+        return session.status();
+    }
+
+    /**
+     * Combine the leaf digests, sync the file and store it under its tree hash. The session ends,
+     * also when the content does not match the expected digest.
+     *
+     * @param expectedDigest optional tree hash announced by the client, with or without "sha256-tree:"
+     * @throws NoSuchElementException if there is no such session
+     * @throws IllegalStateException if chunks are missing or being written
+     * @throws DigestMismatchException if the content does not match the expected digest
+     */
+    public StoredBlob commit(String id, String expectedDigest) throws IOException {
+        String expected = null;
+        if (expectedDigest != null) {
+            expected = BlobStore.normalizeTreeDigest(expectedDigest);
+            if (expected == null) {
+                expected = BlobStore.normalizeDigest(expectedDigest);
+            }
+            if (expected == null) {
+                throw new IllegalArgumentException("Invalid sha256-tree digest: " + expectedDigest);
+            }
+        }
+
+        UploadSession session = session(id);
+        byte[][] leaves = session.beginCommit();
+        try {
+            session.getChannel().force(true);
+            session.close();
+            String actual = TreeHash.root(leaves);
+            if (expected != null && !expected.equals(actual)) {
+                throw new DigestMismatchException("sha256-tree", expected, actual);
+            }
+            StoredBlob stored = blobStore.storeTreeHashed(session.getFile(), actual);
+            commits.increment();
+            return stored;
+        } finally {
+            sessions.remove(id);
+            Files.deleteIfExists(session.getFile());
+        }
+    }
+
+    /**
+     * End a session and delete what it received
+     *
+     * @throws NoSuchElementException if there is no such session
+     */
+    public void abort(String id) throws IOException {
+        discard(session(id));
+    }
+
+    public Statistics statistics() {
+        return new Statistics(sessions.size(), globalBudget.inFlightBytes(), globalBudget.getCapacityBytes(),
+                chunksWritten.sum(), bytesWritten.sum(), throttledChunks.sum(), rejectedChunks.sum(),
+                commits.sum(), expired.sum());
+    }
+
+    private UploadSession session(String id) {
+        UploadSession session = id == null ? null : sessions.get(id);
+        if (session == null) {
+            throw new NoSuchElementException("No upload " + id);
+        }
+        if (System.nanoTime() - session.getLastAccessNanos() > idleTimeoutNanos) {
+            expire(session);
+            throw new NoSuchElementException("Upload " + id + " expired");
+        }
+        session.touch();
+        return session;
+    }
+
+    private boolean reserve(ByteBudget budget, long bytes, long waitMs) throws IOException {
+        try {
+            if (budget.tryAcquire(bytes, 0)) {
+                return true;
+            }
+            throttledChunks.increment();
+            if (budget.tryAcquire(bytes, waitMs)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for upload budget");
+        }
+        rejectedChunks.increment();
+        return false;
+    }
+
+    /**
+     * Copy one chunk into the file at its offset through a pooled buffer, hashing every leaf
+     * of it on the way
+     */
+    private byte[][] writeAndHash(FileChannel channel, long offset, int length, ReadableByteChannel source)
+            throws IOException {
+        byte[][] leaves = new byte[TreeHash.leafCount(length)][];
+        MessageDigest digest = BlobStore.newSha256();
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            long end = offset + length;
+            long position = offset;
+            long leafEnd = Math.min(end, offset + TreeHash.LEAF_BYTES);
+            int leaf = 0;
+            while (position < end) {
+                // reads stop at leaf boundaries, so every leaf is digested on its own
+                buffer.clear().limit((int) Math.min(buffer.capacity(), leafEnd - position));
+                if (source.read(buffer) < 0) {
+                    throw new IllegalArgumentException("Chunk at offset " + offset + " ended after "
+                            + (position - offset) + " of " + length + " bytes");
+                }
+                buffer.flip();
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                if (position == leafEnd) {
+                    leaves[leaf++] = digest.digest();
+                    leafEnd = Math.min(end, position + TreeHash.LEAF_BYTES);
+                }
+            }
+            if (source.read(buffer.clear().limit(1)) > 0) {
+                throw new IllegalArgumentException("Chunk at offset " + offset + " is longer than " + length + " bytes");
+            }
+            return leaves;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    private ByteBuffer acquireBuffer() throws IOException {
+        try {
+            return bufferPool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an upload buffer");
+        }
+    }
+
+    private void expireIdleSessions() {
+        long now = System.nanoTime();
+        for (UploadSession session : sessions.values()) {
+            if (now - session.getLastAccessNanos() > idleTimeoutNanos) {
+                expire(session);
+            }
+        }
+    }
+
+    private void expire(UploadSession session) {
+        try {
+            discard(session);
+            expired.increment();
+            log.debug("Upload {} expired", session.getId());
+        } catch (IOException e) {
+            log.warn("Could not delete expired upload {}", session.getFile(), e);
+        }
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        if (sessions.remove(session.getId(), session)) {
+            session.close();
+            Files.deleteIfExists(session.getFile());
+        }
+    }
+
+    /**
+     * Part files of a previous run belong to sessions that no longer exist
+     */
+    private void deleteStaleParts() {
+        if (!Files.isDirectory(uploadRoot)) {
+            return;
+        }
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(uploadRoot, "*" + PART_SUFFIX)) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+                log.debug("Deleted stale upload part {}", part.getFileName());
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete stale upload parts in {}", uploadRoot, e);
+        }
+    }
+
+    /**
+     * Open sessions, bytes in flight against the global budget, and chunks that waited for
+     * (throttled) or gave up on (rejected) the budgets
+     */
+    public record Statistics(int sessions, long inFlightBytes, long maxInFlightBytes, long chunksWritten,
+                             long bytesWritten, long throttledChunks, long rejectedChunks, long commits,
+                             long expiredSessions) {
+    }
+}
@@ -0,0 +1,11 @@
+package org.brm.apiserver.blob;
+
+import java.util.List;
+
+/**
+ * Progress of a chunked upload session. A client that lost its connection sends the
+ * {@code missingChunks} again, each at offset {@code index * chunkSize}.
+ */
+public record UploadStatus(String id, long size, int chunkSize, int chunks, int receivedChunks,
+                           long receivedBytes, List<Integer> missingChunks) {
+}
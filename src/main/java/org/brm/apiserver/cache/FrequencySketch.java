@@ -0,0 +1,91 @@
+package org.brm.apiserver.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was seen recently, the
+ * admission filter of {@link TinyLfuCache}.
+ * <p>
+ * Each key maps to four counters, one per hash function, in one of 16 nibbles of a long; the
+ * estimate is the smallest of them. Once the number of increments reaches ten times the table
+ * length all counters are halved, so old popularity decays and the counters never saturate for
+ * long. Not thread-safe, the cache only uses it under its eviction lock.
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final long ONE_MASK = 0x1111_1111_1111_1111L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries number of distinct keys the cache holds at most
+     */
+    FrequencySketch(long expectedEntries) {
+        int length = (int) Math.min(1 << 30, Long.highestOneBit(Math.max(64, expectedEntries) - 1) << 1);
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            long word = table[indexOf(hash, i)];
+            frequency = Math.min(frequency, (int) ((word >>> ((start + i) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int nibble) {
+        long shift = (long) nibble << 2;
+        long mask = 0xFL << shift;
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+        table[index] += 1L << shift;
+        return true;
+    }
+
+    /**
+     * Halve every counter, the odd counts lost to the shift are taken off the addition count
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
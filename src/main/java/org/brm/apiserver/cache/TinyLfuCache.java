@@ -0,0 +1,427 @@
+package org.brm.apiserver.cache;
+
+import org.brm.apiserver.deadline.CancellationReason;
+import org.brm.apiserver.deadline.Deadline;
+import org.brm.apiserver.deadline.DeadlineExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded cache weighted by entry size, with W-TinyLFU eviction, expiry and refresh-ahead after
+ * write, and single-flight loading.
+ * <p>
+ * New entries enter a small LRU window (1% of the weight). An entry falling out of the window
+ * competes with the LRU victim of the main segmented LRU (probation, and protected with 80% of
+ * the main weight) and is only admitted if the {@link FrequencySketch} has seen it more often,
+ * so a scan of one-off keys cannot flush the popular ones. Reads are lock-free: they count and
+ * reorder the entry only if the eviction lock is free and skip that otherwise, which costs a
+ * little precision under contention instead of serializing readers.
+ * <p>
+ * Concurrent misses of a key share one load: the first caller runs the loader, the others wait
+ * for its result within their {@link Deadline#current() deadline}. Entries older than the
+ * refresh interval are served while a background load replaces them, expired entries are
+ * loaded synchronously. Null values are returned but not cached.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TinyLfuCache.class);
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long mainMaximum;
+    private final long protectedMaximum;
+    private final ToIntFunction<? super V> weigher;
+    private final long expireNanos;
+    private final long refreshNanos;
+    private final Executor refreshExecutor;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    // policy state, guarded by the eviction lock
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessOrder<K, V> window = new AccessOrder<>();
+    private final AccessOrder<K, V> probation = new AccessOrder<>();
+    private final AccessOrder<K, V> protectedOrder = new AccessOrder<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumWeight     upper bound of the summed weights
+     * @param expectedEntries   entries the cache holds when full, sizes the frequency sketch
+     * @param weigher           weight of a value, e.g. its approximate size in bytes
+     * @param expireAfterWrite  entries are reloaded once this old, zero for never
+     * @param refreshAfterWrite entries are reloaded in the background once this old, zero for never
+     * @param refreshExecutor   runs background reloads
+     */
+    public TinyLfuCache(long maximumWeight, long expectedEntries, ToIntFunction<? super V> weigher,
+                        Duration expireAfterWrite, Duration refreshAfterWrite, Executor refreshExecutor) {
+        if (maximumWeight < 2) {
+            throw new IllegalArgumentException("Maximum weight must be at least 2: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_SHARE));
+        this.mainMaximum = maximumWeight - windowMaximum;
+        this.protectedMaximum = (long) (mainMaximum * PROTECTED_SHARE);
+        this.weigher = weigher;
+        this.expireNanos = expireAfterWrite.toNanos();
+        this.refreshNanos = refreshAfterWrite.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    /**
+     * The cached value, or null if absent or expired
+     */
+    public V getIfPresent(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null || isExpired(node, System.nanoTime())) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        afterRead(node);
+        return node.value;
+    }
+
+    /**
+     * The cached value, loading it if absent or expired, together with concurrent callers for
+     * the same key. Exceptions of the loader are thrown to every caller waiting for that load,
+     * except that callers whose own deadline has not passed retry when the loading caller ran
+     * out of time.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = System.nanoTime();
+        Node<K, V> node = data.get(key);
+        if (node != null && !isExpired(node, now)) {
+            hits.increment();
+            afterRead(node);
+            V value = node.value;
+            if (refreshNanos > 0 && now - node.writeNanos >= refreshNanos) {
+                refreshAhead(key, loader);
+            }
+            return value;
+        }
+        misses.increment();
+        return load(key, loader);
+    }
+
+    public void put(K key, V value) {
+        int weight = weigher.applyAsInt(value);
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                node = new Node<>(key, value, weight);
+                data.put(key, node);
+                sketch.increment(key);
+                window.addLast(node);
+            } else {
+                AccessOrder<K, V> order = node.order;
+                order.remove(node);
+                node.weight = weight;
+                node.value = value;
+                node.writeNanos = System.nanoTime();
+                order.addLast(node);
+                if (order == protectedOrder) {
+                    demoteProtected();
+                }
+            }
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node != null) {
+                node.order.remove(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return expireNanos > 0 && now - node.writeNanos >= expireNanos;
+    }
+
+    /// single-flight loading
+    /// ---------------------
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        while (true) {
+            CompletableFuture<V> flight = new CompletableFuture<>();
+            CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+            if (existing == null) {
+                // a load may have completed between the miss and claiming the flight
+                Node<K, V> node = data.get(key);
+                if (node != null && !isExpired(node, System.nanoTime())) {
+                    inFlight.remove(key, flight);
+                    flight.complete(node.value);
+                    return node.value;
+                }
+                return lead(key, loader, flight);
+            }
+            coalesced.increment();
+            try {
+                return await(existing);
+            } catch (DeadlineExceededException e) {
+                // the loading caller ran out of time, this one may still have some left
+                if (Deadline.isCurrentExpired()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private V lead(K key, Function<? super K, ? extends V> loader, CompletableFuture<V> flight) {
+        try {
+            V value = loader.apply(key);
+            loads.increment();
+            if (value != null) {
+                put(key, value);
+            }
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        Deadline deadline = Deadline.current();
+        try {
+            return deadline == null ? flight.get() : flight.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(deadline, CancellationReason.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for a load in flight");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Reload in the background unless a load of the key is in flight already, callers keep
+     * getting the current value until it completes
+     */
+    private void refreshAhead(K key, Function<? super K, ? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, flight) != null) {
+            return;
+        }
+        refreshes.increment();
+        refreshExecutor.execute(() -> {
+            try {
+                lead(key, loader, flight);
+            } catch (RuntimeException e) {
+                log.debug("Refresh of {} failed, keeping the current value", key, e);
+            }
+        });
+    }
+
+    /// eviction policy
+    /// ---------------
+
+    private void afterRead(Node<K, V> node) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // skip nodes evicted since the lookup
+            if (node.order == null) {
+                return;
+            }
+            sketch.increment(node.key);
+            if (node.order == probation) {
+                probation.remove(node);
+                protectedOrder.addLast(node);
+                demoteProtected();
+            } else {
+                node.order.moveToLast(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedOrder.weight > protectedMaximum) {
+            Node<K, V> node = protectedOrder.head;
+            protectedOrder.remove(node);
+            probation.addLast(node);
+        }
+    }
+
+    private void evict() {
+        while (window.weight > windowMaximum) {
+            Node<K, V> candidate = window.head;
+            window.remove(candidate);
+            admit(candidate);
+        }
+        // an entry that grew on update can push the main segments over their share
+        while (probation.weight + protectedOrder.weight > mainMaximum) {
+            Node<K, V> victim = mainVictim();
+            victim.order.remove(victim);
+            evicted(victim);
+        }
+    }
+
+    /**
+     * Move an entry out of the window into probation, evicting main entries that are less
+     * popular, or drop it if it is not more popular than the next victim
+     */
+    private void admit(Node<K, V> candidate) {
+        if (candidate.weight > mainMaximum) {
+            evicted(candidate);
+            return;
+        }
+        while (probation.weight + protectedOrder.weight + candidate.weight > mainMaximum) {
+            Node<K, V> victim = mainVictim();
+            if (victim == null || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                evicted(candidate);
+                return;
+            }
+            victim.order.remove(victim);
+            evicted(victim);
+        }
+        probation.addLast(candidate);
+    }
+
+    private Node<K, V> mainVictim() {
+        return probation.head != null ? probation.head : protectedOrder.head;
+    }
+
+    private void evicted(Node<K, V> node) {
+        data.remove(node.key, node);
+        evictions.increment();
+    }
+
+    public Statistics statistics() {
+        long weightedSize;
+        evictionLock.lock();
+        try {
+            weightedSize = window.weight + probation.weight + protectedOrder.weight;
+        } finally {
+            evictionLock.unlock();
+        }
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        return new Statistics(data.size(), weightedSize, maximumWeight, hitCount, misses.sum(), coalesced.sum(),
+                loads.sum(), loadFailures.sum(), refreshes.sum(), evictions.sum(),
+                requests > 0 ? (double) hitCount / requests : 0);
+    }
+
+    /**
+     * @param misses    lookups that found no live entry, {@code coalesced} of them joined a load in flight
+     * @param loads     completed loader calls, initial loads and refreshes
+     * @param evictions entries removed by the size bound, not counting expiry and invalidation
+     */
+    public record Statistics(long entries, long weightedSize, long maximumWeight, long hits, long misses,
+                             long coalesced, long loads, long loadFailures, long refreshes, long evictions,
+                             double hitRate) {
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        volatile V value;
+        volatile long writeNanos;
+        // guarded by the eviction lock
+        int weight;
+        AccessOrder<K, V> order;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Intrusive LRU list, least recently used at the head, with the summed weight of its nodes
+     */
+    private static final class AccessOrder<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        long weight;
+
+        void addLast(Node<K, V> node) {
+            node.order = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.order = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.brm.apiserver.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Membership of this instance in a cluster of blob servers, and which node owns a blob.
+ * <p>
+ * Disabled by default, then this instance owns every key. Members are configured with
+ * brm.cluster.nodes and can leave and rejoin at run time through /rest/cluster/nodes. Only those
+ * nodes and the ones listed in brm.cluster.allowed-nodes can join, since any member is reached by
+ * the proxy endpoint and trusted with blob content. Membership is
+ * not gossiped: every instance has to be told about a change, until then instances may disagree
+ * on owners, which costs an extra hop or a miss but never returns wrong content.
+ */
+@Component
+public class Cluster {
+
+    private static final Logger log = LoggerFactory.getLogger(Cluster.class);
+
+    private final boolean enabled;
+    private final ClusterNode self;
+    private final boolean readThroughCache;
+    private final Set<ClusterNode> allowed;
+    private volatile HashRing ring;
+
+    public Cluster(@Value("${brm.cluster.enabled:false}") boolean enabled,
+                   @Value("${brm.cluster.self:http://127.0.0.1:${server.port:8080}}") String self,
+                   @Value("${brm.cluster.nodes:}") String nodes,
+                   @Value("${brm.cluster.virtual-nodes:160}") int virtualNodes,
+                   @Value("${brm.cluster.read-through-cache:true}") boolean readThroughCache,
+                   @Value("${brm.cluster.allowed-nodes:}") String allowedNodes) {
+        this.enabled = enabled;
+        this.self = ClusterNode.of(self);
+        this.readThroughCache = readThroughCache;
+        List<ClusterNode> members = new ArrayList<>();
+        members.add(this.self);
+        Set<ClusterNode> allowed = new LinkedHashSet<>();
+        if (enabled) {
+            for (ClusterNode member : parseNodes(nodes)) {
+                if (!members.contains(member)) {
+                    members.add(member);
+                }
+            }
+            allowed.addAll(members);
+            allowed.addAll(parseNodes(allowedNodes));
+            log.info("Cluster node {} of {}", this.self.id(), members.stream().map(ClusterNode::id).toList());
+        }
+        this.allowed = Set.copyOf(allowed);
+        this.ring = new HashRing(members, virtualNodes);
+    }
+
+    private static List<ClusterNode> parseNodes(String nodes) {
+        List<ClusterNode> parsed = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            if (!node.isBlank()) {
+                parsed.add(ClusterNode.of(node));
+            }
+        }
+        return parsed;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ClusterNode getSelf() {
+        return self;
+    }
+
+    /**
+     * Whether blobs streamed from their owner are also stored here, see brm.cluster.read-through-cache
+     */
+    public boolean isReadThroughCache() {
+        return readThroughCache;
+    }
+
+    public ClusterNode owner(String key) {
+        return enabled ? ring.owner(key) : self;
+    }
+
+    public boolean isSelf(ClusterNode node) {
+        return self.equals(node);
+    }
+
+    /**
+     * Member with the given {@code host:port}, or null
+     */
+    public ClusterNode member(String id) {
+        for (ClusterNode node : ring.getNodes()) {
+            if (node.id().equals(id)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a node may join at run time: it is configured in brm.cluster.nodes or brm.cluster.allowed-nodes
+     */
+    public boolean isAllowed(ClusterNode node) {
+        return allowed.contains(node);
+    }
+
+    /**
+     * Add a node to the ring; it takes over only the key ranges in front of its virtual nodes
+     *
+     * @return the ring after the change
+     * @throws IllegalArgumentException if the node is not {@link #isAllowed(ClusterNode) allowed} to join
+     * @throws IllegalStateException if cluster mode is disabled
+     */
+    public synchronized Status join(ClusterNode node) {
+        requireEnabled();
+        if (!isAllowed(node)) {
+            throw new IllegalArgumentException("Node " + node.id() + " is not configured in brm.cluster.nodes"
+                    + " or brm.cluster.allowed-nodes");
+        }
+        ring = ring.with(node);
+        log.info("Node {} joined, ring is now {}", node.id(), ring.getNodes().stream().map(ClusterNode::id).toList());
+        return status();
+    }
+
+    /**
+     * Remove a node from the ring; its key ranges move to the nodes following its virtual nodes
+     *
+     * @return the ring after the change
+     * @throws IllegalArgumentException if the node is this instance
+     * @throws IllegalStateException if cluster mode is disabled
+     */
+    public synchronized Status leave(ClusterNode node) {
+        requireEnabled();
+        if (isSelf(node)) {
+            throw new IllegalArgumentException("Node " + node.id() + " is this instance");
+        }
+        ring = ring.without(node);
+        log.info("Node {} left, ring is now {}", node.id(), ring.getNodes().stream().map(ClusterNode::id).toList());
+        return status();
+    }
+
+    public Status status() {
+        HashRing current = ring;
+        return new Status(enabled, self.id(), current.getVirtualNodes(), current.ownership());
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new IllegalStateException("Cluster mode is disabled (brm.cluster.enabled)");
+        }
+    }
+
+    /**
+     * Members and the share of the key space each of them owns
+     */
+    public record Status(boolean enabled, String self, int virtualNodes, Map<String, Double> ownership) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.brm.apiserver.cluster;
+
+import java.net.URI;
+
+/**
+ * Server instance of the cluster, identified by the host and port of its base URI
+ *
+ * @param id  {@code host:port}, the name of the node on the hash ring
+ * @param uri base URI, e.g. {@code http://127.0.0.1:8081}
+ */
+public record ClusterNode(String id, URI uri) {
+
+    /**
+     * Parse a base URI like {@code http://127.0.0.1:8081}
+     *
+     * @throws IllegalArgumentException if it is no absolute http(s) URI with host and port
+     */
+    public static ClusterNode of(String uri) {
+        URI parsed = URI.create(uri.strip());
+        if (parsed.getHost() == null || parsed.getPort() < 0
+                || !("http".equals(parsed.getScheme()) || "https".equals(parsed.getScheme()))) {
+            throw new IllegalArgumentException("Cluster node needs an http(s) URI with host and port, got " + uri);
+        }
+        URI base = URI.create(parsed.getScheme() + "://" + parsed.getHost() + ":" + parsed.getPort());
+        return new ClusterNode(parsed.getHost() + ":" + parsed.getPort(), base);
+    }
+}
@@ -0,0 +1,130 @@
+package org.brm.apiserver.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable consistent hash ring with virtual nodes.
+ * <p>
+ * Every node is placed at {@code virtualNodes} points of a 64-bit ring, a key belongs to the node
+ * at the first point at or after the key's hash. Adding a node only takes over the arcs in front
+ * of its own points, about 1/(n+1) of the keys, all from other nodes; removing one hands its arcs
+ * to the following points. Membership changes build a new ring, lookups never lock.
+ */
+public final class HashRing {
+
+    private final List<ClusterNode> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final ClusterNode[] owners;
+
+    public HashRing(Collection<ClusterNode> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("Hash ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = List.copyOf(nodes);
+        this.virtualNodes = virtualNodes;
+
+        record Point(long hash, ClusterNode node) {
+        }
+        List<Point> placed = new ArrayList<>(this.nodes.size() * virtualNodes);
+        for (ClusterNode node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                placed.add(new Point(hash(node.id() + "#" + i), node));
+            }
+        }
+        // ties are broken by node id, so every instance builds the same ring
+        placed.sort(Comparator.comparingLong(Point::hash).thenComparing(point -> point.node().id()));
+        this.points = new long[placed.size()];
+        this.owners = new ClusterNode[placed.size()];
+        for (int i = 0; i < placed.size(); i++) {
+            points[i] = placed.get(i).hash();
+            owners[i] = placed.get(i).node();
+        }
+    }
+
+    public List<ClusterNode> getNodes() {
+        return nodes;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public ClusterNode owner(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * This ring plus {@code node}, or this ring if it is a member already
+     */
+    public HashRing with(ClusterNode node) {
+        if (nodes.contains(node)) {
+            return this;
+        }
+        List<ClusterNode> joined = new ArrayList<>(nodes);
+        joined.add(node);
+        return new HashRing(joined, virtualNodes);
+    }
+
+    /**
+     * This ring without {@code node}, or this ring if it is no member
+     */
+    public HashRing without(ClusterNode node) {
+        if (!nodes.contains(node)) {
+            return this;
+        }
+        List<ClusterNode> left = new ArrayList<>(nodes);
+        left.remove(node);
+        return new HashRing(left, virtualNodes);
+    }
+
+    /**
+     * Share of the key space owned by each node, in node order
+     */
+    public Map<String, Double> ownership() {
+        Map<String, Double> shares = new LinkedHashMap<>();
+        for (ClusterNode node : nodes) {
+            shares.put(node.id(), 0.0);
+        }
+        if (nodes.size() == 1) {
+            shares.put(nodes.getFirst().id(), 1.0);
+            return shares;
+        }
+        for (int i = 0; i < points.length; i++) {
+            // arc from the previous point, wrapping around; the difference is unsigned
+            long arc = points[i] - points[i == 0 ? points.length - 1 : i - 1];
+            double length = arc >= 0 ? arc : arc + 0x1p64;
+            shares.merge(owners[i].id(), length / 0x1p64, Double::sum);
+        }
+        return shares;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer so that similar keys
+     * such as the virtual node names land far apart
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
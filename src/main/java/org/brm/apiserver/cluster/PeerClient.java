@@ -0,0 +1,335 @@
+package org.brm.apiserver.cluster;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.blob.StoredBlob;
+import org.brm.apiserver.blob.UploadStatus;
+import org.brm.apiserver.controller.rest.BlobRestController;
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.controller.rest.UploadRestController;
+import org.brm.apiserver.model.SimpleResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP client for requests to other cluster nodes.
+ * <p>
+ * One {@link HttpClient} keeps pooled keep-alive connections to every peer, its callbacks run on
+ * virtual threads. Requests sent to a peer carry {@link #HEADER_FORWARDED_BY}, so the peer
+ * answers from its own disk and never forwards again.
+ */
+@Component
+public class PeerClient {
+
+    private static final Logger log = LoggerFactory.getLogger(PeerClient.class);
+
+    public static final String HEADER_FORWARDED_BY = "X-Brm-Forwarded-By";
+
+    private static final String PATH_SIMPLE = SimpleRestController.PATH + SimpleRestController.PATH_SIMPLE;
+    private static final String PATH_BLOBS = SimpleRestController.PATH + BlobRestController.PATH_BLOBS;
+    private static final String PATH_UPLOADS = SimpleRestController.PATH + UploadRestController.PATH_UPLOADS;
+    // a chunk the owner throttles with 503 is sent again after Retry-After, this often at most
+    private static final int MAX_CHUNK_ATTEMPTS = 10;
+
+    // conditional and range requests are answered by the owner
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.RANGE, HttpHeaders.IF_RANGE, HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+            HttpHeaders.IF_MATCH, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.ACCEPT_ENCODING);
+    private static final List<String> FORWARDED_RESPONSE_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_RANGE,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.ACCEPT_RANGES,
+            HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RestClient restClient;
+
+    private final LongAdder streamedReads = new LongAdder();
+    private final LongAdder receivedBytes = new LongAdder();
+    private final LongAdder cachedReads = new LongAdder();
+    private final LongAdder pushedUploads = new LongAdder();
+    private final LongAdder skippedPushes = new LongAdder();
+
+    public PeerClient(Cluster cluster, RestClient.Builder restClientBuilder,
+                      @Value("${brm.cluster.connect-timeout-ms:1000}") long connectTimeoutMs,
+                      @Value("${brm.cluster.read-timeout-ms:30000}") long readTimeoutMs) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.restClient = restClientBuilder
+                .requestFactory(requestFactory)
+                .defaultHeader(HEADER_FORWARDED_BY, cluster.getSelf().id())
+                .build();
+    }
+
+    /**
+     * GET /rest/simple of a node
+     */
+    public SimpleResponse simple(ClusterNode node, String traceId) {
+        return restClient.get()
+                .uri(node.uri().resolve(PATH_SIMPLE))
+                .headers(headers -> {
+                    if (traceId != null) {
+                        headers.set("x-b3-traceid", traceId);
+                    }
+                })
+                .retrieve()
+                .body(SimpleResponse.class);
+    }
+
+    /**
+     * Send the owner's response for a blob to the client, status, validators and body as they come.
+     * Range and conditional request headers are passed on.
+     *
+     * @param id canonical blob id, see {@link BlobStore#canonicalId(String)}
+     */
+    public void streamBlob(ClusterNode owner, String id, HttpServletRequest request, HttpServletResponse response) {
+        restClient.method(HttpMethod.valueOf(request.getMethod()))
+                .uri(blobUri(owner, id))
+                .headers(headers -> {
+                    for (String name : FORWARDED_REQUEST_HEADERS) {
+                        String value = request.getHeader(name);
+                        if (value != null) {
+                            headers.set(name, value);
+                        }
+                    }
+                })
+                .exchange((clientRequest, clientResponse) -> {
+                    response.setStatus(clientResponse.getStatusCode().value());
+                    for (String name : FORWARDED_RESPONSE_HEADERS) {
+                        String value = clientResponse.getHeaders().getFirst(name);
+                        if (value != null) {
+                            response.setHeader(name, value);
+                        }
+                    }
+                    try (InputStream body = clientResponse.getBody()) {
+                        receivedBytes.add(body.transferTo(response.getOutputStream()));
+                    }
+                    return null;
+                });
+        streamedReads.increment();
+    }
+
+    /**
+     * Copy a content-addressed blob from its owner into the local store, verifying its digest
+     *
+     * @param digest lower case hex sha256 of the blob
+     * @return false if the owner does not have it
+     */
+    public boolean fetchBlob(ClusterNode owner, String digest, BlobStore blobStore) {
+        Boolean found = restClient.get()
+                .uri(blobUri(owner, digest))
+                .exchange((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return false;
+                    }
+                    if (!clientResponse.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
+                        throw new IOException("Node " + owner.id() + " answered " + clientResponse.getStatusCode()
+                                + " for blob " + digest);
+                    }
+                    try (InputStream body = clientResponse.getBody()) {
+                        StoredBlob stored = blobStore.store(Channels.newChannel(body), digest);
+                        receivedBytes.add(stored.size());
+                    }
+                    return true;
+                });
+        if (Boolean.TRUE.equals(found)) {
+            cachedReads.increment();
+            log.debug("Cached blob sha256:{} from node {}", digest, owner.id());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the owner has a blob, asked with a HEAD request that transfers no content
+     *
+     * @param digest lower case hex sha256 of the blob
+     */
+    public boolean hasBlob(ClusterNode owner, String digest) {
+        Boolean found = restClient.head()
+                .uri(blobUri(owner, digest))
+                .exchange((clientRequest, clientResponse) -> {
+                    if (clientResponse.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                        return false;
+                    }
+                    if (!clientResponse.getStatusCode().isSameCodeAs(HttpStatus.OK)) {
+                        throw new IOException("Node " + owner.id() + " answered " + clientResponse.getStatusCode()
+                                + " for blob " + digest);
+                    }
+                    return true;
+                });
+        if (Boolean.TRUE.equals(found)) {
+            skippedPushes.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Give the owner a copy of a blob just stored here. A duplicate was usually passed on when it
+     * was first stored here, so for those the owner is only asked if it has it.
+     */
+    public void replicate(ClusterNode owner, StoredBlob storedBlob, Path blob) throws IOException {
+        if (storedBlob.deduplicated() && hasBlob(owner, storedBlob.digest())) {
+            return;
+        }
+        if (storedBlob.digest().startsWith(BlobStore.TREE_DIGEST_PREFIX)) {
+            pushTreeHashedBlob(owner, blob, storedBlob.digest());
+        } else {
+            pushBlob(owner, blob, storedBlob.digest());
+        }
+    }
+
+    /**
+     * Upload a locally stored blob to its owner, which drops it if it has the content already
+     */
+    public void pushBlob(ClusterNode owner, Path blob, String digest) throws IOException {
+        restClient.put()
+                .uri(owner.uri().resolve(PATH_BLOBS))
+                .header(BlobRestController.HEADER_CHECKSUM_SHA256, digest)
+                .contentLength(Files.size(blob))
+                .body(out -> Files.copy(blob, out))
+                .retrieve()
+                .toBodilessEntity();
+        pushedUploads.increment();
+        log.debug("Pushed blob sha256:{} to node {}", digest, owner.id());
+    }
+
+    /**
+     * Upload a blob of a chunked upload to its owner through the owner's own upload sessions, so
+     * the owner verifies the tree hash and stores it under the same id. An incomplete session is
+     * aborted.
+     *
+     * @param id "sha256-tree:" prefixed tree hash of the blob
+     */
+    public void pushTreeHashedBlob(ClusterNode owner, Path blob, String id) throws IOException {
+        URI uploads = owner.uri().resolve(PATH_UPLOADS);
+        UploadStatus status = restClient.post()
+                .uri(uploads + "?size=" + Files.size(blob))
+                .retrieve()
+                .body(UploadStatus.class);
+        if (status == null) {
+            throw new IOException("Node " + owner.id() + " did not create an upload session");
+        }
+        URI session = owner.uri().resolve(PATH_UPLOADS + "/" + status.id());
+        boolean committed = false;
+        try (FileChannel channel = FileChannel.open(blob)) {
+            for (int chunk : status.missingChunks()) {
+                long offset = (long) chunk * status.chunkSize();
+                long length = Math.min(status.chunkSize(), status.size() - offset);
+                pushChunk(session, channel, offset, length);
+            }
+            restClient.post()
+                    .uri(session + "/commit")
+                    .header(UploadRestController.HEADER_CHECKSUM_SHA256_TREE, id)
+                    .retrieve()
+                    .toBodilessEntity();
+            committed = true;
+        } finally {
+            if (!committed) {
+                abortQuietly(session);
+            }
+        }
+        pushedUploads.increment();
+        log.debug("Pushed blob {} to node {} in {} chunks", id, owner.id(), status.chunks());
+    }
+
+    private void pushChunk(URI session, FileChannel channel, long offset, long length) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                restClient.put()
+                        .uri(session + "?offset=" + offset)
+                        .contentLength(length)
+                        .body(out -> channel.transferTo(offset, length, Channels.newChannel(out)))
+                        .retrieve()
+                        .toBodilessEntity();
+                return;
+            } catch (HttpServerErrorException.ServiceUnavailable e) {
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(retryAfter(e));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while the owner throttled chunk at " + offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Retry-After in seconds as the upload endpoints send it, 1 second otherwise
+     */
+    private static Duration retryAfter(HttpServerErrorException e) {
+        String value = e.getResponseHeaders() == null ? null : e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        try {
+            return Duration.ofSeconds(value == null ? 1 : Math.max(1, Long.parseLong(value.strip())));
+        } catch (NumberFormatException ignored) {
+            return Duration.ofSeconds(1);
+        }
+    }
+
+    private void abortQuietly(URI session) {
+        try {
+            restClient.delete().uri(session).retrieve().toBodilessEntity();
+        } catch (RuntimeException e) {
+            log.debug("Aborting upload session {} failed", session, e);
+        }
+    }
+
+    /**
+     * Stop the threads of the HTTP client once the server no longer sends peer requests
+     */
+    @PreDestroy
+    public void close() {
+        executor.close();
+    }
+
+    public Statistics statistics() {
+        return new Statistics(streamedReads.sum(), cachedReads.sum(), receivedBytes.sum(), pushedUploads.sum(),
+                skippedPushes.sum());
+    }
+
+    private static URI blobUri(ClusterNode node, String id) {
+        return node.uri().resolve(PATH_BLOBS + "/" + id);
+    }
+
+    /**
+     * Reads streamed from their owner, blobs copied from their owner into the local store, bytes
+     * received for both, uploads passed on to their owner, and duplicate uploads not passed on
+     * because the owner had them already
+     */
+    public record Statistics(long streamedReads, long cachedReads, long receivedBytes, long pushedUploads,
+                             long skippedPushes) {
+    }
+}
@@ -0,0 +1,33 @@
+package org.brm.apiserver.config;
+
+import org.brm.apiserver.model.ArtifactMetadata;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints for the native image and Spring AOT.
+ * <p>
+ * Controller return types are registered by Spring itself; these are the types Jackson binds
+ * outside of them, like the NDJSON lines of /rest/batch and the cached /rest/metadata responses.
+ * The blocking test data files live on the file system (testdata/blocking), not on the class
+ * path, so they need no resource hints.
+ */
+class NativeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] BINDING_TYPES = {
+            SimpleResponse.class, SimpleResponseSnapshot.class, BatchOperation.class, BatchResult.class,
+            ArtifactMetadata.class
+    };
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingRegistrar.registerReflectionHints(hints.reflection(), BINDING_TYPES);
+    }
+}
@@ -0,0 +1,19 @@
+package org.brm.apiserver.config;
+
+import org.brm.apiserver.controller.rest.SimpleResponseHttpMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHints.class)
+public class WebConfiguration {
+
+    /**
+     * Registered ahead of the Jackson converter, see {@link SimpleResponseHttpMessageConverter}
+     */
+    @Bean
+    public SimpleResponseHttpMessageConverter simpleResponseHttpMessageConverter() {
+        return new SimpleResponseHttpMessageConverter();
+    }
+}
@@ -0,0 +1,136 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.index.ArtifactIndex;
+import org.brm.apiserver.journal.MetadataLog;
+import org.brm.apiserver.journal.Mutation;
+import org.brm.apiserver.model.ArtifactEntry;
+import org.brm.apiserver.model.ArtifactPublication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Artifact metadata writes through the {@link MetadataLog}: a publish, delete or promote returns
+ * once it is durable and visible to reads, which come straight from the {@link ArtifactIndex}.
+ */
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class ArtifactRestController {
+
+    public static final String PATH_ARTIFACTS = "/artifacts";
+    private static final String PATH_ARTIFACT = PATH_ARTIFACTS + "/{group}/{name}/{version}";
+
+    private final MetadataLog metadataLog;
+    private final ArtifactIndex artifactIndex;
+
+    public ArtifactRestController(MetadataLog metadataLog, ArtifactIndex artifactIndex) {
+        this.metadataLog = metadataLog;
+        this.artifactIndex = artifactIndex;
+    }
+
+    @GetMapping(PATH_ARTIFACT)
+    public ResponseEntity<ArtifactEntry> artifact(
+            @PathVariable("group") String group,
+            @PathVariable("name") String name,
+            @PathVariable("version") String version,
+            @RequestParam(value = "classifier", defaultValue = "") String classifier) {
+        ArtifactEntry entry = entry(group, name, version, classifier, 0);
+        if (entry == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Artifact not found");
+        }
+        return ResponseEntity.ok(entry);
+    }
+
+    /**
+     * Publish or replace an artifact version
+     */
+    @PutMapping(PATH_ARTIFACT)
+    public ResponseEntity<ArtifactEntry> publish(
+            @PathVariable("group") String group,
+            @PathVariable("name") String name,
+            @PathVariable("version") String version,
+            @RequestParam(value = "classifier", defaultValue = "") String classifier,
+            @RequestBody ArtifactPublication publication) throws IOException, InterruptedException {
+        String digest = publication.sha256() != null ? BlobStore.normalizeDigest(publication.sha256()) : null;
+        if (digest == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid sha256: " + publication.sha256());
+        }
+        MetadataLog.Committed committed = commit(() -> Mutation.publish(group, name, version, classifier,
+                HexFormat.of().parseHex(digest), publication.size(), System.currentTimeMillis()));
+        return ResponseEntity.ok(entry(group, name, version, classifier, committed.lsn()));
+    }
+
+    @DeleteMapping(PATH_ARTIFACT)
+    public ResponseEntity<Void> delete(
+            @PathVariable("group") String group,
+            @PathVariable("name") String name,
+            @PathVariable("version") String version,
+            @RequestParam(value = "classifier", defaultValue = "") String classifier)
+            throws IOException, InterruptedException {
+        requireLive(group, name, version, classifier);
+        MetadataLog.Committed committed = commit(() -> Mutation.delete(group, name, version, classifier,
+                System.currentTimeMillis()));
+        if (!committed.applied()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Artifact not found");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Mark an artifact version as promoted, e.g. from staging to release
+     */
+    @PostMapping(PATH_ARTIFACT + "/promote")
+    public ResponseEntity<ArtifactEntry> promote(
+            @PathVariable("group") String group,
+            @PathVariable("name") String name,
+            @PathVariable("version") String version,
+            @RequestParam(value = "classifier", defaultValue = "") String classifier)
+            throws IOException, InterruptedException {
+        requireLive(group, name, version, classifier);
+        MetadataLog.Committed committed = commit(() -> Mutation.promote(group, name, version, classifier,
+                System.currentTimeMillis()));
+        if (!committed.applied()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Artifact not found");
+        }
+        return ResponseEntity.ok(entry(group, name, version, classifier, committed.lsn()));
+    }
+
+    private MetadataLog.Committed commit(Supplier<Mutation> mutation) throws IOException, InterruptedException {
+        try {
+            return metadataLog.append(mutation.get());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            // the index is full
+            throw new ResponseStatusException(HttpStatus.INSUFFICIENT_STORAGE, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Answer 404 without logging a mutation that would not change anything
+     */
+    private void requireLive(String group, String name, String version, String classifier) {
+        if (artifactIndex.find(group, name, version, classifier) == ArtifactIndex.NOT_FOUND) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Artifact not found");
+        }
+    }
+
+    /**
+     * The live entry, or null; a concurrent delete may have removed a version just written
+     */
+    private ArtifactEntry entry(String group, String name, String version, String classifier, long lsn) {
+        long record = artifactIndex.find(group, name, version, classifier);
+        if (record == ArtifactIndex.NOT_FOUND) {
+            return null;
+        }
+        return new ArtifactEntry(group, name, version, classifier, artifactIndex.digestHex(record),
+                artifactIndex.size(record), artifactIndex.createdAt(record), artifactIndex.modifiedAt(record),
+                (artifactIndex.flags(record) & ArtifactIndex.FLAG_PROMOTED) != 0, lsn);
+    }
+}
@@ -0,0 +1,66 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.batch.BatchExecutor;
+import org.brm.apiserver.model.BatchOperation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class BatchRestController {
+
+    public static final String PATH_BATCH = "/batch";
+
+    @Value("${brm.batch.max-operations:1000}")
+    private int maxOperations;
+
+    @Value("${brm.batch.timeout-ms:30000}")
+    private long defaultTimeoutMs;
+
+    @Value("${brm.batch.max-timeout-ms:60000}")
+    private long maxTimeoutMs;
+
+    private final BatchExecutor batchExecutor;
+
+    public BatchRestController(BatchExecutor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    /**
+     * Run a list of blocking operations concurrently under one deadline, streaming one
+     * NDJSON line per operation in completion order
+     */
+    @PostMapping(value = PATH_BATCH, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batch(
+            @RequestBody List<BatchOperation> operations,
+            @RequestParam(value = "timeout-ms", required = false) Long timeoutMs) {
+
+        if (operations.isEmpty() || operations.size() > maxOperations) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch takes 1 to " + maxOperations + " operations");
+        }
+        long resolvedTimeoutMs = timeoutMs != null ? timeoutMs : defaultTimeoutMs;
+        if (resolvedTimeoutMs <= 0 || resolvedTimeoutMs > maxTimeoutMs) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "timeout-ms must be between 1 and " + maxTimeoutMs);
+        }
+
+        Duration timeout = Duration.ofMillis(resolvedTimeoutMs);
+        StreamingResponseBody body = out -> {
+            try {
+                batchExecutor.execute(operations, timeout, PATH_BATCH, out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -0,0 +1,286 @@
+package org.brm.apiserver.controller.rest;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.brm.apiserver.blob.BlobRepresentation;
+import org.brm.apiserver.blob.BlobRepresentations;
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.blob.BlobTransfer;
+import org.brm.apiserver.blob.ByteRange;
+import org.brm.apiserver.blob.DigestMismatchException;
+import org.brm.apiserver.blob.StoredBlob;
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.ClusterNode;
+import org.brm.apiserver.cluster.PeerClient;
+import org.brm.apiserver.http.ContentCoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class BlobRestController {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobRestController.class);
+
+    public static final String PATH_BLOBS = "/blobs";
+    public static final String HEADER_CHECKSUM_SHA256 = "X-Checksum-Sha256";
+
+    private static final String MULTIPART_BOUNDARY = "BRM_BYTERANGES_7f3a9c";
+    private static final byte[] MULTIPART_END =
+            ("\r\n--" + MULTIPART_BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+    // uploaded blobs never change, clients need not revalidate them
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private final BlobStore blobStore;
+    private final BlobRepresentations blobRepresentations;
+    private final Cluster cluster;
+    private final PeerClient peerClient;
+
+    public BlobRestController(BlobStore blobStore, BlobRepresentations blobRepresentations,
+                              Cluster cluster, PeerClient peerClient) {
+        this.blobStore = blobStore;
+        this.blobRepresentations = blobRepresentations;
+        this.cluster = cluster;
+        this.peerClient = peerClient;
+    }
+
+    @GetMapping(PATH_BLOBS + "/{id}")
+    public void downloadBlob(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        // a local copy is served even if another node owns the blob
+        Path blob = blobStore.locate(id);
+        if (blob == null) {
+            String key = BlobStore.canonicalId(id);
+            ClusterNode owner = key == null ? null : cluster.owner(key);
+            if (owner == null || cluster.isSelf(owner) || request.getHeader(PeerClient.HEADER_FORWARDED_BY) != null) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            blob = readThrough(owner, key, rangeHeader, request, response);
+            if (blob == null) {
+                return;
+            }
+        }
+
+        BlobRepresentation representation = blobRepresentations.describe(blob);
+        long length = representation.length();
+        boolean headOnly = "HEAD".equals(request.getMethod());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (representation.contentAddressed()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_IMMUTABLE);
+        }
+
+        // ranges always refer to the identity coding, so range requests get no variant
+        if (rangeHeader != null && !ifRangeMatches(request, representation)) {
+            rangeHeader = null;
+        }
+        ContentCoding coding = rangeHeader == null
+                ? ContentCoding.negotiate(acceptEncoding, representation.codings())
+                : ContentCoding.IDENTITY;
+        if (!representation.codings().isEmpty()) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        // 304 for If-None-Match / If-Modified-Since and 412 for If-Match / If-Unmodified-Since,
+        // answered from the cached representation without opening the blob
+        if (new ServletWebRequest(request, response)
+                .checkNotModified(representation.etag(coding), representation.lastModified())) {
+            return;
+        }
+
+        if (coding != ContentCoding.IDENTITY) {
+            long variantLength = representation.variantLength(coding);
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+            response.setContentLengthLong(variantLength);
+            if (!headOnly) {
+                sendRegion(request, response, BlobRepresentations.variantPath(blob, coding), 0, variantLength);
+            }
+            return;
+        }
+
+        List<ByteRange> ranges = ByteRange.parse(rangeHeader, length);
+        if (ranges == null) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(length);
+            if (!headOnly) {
+                sendRegion(request, response, blob, 0, length);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.getFirst();
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+            response.setContentLengthLong(range.length());
+            if (!headOnly) {
+                sendRegion(request, response, blob, range.first(), range.length());
+            }
+        } else {
+            sendMultipartRanges(response, blob, length, ranges, headOnly);
+        }
+    }
+
+    @PutMapping(PATH_BLOBS)
+    public ResponseEntity<StoredBlob> uploadBlob(
+            @RequestHeader(value = HEADER_CHECKSUM_SHA256, required = false) String expectedDigest,
+            HttpServletRequest request) throws IOException {
+
+        StoredBlob storedBlob;
+        try {
+            storedBlob = blobStore.store(BlobTransfer.channel(request.getInputStream()), expectedDigest);
+        } catch (IllegalArgumentException | DigestMismatchException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        replicateToOwner(cluster, peerClient, blobStore, storedBlob, request);
+
+        if (storedBlob.deduplicated()) {
+            return ResponseEntity.ok(storedBlob);
+        }
+        blobRepresentations.precompressLater(blobStore.locate(storedBlob.digest()));
+        URI location = URI.create(SimpleRestController.PATH + PATH_BLOBS + "/" + storedBlob.digest());
+        return ResponseEntity.created(location).body(storedBlob);
+    }
+
+    /**
+     * The owner gets a copy of a blob stored here, the one here stays as a cached copy. Blobs a
+     * peer passed on are not passed on again.
+     *
+     * @throws ResponseStatusException 502 if the owner could not be reached
+     */
+    static void replicateToOwner(Cluster cluster, PeerClient peerClient, BlobStore blobStore,
+                                 StoredBlob storedBlob, HttpServletRequest request) throws IOException {
+        ClusterNode owner = cluster.owner(storedBlob.digest());
+        if (owner == null || cluster.isSelf(owner) || request.getHeader(PeerClient.HEADER_FORWARDED_BY) != null) {
+            return;
+        }
+        try {
+            peerClient.replicate(owner, storedBlob, blobStore.locate(storedBlob.digest()));
+        } catch (RestClientException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "Could not store blob on node " + owner.id() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Blob owned by another node. Whole content-addressed blobs are copied into the local store
+     * first, if brm.cluster.read-through-cache is on, and then served like local ones. Anything
+     * else is streamed from the owner.
+     *
+     * @return the local copy, or null if the response was sent
+     */
+    private Path readThrough(ClusterNode owner, String key, String rangeHeader,
+                             HttpServletRequest request, HttpServletResponse response) {
+        String digest = BlobStore.normalizeDigest(key);
+        try {
+            if (cluster.isReadThroughCache() && digest != null && rangeHeader == null
+                    && "GET".equals(request.getMethod())) {
+                if (peerClient.fetchBlob(owner, digest, blobStore)) {
+                    return blobStore.locate(digest);
+                }
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return null;
+            }
+            peerClient.streamBlob(owner, key, request, response);
+            return null;
+        } catch (RestClientException e) {
+            log.warn("Read of blob {} from node {} failed", key, owner.id(), e);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "Could not read blob from node " + owner.id() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * If-Range holds a strong ETag or a date; ranges are only served if it still matches
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, BlobRepresentation representation) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(representation.etag(ContentCoding.IDENTITY));
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == representation.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Send one contiguous region, preferring sendfile and falling back to mapped writes
+     */
+    private void sendRegion(HttpServletRequest request, HttpServletResponse response,
+                            Path blob, long position, long count) throws IOException {
+        if (count == 0 || BlobTransfer.trySendfile(request, blob, position, count)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            BlobTransfer.transfer(channel, position, count, response.getOutputStream());
+        }
+    }
+
+    /**
+     * Send a multipart/byteranges response. Only the part headers are built on the heap,
+     * the payload of every part is written from mapped file regions.
+     */
+    private void sendMultipartRanges(HttpServletResponse response, Path blob, long length,
+                                     List<ByteRange> ranges, boolean headOnly) throws IOException {
+        byte[][] partHeaders = new byte[ranges.size()][];
+        long contentLength = MULTIPART_END.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            partHeaders[i] = ("\r\n--" + MULTIPART_BOUNDARY + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + range.length();
+        }
+
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + MULTIPART_BOUNDARY);
+        response.setContentLengthLong(contentLength);
+        if (headOnly) {
+            return;
+        }
+
+        log.debug("Sending {} ranges of blob {} ({} bytes)", ranges.size(), blob.getFileName(), contentLength);
+        ServletOutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(blob, StandardOpenOption.READ)) {
+            for (int i = 0; i < ranges.size(); i++) {
+                ByteRange range = ranges.get(i);
+                out.write(partHeaders[i]);
+                BlobTransfer.transfer(channel, range.first(), range.length(), out);
+            }
+        }
+        out.write(MULTIPART_END);
+    }
+}
@@ -0,0 +1,88 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.ClusterNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+/**
+ * Hash ring of this instance. Membership changes apply to this instance only and have to be
+ * sent to every node. Only configured nodes can join, see {@link Cluster#isAllowed(ClusterNode)}.
+ * Removing nodes is off unless brm.cluster.leave-enabled is set, since any client could otherwise
+ * shrink the ring down to this node.
+ */
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class ClusterRestController {
+
+    public static final String PATH_CLUSTER = "/cluster";
+    public static final String PATH_CLUSTER_NODES = PATH_CLUSTER + "/nodes";
+    public static final String PATH_CLUSTER_OWNER = PATH_CLUSTER + "/owner";
+
+    private final Cluster cluster;
+
+    @Value("${brm.cluster.leave-enabled:false}")
+    private boolean leaveEnabled;
+
+    public ClusterRestController(Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Members and their share of the key space
+     */
+    @GetMapping(PATH_CLUSTER)
+    public ResponseEntity<Cluster.Status> status() {
+        return new ResponseEntity<>(cluster.status(), HttpStatus.OK);
+    }
+
+    @PostMapping(PATH_CLUSTER_NODES)
+    public ResponseEntity<Cluster.Status> join(@RequestParam("uri") String uri) {
+        try {
+            ClusterNode node = ClusterNode.of(uri);
+            if (!cluster.isAllowed(node)) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Node " + node.id()
+                        + " is not configured in brm.cluster.nodes or brm.cluster.allowed-nodes");
+            }
+            return new ResponseEntity<>(cluster.join(node), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    @DeleteMapping(PATH_CLUSTER_NODES)
+    public ResponseEntity<Cluster.Status> leave(@RequestParam("uri") String uri) {
+        if (!leaveEnabled) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Removing nodes is disabled, see brm.cluster.leave-enabled");
+        }
+        try {
+            return new ResponseEntity<>(cluster.leave(ClusterNode.of(uri)), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Node that owns a blob id
+     */
+    @GetMapping(PATH_CLUSTER_OWNER + "/{id}")
+    public ResponseEntity<Map<String, String>> owner(@PathVariable("id") String id) {
+        String key = BlobStore.canonicalId(id);
+        if (key == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid blob id: " + id);
+        }
+        ClusterNode owner = cluster.owner(key);
+        return new ResponseEntity<>(Map.of("id", key, "owner", owner.id(), "uri", owner.uri().toString()), HttpStatus.OK);
+    }
+}
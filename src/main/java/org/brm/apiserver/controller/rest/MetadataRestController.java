@@ -0,0 +1,58 @@
+package org.brm.apiserver.controller.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.brm.apiserver.http.ContentCoding;
+import org.brm.apiserver.metadata.MetadataService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class MetadataRestController {
+
+    public static final String PATH_METADATA = "/metadata";
+
+    private final MetadataService metadataService;
+
+    public MetadataRestController(MetadataService metadataService) {
+        this.metadataService = metadataService;
+    }
+
+    /**
+     * Versions and latest version of {@code group:name} as cached JSON, gzip-encoded if accepted.
+     * If-None-Match and If-Modified-Since are answered with 304 from the cached entry.
+     * Cache statistics at /rest/metrics/metadata-cache
+     */
+    @GetMapping(PATH_METADATA + "/{coordinates}")
+    public ResponseEntity<byte[]> metadata(
+            @PathVariable("coordinates") String coordinates,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request,
+            HttpServletResponse response) {
+        if (!MetadataService.isValidCoordinates(coordinates)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Expected coordinates as group:name, got " + coordinates);
+        }
+        MetadataService.Representation representation = metadataService.lookup(coordinates);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (new ServletWebRequest(request, response)
+                .checkNotModified(representation.etag(), representation.lastModified())) {
+            return null;
+        }
+        ContentCoding coding = representation.negotiate(acceptEncoding);
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(representation.etag())
+                .lastModified(representation.lastModified());
+        if (coding != ContentCoding.IDENTITY) {
+            ok.header(HttpHeaders.CONTENT_ENCODING, coding.getToken());
+        }
+        return ok.body(representation.body(coding));
+    }
+}
@@ -0,0 +1,153 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.blob.UploadSessions;
+import org.brm.apiserver.cache.TinyLfuCache;
+import org.brm.apiserver.cluster.PeerClient;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.jfr.PinningMonitor;
+import org.brm.apiserver.journal.MetadataLog;
+import org.brm.apiserver.limit.ConcurrencyLimiter;
+import org.brm.apiserver.limit.OperationLimiters;
+import org.brm.apiserver.metadata.MetadataService;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.metrics.LatencyMetrics.LatencyReport;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.net.BackendClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class MetricsRestController {
+
+    public static final String PATH_METRICS = "/metrics";
+    public static final String PATH_METRICS_BACKEND = PATH_METRICS + "/backend";
+    public static final String PATH_METRICS_LIMITS = PATH_METRICS + "/limits";
+    public static final String PATH_METRICS_PINNING = PATH_METRICS + "/pinning";
+    public static final String PATH_METRICS_ACCESS_LOG = PATH_METRICS + "/access-log";
+    public static final String PATH_METRICS_FILE_IO = PATH_METRICS + "/file-io";
+    public static final String PATH_METRICS_METADATA_CACHE = PATH_METRICS + "/metadata-cache";
+    public static final String PATH_METRICS_UPLOADS = PATH_METRICS + "/uploads";
+    public static final String PATH_METRICS_CLUSTER = PATH_METRICS + "/cluster";
+    public static final String PATH_METRICS_METADATA_LOG = PATH_METRICS + "/metadata-log";
+
+    private final LatencyMetrics latencyMetrics;
+    private final BackendClient backendClient;
+    private final OperationLimiters operationLimiters;
+    private final ObjectProvider<PinningMonitor> pinningMonitor;
+    private final AccessLog accessLog;
+    private final FileReadEngine fileReadEngine;
+    private final MetadataService metadataService;
+    private final UploadSessions uploadSessions;
+    private final PeerClient peerClient;
+    private final MetadataLog metadataLog;
+
+    public MetricsRestController(LatencyMetrics latencyMetrics, BackendClient backendClient,
+                                 OperationLimiters operationLimiters, ObjectProvider<PinningMonitor> pinningMonitor,
+                                 AccessLog accessLog, FileReadEngine fileReadEngine,
+                                 MetadataService metadataService, UploadSessions uploadSessions,
+                                 PeerClient peerClient, MetadataLog metadataLog) {
+        this.latencyMetrics = latencyMetrics;
+        this.backendClient = backendClient;
+        this.operationLimiters = operationLimiters;
+        this.pinningMonitor = pinningMonitor;
+        this.accessLog = accessLog;
+        this.fileReadEngine = fileReadEngine;
+        this.metadataService = metadataService;
+        this.uploadSessions = uploadSessions;
+        this.peerClient = peerClient;
+        this.metadataLog = metadataLog;
+    }
+
+    /**
+     * Latency percentiles (microseconds) and counts per blocking operation type and per endpoint
+     */
+    @GetMapping(PATH_METRICS)
+    public ResponseEntity<LatencyReport> metrics() {
+        return new ResponseEntity<>(latencyMetrics.report(), HttpStatus.OK);
+    }
+
+    /**
+     * Backend client throughput and connection reuse, see brm.blocking.network-io.mode
+     */
+    @GetMapping(PATH_METRICS_BACKEND)
+    public ResponseEntity<BackendClient.Statistics> backend() {
+        return new ResponseEntity<>(backendClient.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Current adaptive concurrency limit, in-flight count and shed requests per operation type
+     */
+    @GetMapping(PATH_METRICS_LIMITS)
+    public ResponseEntity<Map<OperationType, ConcurrencyLimiter.Statistics>> limits() {
+        return new ResponseEntity<>(operationLimiters.report(), HttpStatus.OK);
+    }
+
+    /**
+     * Virtual thread pinning ranked by total pinned time per stack, and time blocked per mode,
+     * both from the in-process JFR stream
+     */
+    @GetMapping(PATH_METRICS_PINNING)
+    public ResponseEntity<PinningMonitor.PinningReport> pinning(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        PinningMonitor monitor = pinningMonitor.getIfAvailable();
+        if (monitor == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pinning monitor is disabled (brm.jfr.pinning.enabled)");
+        }
+        return new ResponseEntity<>(monitor.report(Math.max(0, limit)), HttpStatus.OK);
+    }
+
+    /**
+     * Access log records written, pending and dropped because the ring buffer was full
+     */
+    @GetMapping(PATH_METRICS_ACCESS_LOG)
+    public ResponseEntity<AccessLog.Statistics> accessLog() {
+        return new ResponseEntity<>(accessLog.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * FILE_IO read strategy in use and its throughput per wall and per CPU second
+     */
+    @GetMapping(PATH_METRICS_FILE_IO)
+    public ResponseEntity<FileReadEngine.Statistics> fileIo() {
+        return new ResponseEntity<>(fileReadEngine.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Metadata cache hits, misses, misses coalesced into a load in flight, and evictions
+     */
+    @GetMapping(PATH_METRICS_METADATA_CACHE)
+    public ResponseEntity<TinyLfuCache.Statistics> metadataCache() {
+        return new ResponseEntity<>(metadataService.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Open chunked uploads, bytes in flight and chunks throttled or rejected by backpressure
+     */
+    @GetMapping(PATH_METRICS_UPLOADS)
+    public ResponseEntity<UploadSessions.Statistics> uploads() {
+        return new ResponseEntity<>(uploadSessions.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Blob reads streamed from or cached from their owner node, and uploads passed on to it
+     */
+    @GetMapping(PATH_METRICS_CLUSTER)
+    public ResponseEntity<PeerClient.Statistics> cluster() {
+        return new ResponseEntity<>(peerClient.statistics(), HttpStatus.OK);
+    }
+
+    /**
+     * Metadata mutations committed, fsyncs they took, snapshots and the startup replay
+     */
+    @GetMapping(PATH_METRICS_METADATA_LOG)
+    public ResponseEntity<MetadataLog.Statistics> metadataLog() {
+        return new ResponseEntity<>(metadataLog.statistics(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,72 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.misc.SimpleResponseEncoder;
+import org.brm.apiserver.misc.Utils;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * JSON fast path for {@link SimpleResponseSnapshot} responses.
+ * <p>
+ * Documents are encoded by a per-path {@link SimpleResponseEncoder} into a pooled scratch
+ * buffer and written with an exact Content-Length. The pool is striped by thread id instead
+ * of being thread-local, since every request runs on a new virtual thread and a thread-local
+ * buffer would be allocated per request.
+ */
+public class SimpleResponseHttpMessageConverter extends AbstractHttpMessageConverter<SimpleResponseSnapshot> {
+
+    private static final int POOL_STRIPES = 64;
+    private static final int BUFFER_BYTES = 1024;
+
+    private final ConcurrentHashMap<String, SimpleResponseEncoder> encoders = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<byte[]> bufferPool = new AtomicReferenceArray<>(POOL_STRIPES);
+
+    public SimpleResponseHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SimpleResponseSnapshot.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SimpleResponseSnapshot readInternal(Class<? extends SimpleResponseSnapshot> clazz,
+                                                  HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("SimpleResponseSnapshot is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(SimpleResponseSnapshot snapshot, HttpOutputMessage outputMessage)
+            throws IOException {
+        SimpleResponseEncoder encoder = encoders.computeIfAbsent(snapshot.pathString(),
+                path -> new SimpleResponseEncoder(Utils.getHostname(), path));
+
+        int stripe = (int) (snapshot.thread().threadId() & (POOL_STRIPES - 1));
+        byte[] buffer = bufferPool.getAndSet(stripe, null);
+        int required = encoder.maxEncodedLength(snapshot.thread());
+        if (buffer == null || buffer.length < required) {
+            buffer = new byte[Math.max(BUFFER_BYTES, required)];
+        }
+        try {
+            int length = encoder.encode(snapshot, buffer);
+            outputMessage.getHeaders().setContentLength(length);
+            outputMessage.getBody().write(buffer, 0, length);
+        } finally {
+            bufferPool.set(stripe, buffer);
+        }
+    }
+}
@@ -1,21 +1,32 @@
 package org.brm.apiserver.controller.rest;
 
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.ClusterNode;
+import org.brm.apiserver.cluster.PeerClient;
+import org.brm.apiserver.limit.ConcurrencyLimiter;
+import org.brm.apiserver.limit.OperationLimiters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.brm.apiserver.model.SimpleResponse;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
 import org.brm.apiserver.misc.Utils;
 import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.CorpusNotReadyException;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-// import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping(SimpleRestController.PATH)
 public class SimpleRestController {
 
-    // private final RestTemplate restTemplate;
     // instantiate slf4j logger
     private static final Logger log = LoggerFactory.getLogger(SimpleRestController.class);
 
@@ -29,14 +40,20 @@ public class SimpleRestController {
     private String logString;
 
     private final BlockingSimulator blockingSimulator;
+    private final OperationLimiters operationLimiters;
+    private final Cluster cluster;
+    private final PeerClient peerClient;
 
-    public SimpleRestController(BlockingSimulator blockingSimulator) {
+    public SimpleRestController(BlockingSimulator blockingSimulator, OperationLimiters operationLimiters,
+                                Cluster cluster, PeerClient peerClient) {
         this.blockingSimulator = blockingSimulator;
-        // this.restTemplate = restTemplate;
+        this.operationLimiters = operationLimiters;
+        this.cluster = cluster;
+        this.peerClient = peerClient;
     }
 
     @GetMapping(PATH_SIMPLE)
-    public ResponseEntity<SimpleResponse> simpleResponse(
+    public ResponseEntity<SimpleResponseSnapshot> simpleResponse(
             @RequestHeader(value = "x-b3-traceid", required = false) String traceId) {
 
 //        log.info("in simpleResponse: " + traceId);
@@ -44,7 +61,8 @@ public class SimpleRestController {
             log.info("in simpleResponse. logString = {}.",logString);
         }
 
-        SimpleResponse simpleResponse = Utils.newSimpleResponse(PATH_SIMPLE);
+        // written by SimpleResponseHttpMessageConverter, same JSON as SimpleResponse
+        SimpleResponseSnapshot simpleResponse = Utils.newSimpleResponseSnapshot(PATH_SIMPLE);
 //                SimpleResponse.builder()
 //                .hostString(Utils.getHostname())
 //                .pathString(PATH_SIMPLE)
@@ -67,39 +85,64 @@ public class SimpleRestController {
             log.info("in blockingResponse. logString = {}.", logString);
         }
 
+        // Admission control per performed type, excess load is rejected instead of queued
+        OperationType resolvedOperationType = blockingSimulator.resolveOperationType(operationType);
+        OperationType performedOperationType = blockingSimulator.selectOperationType(resolvedOperationType);
+        ConcurrencyLimiter.Permit permit = operationLimiters.tryAcquire(performedOperationType);
+        if (permit == null) {
+            return ResponseEntity.status(operationLimiters.getRejectStatus())
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+
         // Perform the blocking operation with optional parameters
-        blockingSimulator.performBlockingOperation(operationType, minBlockPeriodMs, maxBlockPeriodMs);
+        int plannedMs;
+        try {
+            plannedMs = blockingSimulator.performBlockingOperation(resolvedOperationType, performedOperationType,
+                    minBlockPeriodMs, maxBlockPeriodMs);
+        } catch (CorpusNotReadyException e) {
+            permit.releaseWithoutSample();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        } catch (RuntimeException | Error e) {
+            permit.releaseWithoutSample();
+            throw e;
+        }
+        permit.release(TimeUnit.MILLISECONDS.toNanos(plannedMs));
 
         SimpleResponse simpleResponse = Utils.newSimpleResponse(PATH_BLOCKING);
 
         return new ResponseEntity<>(simpleResponse, HttpStatus.OK);
     }
 
-//     @GetMapping(PATH_PROXY+"/{address}/{port}")
-//     public ResponseEntity<SimpleResponse> simpleProxy(
-//             @RequestHeader(value = "x-b3-traceid", required = false) String traceId,
-//             @PathVariable("address") String address,
-//             @PathVariable("port") Integer port) {
-
-// //        log.info("in simpleProxy: " + traceId);
-//         if (logString != null) {
-//             log.info("in simpleProxy. logString = {}.", logString);
-//         }
-
-//         StringBuilder sb = new StringBuilder(SCHEME_HTTP);
-//         sb.append(address).append(":").append(port).append(PATH).append(PATH_SIMPLE);
-//         String resourceUrl = sb.toString();
+    /**
+     * /rest/simple of a cluster node, through the pooled peer client. Only members of the ring
+     * are reachable, this instance always is.
+     */
+    @GetMapping(PATH_PROXY + "/{address}/{port}")
+    public ResponseEntity<SimpleResponse> simpleProxy(
+            @RequestHeader(value = "x-b3-traceid", required = false) String traceId,
+            @PathVariable("address") String address,
+            @PathVariable("port") Integer port) {
 
-//         ResponseEntity<SimpleResponse> response
-//                 = restTemplate.getForEntity(resourceUrl, SimpleResponse.class);
+        if (logString != null) {
+            log.info("in simpleProxy. logString = {}.", logString);
+        }
 
-//         if (response.getStatusCode().is2xxSuccessful()) {
-//             SimpleResponse simpleResponse = response.getBody();
-//             simpleResponse.setPathString(PATH_PROXY + "/" + address + "/" + port);
-//             return new ResponseEntity<>(simpleResponse, response.getStatusCode());
-//         }
+        ClusterNode node = cluster.member(address + ":" + port);
+        if (node == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Not a cluster node: " + address + ":" + port);
+        }
 
-//         return response;
-//     }
+        SimpleResponse simpleResponse;
+        try {
+            simpleResponse = peerClient.simple(node, traceId);
+        } catch (RestClientException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Node " + node.id() + " failed: " + e.getMessage(), e);
+        }
+        simpleResponse.setPathString(PATH_PROXY + "/" + address + "/" + port);
 
+        return new ResponseEntity<>(simpleResponse, HttpStatus.OK);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package org.brm.apiserver.controller.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.brm.apiserver.blob.BlobRepresentations;
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.blob.BlobTransfer;
+import org.brm.apiserver.blob.DigestMismatchException;
+import org.brm.apiserver.blob.InsufficientStorageException;
+import org.brm.apiserver.blob.StoredBlob;
+import org.brm.apiserver.blob.UploadSessions;
+import org.brm.apiserver.blob.UploadStatus;
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.PeerClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.NoSuchElementException;
+
+/**
+ * Resumable chunked uploads: create a session, PUT its chunks at their offsets in any order and
+ * in parallel, GET the session to learn which chunks are missing after a disconnect, then commit.
+ */
+@RestController
+@RequestMapping(SimpleRestController.PATH)
+public class UploadRestController {
+
+    public static final String PATH_UPLOADS = BlobRestController.PATH_BLOBS + "/uploads";
+    public static final String HEADER_CHECKSUM_SHA256_TREE = "X-Checksum-Sha256-Tree";
+
+    private final UploadSessions uploadSessions;
+    private final BlobStore blobStore;
+    private final BlobRepresentations blobRepresentations;
+    private final Cluster cluster;
+    private final PeerClient peerClient;
+
+    public UploadRestController(UploadSessions uploadSessions, BlobStore blobStore,
+                                BlobRepresentations blobRepresentations, Cluster cluster, PeerClient peerClient) {
+        this.uploadSessions = uploadSessions;
+        this.blobStore = blobStore;
+        this.blobRepresentations = blobRepresentations;
+        this.cluster = cluster;
+        this.peerClient = peerClient;
+    }
+
+    @PostMapping(PATH_UPLOADS)
+    public ResponseEntity<UploadStatus> createUpload(
+            @RequestParam("size") long size,
+            @RequestParam(value = "chunk-size", required = false) Integer chunkSize) throws IOException {
+        UploadStatus status;
+        try {
+            status = uploadSessions.create(size, chunkSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        } catch (InsufficientStorageException e) {
+            throw new ResponseStatusException(HttpStatus.INSUFFICIENT_STORAGE, e.getMessage(), e);
+        }
+        URI location = URI.create(SimpleRestController.PATH + PATH_UPLOADS + "/" + status.id());
+        return ResponseEntity.created(location).body(status);
+    }
+
+    @GetMapping(PATH_UPLOADS + "/{id}")
+    public ResponseEntity<UploadStatus> uploadStatus(@PathVariable("id") String id) {
+        try {
+            return ResponseEntity.ok(uploadSessions.status(id));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Write one chunk; 503 with Retry-After when the in-flight budgets stay exhausted
+     */
+    @PutMapping(PATH_UPLOADS + "/{id}")
+    public ResponseEntity<UploadStatus> uploadChunk(
+            @PathVariable("id") String id,
+            @RequestParam("offset") long offset,
+            HttpServletRequest request) throws IOException {
+        UploadStatus status;
+        try {
+            status = uploadSessions.writeChunk(id, offset, request.getContentLengthLong(),
+                    BlobTransfer.channel(request.getInputStream()));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+        if (status == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    @PostMapping(PATH_UPLOADS + "/{id}/commit")
+    public ResponseEntity<StoredBlob> commitUpload(
+            @PathVariable("id") String id,
+            @RequestHeader(value = HEADER_CHECKSUM_SHA256_TREE, required = false) String expectedDigest,
+            HttpServletRequest request) throws IOException {
+        StoredBlob storedBlob;
+        try {
+            storedBlob = uploadSessions.commit(id, expectedDigest);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (IllegalArgumentException | DigestMismatchException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+
+        // the tree hash is only known now, so this is where the owner gets its copy
+        BlobRestController.replicateToOwner(cluster, peerClient, blobStore, storedBlob, request);
+
+        if (storedBlob.deduplicated()) {
+            return ResponseEntity.ok(storedBlob);
+        }
+        // like a single PUT, the new blob gets its gzip variant in the background
+        blobRepresentations.precompressLater(blobStore.locate(storedBlob.digest()));
+        URI location = URI.create(SimpleRestController.PATH + BlobRestController.PATH_BLOBS + "/" + storedBlob.digest());
+        return ResponseEntity.created(location).body(storedBlob);
+    }
+
+    @DeleteMapping(PATH_UPLOADS + "/{id}")
+    public ResponseEntity<Void> abortUpload(@PathVariable("id") String id) throws IOException {
+        try {
+            uploadSessions.abort(id);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage(), e);
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,8 @@
+package org.brm.apiserver.deadline;
+
+/**
+ * Why a blocking operation was stopped before it completed
+ */
+public enum CancellationReason {
+    TIMEOUT, CLIENT_DISCONNECT
+}
@@ -0,0 +1,134 @@
+package org.brm.apiserver.deadline;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which the work for a request has to be done.
+ * <p>
+ * The deadline of the current request is bound to {@link #CURRENT} and is inherited by subtasks
+ * forked in a {@link java.util.concurrent.StructuredTaskScope}, so blocking code can cut its waits
+ * short without passing the deadline around. A deadline can also watch a thread and interrupt it
+ * when it expires, which wakes up sleeps and interruptible I/O; {@link #run} does both for every
+ * transport.
+ */
+public final class Deadline {
+
+    public static final ScopedValue<Deadline> CURRENT = ScopedValue.newInstance();
+
+    private final long timeoutMillis;
+    private final long deadlineNanos;
+
+    // guarded by this: the watchdog must not interrupt a thread that already moved on
+    private Thread watchedThread;
+    private ScheduledFuture<?> watchdog;
+    private boolean interrupted;
+
+    private Deadline(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(timeout.toMillis());
+    }
+
+    /**
+     * Run {@code task} on the calling thread with {@code deadline} bound to {@link #CURRENT}, and
+     * interrupt the thread if the deadline expires before the task returns. An interrupt of this
+     * deadline is cleared again, so it does not leak into whatever runs next on the thread.
+     */
+    public static <R, X extends Throwable> R run(Deadline deadline, ScopedValue.CallableOp<R, X> task) throws X {
+        deadline.watch(Thread.currentThread(), Watchdog.SCHEDULER);
+        try {
+            return ScopedValue.where(CURRENT, deadline).call(task);
+        } finally {
+            if (deadline.release()) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    /**
+     * Deadline bound to the current thread, or null if there is none
+     */
+    public static Deadline current() {
+        return CURRENT.isBound() ? CURRENT.get() : null;
+    }
+
+    /**
+     * {@code durationMs} capped to the time left before the current deadline, 0 once it passed.
+     * Rounded up, so a wait capped this way ends after the deadline, not just before it.
+     */
+    public static long capToCurrent(long durationMs) {
+        Deadline deadline = current();
+        if (deadline == null) {
+            return durationMs;
+        }
+        long remainingMillis = (deadline.remainingNanos() + 999_999) / 1_000_000;
+        return Math.min(durationMs, remainingMillis);
+    }
+
+    public static boolean isCurrentExpired() {
+        Deadline deadline = current();
+        return deadline != null && deadline.isExpired();
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Interrupt {@code thread} when the deadline expires, until {@link #release()} is called
+     */
+    synchronized void watch(Thread thread, ScheduledExecutorService scheduler) {
+        watchedThread = thread;
+        watchdog = scheduler.schedule(this::expire, remainingNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void expire() {
+        if (watchedThread != null) {
+            interrupted = true;
+            watchedThread.interrupt();
+        }
+    }
+
+    /**
+     * Stop watching the thread
+     *
+     * @return true if the watched thread was interrupted by this deadline
+     */
+    synchronized boolean release() {
+        watchedThread = null;
+        if (watchdog != null) {
+            watchdog.cancel(false);
+        }
+        return interrupted;
+    }
+
+    private static final class Watchdog {
+
+        // one platform thread only fires interrupts, the watched work runs elsewhere
+        static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1,
+                Thread.ofPlatform().name("deadline-watchdog").daemon().factory());
+
+        static {
+            SCHEDULER.setRemoveOnCancelPolicy(true);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.brm.apiserver.deadline;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A blocking operation was cancelled because its request deadline passed, answered with 504
+ */
+public class DeadlineExceededException extends ResponseStatusException {
+
+    public static final String HEADER_CANCELLED = "X-Request-Cancelled";
+
+    private final CancellationReason reason;
+
+    public DeadlineExceededException(Deadline deadline, CancellationReason reason) {
+        super(HttpStatus.GATEWAY_TIMEOUT, "Operation cancelled after the " + deadline.getTimeoutMillis()
+                + "ms request deadline (" + reason + ")");
+        this.reason = reason;
+    }
+
+    public CancellationReason getCancellationReason() {
+        return reason;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HEADER_CANCELLED, reason.name());
+        return headers;
+    }
+}
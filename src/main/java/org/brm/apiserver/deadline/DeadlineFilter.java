@@ -0,0 +1,66 @@
+package org.brm.apiserver.deadline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Binds a {@link Deadline} for requests that carry {@value #HEADER_TIMEOUT} or the
+ * {@value #PARAM_TIMEOUT} parameter (or when a default timeout is configured), and interrupts the
+ * request thread once it expires.
+ * <p>
+ * Clients send their own timeout, so the server stops working for a client that already gave up.
+ * A plain disconnect is not visible to a blocking servlet until it writes the response.
+ */
+@Component
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    public static final String HEADER_TIMEOUT = "X-Request-Timeout-Ms";
+    public static final String PARAM_TIMEOUT = "timeout-ms";
+
+    @Value("${brm.deadline.default-timeout-ms:0}")
+    private long defaultTimeoutMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long timeoutMs = resolveTimeoutMs(request);
+        if (timeoutMs <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        try {
+            Deadline.run(Deadline.after(Duration.ofMillis(timeoutMs)), () -> {
+                filterChain.doFilter(request, response);
+                return null;
+            });
+        } catch (IOException | ServletException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ServletException(e);
+        }
+    }
+
+    private long resolveTimeoutMs(HttpServletRequest request) {
+        String value = request.getHeader(HEADER_TIMEOUT);
+        if (value == null) {
+            value = request.getParameter(PARAM_TIMEOUT);
+        }
+        if (value == null) {
+            return defaultTimeoutMs;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultTimeoutMs;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.brm.apiserver.fileio;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration(proxyBeanMethods = false)
+public class FileIoConfiguration {
+
+    /**
+     * Read path of FILE_IO operations, statistics at /rest/metrics/file-io
+     */
+    @Bean
+    public FileReadEngine fileReadEngine(
+            @Value("${brm.blocking.file-io.strategy:stream}") String strategy,
+            @Value("${brm.blocking.file-io.buffer-kb:256}") int bufferKb,
+            @Value("${brm.blocking.file-io.buffers:64}") int buffers,
+            @Value("${brm.blocking.file-io.direct-alignment:4096}") int alignment) {
+        return new FileReadEngine(ReadStrategy.valueOf(strategy.trim().toUpperCase()), bufferKb * 1024, buffers,
+                alignment);
+    }
+}
@@ -0,0 +1,260 @@
+package org.brm.apiserver.fileio;
+
+import com.sun.nio.file.ExtendedOpenOption;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.DirectBufferPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads a range of a file with one {@link ReadStrategy}, and accounts wall and CPU time per byte
+ * so the strategies can be compared by throughput per core.
+ * <p>
+ * CPU time is measured per read where the reading thread reports it. Virtual threads do not, so
+ * as soon as one read could not be measured, the process CPU time since the first read is used
+ * instead. That includes the rest of the server, so run FILE_IO on its own to compare strategies.
+ * <p>
+ * DIRECT reads widen the range to the alignment and need a file system that supports O_DIRECT;
+ * where it does not (tmpfs, macOS), the engine falls back to CHANNEL and says so once.
+ */
+public class FileReadEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(FileReadEngine.class);
+
+    // same buffer as the original FILE_IO reads, many small read calls
+    private static final int STREAM_BUFFER_BYTES = 4096;
+
+    // strerror(EINVAL), the reason the JDK reports when open(2) rejects O_DIRECT
+    private static final String EINVAL = "Invalid argument";
+
+    private final ReadStrategy strategy;
+    private final int alignment;
+    private final DirectBufferPool bufferPool;
+    private final DirectBufferPool alignedBufferPool;
+    private volatile boolean directUnsupported;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder cpuUnmeasuredReads = new LongAdder();
+    private final AtomicLong firstReadProcessCpuNanos = new AtomicLong(-1);
+
+    /**
+     * @param bufferBytes size of the pooled direct buffers, a multiple of {@code alignment}
+     * @param buffers     number of pooled buffers, readers wait for one beyond that
+     * @param alignment   O_DIRECT alignment of positions, lengths and buffer addresses
+     */
+    public FileReadEngine(ReadStrategy strategy, int bufferBytes, int buffers, int alignment) {
+        if (Integer.bitCount(alignment) != 1 || bufferBytes % alignment != 0) {
+            throw new IllegalArgumentException("Buffer size " + bufferBytes
+                    + " must be a multiple of the power of two alignment " + alignment);
+        }
+        this.strategy = strategy;
+        this.alignment = alignment;
+        this.bufferPool = new DirectBufferPool(bufferBytes, buffers);
+        this.alignedBufferPool = new DirectBufferPool(bufferBytes, buffers, alignment);
+    }
+
+    public ReadStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Strategy actually used, CHANNEL if DIRECT turned out to be unsupported
+     */
+    public ReadStrategy getEffectiveStrategy() {
+        return strategy == ReadStrategy.DIRECT && directUnsupported ? ReadStrategy.CHANNEL : strategy;
+    }
+
+    /**
+     * Read up to {@code length} bytes from {@code position}, less at the end of the file
+     *
+     * @return the number of bytes read, for DIRECT including the alignment padding
+     */
+    public long read(Path file, long position, long length) throws IOException, InterruptedException {
+        if (firstReadProcessCpuNanos.get() < 0) {
+            firstReadProcessCpuNanos.compareAndSet(-1, LatencyMetrics.processCpuNanos());
+        }
+        long startNanos = System.nanoTime();
+        long startCpuNanos = LatencyMetrics.currentThreadCpuNanos();
+        long bytes = switch (getEffectiveStrategy()) {
+            case STREAM -> readStream(file, position, length);
+            case CHANNEL -> readChannel(file, position, length);
+            case MMAP -> readMapped(file, position, length);
+            case DIRECT -> readDirect(file, position, length);
+        };
+        reads.increment();
+        bytesRead.add(bytes);
+        wallNanos.add(System.nanoTime() - startNanos);
+        long cpu = LatencyMetrics.cpuNanosSince(startCpuNanos);
+        if (cpu >= 0) {
+            cpuNanos.add(cpu);
+        } else {
+            cpuUnmeasuredReads.increment();
+        }
+        return bytes;
+    }
+
+    private static long readStream(Path file, long position, long length) throws IOException {
+        try (InputStream in = new FileInputStream(file.toFile())) {
+            long skipped = 0;
+            while (skipped < position) {
+                long n = in.skip(position - skipped);
+                if (n <= 0) {
+                    return 0;
+                }
+                skipped += n;
+            }
+            byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+            long total = 0;
+            while (total < length) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, length - total));
+                if (n < 0) {
+                    break;
+                }
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    private long readChannel(Path file, long position, long length) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readInto(channel, bufferPool, position, length);
+        }
+    }
+
+    private long readMapped(Path file, long position, long length) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            long end = Math.min(position + length, channel.size());
+            if (end <= position) {
+                return 0;
+            }
+            MemorySegment mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, end - position, arena);
+            // copy out like the other strategies, touching every page of the mapping
+            ByteBuffer buffer = bufferPool.acquire();
+            try {
+                MemorySegment target = MemorySegment.ofBuffer(buffer);
+                long offset = 0;
+                while (offset < mapped.byteSize()) {
+                    long n = Math.min(target.byteSize(), mapped.byteSize() - offset);
+                    MemorySegment.copy(mapped, offset, target, 0, n);
+                    offset += n;
+                }
+                return offset;
+            } finally {
+                bufferPool.release(buffer);
+            }
+        }
+    }
+
+    private long readDirect(Path file, long position, long length) throws IOException, InterruptedException {
+        long alignedPosition = position & -alignment;
+        long alignedEnd = (position + length + alignment - 1) & -alignment;
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ, ExtendedOpenOption.DIRECT);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // only the platform or file system refusing O_DIRECT disables it, not a missing file
+            if (e instanceof FileSystemException fse && !EINVAL.equals(fse.getReason())) {
+                throw fse;
+            }
+            if (!directUnsupported) {
+                directUnsupported = true;
+                log.warn("O_DIRECT reads are not supported for {} ({}), falling back to CHANNEL", file, e.toString());
+            }
+            return readChannel(file, position, length);
+        }
+        try (channel) {
+            return readInto(channel, alignedBufferPool, alignedPosition, alignedEnd - alignedPosition);
+        }
+    }
+
+    /**
+     * Positional reads of a whole pooled buffer at a time; for DIRECT every read stays aligned
+     * since the buffer size is a multiple of the alignment
+     */
+    private static long readInto(FileChannel channel, DirectBufferPool pool, long position, long length)
+            throws IOException, InterruptedException {
+        ByteBuffer buffer = pool.acquire();
+        try {
+            long total = 0;
+            while (total < length) {
+                buffer.clear();
+                if (length - total < buffer.capacity()) {
+                    buffer.limit((int) (length - total));
+                }
+                int n = channel.read(buffer, position + total);
+                if (n > 0) {
+                    total += n;
+                }
+                // a short read of a regular file is its end, and would leave DIRECT reads unaligned
+                if (n <= 0 || buffer.hasRemaining()) {
+                    break;
+                }
+            }
+            return total;
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    public Statistics statistics() {
+        long readCount = reads.sum();
+        long bytes = bytesRead.sum();
+        long wall = wallNanos.sum();
+        CpuSource cpuSource = null;
+        long cpu = 0;
+        if (readCount > 0 && cpuUnmeasuredReads.sum() == 0) {
+            cpuSource = CpuSource.THREAD;
+            cpu = cpuNanos.sum();
+        } else {
+            long start = firstReadProcessCpuNanos.get();
+            long now = LatencyMetrics.processCpuNanos();
+            if (start >= 0 && now >= 0) {
+                cpuSource = CpuSource.PROCESS;
+                cpu = now - start;
+            }
+        }
+        return new Statistics(strategy, getEffectiveStrategy(), readCount, bytes, wall / 1_000_000,
+                cpuSource != null ? cpu / 1_000_000 : null, cpuSource,
+                wall > 0 ? bytes / 1e6 / (wall / 1e9) : 0,
+                cpuSource != null && cpu > 0 ? bytes / 1e6 / (cpu / 1e9) : null);
+    }
+
+    /**
+     * Where the CPU time of the statistics comes from
+     */
+    public enum CpuSource {
+        /** the reading threads, measured around every read */
+        THREAD,
+        /** the whole process since the first read, because some reads ran on virtual threads */
+        PROCESS
+    }
+
+    /**
+     * @param cpuMs                 CPU time the reads are charged with, null if it cannot be measured
+     * @param megabytesPerSecond    bytes per wall second of a single read, averaged
+     * @param megabytesPerCpuSecond bytes per second of CPU time, the throughput one core can sustain,
+     *                              null if CPU time cannot be measured
+     */
+    public record Statistics(ReadStrategy strategy, ReadStrategy effectiveStrategy, long reads, long bytesRead,
+                             long wallMs, Long cpuMs, CpuSource cpuSource, double megabytesPerSecond,
+                             Double megabytesPerCpuSecond) {
+    }
+}
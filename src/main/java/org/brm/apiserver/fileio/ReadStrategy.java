@@ -0,0 +1,15 @@
+package org.brm.apiserver.fileio;
+
+/**
+ * How {@link FileReadEngine} reads file data
+ */
+public enum ReadStrategy {
+    /** {@link java.io.FileInputStream} with a 4 KB heap buffer, through the page cache */
+    STREAM,
+    /** Positional {@link java.nio.channels.FileChannel} reads into pooled direct buffers */
+    CHANNEL,
+    /** Memory-mapped {@link java.lang.foreign.MemorySegment}, unmapped as soon as the read is done */
+    MMAP,
+    /** {@link com.sun.nio.file.ExtendedOpenOption#DIRECT} reads into aligned buffers, bypassing the page cache */
+    DIRECT
+}
@@ -0,0 +1,92 @@
+package org.brm.apiserver.http;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Content codings of precompressed response variants, declared in order of preference
+ */
+public enum ContentCoding {
+
+    ZSTD("zstd", ".zst"),
+    GZIP("gzip", ".gz"),
+    IDENTITY("identity", "");
+
+    private final String token;
+    private final String extension;
+
+    ContentCoding(String token, String extension) {
+        this.token = token;
+        this.extension = extension;
+    }
+
+    /**
+     * Content-Encoding header value
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * File name suffix of a variant stored next to the original
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Pick the coding for an Accept-Encoding header among the available variants: the highest
+     * q-value wins, ties go to the preferred coding. IDENTITY if nothing else is acceptable.
+     */
+    public static ContentCoding negotiate(String acceptEncoding, Set<ContentCoding> available) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        ContentCoding best = IDENTITY;
+        double bestQuality = 0;
+        for (ContentCoding coding : values()) {
+            if (coding == IDENTITY || !available.contains(coding)) {
+                continue;
+            }
+            double quality = quality(acceptEncoding, coding.token);
+            if (quality > bestQuality) {
+                best = coding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * q-value of a coding, an explicit entry takes precedence over "*"
+     */
+    static double quality(String acceptEncoding, String token) {
+        double wildcard = 0;
+        for (String element : acceptEncoding.split(",")) {
+            int semicolon = element.indexOf(';');
+            String name = (semicolon < 0 ? element : element.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+            double quality = semicolon < 0 ? 1 : parseQuality(element.substring(semicolon + 1));
+            if (name.equals(token)) {
+                return quality;
+            }
+            if (name.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        return wildcard;
+    }
+
+    private static double parseQuality(String parameters) {
+        for (String parameter : parameters.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.length() > 2 && (trimmed.charAt(0) == 'q' || trimmed.charAt(0) == 'Q') && trimmed.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(trimmed.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
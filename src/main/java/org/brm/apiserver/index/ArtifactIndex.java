@@ -0,0 +1,586 @@
+package org.brm.apiserver.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Off-heap artifact metadata index: coordinates (group, name, version, classifier) to
+ * digest, size and timestamps.
+ * <p>
+ * The index is an open-addressing hash table with linear probing, stored in a memory-mapped
+ * file together with an append-only record area:
+ * <pre>
+ * header  (64 bytes)  magic, version, slot capacity, data capacity, data end, entry count, used slots
+ * slots   (16 bytes)  key hash, record offset (0 = empty)
+ * records (8 aligned) size, created, modified, flags, key length, sha256, key chars
+ * </pre>
+ * A single writer appends a complete record and then publishes its offset into the slot with
+ * a release store. Readers never lock: they load slot offsets with acquire semantics and see
+ * either the previous or the new record, never a torn one. Updates and deletes append a new
+ * record and swap the slot, so a slot's key never changes once claimed and probe chains stay
+ * intact. Lookups take {@link CharSequence}s and compare them against the stored chars in
+ * place, so they do not allocate.
+ * <p>
+ * The file is created sparse at its full size and mapped once, reopening after a restart
+ * only validates the header.
+ */
+public final class ArtifactIndex implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ArtifactIndex.class);
+
+    public static final long NOT_FOUND = -1;
+
+    public static final int FLAG_DELETED = 1;
+    public static final int FLAG_PROMOTED = 2;
+
+    public static final int DIGEST_BYTES = 32;
+
+    private static final long MAGIC = 0x4252_4D49_4458_0001L; // "BRMIDX", format 1
+    private static final int VERSION = 1;
+
+    // header layout
+    private static final long HEADER_BYTES = 64;
+    private static final long MAGIC_OFFSET = 0;
+    private static final long VERSION_OFFSET = 8;
+    private static final long SLOT_CAPACITY_OFFSET = 12;
+    private static final long DATA_CAPACITY_OFFSET = 16;
+    private static final long DATA_END_OFFSET = 24;
+    private static final long ENTRY_COUNT_OFFSET = 32;
+    private static final long USED_SLOTS_OFFSET = 40;
+
+    // slot layout
+    private static final long SLOT_BYTES = 16;
+    private static final long SLOT_HASH = 0;
+    private static final long SLOT_RECORD = 8;
+
+    // record layout
+    private static final long RECORD_SIZE = 0;
+    private static final long RECORD_CREATED = 8;
+    private static final long RECORD_MODIFIED = 16;
+    private static final long RECORD_FLAGS = 24;
+    private static final long RECORD_KEY_CHARS = 28;
+    private static final long RECORD_DIGEST = 32;
+    private static final long RECORD_KEY = RECORD_DIGEST + DIGEST_BYTES;
+
+    // keep probe chains short, lookups stop at the first empty slot
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private static final char KEY_SEPARATOR = '\0';
+
+    private static final VarHandle LONG_HANDLE = ValueLayout.JAVA_LONG.varHandle();
+
+    private final Path file;
+    private final Arena arena;
+    private final MemorySegment segment;
+    private final int slotCapacity;
+    private final long slotMask;
+    private final long dataStart;
+    private final long dataLimit;
+    private final long maxEntries;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private ArtifactIndex(Path file, Arena arena, MemorySegment segment, int slotCapacity, long dataCapacity) {
+        this.file = file;
+        this.arena = arena;
+        this.segment = segment;
+        this.slotCapacity = slotCapacity;
+        this.slotMask = slotCapacity - 1;
+        this.dataStart = HEADER_BYTES + slotCapacity * SLOT_BYTES;
+        this.dataLimit = dataStart + dataCapacity;
+        this.maxEntries = (long) (slotCapacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Open an index file, creating it with the given geometry if it does not exist.
+     * An existing file keeps the geometry it was created with.
+     *
+     * @param slotCapacity number of hash slots, rounded up to a power of two
+     * @param dataCapacity bytes reserved for records
+     */
+    public static ArtifactIndex open(Path file, int slotCapacity, long dataCapacity) throws IOException {
+        boolean exists = Files.exists(file);
+        if (!exists && file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        int slots = exists ? 0 : roundUpToPowerOfTwo(slotCapacity);
+        long dataBytes = exists ? 0 : alignRecord(dataCapacity);
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (exists) {
+                ByteBuffer header = ByteBuffer.allocate((int) HEADER_BYTES).order(ByteOrder.nativeOrder());
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < HEADER_BYTES || header.getLong((int) MAGIC_OFFSET) != MAGIC
+                        || header.getInt((int) VERSION_OFFSET) != VERSION) {
+                    throw new IOException("Not an artifact index file: " + file);
+                }
+                slots = header.getInt((int) SLOT_CAPACITY_OFFSET);
+                dataBytes = header.getLong((int) DATA_CAPACITY_OFFSET);
+            }
+
+            long fileSize = HEADER_BYTES + slots * SLOT_BYTES + dataBytes;
+            if (channel.size() < fileSize) {
+                // extend sparse, pages are only backed once they are written
+                channel.write(ByteBuffer.allocate(1), fileSize - 1);
+            }
+
+            Arena arena = Arena.ofShared();
+            MemorySegment segment;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize, arena);
+            } catch (IOException | RuntimeException e) {
+                arena.close();
+                throw e;
+            }
+
+            ArtifactIndex index = new ArtifactIndex(file, arena, segment, slots, dataBytes);
+            if (!exists) {
+                index.initializeHeader(dataBytes);
+            }
+            log.info("Opened artifact index {} ({} slots, {} entries, {} of {} data bytes used)",
+                    file, slots, index.entryCount(), index.dataEnd() - index.dataStart, dataBytes);
+            return index;
+        }
+    }
+
+    private void initializeHeader(long dataCapacity) {
+        segment.set(ValueLayout.JAVA_INT, VERSION_OFFSET, VERSION);
+        segment.set(ValueLayout.JAVA_INT, SLOT_CAPACITY_OFFSET, slotCapacity);
+        segment.set(ValueLayout.JAVA_LONG, DATA_CAPACITY_OFFSET, dataCapacity);
+        segment.set(ValueLayout.JAVA_LONG, DATA_END_OFFSET, dataStart);
+        segment.set(ValueLayout.JAVA_LONG, ENTRY_COUNT_OFFSET, 0L);
+        segment.set(ValueLayout.JAVA_LONG, USED_SLOTS_OFFSET, 0L);
+        // magic last, a crash before this point leaves an invalid file instead of a half-initialized one
+        segment.force();
+        segment.set(ValueLayout.JAVA_LONG, MAGIC_OFFSET, MAGIC);
+        segment.force();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Number of live (not deleted) entries
+     */
+    public long entryCount() {
+        return (long) LONG_HANDLE.getAcquire(segment, ENTRY_COUNT_OFFSET);
+    }
+
+    private long dataEnd() {
+        return (long) LONG_HANDLE.getAcquire(segment, DATA_END_OFFSET);
+    }
+
+    /// lookups
+    /// -------
+
+    /**
+     * Find the live record for the given coordinates.
+     *
+     * @param classifier empty for the main artifact
+     * @return a record handle for the accessors below, or {@link #NOT_FOUND}
+     */
+    public long find(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier) {
+        long record = findRecord(group, name, version, classifier);
+        if (record == NOT_FOUND || (flags(record) & FLAG_DELETED) != 0) {
+            return NOT_FOUND;
+        }
+        return record;
+    }
+
+    public long size(long record) {
+        return segment.get(ValueLayout.JAVA_LONG, record + RECORD_SIZE);
+    }
+
+    public long createdAt(long record) {
+        return segment.get(ValueLayout.JAVA_LONG, record + RECORD_CREATED);
+    }
+
+    public long modifiedAt(long record) {
+        return segment.get(ValueLayout.JAVA_LONG, record + RECORD_MODIFIED);
+    }
+
+    public int flags(long record) {
+        return segment.get(ValueLayout.JAVA_INT, record + RECORD_FLAGS);
+    }
+
+    /**
+     * Copy the SHA-256 digest of a record into {@code dst[0..32)}
+     */
+    public void digest(long record, byte[] dst) {
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, record + RECORD_DIGEST, dst, 0, DIGEST_BYTES);
+    }
+
+    /**
+     * Convenience form of {@link #digest(long, byte[])}, allocates
+     */
+    public String digestHex(long record) {
+        byte[] digest = new byte[DIGEST_BYTES];
+        digest(record, digest);
+        return HexFormat.of().formatHex(digest);
+    }
+
+    /**
+     * Visit every live entry. Lock-free like the lookups, so entries written meanwhile may or
+     * may not be visited, each in its old or its new version. Allocates the key strings.
+     */
+    public void forEach(EntryVisitor visitor) throws IOException {
+        byte[] digest = new byte[DIGEST_BYTES];
+        String[] parts = new String[4];
+        for (long slot = 0; slot < slotCapacity; slot++) {
+            long record = (long) LONG_HANDLE.getAcquire(segment, HEADER_BYTES + slot * SLOT_BYTES + SLOT_RECORD);
+            if (record == 0 || (flags(record) & FLAG_DELETED) != 0) {
+                continue;
+            }
+            keyParts(record, parts);
+            digest(record, digest);
+            visitor.visit(parts[0], parts[1], parts[2], parts[3], digest, size(record),
+                    createdAt(record), modifiedAt(record), flags(record));
+        }
+    }
+
+    /**
+     * Decode the group, name, version and classifier of a record
+     */
+    private void keyParts(long record, String[] parts) {
+        int keyChars = segment.get(ValueLayout.JAVA_INT, record + RECORD_KEY_CHARS);
+        StringBuilder part = new StringBuilder();
+        int index = 0;
+        long position = record + RECORD_KEY;
+        for (int i = 0; i < keyChars; i++, position += Character.BYTES) {
+            char c = segment.get(ValueLayout.JAVA_CHAR, position);
+            if (c == KEY_SEPARATOR) {
+                parts[index++] = part.toString();
+                part.setLength(0);
+            } else {
+                part.append(c);
+            }
+        }
+    }
+
+    private long findRecord(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier) {
+        long hash = hash(group, name, version, classifier);
+        long slot = hash & slotMask;
+        for (int probe = 0; probe < slotCapacity; probe++) {
+            long slotOffset = HEADER_BYTES + slot * SLOT_BYTES;
+            long record = (long) LONG_HANDLE.getAcquire(segment, slotOffset + SLOT_RECORD);
+            if (record == 0) {
+                return NOT_FOUND;
+            }
+            if (segment.get(ValueLayout.JAVA_LONG, slotOffset + SLOT_HASH) == hash
+                    && keyEquals(record, group, name, version, classifier)) {
+                return record;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+        return NOT_FOUND;
+    }
+
+    private boolean keyEquals(long record, CharSequence group, CharSequence name,
+                              CharSequence version, CharSequence classifier) {
+        int keyChars = segment.get(ValueLayout.JAVA_INT, record + RECORD_KEY_CHARS);
+        if (keyChars != keyLength(group, name, version, classifier)) {
+            return false;
+        }
+        long position = record + RECORD_KEY;
+        position = partEquals(position, group);
+        if (position < 0) {
+            return false;
+        }
+        position = partEquals(position, name);
+        if (position < 0) {
+            return false;
+        }
+        position = partEquals(position, version);
+        if (position < 0) {
+            return false;
+        }
+        return partEquals(position, classifier) >= 0;
+    }
+
+    /**
+     * Compare one key part plus its trailing separator, return the position after it or -1
+     */
+    private long partEquals(long position, CharSequence part) {
+        for (int i = 0; i < part.length(); i++) {
+            if (segment.get(ValueLayout.JAVA_CHAR, position) != part.charAt(i)) {
+                return -1;
+            }
+            position += Character.BYTES;
+        }
+        if (segment.get(ValueLayout.JAVA_CHAR, position) != KEY_SEPARATOR) {
+            return -1;
+        }
+        return position + Character.BYTES;
+    }
+
+    /// single-writer append path
+    /// -------------------------
+
+    /**
+     * Insert or replace the entry for the given coordinates
+     */
+    public void put(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier,
+                    byte[] digest, long size, long timestamp) {
+        if (digest.length != DIGEST_BYTES) {
+            throw new IllegalArgumentException("Expected a " + DIGEST_BYTES + " byte sha256 digest");
+        }
+        writeLock.lock();
+        try {
+            long previous = findRecord(group, name, version, classifier);
+            boolean live = previous != NOT_FOUND && (flags(previous) & FLAG_DELETED) == 0;
+            long created = live ? createdAt(previous) : timestamp;
+            append(group, name, version, classifier, digest, size, created, timestamp, 0, previous, !live ? 1 : 0);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Mark the entry for the given coordinates as deleted
+     *
+     * @return false if there was no live entry
+     */
+    public boolean delete(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier,
+                          long timestamp) {
+        writeLock.lock();
+        try {
+            long previous = findRecord(group, name, version, classifier);
+            if (previous == NOT_FOUND || (flags(previous) & FLAG_DELETED) != 0) {
+                return false;
+            }
+            byte[] digest = new byte[DIGEST_BYTES];
+            digest(previous, digest);
+            append(group, name, version, classifier, digest, size(previous), createdAt(previous), timestamp,
+                    FLAG_DELETED, previous, -1);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Mark the live entry for the given coordinates as promoted, e.g. from staging to release
+     *
+     * @return false if there was no live entry
+     */
+    public boolean promote(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier,
+                           long timestamp) {
+        writeLock.lock();
+        try {
+            long previous = findRecord(group, name, version, classifier);
+            if (previous == NOT_FOUND || (flags(previous) & FLAG_DELETED) != 0) {
+                return false;
+            }
+            byte[] digest = new byte[DIGEST_BYTES];
+            digest(previous, digest);
+            append(group, name, version, classifier, digest, size(previous), createdAt(previous), timestamp,
+                    flags(previous) | FLAG_PROMOTED, previous, 0);
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write an entry exactly as given, timestamps and flags included, e.g. from a snapshot
+     */
+    public void restore(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier,
+                        byte[] digest, long size, long created, long modified, int flags) {
+        if (digest.length != DIGEST_BYTES) {
+            throw new IllegalArgumentException("Expected a " + DIGEST_BYTES + " byte sha256 digest");
+        }
+        writeLock.lock();
+        try {
+            long previous = findRecord(group, name, version, classifier);
+            boolean wasLive = previous != NOT_FOUND && (flags(previous) & FLAG_DELETED) == 0;
+            boolean live = (flags & FLAG_DELETED) == 0;
+            append(group, name, version, classifier, digest, size, created, modified, flags, previous,
+                    (live ? 1 : 0) - (wasLive ? 1 : 0));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drop every entry and reclaim the data area, e.g. before the index is rebuilt from a log.
+     * Not safe while other threads read the index.
+     */
+    public void clear() {
+        writeLock.lock();
+        try {
+            segment.asSlice(HEADER_BYTES, slotCapacity * SLOT_BYTES).fill((byte) 0);
+            segment.set(ValueLayout.JAVA_LONG, USED_SLOTS_OFFSET, 0L);
+            LONG_HANDLE.setRelease(segment, ENTRY_COUNT_OFFSET, 0L);
+            LONG_HANDLE.setRelease(segment, DATA_END_OFFSET, dataStart);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Append a record and publish it, either into the slot that holds the key already
+     * or into the first free slot of its probe chain. Caller holds the write lock.
+     */
+    private void append(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier,
+                        byte[] digest, long size, long created, long modified, int flags,
+                        long previous, int entryDelta) {
+        int keyChars = keyLength(group, name, version, classifier);
+        long recordBytes = alignRecord(RECORD_KEY + (long) keyChars * Character.BYTES);
+        long record = dataEnd();
+        if (record + recordBytes > dataLimit) {
+            throw new IllegalStateException("Artifact index data area is full: " + file);
+        }
+        long hash = hash(group, name, version, classifier);
+        long slotOffset = previous != NOT_FOUND ? slotOf(hash, previous) : claimSlot(hash);
+
+        segment.set(ValueLayout.JAVA_LONG, record + RECORD_SIZE, size);
+        segment.set(ValueLayout.JAVA_LONG, record + RECORD_CREATED, created);
+        segment.set(ValueLayout.JAVA_LONG, record + RECORD_MODIFIED, modified);
+        segment.set(ValueLayout.JAVA_INT, record + RECORD_FLAGS, flags);
+        segment.set(ValueLayout.JAVA_INT, record + RECORD_KEY_CHARS, keyChars);
+        MemorySegment.copy(digest, 0, segment, ValueLayout.JAVA_BYTE, record + RECORD_DIGEST, DIGEST_BYTES);
+        long position = record + RECORD_KEY;
+        position = writePart(position, group);
+        position = writePart(position, name);
+        position = writePart(position, version);
+        writePart(position, classifier);
+
+        // the record is complete before anyone can reach it
+        LONG_HANDLE.setRelease(segment, DATA_END_OFFSET, record + recordBytes);
+        segment.set(ValueLayout.JAVA_LONG, slotOffset + SLOT_HASH, hash);
+        LONG_HANDLE.setRelease(segment, slotOffset + SLOT_RECORD, record);
+        if (entryDelta != 0) {
+            LONG_HANDLE.setRelease(segment, ENTRY_COUNT_OFFSET, entryCount() + entryDelta);
+        }
+    }
+
+    private long slotOf(long hash, long record) {
+        long slot = hash & slotMask;
+        while (true) {
+            long slotOffset = HEADER_BYTES + slot * SLOT_BYTES;
+            if ((long) LONG_HANDLE.getAcquire(segment, slotOffset + SLOT_RECORD) == record) {
+                return slotOffset;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Find a free slot for a new key. Deleted keys keep their slot so that probe chains stay intact,
+     * which is why the load factor is checked against used slots rather than live entries.
+     */
+    private long claimSlot(long hash) {
+        long usedSlots = segment.get(ValueLayout.JAVA_LONG, USED_SLOTS_OFFSET);
+        if (usedSlots >= maxEntries) {
+            throw new IllegalStateException("Artifact index slots are exhausted: " + file);
+        }
+        long slot = hash & slotMask;
+        while (true) {
+            long slotOffset = HEADER_BYTES + slot * SLOT_BYTES;
+            if ((long) LONG_HANDLE.getAcquire(segment, slotOffset + SLOT_RECORD) == 0) {
+                segment.set(ValueLayout.JAVA_LONG, USED_SLOTS_OFFSET, usedSlots + 1);
+                return slotOffset;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private long writePart(long position, CharSequence part) {
+        for (int i = 0; i < part.length(); i++) {
+            segment.set(ValueLayout.JAVA_CHAR, position, part.charAt(i));
+            position += Character.BYTES;
+        }
+        segment.set(ValueLayout.JAVA_CHAR, position, KEY_SEPARATOR);
+        return position + Character.BYTES;
+    }
+
+    /**
+     * Flush dirty pages to disk
+     */
+    public void force() {
+        segment.force();
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (arena.scope().isAlive()) {
+                segment.force();
+                arena.close();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Receives the entries of {@link #forEach(EntryVisitor)}; the digest array is reused
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String group, String name, String version, String classifier, byte[] digest,
+                   long size, long createdAt, long modifiedAt, int flags) throws IOException;
+    }
+
+    /// hashing
+    /// -------
+
+    private static int keyLength(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier) {
+        return group.length() + name.length() + version.length() + classifier.length() + 4;
+    }
+
+    /**
+     * 64-bit FNV-1a over the key chars and separators, finished with the murmur3 mixer.
+     * Persisted in the slots, so it must never change for a given file format.
+     */
+    static long hash(CharSequence group, CharSequence name, CharSequence version, CharSequence classifier) {
+        long h = 0xcbf29ce484222325L;
+        h = hashPart(h, group);
+        h = hashPart(h, name);
+        h = hashPart(h, version);
+        h = hashPart(h, classifier);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long hashPart(long h, CharSequence part) {
+        for (int i = 0; i < part.length(); i++) {
+            h = (h ^ part.charAt(i)) * 0x100000001b3L;
+        }
+        return (h ^ KEY_SEPARATOR) * 0x100000001b3L;
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        if (value <= 16) {
+            return 16;
+        }
+        return Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static long alignRecord(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,23 @@
+package org.brm.apiserver.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration(proxyBeanMethods = false)
+public class IndexConfiguration {
+
+    /**
+     * The artifact index, closed (and flushed) with the application context
+     */
+    @Bean(destroyMethod = "close")
+    public ArtifactIndex artifactIndex(
+            @Value("${brm.index.file:data/index/artifacts.idx}") String file,
+            @Value("${brm.index.slot-capacity:1048576}") int slotCapacity,
+            @Value("${brm.index.data-capacity-mb:256}") long dataCapacityMb) throws IOException {
+        return ArtifactIndex.open(Paths.get(file), slotCapacity, dataCapacityMb * 1024 * 1024);
+    }
+}
@@ -0,0 +1,58 @@
+package org.brm.apiserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The blocking part of an operation: sleeping, reading test files, talking to the network or
+ * running calibrated CPU-bound or allocation-heavy work
+ */
+@Name(BlockingModeEvent.NAME)
+@Label("Blocking Mode")
+@Category({"BRM", "Blocking"})
+@Description("Time spent blocked in one blocking mode and the bytes it moved")
+@StackTrace(false)
+public class BlockingModeEvent extends Event {
+
+    public static final String NAME = "org.brm.apiserver.BlockingMode";
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Variant")
+    @Description("NETWORK_IO mode: backend or connect")
+    String variant;
+
+    @Label("Planned Duration")
+    @Timespan(Timespan.MILLISECONDS)
+    long plannedDuration;
+
+    @Label("Bytes Transferred")
+    @Description("Bytes read from test files, sent and received over backend connections, hashed or allocated")
+    @DataAmount
+    long bytesTransferred;
+
+    @Label("Cancelled")
+    boolean cancelled;
+
+    /**
+     * End the event and commit it with its fields if it is enabled and over its threshold
+     */
+    public void complete(String mode, String variant, long plannedMs, long bytesTransferred, boolean cancelled) {
+        end();
+        if (shouldCommit()) {
+            this.mode = mode;
+            this.variant = variant;
+            this.plannedDuration = plannedMs;
+            this.bytesTransferred = bytesTransferred;
+            this.cancelled = cancelled;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.brm.apiserver.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One {@code performBlockingOperation} call, from admission to its result
+ */
+@Name(BlockingOperationEvent.NAME)
+@Label("Blocking Operation")
+@Category({"BRM", "Blocking"})
+@Description("Blocking operation performed for /rest/blocking or /rest/batch")
+@StackTrace(false)
+public class BlockingOperationEvent extends Event {
+
+    public static final String NAME = "org.brm.apiserver.BlockingOperation";
+
+    @Label("Operation Type")
+    String operationType;
+
+    @Label("Performed Operation Type")
+    @Description("Type actually performed, differs from the operation type for MIXED")
+    String performedOperationType;
+
+    @Label("Planned Duration")
+    @Timespan(Timespan.MILLISECONDS)
+    long plannedDuration;
+
+    @Label("Cancelled")
+    @Description("Stopped early by the request deadline or an interrupt")
+    boolean cancelled;
+
+    /**
+     * End the event and commit it with its fields if it is enabled and over its threshold
+     */
+    public void complete(String operationType, String performedOperationType, long plannedMs, boolean cancelled) {
+        end();
+        if (shouldCommit()) {
+            this.operationType = operationType;
+            this.performedOperationType = performedOperationType;
+            this.plannedDuration = plannedMs;
+            this.cancelled = cancelled;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.brm.apiserver.jfr;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class JfrConfiguration {
+
+    /**
+     * Continuous pinning monitor, served at /rest/metrics/pinning
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "brm.jfr.pinning.enabled", havingValue = "true", matchIfMissing = true)
+    public PinningMonitor pinningMonitor(
+            @Value("${brm.jfr.pinning.threshold-ms:1}") long pinnedThresholdMs,
+            @Value("${brm.jfr.blocking.threshold-ms:0}") long blockingThresholdMs,
+            @Value("${brm.jfr.pinning.stack-depth:12}") int stackDepth,
+            @Value("${brm.jfr.pinning.max-stacks:1000}") int maxStacks,
+            @Value("${brm.jfr.pinning.window-seconds:60}") long windowSeconds) {
+        return new PinningMonitor(Duration.ofMillis(pinnedThresholdMs), Duration.ofMillis(blockingThresholdMs),
+                stackDepth, maxStacks, Duration.ofSeconds(windowSeconds));
+    }
+}
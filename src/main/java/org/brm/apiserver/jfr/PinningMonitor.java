@@ -0,0 +1,259 @@
+package org.brm.apiserver.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process JFR event stream that aggregates virtual thread pinning by stack, along with the
+ * {@link BlockingModeEvent blocking modes} of this server.
+ * <p>
+ * Only pins longer than the threshold are recorded, with a stack trace, so the overhead stays
+ * proportional to the pinning that is actually worth looking at. Events are delivered on the
+ * stream's own thread and at most once a second, so the report lags by about that much.
+ * <p>
+ * The report covers a sliding window: events are aggregated into {@value #SLICES} time slices,
+ * and a slice older than the window is cleared before it is reused. Up to {@code maxStacks}
+ * distinct stacks are tracked per slice, so a stack first seen once the slice is full is still
+ * picked up by a later one.
+ */
+public class PinningMonitor implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PinningMonitor.class);
+
+    static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+    static final String VIRTUAL_THREAD_SUBMIT_FAILED = "jdk.VirtualThreadSubmitFailed";
+
+    static final int SLICES = 6;
+
+    private final int stackDepth;
+    private final int maxStacks;
+    private final Duration window;
+    private final long sliceNanos;
+    private final LongSupplier nanoClock;
+    private final RecordingStream stream;
+
+    // guarded by this: written by the stream thread, read by report()
+    private final Slice[] slices = new Slice[SLICES];
+
+    PinningMonitor(int stackDepth, int maxStacks, Duration window, LongSupplier nanoClock) {
+        this.stackDepth = stackDepth;
+        this.maxStacks = maxStacks;
+        this.window = window;
+        this.sliceNanos = Math.max(1, window.toNanos() / SLICES);
+        this.nanoClock = nanoClock;
+        this.stream = null;
+    }
+
+    public PinningMonitor(Duration pinnedThreshold, Duration blockingThreshold, int stackDepth, int maxStacks,
+                          Duration window) {
+        this.stackDepth = stackDepth;
+        this.maxStacks = maxStacks;
+        this.window = window;
+        this.sliceNanos = Math.max(1, window.toNanos() / SLICES);
+        this.nanoClock = System::nanoTime;
+        this.stream = new RecordingStream();
+        // events are aggregated as they arrive, the stream itself only needs to buffer a few seconds
+        stream.setMaxAge(Duration.ofSeconds(10));
+        stream.enable(VIRTUAL_THREAD_PINNED).withThreshold(pinnedThreshold).withStackTrace();
+        stream.enable(VIRTUAL_THREAD_SUBMIT_FAILED).withStackTrace();
+        stream.enable(BlockingModeEvent.NAME).withThreshold(blockingThreshold);
+        stream.onEvent(VIRTUAL_THREAD_PINNED, this::onPinned);
+        stream.onEvent(VIRTUAL_THREAD_SUBMIT_FAILED, event -> onSubmitFailed());
+        stream.onEvent(BlockingModeEvent.NAME, this::onBlockingMode);
+        stream.startAsync();
+        log.info("JFR pinning monitor started: pins over {}ms, blocking modes over {}ms, {}s window",
+                pinnedThreshold.toMillis(), blockingThreshold.toMillis(), window.toSeconds());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        List<String> frames = new ArrayList<>();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                if (frames.size() == stackDepth) {
+                    break;
+                }
+                frames.add(frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber());
+            }
+        }
+        recordPinned(frames, event.getDuration());
+    }
+
+    private synchronized void onSubmitFailed() {
+        currentSlice().submitFailures++;
+    }
+
+    private void onBlockingMode(RecordedEvent event) {
+        String mode = event.getString("mode");
+        String variant = event.getString("variant");
+        recordBlockingMode(variant != null ? mode + "/" + variant : mode, event.getDuration(),
+                event.getLong("bytesTransferred"), event.getBoolean("cancelled"));
+    }
+
+    synchronized void recordPinned(List<String> frames, Duration duration) {
+        long nanos = duration.toNanos();
+        Slice slice = currentSlice();
+        slice.pinnedEvents++;
+        slice.pinnedNanos += nanos;
+        String key = String.join("\n", frames);
+        StackAccumulator accumulator = slice.stacks.get(key);
+        if (accumulator == null) {
+            if (slice.stacks.size() >= maxStacks) {
+                slice.droppedStacks++;
+                return;
+            }
+            accumulator = new StackAccumulator(List.copyOf(frames));
+            slice.stacks.put(key, accumulator);
+        }
+        accumulator.add(1, nanos, nanos);
+    }
+
+    synchronized void recordBlockingMode(String mode, Duration duration, long bytesTransferred, boolean cancelled) {
+        currentSlice().modes.computeIfAbsent(mode, key -> new ModeAccumulator())
+                .add(1, duration.toNanos(), bytesTransferred, cancelled ? 1 : 0);
+    }
+
+    /**
+     * Pinned stacks over the window ranked by total pinned time, the top {@code limit} only
+     */
+    public synchronized PinningReport report(int limit) {
+        long current = sliceIndex();
+        long pinnedEvents = 0;
+        long pinnedNanos = 0;
+        long droppedStacks = 0;
+        long submitFailures = 0;
+        Map<String, StackAccumulator> stacks = new HashMap<>();
+        Map<String, ModeAccumulator> modes = new TreeMap<>();
+        for (Slice slice : slices) {
+            if (slice == null || slice.index <= current - SLICES) {
+                continue;
+            }
+            pinnedEvents += slice.pinnedEvents;
+            pinnedNanos += slice.pinnedNanos;
+            droppedStacks += slice.droppedStacks;
+            submitFailures += slice.submitFailures;
+            slice.stacks.forEach((key, stack) -> stacks.computeIfAbsent(key, k -> new StackAccumulator(stack.frames))
+                    .add(stack.count, stack.totalNanos, stack.maxNanos));
+            slice.modes.forEach((mode, accumulator) -> modes.computeIfAbsent(mode, k -> new ModeAccumulator())
+                    .add(accumulator.count, accumulator.totalNanos, accumulator.bytesTransferred,
+                            accumulator.cancelled));
+        }
+
+        List<PinnedStack> ranked = stacks.values().stream()
+                .sorted(Comparator.comparingLong((StackAccumulator stack) -> stack.totalNanos).reversed())
+                .limit(limit)
+                .map(stack -> new PinnedStack(stack.frames, stack.count, millis(stack.totalNanos),
+                        millis(stack.maxNanos)))
+                .toList();
+        Map<String, BlockingMode> blockingModes = new TreeMap<>();
+        modes.forEach((mode, accumulator) -> blockingModes.put(mode, new BlockingMode(accumulator.count,
+                millis(accumulator.totalNanos), accumulator.bytesTransferred, accumulator.cancelled)));
+        return new PinningReport(window.toSeconds(), pinnedEvents, millis(pinnedNanos), stacks.size(),
+                droppedStacks, submitFailures, ranked, blockingModes);
+    }
+
+    private long sliceIndex() {
+        return Math.floorDiv(nanoClock.getAsLong(), sliceNanos);
+    }
+
+    /**
+     * The slice for now, cleared first if it still holds data from a previous window
+     */
+    private Slice currentSlice() {
+        long index = sliceIndex();
+        int position = (int) Math.floorMod(index, (long) SLICES);
+        Slice slice = slices[position];
+        if (slice == null || slice.index != index) {
+            slice = new Slice(index);
+            slices[position] = slice;
+        }
+        return slice;
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static final class Slice {
+        private final long index;
+        private final Map<String, StackAccumulator> stacks = new HashMap<>();
+        private final Map<String, ModeAccumulator> modes = new HashMap<>();
+        private long pinnedEvents;
+        private long pinnedNanos;
+        private long droppedStacks;
+        private long submitFailures;
+
+        private Slice(long index) {
+            this.index = index;
+        }
+    }
+
+    private static final class StackAccumulator {
+        private final List<String> frames;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+
+        private StackAccumulator(List<String> frames) {
+            this.frames = frames;
+        }
+
+        private void add(long count, long totalNanos, long maxNanos) {
+            this.count += count;
+            this.totalNanos += totalNanos;
+            this.maxNanos = Math.max(this.maxNanos, maxNanos);
+        }
+    }
+
+    private static final class ModeAccumulator {
+        private long count;
+        private long totalNanos;
+        private long bytesTransferred;
+        private long cancelled;
+
+        private void add(long count, long totalNanos, long bytesTransferred, long cancelled) {
+            this.count += count;
+            this.totalNanos += totalNanos;
+            this.bytesTransferred += bytesTransferred;
+            this.cancelled += cancelled;
+        }
+    }
+
+    /**
+     * Everything in the report covers the last {@code windowSeconds}
+     *
+     * @param distinctStacks stacks tracked, pins on further stacks only count towards the totals
+     */
+    public record PinningReport(long windowSeconds, long pinnedEvents, double pinnedMs, int distinctStacks,
+                                long droppedStacks, long submitFailures, List<PinnedStack> stacks,
+                                Map<String, BlockingMode> blockingModes) {
+    }
+
+    public record PinnedStack(List<String> frames, long count, double totalMs, double maxMs) {
+    }
+
+    public record BlockingMode(long count, double totalMs, long bytesTransferred, long cancelled) {
+    }
+}
@@ -0,0 +1,30 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration(proxyBeanMethods = false)
+public class JournalConfiguration {
+
+    /**
+     * The metadata log, replayed into the artifact index on startup. Closed before the index,
+     * which it depends on.
+     */
+    @Bean(destroyMethod = "close")
+    public MetadataLog metadataLog(
+            ArtifactIndex artifactIndex,
+            @Value("${brm.journal.directory:data/journal}") String directory,
+            @Value("${brm.journal.group-commit-window-us:200}") long groupCommitWindowUs,
+            @Value("${brm.journal.max-batch-kb:1024}") int maxBatchKb,
+            @Value("${brm.journal.segment-mb:64}") long segmentMb,
+            @Value("${brm.journal.snapshot-every-records:100000}") long snapshotEveryRecords,
+            @Value("${brm.journal.queue-capacity:65536}") int queueCapacity) throws IOException {
+        return MetadataLog.open(Paths.get(directory), artifactIndex, groupCommitWindowUs, maxBatchKb * 1024,
+                segmentMb * 1024 * 1024, snapshotEveryRecords, queueCapacity);
+    }
+}
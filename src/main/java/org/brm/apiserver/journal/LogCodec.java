@@ -0,0 +1,115 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary form of a log record:
+ * <pre>
+ * length    int    payload bytes
+ * checksum  int    CRC32C of the payload
+ * payload          lsn (long), type (byte), timestamp (long), size (long), sha256 (32 bytes),
+ *                  group, name, version, classifier (unsigned short length + UTF-8 each)
+ * </pre>
+ * A record whose length or checksum does not fit is a torn write at the end of the log.
+ */
+final class LogCodec {
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private static final int FIXED_PAYLOAD_BYTES =
+            Long.BYTES + 1 + Long.BYTES + Long.BYTES + ArtifactIndex.DIGEST_BYTES + 4 * Short.BYTES;
+
+    static final int MAX_PAYLOAD_BYTES = FIXED_PAYLOAD_BYTES + 4 * 3 * Mutation.MAX_PART_LENGTH;
+
+    private static final Mutation.Type[] TYPES = Mutation.Type.values();
+
+    private LogCodec() {
+    }
+
+    /**
+     * Encoded record, header included
+     */
+    static byte[] encode(Mutation mutation) {
+        byte[] group = mutation.group().getBytes(StandardCharsets.UTF_8);
+        byte[] name = mutation.name().getBytes(StandardCharsets.UTF_8);
+        byte[] version = mutation.version().getBytes(StandardCharsets.UTF_8);
+        byte[] classifier = mutation.classifier().getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = FIXED_PAYLOAD_BYTES + group.length + name.length + version.length + classifier.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payloadBytes);
+        record.putInt(payloadBytes);
+        record.putInt(0); // checksum, once the lsn is known
+        record.putLong(0); // lsn, assigned by the committer
+        record.put((byte) mutation.type().ordinal());
+        record.putLong(mutation.timestamp());
+        record.putLong(mutation.size());
+        record.put(mutation.digest());
+        putPart(record, group);
+        putPart(record, name);
+        putPart(record, version);
+        putPart(record, classifier);
+        return record.array();
+    }
+
+    /**
+     * Stamp the log sequence number into an encoded record and seal it with its checksum
+     */
+    static void seal(byte[] record, long lsn) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        buffer.putLong(HEADER_BYTES, lsn);
+        CRC32C crc = new CRC32C();
+        crc.update(record, HEADER_BYTES, record.length - HEADER_BYTES);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Check the payload that follows a header
+     *
+     * @return false for a torn or corrupt record
+     */
+    static boolean verify(int payloadBytes, int checksum, ByteBuffer payload) {
+        if (payloadBytes < FIXED_PAYLOAD_BYTES || payloadBytes > MAX_PAYLOAD_BYTES
+                || payload.remaining() < payloadBytes) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload.slice(payload.position(), payloadBytes));
+        return (int) crc.getValue() == checksum;
+    }
+
+    static long lsn(ByteBuffer payload) {
+        return payload.getLong(payload.position());
+    }
+
+    /**
+     * Decode a verified payload, advancing the buffer past it
+     */
+    static Mutation decode(ByteBuffer payload) {
+        payload.getLong(); // lsn
+        int type = payload.get();
+        if (type < 0 || type >= TYPES.length) {
+            throw new IllegalArgumentException("Unknown mutation type " + type);
+        }
+        long timestamp = payload.getLong();
+        long size = payload.getLong();
+        byte[] digest = new byte[ArtifactIndex.DIGEST_BYTES];
+        payload.get(digest);
+        return new Mutation(TYPES[type], getPart(payload), getPart(payload), getPart(payload), getPart(payload),
+                digest, size, timestamp);
+    }
+
+    static void putPart(ByteBuffer buffer, byte[] part) {
+        buffer.putShort((short) part.length);
+        buffer.put(part);
+    }
+
+    static String getPart(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        String part = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return part;
+    }
+}
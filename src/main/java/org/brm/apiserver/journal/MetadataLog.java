@@ -0,0 +1,687 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of artifact metadata mutations in front of the {@link ArtifactIndex}.
+ * <p>
+ * Writers on any number of virtual threads encode their record and queue it. A single committer
+ * thread takes everything queued, stamps log sequence numbers (LSNs), writes the batch with one
+ * {@link FileChannel#write} and makes it durable with one {@link FileChannel#force}, then applies
+ * it to the index in log order and completes the writers. Readers of the index therefore only see
+ * durable mutations. Writers that arrive during an fsync share the next one, so fsyncs follow the
+ * rate the disk sustains rather than the write rate. After a batch of more than one record the
+ * committer waits up to the group commit window for more writers; a lone writer never waits.
+ * <p>
+ * Records go to segment files named after the first LSN they hold. Every
+ * {@code snapshotEveryRecords} records a background thread writes the live index entries to a
+ * snapshot without stopping writers, and deletes the snapshots and segments it covers. After a
+ * clean close the index file is taken as it is on startup. After a crash the index is rebuilt from
+ * the latest snapshot plus the records after it, and a torn record at the end of the last segment
+ * is cut off. Mutations set absolute state, so records already contained in a snapshot that was
+ * taken while writes went on can be applied again.
+ * <p>
+ * One process at a time owns the directory, through a lock on its {@code lock} file.
+ */
+public final class MetadataLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataLog.class);
+
+    private static final String SEGMENT_PREFIX = "mutations-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CLEAN_SHUTDOWN = "clean-shutdown";
+    private static final String LOCK = "lock";
+
+    private static final int REPLAY_BUFFER_BYTES = 1024 * 1024;
+
+    // queued by close(), the committer stops after the records before it
+    private static final Append CLOSE = new Append(null, null);
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final ArtifactIndex index;
+    private final long windowNanos;
+    private final int maxBatchBytes;
+    private final long segmentBytes;
+    private final long snapshotEveryRecords;
+    private final BlockingQueue<Append> queue;
+    private final Thread committer;
+
+    // committer thread only, set up by recover()
+    private final ByteBuffer batchBuffer;
+    private FileChannel segment;
+    private long segmentSize;
+    private long nextLsn;
+    private long recordsSinceSnapshot;
+    private boolean lastBatchShared;
+
+    private volatile long appliedLsn;
+    private volatile long snapshotLsn;
+    private volatile IOException failure;
+    private boolean closed;
+
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder groupCommits = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+    private volatile int maxBatchRecords;
+    private long replayedRecords;
+    private long replayMillis;
+
+    private MetadataLog(Path directory, FileChannel lockChannel, ArtifactIndex index, long groupCommitWindowMicros,
+                        int maxBatchBytes, long segmentBytes, long snapshotEveryRecords, int queueCapacity) {
+        this.directory = directory;
+        this.lockChannel = lockChannel;
+        this.index = index;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(groupCommitWindowMicros);
+        this.maxBatchBytes = maxBatchBytes;
+        this.segmentBytes = segmentBytes;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        // a batch ends with the record that crosses the limit
+        this.batchBuffer = ByteBuffer.allocateDirect(maxBatchBytes + LogCodec.HEADER_BYTES + LogCodec.MAX_PAYLOAD_BYTES);
+        this.committer = Thread.ofVirtual().name("metadata-log-committer").unstarted(this::commitLoop);
+    }
+
+    /**
+     * Open the log in a directory, bring the index up to date with it and start the committer
+     *
+     * @param groupCommitWindowMicros how long the committer waits for more writers once batches form
+     * @param maxBatchBytes           records written with one write and force at most, roughly
+     * @param segmentBytes            size at which the committer starts a new segment file
+     * @param snapshotEveryRecords    records between snapshots, 0 for none
+     * @param queueCapacity           queued records before writers block
+     * @throws IOException also if another log, in this or another process, has the directory open
+     */
+    public static MetadataLog open(Path directory, ArtifactIndex index, long groupCommitWindowMicros,
+                                   int maxBatchBytes, long segmentBytes, long snapshotEveryRecords,
+                                   int queueCapacity) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        try {
+            MetadataLog metadataLog = new MetadataLog(directory, lockChannel, index, groupCommitWindowMicros,
+                    maxBatchBytes, segmentBytes, snapshotEveryRecords, queueCapacity);
+            metadataLog.recover();
+            metadataLog.committer.start();
+            return metadataLog;
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lock the directory for this process, released when the returned channel is closed
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // held by another log in this JVM
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Metadata log " + directory + " is already in use");
+        }
+        return channel;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /// writers
+    /// -------
+
+    /**
+     * Log a mutation and apply it to the index once it is durable. If the calling thread is
+     * interrupted while it waits, the mutation may still be committed.
+     */
+    public Committed append(Mutation mutation) throws IOException, InterruptedException {
+        Append append = new Append(LogCodec.encode(mutation), mutation);
+        closeLock.readLock().lock();
+        try {
+            checkUsable();
+            queue.put(append);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        try {
+            return append.done.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void checkUsable() throws IOException {
+        IOException failed = failure;
+        if (failed != null) {
+            throw new IOException("Metadata log failed and takes no more writes: " + failed.getMessage(), failed);
+        }
+        if (closed) {
+            throw new IOException("Metadata log is closed");
+        }
+    }
+
+    /// committer
+    /// ---------
+
+    private void commitLoop() {
+        List<Append> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                Append next = queue.take();
+                long windowEnd = System.nanoTime() + windowNanos;
+                int bytes = 0;
+                while (next != null) {
+                    if (next == CLOSE) {
+                        closing = true;
+                        break;
+                    }
+                    batch.add(next);
+                    bytes += next.record.length;
+                    if (bytes >= maxBatchBytes) {
+                        break;
+                    }
+                    next = queue.poll();
+                    if (next == null && lastBatchShared) {
+                        long remaining = windowEnd - System.nanoTime();
+                        if (remaining > 0) {
+                            next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // nobody interrupts the committer, commit what was taken
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Append> batch) {
+        IOException failed = failure;
+        if (failed != null) {
+            failAll(batch, failed);
+            return;
+        }
+
+        long firstLsn = nextLsn;
+        batchBuffer.clear();
+        for (Append append : batch) {
+            LogCodec.seal(append.record, nextLsn++);
+            batchBuffer.put(append.record);
+        }
+        batchBuffer.flip();
+        int bytes = batchBuffer.remaining();
+        try {
+            while (batchBuffer.hasRemaining()) {
+                segment.write(batchBuffer);
+            }
+            segment.force(false);
+        } catch (IOException e) {
+            // whether the batch reached the disk is unknown, so nothing may follow it
+            failure = e;
+            log.error("Metadata log write failed, rejecting further writes", e);
+            failAll(batch, e);
+            return;
+        }
+        segmentSize += bytes;
+        records.add(batch.size());
+        groupCommits.increment();
+        bytesWritten.add(bytes);
+        if (batch.size() > maxBatchRecords) {
+            maxBatchRecords = batch.size();
+        }
+        lastBatchShared = batch.size() > 1;
+
+        long lsn = firstLsn;
+        for (Append append : batch) {
+            try {
+                boolean applied = append.mutation.applyTo(index);
+                appliedLsn = lsn;
+                append.done.complete(new Committed(lsn, applied));
+            } catch (RuntimeException e) {
+                // e.g. a full index, replay skips the record the same way
+                appliedLsn = lsn;
+                log.error("Failed to apply metadata mutation {}", lsn, e);
+                append.done.completeExceptionally(e);
+            }
+            lsn++;
+        }
+
+        recordsSinceSnapshot += batch.size();
+        if (snapshotEveryRecords > 0 && recordsSinceSnapshot >= snapshotEveryRecords) {
+            recordsSinceSnapshot = 0;
+            scheduleSnapshot();
+        }
+        if (segmentSize >= segmentBytes) {
+            try {
+                rollSegment();
+            } catch (IOException e) {
+                failure = e;
+                log.error("Failed to start a new metadata log segment, rejecting further writes", e);
+            }
+        }
+    }
+
+    private static void failAll(List<Append> batch, IOException e) {
+        for (Append append : batch) {
+            append.done.completeExceptionally(e);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        segment.close();
+        segment = FileChannel.open(segmentFile(nextLsn), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        syncDirectory();
+        log.debug("Started metadata log segment at lsn {}", nextLsn);
+    }
+
+    /// snapshots
+    /// ---------
+
+    private void scheduleSnapshot() {
+        if (snapshotScheduled.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("metadata-log-snapshot").start(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Metadata snapshot failed, the log keeps growing until the next one", e);
+                } finally {
+                    snapshotScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Write a snapshot of the index as of the last applied mutation and delete the snapshots and
+     * segments it covers. Writers carry on meanwhile.
+     *
+     * @return the LSN of the snapshot
+     */
+    public long snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            long lsn = appliedLsn;
+            if (lsn == snapshotLsn) {
+                return lsn;
+            }
+            long started = System.nanoTime();
+            Path temp = directory.resolve(snapshotFile(lsn).getFileName() + TEMP_SUFFIX);
+            Files.deleteIfExists(temp);
+            long entries = SnapshotFile.write(temp, lsn, index);
+            Files.move(temp, snapshotFile(lsn), StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory();
+            snapshotLsn = lsn;
+            snapshots.increment();
+            deleteCoveredFiles(lsn);
+            log.info("Wrote metadata snapshot at lsn {} ({} entries) in {} ms",
+                    lsn, entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return lsn;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Older snapshots, and segments whose records all precede the snapshot. The segment being
+     * written is always the newest listed, so it is never deleted.
+     */
+    private void deleteCoveredFiles(long lsn) throws IOException {
+        for (long older : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (older < lsn) {
+                Files.deleteIfExists(snapshotFile(older));
+            }
+        }
+        List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1) <= lsn + 1) {
+                Files.deleteIfExists(segmentFile(segments.get(i)));
+            }
+        }
+    }
+
+    /// recovery
+    /// --------
+
+    private void recover() throws IOException {
+        long started = System.nanoTime();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path temp : files.filter(file -> file.getFileName().toString().endsWith(TEMP_SUFFIX)).toList()) {
+                Files.delete(temp);
+            }
+        }
+        List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        List<Long> snapshotLsns = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        boolean hasLog = !segments.isEmpty() || !snapshotLsns.isEmpty();
+
+        long cleanLsn = readCleanShutdown();
+        long base;
+        if (cleanLsn >= 0 && (index.entryCount() > 0 || !hasLog)) {
+            // the index was forced before the marker was written
+            base = cleanLsn;
+            snapshotLsn = snapshotLsns.isEmpty() ? 0 : snapshotLsns.getLast();
+        } else if (!hasLog) {
+            // a new log starts from whatever the index holds
+            base = 0;
+        } else {
+            log.info("Rebuilding artifact index {} from metadata log {}", index.getFile(), directory);
+            index.clear();
+            base = loadSnapshot(snapshotLsns);
+            snapshotLsn = base;
+        }
+
+        if (!segments.isEmpty() && segments.getFirst() > base + 1) {
+            throw new IOException("Metadata log " + directory + " is missing records " + (base + 1)
+                    + " to " + (segments.getFirst() - 1));
+        }
+        long lastLsn = base;
+        for (int i = 0; i < segments.size(); i++) {
+            lastLsn = Math.max(lastLsn, replay(segmentFile(segments.get(i)), base, i == segments.size() - 1));
+        }
+        nextLsn = lastLsn + 1;
+        appliedLsn = lastLsn;
+
+        if (segments.isEmpty()) {
+            segment = FileChannel.open(segmentFile(nextLsn), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            syncDirectory();
+        } else {
+            segment = FileChannel.open(segmentFile(segments.getLast()), StandardOpenOption.WRITE);
+            segment.position(segment.size());
+        }
+        segmentSize = segment.size();
+
+        replayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("Opened metadata log {} at lsn {} (snapshot at {}, {} records replayed in {} ms)",
+                directory, lastLsn, snapshotLsn, replayedRecords, replayMillis);
+    }
+
+    /**
+     * The LSN of a clean close, or -1. The marker is removed, a crash from now on must replay.
+     */
+    private long readCleanShutdown() throws IOException {
+        Path marker = directory.resolve(CLEAN_SHUTDOWN);
+        if (!Files.exists(marker)) {
+            return -1;
+        }
+        long lsn;
+        try {
+            lsn = Long.parseLong(Files.readString(marker, StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            lsn = -1;
+        }
+        Files.delete(marker);
+        syncDirectory();
+        return lsn;
+    }
+
+    /**
+     * Load the newest readable snapshot into the cleared index
+     *
+     * @return its LSN, 0 without one
+     */
+    private long loadSnapshot(List<Long> snapshotLsns) throws IOException {
+        for (int i = snapshotLsns.size() - 1; i >= 0; i--) {
+            Path file = snapshotFile(snapshotLsns.get(i));
+            try {
+                long lsn = SnapshotFile.load(file, index);
+                log.info("Loaded metadata snapshot {} ({} entries)", file, index.entryCount());
+                return lsn;
+            } catch (IOException e) {
+                log.warn("Skipping unreadable metadata snapshot {}", file, e);
+                index.clear();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Apply the records of a segment with an LSN above {@code base}. A torn or corrupt record
+     * ends the last segment, which is truncated there; anywhere else it fails recovery.
+     *
+     * @return the last LSN in the segment, 0 if it holds none
+     */
+    private long replay(Path file, long base, boolean last) throws IOException {
+        long lastLsn = 0;
+        long validBytes = 0;
+        boolean corrupt = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(REPLAY_BUFFER_BYTES);
+            boolean eof = false;
+            while (!corrupt) {
+                while (!eof && buffer.hasRemaining()) {
+                    eof = channel.read(buffer) < 0;
+                }
+                buffer.flip();
+                while (buffer.remaining() >= LogCodec.HEADER_BYTES) {
+                    int start = buffer.position();
+                    int payloadBytes = buffer.getInt(start);
+                    int checksum = buffer.getInt(start + Integer.BYTES);
+                    if (!eof && payloadBytes >= 0 && payloadBytes <= LogCodec.MAX_PAYLOAD_BYTES
+                            && buffer.remaining() - LogCodec.HEADER_BYTES < payloadBytes) {
+                        break; // the rest of the record is still in the file
+                    }
+                    buffer.position(start + LogCodec.HEADER_BYTES);
+                    if (!LogCodec.verify(payloadBytes, checksum, buffer)) {
+                        corrupt = true;
+                        break;
+                    }
+                    long lsn = LogCodec.lsn(buffer);
+                    Mutation mutation;
+                    try {
+                        mutation = LogCodec.decode(buffer);
+                    } catch (RuntimeException e) {
+                        corrupt = true;
+                        break;
+                    }
+                    if (lsn <= lastLsn) {
+                        corrupt = true;
+                        break;
+                    }
+                    buffer.position(start + LogCodec.HEADER_BYTES + payloadBytes);
+                    if (lsn > base) {
+                        try {
+                            mutation.applyTo(index);
+                        } catch (RuntimeException e) {
+                            log.error("Failed to apply metadata mutation {} on replay", lsn, e);
+                        }
+                        replayedRecords++;
+                    }
+                    lastLsn = lsn;
+                    validBytes += LogCodec.HEADER_BYTES + payloadBytes;
+                }
+                if (eof) {
+                    corrupt |= buffer.hasRemaining();
+                    break;
+                }
+                buffer.compact();
+            }
+
+            if (corrupt) {
+                if (!last) {
+                    throw new IOException("Corrupt record in metadata log segment " + file + " at offset " + validBytes);
+                }
+                log.warn("Truncating metadata log segment {} from {} to {} bytes after a torn write",
+                        file, channel.size(), validBytes);
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+        return lastLsn;
+    }
+
+    /// files
+    /// -----
+
+    private Path segmentFile(long firstLsn) {
+        return directory.resolve(SEGMENT_PREFIX + "%020d".formatted(firstLsn) + SEGMENT_SUFFIX);
+    }
+
+    private Path snapshotFile(long lsn) {
+        return directory.resolve(SNAPSHOT_PREFIX + "%020d".formatted(lsn) + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * LSNs in the names of the files with the given prefix and suffix, ascending
+     */
+    private List<Long> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .map(name -> name.substring(prefix.length(), name.length() - suffix.length()))
+                    .filter(lsn -> !lsn.isEmpty() && lsn.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Make created, renamed and deleted files durable
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can open a directory
+            log.debug("Could not sync directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Commit what is queued, stop the committer, and record a clean shutdown once the index is forced
+     */
+    @Override
+    public void close() throws IOException {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.put(CLOSE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the metadata log", e);
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the metadata log", e);
+        }
+        // a running snapshot reads the index, which is closed after the log
+        snapshotLock.lock();
+        try {
+            segment.force(false);
+            segment.close();
+            if (failure == null) {
+                index.force();
+                Path temp = directory.resolve(CLEAN_SHUTDOWN + TEMP_SUFFIX);
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.wrap(Long.toString(appliedLsn).getBytes(StandardCharsets.US_ASCII)));
+                    channel.force(true);
+                }
+                Files.move(temp, directory.resolve(CLEAN_SHUTDOWN), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+            }
+        } finally {
+            snapshotLock.unlock();
+            lockChannel.close();
+        }
+        log.info("Closed metadata log {} at lsn {}", directory, appliedLsn);
+    }
+
+    public Statistics statistics() {
+        long commits = groupCommits.sum();
+        long recordCount = records.sum();
+        return new Statistics(recordCount, commits, commits == 0 ? 0 : (double) recordCount / commits,
+                maxBatchRecords, bytesWritten.sum(), appliedLsn, snapshotLsn, snapshots.sum(),
+                replayedRecords, replayMillis, failure != null);
+    }
+
+    /**
+     * A queued record and the writer waiting for it
+     */
+    private static final class Append {
+        final byte[] record;
+        final Mutation mutation;
+        final CompletableFuture<Committed> done = new CompletableFuture<>();
+
+        Append(byte[] record, Mutation mutation) {
+            this.record = record;
+            this.mutation = mutation;
+        }
+    }
+
+    /**
+     * @param lsn     log sequence number of the mutation
+     * @param applied false if a delete or promote found no live entry
+     */
+    public record Committed(long lsn, boolean applied) {
+    }
+
+    /**
+     * Records committed with how many group commits (one write and force each), the largest
+     * batch, the LSNs applied and covered by the last snapshot, and the startup replay
+     */
+    public record Statistics(long records, long groupCommits, double recordsPerCommit, int maxBatchRecords,
+                             long bytesWritten, long appliedLsn, long snapshotLsn, long snapshots,
+                             long replayedRecords, long replayMillis, boolean failed) {
+    }
+}
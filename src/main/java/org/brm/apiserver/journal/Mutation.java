@@ -0,0 +1,85 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+
+import java.util.Objects;
+
+/**
+ * A change to the artifact metadata as recorded in the {@link MetadataLog}. Every mutation sets
+ * absolute state, so applying one twice leaves the index as applying it once, which lets replay
+ * start from a snapshot that was taken while writes went on.
+ *
+ * @param classifier empty for the main artifact
+ * @param digest     sha256 of the artifact for {@link Type#PUBLISH}, ignored otherwise
+ * @param timestamp  epoch millis, taken when the mutation was submitted
+ */
+public record Mutation(Type type, String group, String name, String version, String classifier,
+                       byte[] digest, long size, long timestamp) {
+
+    // UTF-8 length of a coordinate part is stored in two bytes
+    public static final int MAX_PART_LENGTH = 255;
+
+    private static final byte[] NO_DIGEST = new byte[ArtifactIndex.DIGEST_BYTES];
+
+    public enum Type {
+        PUBLISH, DELETE, PROMOTE
+    }
+
+    public Mutation {
+        Objects.requireNonNull(type, "type");
+        checkPart("group", group, false);
+        checkPart("name", name, false);
+        checkPart("version", version, false);
+        checkPart("classifier", classifier, true);
+        if (digest == null) {
+            digest = NO_DIGEST;
+        }
+        if (digest.length != ArtifactIndex.DIGEST_BYTES) {
+            throw new IllegalArgumentException("Expected a " + ArtifactIndex.DIGEST_BYTES + " byte sha256 digest");
+        }
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative size: " + size);
+        }
+    }
+
+    public static Mutation publish(String group, String name, String version, String classifier,
+                                   byte[] digest, long size, long timestamp) {
+        return new Mutation(Type.PUBLISH, group, name, version, classifier, digest, size, timestamp);
+    }
+
+    public static Mutation delete(String group, String name, String version, String classifier, long timestamp) {
+        return new Mutation(Type.DELETE, group, name, version, classifier, null, 0, timestamp);
+    }
+
+    public static Mutation promote(String group, String name, String version, String classifier, long timestamp) {
+        return new Mutation(Type.PROMOTE, group, name, version, classifier, null, 0, timestamp);
+    }
+
+    /**
+     * Apply to the index
+     *
+     * @return false if a delete or promote found no live entry
+     */
+    boolean applyTo(ArtifactIndex index) {
+        return switch (type) {
+            case PUBLISH -> {
+                index.put(group, name, version, classifier, digest, size, timestamp);
+                yield true;
+            }
+            case DELETE -> index.delete(group, name, version, classifier, timestamp);
+            case PROMOTE -> index.promote(group, name, version, classifier, timestamp);
+        };
+    }
+
+    private static void checkPart(String what, String part, boolean mayBeEmpty) {
+        if (part == null || (!mayBeEmpty && part.isBlank())) {
+            throw new IllegalArgumentException("Missing " + what);
+        }
+        if (part.length() > MAX_PART_LENGTH) {
+            throw new IllegalArgumentException("The " + what + " is longer than " + MAX_PART_LENGTH + " chars");
+        }
+        if (part.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("The " + what + " contains a NUL char");
+        }
+    }
+}
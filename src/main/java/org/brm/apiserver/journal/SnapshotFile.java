@@ -0,0 +1,129 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Every live index entry as of a log sequence number:
+ * <pre>
+ * magic (long), format (int), lsn (long)
+ * entries   1 (byte), group, name, version, classifier (unsigned short length + UTF-8 each),
+ *           sha256 (32 bytes), size, created, modified (long), flags (int)
+ * trailer   0 (byte), entry count (long), CRC32C of everything before (int)
+ * </pre>
+ */
+final class SnapshotFile {
+
+    private static final long MAGIC = 0x4252_4D53_4E41_5001L; // "BRMSNAP", format 1
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_BYTES = 256 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Write the live entries of the index to a file and force it to disk
+     *
+     * @return the number of entries written
+     */
+    static long write(Path file, long lsn, ArtifactIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            OutputStream fileOut = Channels.newOutputStream(channel);
+            BufferedOutputStream buffered = new BufferedOutputStream(fileOut, BUFFER_BYTES);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32C());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            long[] count = new long[1];
+            index.forEach((group, name, version, classifier, digest, size, created, modified, flags) -> {
+                out.writeByte(1);
+                writePart(out, group);
+                writePart(out, name);
+                writePart(out, version);
+                writePart(out, classifier);
+                out.write(digest);
+                out.writeLong(size);
+                out.writeLong(created);
+                out.writeLong(modified);
+                out.writeInt(flags);
+                count[0]++;
+            });
+            out.writeByte(0);
+            out.writeLong(count[0]);
+            out.flush();
+            new DataOutputStream(buffered).writeInt((int) checked.getChecksum().getValue());
+            buffered.flush();
+            channel.force(true);
+            return count[0];
+        }
+    }
+
+    /**
+     * Restore the entries of a snapshot into the index. On a corrupt file some entries may have
+     * been restored already when the exception is thrown.
+     *
+     * @return the log sequence number the snapshot was taken at
+     */
+    static long load(Path file, ArtifactIndex index) throws IOException {
+        try (InputStream fileIn = Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ))) {
+            BufferedInputStream buffered = new BufferedInputStream(fileIn, BUFFER_BYTES);
+            CheckedInputStream checked = new CheckedInputStream(buffered, new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readLong() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a metadata snapshot: " + file);
+            }
+            long lsn = in.readLong();
+            byte[] digest = new byte[ArtifactIndex.DIGEST_BYTES];
+            long count = 0;
+            while (in.readByte() == 1) {
+                String group = readPart(in);
+                String name = readPart(in);
+                String version = readPart(in);
+                String classifier = readPart(in);
+                in.readFully(digest);
+                index.restore(group, name, version, classifier, digest,
+                        in.readLong(), in.readLong(), in.readLong(), in.readInt());
+                count++;
+            }
+            boolean complete = in.readLong() == count;
+            int checksum = (int) checked.getChecksum().getValue();
+            if (!complete || new DataInputStream(buffered).readInt() != checksum) {
+                throw new IOException("Corrupt metadata snapshot: " + file);
+            }
+            return lsn;
+        } catch (EOFException e) {
+            throw new IOException("Truncated metadata snapshot: " + file, e);
+        }
+    }
+
+    private static void writePart(DataOutputStream out, String part) throws IOException {
+        byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readPart(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
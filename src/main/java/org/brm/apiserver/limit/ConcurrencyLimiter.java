@@ -0,0 +1,108 @@
+package org.brm.apiserver.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-queueing bulkhead with an adaptive limit: a request is admitted only while fewer than
+ * {@link #getLimit()} are in flight, everything else is rejected immediately so that excess
+ * load is shed instead of piling up on virtual threads.
+ */
+public final class ConcurrencyLimiter {
+
+    // planned durations below this are too short to judge the slowdown
+    private static final long MIN_PLANNED_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final GradientLimit gradientLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.gradientLimit = new GradientLimit(initialLimit, minLimit, maxLimit, tolerance);
+        this.limit = gradientLimit.limit();
+    }
+
+    /**
+     * @return a permit to release when the operation is done, or null if the request is rejected
+     */
+    public Permit tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        accepted.increment();
+        return new Permit(this, System.nanoTime());
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private void release(long startNanos, long plannedNanos) {
+        int current = inFlight.getAndDecrement();
+        if (plannedNanos < MIN_PLANNED_NANOS) {
+            return;
+        }
+        double slowdown = (double) (System.nanoTime() - startNanos) / plannedNanos;
+        synchronized (gradientLimit) {
+            limit = gradientLimit.onSample(slowdown, current);
+        }
+    }
+
+    private void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    public Statistics statistics() {
+        double baselineSlowdown;
+        synchronized (gradientLimit) {
+            baselineSlowdown = gradientLimit.baselineSlowdown();
+        }
+        return new Statistics(limit, inFlight.get(), accepted.sum(), rejected.sum(), baselineSlowdown);
+    }
+
+    /**
+     * An admitted request, released exactly once
+     */
+    public static final class Permit {
+
+        /** Permit for requests that bypass admission control */
+        public static final Permit UNLIMITED = new Permit(null, 0);
+
+        private final ConcurrencyLimiter limiter;
+        private final long startNanos;
+
+        private Permit(ConcurrencyLimiter limiter, long startNanos) {
+            this.limiter = limiter;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Release after the operation completed, feeding its latency into the limit
+         */
+        public void release(long plannedNanos) {
+            if (limiter != null) {
+                limiter.release(startNanos, plannedNanos);
+            }
+        }
+
+        /**
+         * Release after a failure, without a latency sample
+         */
+        public void releaseWithoutSample() {
+            if (limiter != null) {
+                limiter.releaseWithoutSample();
+            }
+        }
+    }
+
+    public record Statistics(int limit, int inFlight, long accepted, long rejected, double baselineSlowdown) {
+    }
+}
@@ -0,0 +1,80 @@
+package org.brm.apiserver.limit;
+
+/**
+ * Gradient style concurrency limit estimate.
+ * <p>
+ * Each sample is the ratio of the measured to the planned duration of an operation, so the
+ * estimate is not fooled by the random block periods. The baseline follows the best window
+ * average right away but rises only slowly, so sustained overload is not mistaken for the new
+ * normal. Once the slowdown of the current window exceeds {@code tolerance} times the baseline
+ * the limit shrinks proportionally (at most by half per window), otherwise it grows by a
+ * square-root queue allowance. Not thread-safe, callers synchronize.
+ */
+final class GradientLimit {
+
+    private static final int WINDOW_SAMPLES = 10;
+    private static final int BASELINE_RISE_WINDOWS = 500;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private double limit;
+    private double baselineSlowdown;
+    private double windowSum;
+    private int windowCount;
+    private int windowMaxInFlight;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    double baselineSlowdown() {
+        return baselineSlowdown;
+    }
+
+    /**
+     * @param slowdown measured duration divided by the planned duration
+     * @param inFlight operations in flight when the sample was taken
+     * @return the limit after the sample
+     */
+    int onSample(double slowdown, int inFlight) {
+        windowSum += slowdown;
+        windowCount++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (windowCount < WINDOW_SAMPLES) {
+            return (int) limit;
+        }
+
+        double shortSlowdown = windowSum / windowCount;
+        int maxInFlight = windowMaxInFlight;
+        windowSum = 0;
+        windowCount = 0;
+        windowMaxInFlight = 0;
+
+        if (baselineSlowdown == 0 || shortSlowdown < baselineSlowdown) {
+            baselineSlowdown = shortSlowdown;
+        } else {
+            baselineSlowdown += (shortSlowdown - baselineSlowdown) / BASELINE_RISE_WINDOWS;
+        }
+
+        // an underused limit says nothing about the capacity, do not grow it
+        if (maxInFlight < limit / 2) {
+            return (int) limit;
+        }
+
+        double gradient = Math.clamp(tolerance * baselineSlowdown / shortSlowdown, 0.5, 1.0);
+        double queueAllowance = Math.sqrt(limit);
+        double newLimit = limit * gradient + queueAllowance;
+        limit = Math.clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING, minLimit, maxLimit);
+        return (int) limit;
+    }
+}
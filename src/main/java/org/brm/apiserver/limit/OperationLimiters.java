@@ -0,0 +1,56 @@
+package org.brm.apiserver.limit;
+
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admission control for blocking operations: one adaptive {@link ConcurrencyLimiter} per
+ * performed {@link OperationType}, so a saturated disk or backend only sheds its own requests.
+ */
+@Component
+public class OperationLimiters {
+
+    private final boolean enabled;
+    private final HttpStatus rejectStatus;
+    private final Map<OperationType, ConcurrencyLimiter> limiters = new EnumMap<>(OperationType.class);
+
+    public OperationLimiters(
+            @Value("${brm.limiter.enabled:true}") boolean enabled,
+            @Value("${brm.limiter.initial-limit:20}") int initialLimit,
+            @Value("${brm.limiter.min-limit:4}") int minLimit,
+            @Value("${brm.limiter.max-limit:1000}") int maxLimit,
+            @Value("${brm.limiter.tolerance:1.5}") double tolerance,
+            @Value("${brm.limiter.reject-status:503}") int rejectStatus) {
+        this.enabled = enabled;
+        this.rejectStatus = HttpStatus.valueOf(rejectStatus);
+        for (OperationType operationType : OperationType.values()) {
+            limiters.put(operationType, new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance));
+        }
+    }
+
+    /**
+     * @return a permit, {@link ConcurrencyLimiter.Permit#UNLIMITED} when admission control is
+     * disabled, or null if the request must be rejected
+     */
+    public ConcurrencyLimiter.Permit tryAcquire(OperationType performedOperationType) {
+        return enabled ? limiters.get(performedOperationType).tryAcquire() : ConcurrencyLimiter.Permit.UNLIMITED;
+    }
+
+    /**
+     * Status for rejected requests, 503 or 429
+     */
+    public HttpStatus getRejectStatus() {
+        return rejectStatus;
+    }
+
+    public Map<OperationType, ConcurrencyLimiter.Statistics> report() {
+        Map<OperationType, ConcurrencyLimiter.Statistics> report = new EnumMap<>(OperationType.class);
+        limiters.forEach((operationType, limiter) -> report.put(operationType, limiter.statistics()));
+        return report;
+    }
+}
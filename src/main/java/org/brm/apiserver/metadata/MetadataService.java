@@ -0,0 +1,173 @@
+package org.brm.apiserver.metadata;
+
+import org.brm.apiserver.cache.TinyLfuCache;
+import org.brm.apiserver.http.ContentCoding;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.model.ArtifactMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Artifact metadata lookups through a {@link TinyLfuCache} in front of a simulated metadata
+ * backend. A backend call is a NETWORK_IO operation of the configured latency, so concurrent
+ * lookups of the same coordinates at a release cost one backend call instead of one each.
+ * <p>
+ * The cache holds the response as it is sent: JSON bytes, a gzip variant and an ETag, so hits
+ * and revalidations neither serialize nor compress. The ETag covers the versions but not the
+ * fetch time, which changes on every reload, so it is a weak one. Last-Modified is the fetch
+ * time, so clients that only send If-Modified-Since revalidate until the next refresh.
+ */
+@Component
+public class MetadataService {
+
+    private static final Pattern COORDINATES = Pattern.compile("[\\w.\\-]+:[\\w.\\-]+");
+
+    // rough heap footprint of a cached entry beside its bytes, the cache is bounded by the sum
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int VERSION_BYTES = 56;
+
+    private static final int ETAG_HEX_CHARS = 32;
+
+    private static final int MAX_VERSIONS = 48;
+
+    private final BlockingSimulator blockingSimulator;
+    private final JsonMapper jsonMapper;
+    private final TinyLfuCache<String, Representation> cache;
+    private final int backendMinLatencyMs;
+    private final int backendMaxLatencyMs;
+
+    public MetadataService(
+            BlockingSimulator blockingSimulator,
+            JsonMapper jsonMapper,
+            @Value("${brm.metadata.cache.maximum-kb:65536}") long maximumKb,
+            @Value("${brm.metadata.cache.expected-entries:100000}") long expectedEntries,
+            @Value("${brm.metadata.cache.expire-after-write-ms:300000}") long expireAfterWriteMs,
+            @Value("${brm.metadata.cache.refresh-after-write-ms:60000}") long refreshAfterWriteMs,
+            @Value("${brm.metadata.backend.min-latency-ms:20}") int backendMinLatencyMs,
+            @Value("${brm.metadata.backend.max-latency-ms:100}") int backendMaxLatencyMs) {
+        this.blockingSimulator = blockingSimulator;
+        this.jsonMapper = jsonMapper;
+        this.cache = new TinyLfuCache<>(maximumKb * 1024, expectedEntries, MetadataService::weigh,
+                Duration.ofMillis(expireAfterWriteMs), Duration.ofMillis(refreshAfterWriteMs),
+                Thread::startVirtualThread);
+        this.backendMinLatencyMs = backendMinLatencyMs;
+        this.backendMaxLatencyMs = backendMaxLatencyMs;
+    }
+
+    public static boolean isValidCoordinates(String coordinates) {
+        return COORDINATES.matcher(coordinates).matches();
+    }
+
+    /**
+     * Metadata of {@code group:name}, from the cache or loaded from the backend
+     */
+    public Representation lookup(String coordinates) {
+        return cache.get(coordinates, this::load);
+    }
+
+    /**
+     * Drop the cached metadata, e.g. after a deploy changed it
+     */
+    public void invalidate(String coordinates) {
+        cache.invalidate(coordinates);
+    }
+
+    public TinyLfuCache.Statistics statistics() {
+        return cache.statistics();
+    }
+
+    private Representation load(String coordinates) {
+        ArtifactMetadata metadata = fetch(coordinates);
+        byte[] json = jsonMapper.writeValueAsBytes(metadata);
+        byte[] gzip = gzip(json);
+        return new Representation(metadata, etag(metadata), json, gzip.length < json.length ? gzip : null);
+    }
+
+    /**
+     * The simulated backend: waits for the backend latency, then derives a stable version list
+     * from the coordinates
+     */
+    private ArtifactMetadata fetch(String coordinates) {
+        blockingSimulator.performBlockingOperation(OperationType.NETWORK_IO, OperationType.NETWORK_IO,
+                backendMinLatencyMs, backendMaxLatencyMs);
+        int count = 1 + (coordinates.hashCode() & Integer.MAX_VALUE) % MAX_VERSIONS;
+        List<String> versions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            versions.add((1 + i / 16) + "." + (i / 4 % 4) + "." + (i % 4));
+        }
+        return new ArtifactMetadata(coordinates, versions.getLast(), List.copyOf(versions),
+                System.currentTimeMillis());
+    }
+
+    private static String etag(ArtifactMetadata metadata) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(metadata.coordinates().getBytes(StandardCharsets.UTF_8));
+            for (String version : metadata.versions()) {
+                digest.update((byte) 0);
+                digest.update(version.getBytes(StandardCharsets.UTF_8));
+            }
+            return "W/\"" + HexFormat.of().formatHex(digest.digest()).substring(0, ETAG_HEX_CHARS) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int weigh(Representation representation) {
+        ArtifactMetadata metadata = representation.metadata();
+        return ENTRY_OVERHEAD_BYTES + 2 * metadata.coordinates().length()
+                + VERSION_BYTES * metadata.versions().size() + representation.json().length
+                + (representation.gzip() != null ? representation.gzip().length : 0);
+    }
+
+    /**
+     * A cached response
+     *
+     * @param gzip gzip compressed JSON, null if that is not smaller
+     */
+    public record Representation(ArtifactMetadata metadata, String etag, byte[] json, byte[] gzip) {
+
+        private static final Set<ContentCoding> GZIP_ONLY = Set.of(ContentCoding.GZIP);
+
+        /**
+         * When the backend last produced the metadata, i.e. the last load or refresh
+         */
+        public long lastModified() {
+            return metadata.fetchedAtMs();
+        }
+
+        public ContentCoding negotiate(String acceptEncoding) {
+            return gzip != null ? ContentCoding.negotiate(acceptEncoding, GZIP_ONLY) : ContentCoding.IDENTITY;
+        }
+
+        public byte[] body(ContentCoding coding) {
+            return coding == ContentCoding.GZIP ? gzip : json;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.brm.apiserver.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ * <p>
+ * Values are recorded in microseconds. Values below 64 get one bucket each; above that every
+ * power of two is split into 32 linear sub-buckets, which bounds the relative error to about 3%
+ * over the whole range (up to ~12 days). Recording is a single atomic increment on one of
+ * several stripes, chosen by thread id, so concurrent virtual threads rarely touch the same
+ * array and nothing is allocated. Stripes are only merged when a snapshot is taken.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    static final int BUCKETS = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // per stripe: buckets, then the running sum and the maximum
+    private static final int SUM_INDEX = BUCKETS;
+    private static final int MAX_INDEX = BUCKETS + 1;
+    private static final int STRIPE_LENGTH = BUCKETS + 2;
+
+    // each stripe is ~9 KB, keep the footprint bounded on large machines
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public LatencyHistogram(int stripeCount) {
+        int stripesPow2 = Integer.highestOneBit(Math.clamp(stripeCount, 1, MAX_STRIPES) * 2 - 1);
+        this.stripes = new AtomicLongArray[stripesPow2];
+        for (int i = 0; i < stripesPow2; i++) {
+            stripes[i] = new AtomicLongArray(STRIPE_LENGTH);
+        }
+        this.stripeMask = stripesPow2 - 1;
+    }
+
+    /**
+     * Record a duration given in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.clamp(micros, 0, MAX_VALUE);
+        AtomicLongArray stripe = stripes[stripeIndex()];
+        stripe.getAndIncrement(bucketIndex(value));
+        stripe.getAndAdd(SUM_INDEX, value);
+        long max = stripe.get(MAX_INDEX);
+        while (value > max && !stripe.weakCompareAndSetVolatile(MAX_INDEX, max, value)) {
+            max = stripe.get(MAX_INDEX);
+        }
+    }
+
+    private int stripeIndex() {
+        // Fibonacci hashing spreads sequential virtual thread ids over the stripes
+        return (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 40) & stripeMask;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return exponent * SUB_BUCKETS + (int) (value >>> exponent);
+    }
+
+    /**
+     * Highest value that falls into a bucket
+     */
+    static long bucketHighestValue(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+
+    /**
+     * Merge all stripes into a consistent-enough point-in-time view.
+     * Concurrent recordings may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripe.get(i);
+            }
+            sum += stripe.get(SUM_INDEX);
+            max = Math.max(max, stripe.get(MAX_INDEX));
+        }
+        long count = 0;
+        for (long bucketCount : counts) {
+            count += bucketCount;
+        }
+        return new Snapshot(count,
+                count == 0 ? 0 : (double) sum / count,
+                max,
+                percentile(counts, count, 50.0, max),
+                percentile(counts, count, 90.0, max),
+                percentile(counts, count, 99.0, max),
+                percentile(counts, count, 99.9, max));
+    }
+
+    private static long percentile(long[] counts, long total, double percentile, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketHighestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Aggregated view of a histogram, all values in microseconds
+     */
+    public record Snapshot(long count, double meanMicros, long maxMicros,
+                           long p50Micros, long p90Micros, long p99Micros, long p999Micros) {
+    }
+}
@@ -0,0 +1,144 @@
+package org.brm.apiserver.metrics;
+
+import org.brm.apiserver.deadline.CancellationReason;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process latency metrics per blocking operation type and per endpoint.
+ * <p>
+ * Operation stats are created up front; endpoint stats are created on first use and looked up
+ * by request mapping pattern afterwards, so recording does not allocate.
+ * On-CPU time per sample comes from {@link ThreadMXBean#getCurrentThreadCpuTime()}, which HotSpot
+ * does not support for virtual threads. Samples taken on virtual threads, the default request
+ * threads, only contribute to wall-clock time and are counted as {@code cpuUnmeasured}. For them
+ * the report carries the process CPU time instead, averaged over the requests completed since
+ * startup, which covers every thread including GC and the JIT.
+ * Operations stopped early by their deadline or a client disconnect are counted separately.
+ */
+@Component
+public class LatencyMetrics {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    private static final boolean CPU_TIME_SUPPORTED = THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported();
+    private static final OperatingSystemMXBean OS_MX_BEAN = ManagementFactory.getOperatingSystemMXBean();
+
+    private final Map<OperationType, TimedStats> operations = new EnumMap<>(OperationType.class);
+    private final ConcurrentHashMap<String, TimedStats> endpoints = new ConcurrentHashMap<>();
+    private final Map<OperationType, Map<CancellationReason, LongAdder>> cancellations =
+            new EnumMap<>(OperationType.class);
+    private final LongAdder requests = new LongAdder();
+    private final long startProcessCpuNanos = processCpuNanos();
+    private final long startNanos = System.nanoTime();
+
+    public LatencyMetrics() {
+        for (OperationType operationType : OperationType.values()) {
+            operations.put(operationType, new TimedStats());
+            Map<CancellationReason, LongAdder> counters = new EnumMap<>(CancellationReason.class);
+            for (CancellationReason reason : CancellationReason.values()) {
+                counters.put(reason, new LongAdder());
+            }
+            cancellations.put(operationType, counters);
+        }
+    }
+
+    /**
+     * CPU time of the current thread in nanoseconds, or -1 if it cannot be measured, which includes
+     * every virtual thread
+     */
+    public static long currentThreadCpuNanos() {
+        if (!CPU_TIME_SUPPORTED || Thread.currentThread().isVirtual()) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+
+    /**
+     * CPU time of the whole process in nanoseconds, or -1 if the platform does not report it
+     */
+    public static long processCpuNanos() {
+        return OS_MX_BEAN instanceof com.sun.management.OperatingSystemMXBean os ? os.getProcessCpuTime() : -1;
+    }
+
+    /**
+     * CPU time spent since {@code startCpuNanos}, or -1 if either reading is unavailable
+     */
+    public static long cpuNanosSince(long startCpuNanos) {
+        if (startCpuNanos < 0) {
+            return -1;
+        }
+        long now = currentThreadCpuNanos();
+        return now < 0 ? -1 : now - startCpuNanos;
+    }
+
+    public void recordOperation(OperationType operationType, long wallNanos, long cpuNanos) {
+        operations.get(operationType).record(wallNanos, cpuNanos);
+    }
+
+    public void recordCancellation(OperationType operationType, CancellationReason reason) {
+        cancellations.get(operationType).get(reason).increment();
+    }
+
+    public void recordEndpoint(String endpoint, long wallNanos, long cpuNanos) {
+        TimedStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            stats = endpoints.computeIfAbsent(endpoint, key -> new TimedStats());
+        }
+        stats.record(wallNanos, cpuNanos);
+        requests.increment();
+    }
+
+    public LatencyReport report() {
+        SortedMap<String, TimedStats.Snapshot> operationSnapshots = new TreeMap<>();
+        operations.forEach((type, stats) -> operationSnapshots.put(type.name(), stats.snapshot()));
+        SortedMap<String, TimedStats.Snapshot> endpointSnapshots = new TreeMap<>();
+        endpoints.forEach((endpoint, stats) -> endpointSnapshots.put(endpoint, stats.snapshot()));
+        SortedMap<String, Map<CancellationReason, Long>> cancellationCounts = new TreeMap<>();
+        cancellations.forEach((type, counters) -> {
+            Map<CancellationReason, Long> counts = new EnumMap<>(CancellationReason.class);
+            counters.forEach((reason, counter) -> counts.put(reason, counter.sum()));
+            cancellationCounts.put(type.name(), counts);
+        });
+        return new LatencyReport(cpuReport(), operationSnapshots, endpointSnapshots, cancellationCounts);
+    }
+
+    private CpuReport cpuReport() {
+        long now = processCpuNanos();
+        if (startProcessCpuNanos < 0 || now < 0) {
+            return new CpuReport(CPU_TIME_SUPPORTED, false, 0, 0, null);
+        }
+        long processCpuNanos = now - startProcessCpuNanos;
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long completed = requests.sum();
+        return new CpuReport(CPU_TIME_SUPPORTED, true, processCpuNanos / 1_000_000,
+                elapsedNanos > 0 ? (double) processCpuNanos / elapsedNanos : 0,
+                completed > 0 ? processCpuNanos / 1000.0 / completed : null);
+    }
+
+    public record LatencyReport(CpuReport cpu,
+                                Map<String, TimedStats.Snapshot> operations,
+                                Map<String, TimedStats.Snapshot> endpoints,
+                                Map<String, Map<CancellationReason, Long>> cancellations) {
+    }
+
+    /**
+     * @param threadCpuTimeSupported    whether platform threads report their CPU time; virtual threads never do
+     * @param processCpuTimeSupported   whether the process CPU time below is available
+     * @param processCpuMs              CPU time of the process since startup
+     * @param processCpuCores           average number of cores the process kept busy since startup
+     * @param processCpuMicrosPerRequest process CPU time per completed request, null before the first
+     */
+    public record CpuReport(boolean threadCpuTimeSupported, boolean processCpuTimeSupported, long processCpuMs,
+                            double processCpuCores, Double processCpuMicrosPerRequest) {
+    }
+}
@@ -0,0 +1,48 @@
+package org.brm.apiserver.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.brm.apiserver.accesslog.AccessLog;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Times every request and records it under its request mapping pattern (e.g. /rest/blobs/{id}),
+ * so path variables do not create a histogram per distinct URL. Every request is also written to
+ * the {@link AccessLog}.
+ */
+@Component
+public class LatencyMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNMATCHED_ENDPOINT = "unmatched";
+
+    private final LatencyMetrics latencyMetrics;
+    private final AccessLog accessLog;
+
+    public LatencyMetricsFilter(LatencyMetrics latencyMetrics, AccessLog accessLog) {
+        this.latencyMetrics = latencyMetrics;
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long startNanos = System.nanoTime();
+        long startCpuNanos = LatencyMetrics.currentThreadCpuNanos();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String endpoint = pattern instanceof String matched ? matched : UNMATCHED_ENDPOINT;
+            long wallNanos = System.nanoTime() - startNanos;
+            long cpuNanos = LatencyMetrics.cpuNanosSince(startCpuNanos);
+            latencyMetrics.recordEndpoint(endpoint, wallNanos, cpuNanos);
+            accessLog.logRequest(endpoint, response.getStatus(), wallNanos, cpuNanos);
+        }
+    }
+}
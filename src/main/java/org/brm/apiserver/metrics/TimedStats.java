@@ -0,0 +1,36 @@
+package org.brm.apiserver.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall-clock and on-CPU latency of one operation type or endpoint.
+ */
+public final class TimedStats {
+
+    private final LatencyHistogram wallTime = new LatencyHistogram();
+    private final LatencyHistogram cpuTime = new LatencyHistogram();
+    private final LongAdder cpuUnmeasured = new LongAdder();
+
+    /**
+     * @param cpuNanos on-CPU time, negative if it could not be measured
+     */
+    public void record(long wallNanos, long cpuNanos) {
+        wallTime.recordNanos(wallNanos);
+        if (cpuNanos >= 0) {
+            cpuTime.recordNanos(cpuNanos);
+        } else {
+            cpuUnmeasured.increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(wallTime.snapshot(), cpuTime.snapshot(), cpuUnmeasured.sum());
+    }
+
+    /**
+     * @param cpuUnmeasured samples that only contributed to {@code wallTime}, e.g. from virtual threads
+     */
+    public record Snapshot(LatencyHistogram.Snapshot wallTime, LatencyHistogram.Snapshot cpuTime,
+                           long cpuUnmeasured) {
+    }
+}
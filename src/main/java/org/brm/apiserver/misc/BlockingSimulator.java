@@ -1,21 +1,39 @@
 package org.brm.apiserver.misc;
 
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.deadline.CancellationReason;
+import org.brm.apiserver.deadline.Deadline;
+import org.brm.apiserver.deadline.DeadlineExceededException;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.jfr.BlockingModeEvent;
+import org.brm.apiserver.jfr.BlockingOperationEvent;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.net.BackendClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class BlockingSimulator {
@@ -25,6 +43,8 @@ public class BlockingSimulator {
 
     // Test data file management
     private static final String TEST_DATA_DIR = "testdata/blocking";
+    private static final String CORPUS_DIR = TEST_DATA_DIR + "/corpus";
+    private static final int CORPUS_WRITE_BYTES = 1024 * 1024;
     private static final Map<String, Integer> TEST_FILES = Map.of(
         "file_1kb.dat", 1 * 1024,
         "file_100kb.dat", 100 * 1024,
@@ -33,7 +53,7 @@ public class BlockingSimulator {
     );
 
     public enum OperationType {
-        SLEEP, FILE_IO, NETWORK_IO, MIXED
+        SLEEP, FILE_IO, NETWORK_IO, MIXED, CPU_BOUND, ALLOCATION_HEAVY
     }
 
     @Value("${brm.blocking.operation-type:sleep}")
@@ -45,10 +65,122 @@ public class BlockingSimulator {
     @Value("${brm.blocking.max-block-period-ms:5000}")
     private int maxBlockPeriodMs;
 
+    // relative share of each type picked by MIXED, e.g. SLEEP=2,CPU_BOUND=1
+    @Value("${brm.blocking.mixed-weights:" + MixedSelection.DEFAULT_WEIGHTS + "}")
+    private String mixedWeightsConfig;
+
+    // connect: timed-out connects to TEST-NET addresses, backend: real exchanges with the backend
+    @Value("${brm.blocking.network-io.mode:connect}")
+    private String networkIoMode = "connect";
+
+    @Value("${brm.blocking.network-io.round-trips:3}")
+    private int networkIoRoundTrips = 3;
+
+    // FILE_IO reads random blocks of a corpus this large instead of the four fixed files, 0 disables
+    @Value("${brm.blocking.file-io.corpus-size-mb:0}")
+    private long corpusSizeMb;
+
+    @Value("${brm.blocking.file-io.corpus-file-size-mb:256}")
+    private long corpusFileSizeMb;
+
+    @Value("${brm.blocking.file-io.read-size-kb:1024}")
+    private int corpusReadSizeKb;
+
+    // false reads back to back without sleeping out the planned duration, to measure raw throughput
+    @Value("${brm.blocking.file-io.pace:true}")
+    private boolean paceFileIo = true;
+
+    @Value("${brm.backend.request-bytes:4096}")
+    private int backendRequestBytes = 4096;
+
+    @Value("${brm.backend.response-bytes:65536}")
+    private int backendResponseBytes = 65536;
+
+    private final LatencyMetrics latencyMetrics;
+    private final BackendClient backendClient;
+    private final AccessLog accessLog;
+    private final FileReadEngine fileReadEngine;
+    private final SyntheticWork syntheticWork = new SyntheticWork();
+    private volatile MixedSelection mixedSelection;
+    private volatile boolean testDataReady;
+    private volatile boolean corpusReady;
+    private volatile List<Path> corpusFiles = List.of();
+
+    public BlockingSimulator(LatencyMetrics latencyMetrics, BackendClient backendClient, AccessLog accessLog,
+                             FileReadEngine fileReadEngine) {
+        this.latencyMetrics = latencyMetrics;
+        this.backendClient = backendClient;
+        this.accessLog = accessLog;
+        this.fileReadEngine = fileReadEngine;
+    }
+
+    /**
+     * NETWORK_IO mode, connect or backend, for use outside Spring such as benchmarks
+     */
+    public void setNetworkIoMode(String networkIoMode) {
+        this.networkIoMode = networkIoMode;
+    }
+
+    /**
+     * Calibrate CPU_BOUND and ALLOCATION_HEAVY once the application is up, while it is still idle,
+     * otherwise the first such request does it
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void calibrateSyntheticWork() {
+        syntheticWork.calibrate();
+    }
+
     /**
-     * Initialize test data files on first use
+     * Create the test data files and the FILE_IO corpus in the background once the application is up,
+     * after calibration so both do not compete for the CPU. Writing a corpus larger than memory takes
+     * minutes; a platform thread does it so it does not hold a carrier of the request threads.
+     * FILE_IO requests are rejected with 503 until the corpus is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void prepareTestData() {
+        Thread.ofPlatform().daemon().name("file-io-test-data").start(() -> {
+            ensureTestDataFiles();
+            prepareCorpus();
+        });
+    }
+
+    /**
+     * True once FILE_IO has its data: always without a corpus, otherwise when the corpus is written
+     */
+    public boolean isCorpusReady() {
+        return corpusSizeMb <= 0 || corpusReady;
+    }
+
+    private void prepareCorpus() {
+        if (corpusSizeMb <= 0) {
+            return;
+        }
+        try {
+            corpusFiles = createCorpusFiles();
+            corpusReady = true;
+        } catch (IOException e) {
+            log.warn("Failed to create the FILE_IO corpus, FILE_IO requests will be rejected", e);
+        }
+    }
+
+    /**
+     * Initialize the fixed test data files on first use, unless startup already did; the corpus is
+     * never created here
      */
     private void ensureTestDataFiles() {
+        if (testDataReady) {
+            return;
+        }
+        synchronized (this) {
+            if (!testDataReady) {
+                createTestDataFiles();
+            }
+        }
+    }
+
+    private void createTestDataFiles() {
         try {
             // Create testdata/blocking directory
             Path testDataPath = Paths.get(TEST_DATA_DIR);
@@ -68,6 +200,7 @@ public class BlockingSimulator {
                     log.info("Created test data file: {} ({} bytes)", filename, size);
                 }
             }
+            testDataReady = true;
         } catch (IOException e) {
             log.warn("Failed to initialize test data files", e);
         }
@@ -91,6 +224,44 @@ public class BlockingSimulator {
         }
     }
 
+    /**
+     * Create the corpus files that are missing or too short. They are written with random data
+     * rather than preallocated, so that reading them hits the disk once evicted from the page cache
+     */
+    private List<Path> createCorpusFiles() throws IOException {
+        if (corpusSizeMb <= 0) {
+            return List.of();
+        }
+        long fileBytes = corpusFileSizeMb * 1024 * 1024;
+        long count = (corpusSizeMb + corpusFileSizeMb - 1) / corpusFileSizeMb;
+        Files.createDirectories(Paths.get(CORPUS_DIR));
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Path file = Paths.get(CORPUS_DIR, String.format("corpus_%04d.dat", i));
+            if (!Files.exists(file) || Files.size(file) < fileBytes) {
+                log.info("Creating corpus file {} of {} ({}MB)", i + 1, count, corpusFileSizeMb);
+                createCorpusFile(file, fileBytes);
+            }
+            files.add(file);
+        }
+        log.info("FILE_IO corpus ready: {} files, {}MB", count, count * corpusFileSizeMb);
+        return List.copyOf(files);
+    }
+
+    private static void createCorpusFile(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CORPUS_WRITE_BYTES);
+            for (long written = 0; written < size; ) {
+                RANDOM.nextBytes(buffer.array());
+                buffer.clear().limit((int) Math.min(buffer.capacity(), size - written));
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+        }
+    }
+
     /**
      * Select appropriate test file based on duration
      */
@@ -109,18 +280,17 @@ public class BlockingSimulator {
     }
 
     /**
-     * Read a test file completely with small buffer to force I/O syscalls
+     * Read a test file completely, or with a corpus a random block of a random corpus file
      */
-    private int readTestFile(File file) throws IOException {
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] buffer = new byte[4096]; // Small buffer for syscalls
-            int totalRead = 0;
-            int n;
-            while ((n = fis.read(buffer)) != -1) {
-                totalRead += n;
-            }
-            return totalRead;
+    private long readTestData(File testFile) throws IOException, InterruptedException {
+        List<Path> corpus = corpusFiles;
+        if (corpus.isEmpty()) {
+            return fileReadEngine.read(testFile.toPath(), 0, testFile.length());
         }
+        long readBytes = corpusReadSizeKb * 1024L;
+        long blocks = Math.max(1, corpusFileSizeMb * 1024 * 1024 / readBytes);
+        Path file = corpus.get(RANDOM.nextInt(corpus.size()));
+        return fileReadEngine.read(file, RANDOM.nextLong(blocks) * readBytes, readBytes);
     }
 
     public void performBlockingOperation() {
@@ -128,39 +298,98 @@ public class BlockingSimulator {
     }
 
     public void performBlockingOperation(String operationType, Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
-        OperationType resolvedOperationType = determineOperationType(operationType);
+        OperationType resolvedOperationType = resolveOperationType(operationType);
+        performBlockingOperation(resolvedOperationType, selectOperationType(resolvedOperationType),
+                minBlockPeriodMs, maxBlockPeriodMs);
+    }
+
+    /**
+     * Perform an operation whose type was already resolved and, for MIXED, selected up front,
+     * so that callers can apply admission control per performed type.
+     * <p>
+     * Every mode stops early once the {@link Deadline#current() current deadline} passes or the
+     * thread is interrupted; a passed deadline is reported as {@link DeadlineExceededException}.
+     * The operation and its blocking mode are recorded as {@link BlockingOperationEvent} and
+     * {@link BlockingModeEvent} when a JFR recording enables them.
+     * <p>
+     * FILE_IO is rejected before it starts while the corpus is not ready, like an operation
+     * refused by admission control, so there is no partial operation to record.
+     *
+     * @return the planned block period in milliseconds
+     * @throws CorpusNotReadyException if FILE_IO is performed before the corpus is ready
+     */
+    public int performBlockingOperation(OperationType resolvedOperationType, OperationType performedOperationType,
+                                        Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
+        if (performedOperationType == OperationType.FILE_IO && !isCorpusReady()) {
+            throw new CorpusNotReadyException();
+        }
         int resolvedMinMs = minBlockPeriodMs != null ? minBlockPeriodMs : this.minBlockPeriodMs;
         int resolvedMaxMs = maxBlockPeriodMs != null ? maxBlockPeriodMs : this.maxBlockPeriodMs;
         int durationMs = generateRandomDuration(resolvedMinMs, resolvedMaxMs);
+        BlockingOperationEvent event = new BlockingOperationEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
+        long startCpuNanos = LatencyMetrics.currentThreadCpuNanos();
         
         switch (resolvedOperationType) {
             case SLEEP:
-                log.info("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
+                log.debug("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
                         resolvedOperationType, durationMs, resolvedMinMs, resolvedMaxMs);
-                performSleepBlocking(durationMs);
+                performMode(OperationType.SLEEP, durationMs);
                 break;
             case FILE_IO:
-                log.info("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
+                log.debug("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
                         resolvedOperationType, durationMs, resolvedMinMs, resolvedMaxMs);
-                performFileIoBlocking(durationMs);
+                performMode(OperationType.FILE_IO, durationMs);
                 break;
             case NETWORK_IO:
-                log.info("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
+                log.debug("Performing blocking operation: {} for {}ms (min: {}, max: {})", 
+                        resolvedOperationType, durationMs, resolvedMinMs, resolvedMaxMs);
+                performMode(OperationType.NETWORK_IO, durationMs);
+                break;
+            case CPU_BOUND:
+            case ALLOCATION_HEAVY:
+                log.debug("Performing blocking operation: {} for {}ms (min: {}, max: {})",
                         resolvedOperationType, durationMs, resolvedMinMs, resolvedMaxMs);
-                performNetworkIoBlocking(durationMs);
+                performMode(resolvedOperationType, durationMs);
                 break;
             case MIXED:
-                performMixedBlocking(durationMs, resolvedMinMs, resolvedMaxMs);
+                performMixedBlocking(performedOperationType, durationMs, resolvedMinMs, resolvedMaxMs);
                 break;
             default:
                 log.warn("Unknown operation type: {}, defaulting to sleep", resolvedOperationType);
-                performSleepBlocking(durationMs);
+                performMode(OperationType.SLEEP, durationMs);
                 break;
         }
+
+        // MIXED is recorded both as itself and as the type it picked, to tell the modes apart
+        long wallNanos = System.nanoTime() - startNanos;
+        long cpuNanos = LatencyMetrics.cpuNanosSince(startCpuNanos);
+        latencyMetrics.recordOperation(performedOperationType, wallNanos, cpuNanos);
+        if (performedOperationType != resolvedOperationType) {
+            latencyMetrics.recordOperation(resolvedOperationType, wallNanos, cpuNanos);
+        }
+
+        Deadline deadline = Deadline.current();
+        boolean expired = deadline != null && deadline.isExpired();
+        boolean cancelled = expired || Thread.currentThread().isInterrupted();
+        event.complete(resolvedOperationType.name(), performedOperationType.name(), durationMs, cancelled);
+        accessLog.logOperation(resolvedOperationType, performedOperationType, durationMs, wallNanos, cpuNanos,
+                cancelled);
+        if (expired) {
+            latencyMetrics.recordCancellation(performedOperationType, CancellationReason.TIMEOUT);
+            log.debug("Blocking operation {} cancelled by its {}ms deadline after {}ms of {}ms",
+                    performedOperationType, deadline.getTimeoutMillis(), wallNanos / 1_000_000, durationMs);
+            throw new DeadlineExceededException(deadline, CancellationReason.TIMEOUT);
+        }
+        return durationMs;
     }
 
 
-    private OperationType determineOperationType(String operationType) {
+    /**
+     * Operation type for a request parameter, falling back to the configured type
+     */
+    public OperationType resolveOperationType(String operationType) {
         String typeToUse = operationType != null ? operationType : operationTypeConfig;
         try {
             return OperationType.valueOf(typeToUse.toUpperCase());
@@ -171,6 +400,13 @@ public class BlockingSimulator {
     }
 
 
+    /**
+     * True once the request deadline passed or the operation was cancelled by an interrupt
+     */
+    private static boolean isCancelled() {
+        return Deadline.isCurrentExpired() || Thread.currentThread().isInterrupted();
+    }
+
     private int generateRandomDuration(int minMs, int maxMs) {
         if (minMs >= maxMs) {
             return minMs;
@@ -178,19 +414,53 @@ public class BlockingSimulator {
         return RANDOM.nextInt(minMs, maxMs + 1);
     }
 
+    /**
+     * Perform one of the non-MIXED modes, recorded as a {@link BlockingModeEvent}
+     */
+    private void performMode(OperationType mode, int durationMs) {
+        BlockingModeEvent event = new BlockingModeEvent();
+        event.begin();
+        long bytesTransferred = 0;
+        try {
+            switch (mode) {
+                case FILE_IO -> bytesTransferred = performFileIoBlocking(durationMs);
+                case NETWORK_IO -> bytesTransferred = performNetworkIoBlocking(durationMs);
+                case CPU_BOUND -> bytesTransferred = syntheticWork.perform(SyntheticWork.Kind.CPU_BOUND,
+                        durationMs, BlockingSimulator::isCancelled);
+                case ALLOCATION_HEAVY -> bytesTransferred = syntheticWork.perform(SyntheticWork.Kind.ALLOCATION_HEAVY,
+                        durationMs, BlockingSimulator::isCancelled);
+                default -> performSleepBlocking(durationMs);
+            }
+        } finally {
+            event.complete(mode.name(), modeVariant(mode), durationMs, bytesTransferred, isCancelled());
+        }
+    }
+
+    private String modeVariant(OperationType mode) {
+        return switch (mode) {
+            case FILE_IO -> fileReadEngine.getEffectiveStrategy().name();
+            case NETWORK_IO -> networkIoMode;
+            default -> null;
+        };
+    }
+
     private void performSleepBlocking(int durationMs) {
         try {
-            Thread.sleep(durationMs);
+            Thread.sleep(Deadline.capToCurrent(durationMs));
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            log.warn("Sleep blocking was interrupted", e);
+            log.debug("Sleep blocking was interrupted");
         }
     }
 
-    private void performFileIoBlocking(int durationMs) {
+    /**
+     * @return bytes read from the test files
+     */
+    private long performFileIoBlocking(int durationMs) {
         // Initialize test data files on first use
         ensureTestDataFiles();
         
+        long totalBytesRead = 0;
         try {
             // Select appropriate test file based on duration
             File testFile = selectTestFile(durationMs);
@@ -213,22 +483,24 @@ public class BlockingSimulator {
             
             // Read the file multiple times to achieve desired duration
             long startTime = System.currentTimeMillis();
-            int totalBytesRead = 0;
             
             for (int i = 0; i < readIterations; i++) {
-                int bytesRead = readTestFile(testFile);
-                totalBytesRead += bytesRead;
+                if (isCancelled()) {
+                    log.debug("File I/O blocking cancelled after {} of {} iterations", i, readIterations);
+                    return totalBytesRead;
+                }
+                totalBytesRead += readTestData(testFile);
                 
                 // Add small delay between reads to simulate I/O processing time
                 // This ensures we achieve the desired blocking duration even with cached files
                 long elapsed = System.currentTimeMillis() - startTime;
                 long remainingTime = durationMs - elapsed;
                 
-                if (remainingTime > 0 && i < readIterations - 1) { // Don't delay after last iteration
+                if (paceFileIo && remainingTime > 0 && i < readIterations - 1) { // Don't delay after last iteration
                     // Distribute remaining time across remaining iterations
                     long delayPerIteration = remainingTime / (readIterations - i - 1);
                     if (delayPerIteration > 0) {
-                        Thread.sleep(delayPerIteration);
+                        Thread.sleep(Deadline.capToCurrent(delayPerIteration));
                     }
                 }
             }
@@ -236,16 +508,65 @@ public class BlockingSimulator {
             log.debug("File I/O blocking completed: {}ms, {} iterations, {} bytes read", 
                     durationMs, readIterations, totalBytesRead);
             
-        } catch (IOException | InterruptedException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("File I/O blocking was interrupted");
+        } catch (ClosedByInterruptException e) {
+            // the interrupt closed the channel, the interrupt status is still set
+            log.debug("File I/O blocking was interrupted");
+        } catch (IOException e) {
+            log.warn("File I/O blocking encountered an issue, falling back to sleep", e);
+            performSleepBlocking(durationMs);
+        }
+        return totalBytesRead;
+    }
+
+    /**
+     * @return bytes sent and received, 0 for connect attempts
+     */
+    private long performNetworkIoBlocking(int durationMs) {
+        if ("backend".equalsIgnoreCase(networkIoMode)) {
+            return performBackendExchanges(durationMs);
+        }
+        performConnectAttempts(durationMs);
+        return 0;
+    }
+
+    /**
+     * Serial exchanges over pooled backend connections, the backend spends the duration split
+     * evenly across the round trips, so the remaining time is spent moving the payloads
+     */
+    private long performBackendExchanges(int durationMs) {
+        int roundTrips = Math.max(1, networkIoRoundTrips);
+        int delayPerRoundTrip = durationMs / roundTrips;
+        long startTime = System.currentTimeMillis();
+        long totalBytes = 0;
+        try {
+            for (int i = 0; i < roundTrips; i++) {
+                if (isCancelled()) {
+                    log.debug("Network I/O blocking cancelled after {} of {} round trips", i, roundTrips);
+                    return totalBytes;
+                }
+                totalBytes += backendClient.exchange(backendRequestBytes, backendResponseBytes,
+                        (int) Deadline.capToCurrent(delayPerRoundTrip));
+            }
+            log.debug("Network I/O blocking completed: {}ms, {} round trips, {} bytes transferred",
+                    durationMs, roundTrips, totalBytes);
+        } catch (IOException | InterruptedException | TimeoutException e) {
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
+                return totalBytes;
+            }
+            log.warn("Network I/O against backend {} failed, falling back to sleep", backendClient.getAddress(), e);
+            long remainingTime = durationMs - (System.currentTimeMillis() - startTime);
+            if (remainingTime > 0) {
+                performSleepBlocking((int) remainingTime);
             }
-            log.warn("File I/O blocking encountered an issue, falling back to sleep", e);
-            performSleepBlocking(durationMs);
         }
+        return totalBytes;
     }
 
-    private void performNetworkIoBlocking(int durationMs) {
+    private void performConnectAttempts(int durationMs) {
         // Use non-routable TEST-NET IPs (RFC 5737) to create realistic network blocking
         // Split duration into thirds for multiple connection attempts
         
@@ -255,24 +576,33 @@ public class BlockingSimulator {
         }
         
         // Attempt 1: TCP connect to 192.0.2.1:80 (TEST-NET-1)
+        if (isCancelled()) {
+            return;
+        }
         try (Socket socket1 = new Socket()) {
-            socket1.connect(new InetSocketAddress("192.0.2.1", 80), timeoutPerAttempt);
+            socket1.connect(new InetSocketAddress("192.0.2.1", 80), attemptTimeout(timeoutPerAttempt));
             log.debug("Network I/O attempt 1 completed unexpectedly");
         } catch (IOException e) {
             log.debug("Network I/O attempt 1 completed: {} (expected)", e.getMessage());
         }
         
         // Attempt 2: TCP connect to 198.51.100.1:80 (TEST-NET-2)
+        if (isCancelled()) {
+            return;
+        }
         try (Socket socket2 = new Socket()) {
-            socket2.connect(new InetSocketAddress("198.51.100.1", 80), timeoutPerAttempt);
+            socket2.connect(new InetSocketAddress("198.51.100.1", 80), attemptTimeout(timeoutPerAttempt));
             log.debug("Network I/O attempt 2 completed unexpectedly");
         } catch (IOException e) {
             log.debug("Network I/O attempt 2 completed: {} (expected)", e.getMessage());
         }
         
         // Attempt 3: TCP connect to 203.0.113.1:53 (TEST-NET-3)
+        if (isCancelled()) {
+            return;
+        }
         try (Socket socket3 = new Socket()) {
-            socket3.connect(new InetSocketAddress("203.0.113.1", 53), timeoutPerAttempt);
+            socket3.connect(new InetSocketAddress("203.0.113.1", 53), attemptTimeout(timeoutPerAttempt));
             log.debug("Network I/O attempt 3 completed unexpectedly");
         } catch (IOException e) {
             log.debug("Network I/O attempt 3 completed: {} (expected)", e.getMessage());
@@ -281,32 +611,49 @@ public class BlockingSimulator {
         log.debug("Network I/O blocking completed: {}ms total duration", durationMs);
     }
 
-    private void performMixedBlocking(int durationMs, int minMs, int maxMs) {
-        // Randomly select one of the three operation types
-        OperationType[] types = {OperationType.SLEEP, OperationType.FILE_IO, OperationType.NETWORK_IO};
-        OperationType selectedType = types[RANDOM.nextInt(types.length)];
-        
-        log.info("Performing blocking operation: MIXED (selected: {}) for {}ms (min: {}, max: {})", 
+    /**
+     * Connect timeout capped to the deadline, at least 1ms since 0 means no timeout at all
+     */
+    private static int attemptTimeout(int timeoutPerAttempt) {
+        return (int) Math.max(1, Deadline.capToCurrent(timeoutPerAttempt));
+    }
+
+    /**
+     * The type actually performed: MIXED randomly selects one of the other types, weighted by
+     * brm.blocking.mixed-weights
+     */
+    public OperationType selectOperationType(OperationType resolvedOperationType) {
+        if (resolvedOperationType != OperationType.MIXED) {
+            return resolvedOperationType;
+        }
+        MixedSelection selection = mixedSelection;
+        if (selection == null) {
+            selection = MixedSelection.parse(mixedWeightsConfig != null ? mixedWeightsConfig : MixedSelection.DEFAULT_WEIGHTS);
+            mixedSelection = selection;
+        }
+        return selection.select(RANDOM.nextInt(selection.totalWeight()));
+    }
+
+    private void performMixedBlocking(OperationType selectedType, int durationMs, int minMs, int maxMs) {
+        log.debug("Performing blocking operation: MIXED (selected: {}) for {}ms (min: {}, max: {})", 
                 selectedType, durationMs, minMs, maxMs);
         
         switch (selectedType) {
             case SLEEP:
-                performSleepBlocking(durationMs);
-                break;
             case FILE_IO:
-                performFileIoBlocking(durationMs);
-                break;
             case NETWORK_IO:
-                performNetworkIoBlocking(durationMs);
+            case CPU_BOUND:
+            case ALLOCATION_HEAVY:
+                performMode(selectedType, durationMs);
                 break;
             case MIXED:
                 // This shouldn't happen in mixed mode, but handle it gracefully
                 log.warn("MIXED operation selected within mixed mode, defaulting to sleep");
-                performSleepBlocking(durationMs);
+                performMode(OperationType.SLEEP, durationMs);
                 break;
             default:
                 log.warn("Unknown operation type in mixed mode: {}, defaulting to sleep", selectedType);
-                performSleepBlocking(durationMs);
+                performMode(OperationType.SLEEP, durationMs);
                 break;
         }
     }
@@ -0,0 +1,12 @@
+package org.brm.apiserver.misc;
+
+/**
+ * A FILE_IO operation was rejected because the FILE_IO corpus is still being created, or could
+ * not be created. Reading the fixed files instead would silently measure a different workload.
+ */
+public class CorpusNotReadyException extends IllegalStateException {
+
+    public CorpusNotReadyException() {
+        super("The FILE_IO corpus is still being created");
+    }
+}
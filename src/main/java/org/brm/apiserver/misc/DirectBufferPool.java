@@ -0,0 +1,81 @@
+package org.brm.apiserver.misc;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounded pool of equally sized direct buffers.
+ * Buffers are allocated lazily up to the pool capacity. When all of them are in use,
+ * {@link #acquire()} parks the caller, which is cheap on virtual threads and keeps
+ * direct memory within -XX:MaxDirectMemorySize under load. Buffers can be aligned in memory,
+ * as O_DIRECT reads require.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int alignment;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final Semaphore permits;
+
+    public DirectBufferPool(int bufferSize, int capacity) {
+        this(bufferSize, capacity, 1);
+    }
+
+    /**
+     * @param alignment power of two the address of every buffer is a multiple of
+     */
+    public DirectBufferPool(int bufferSize, int capacity, int alignment) {
+        this.bufferSize = bufferSize;
+        this.alignment = alignment;
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.permits = new Semaphore(capacity);
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Take a cleared buffer from the pool, waiting until one is available
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        permits.acquire();
+        return take();
+    }
+
+    /**
+     * Take several cleared buffers in one step, waiting until all of them are available.
+     * Callers that need more than one buffer at a time must use this instead of repeated
+     * {@link #acquire()} calls: holding one buffer while waiting for the next deadlocks
+     * once every buffer is held by such a caller.
+     */
+    public ByteBuffer[] acquire(int count) throws InterruptedException {
+        permits.acquire(count);
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            buffers[i] = take();
+        }
+        return buffers;
+    }
+
+    private ByteBuffer take() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            buffer = alignment > 1
+                    ? ByteBuffer.allocateDirect(bufferSize + alignment).alignedSlice(alignment).slice(0, bufferSize)
+                    : ByteBuffer.allocateDirect(bufferSize);
+        }
+        return buffer.clear();
+    }
+
+    /**
+     * Return a buffer obtained from {@link #acquire()} or {@link #acquire(int)}
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            free.offer(buffer);
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.brm.apiserver.misc;
+
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Operation types MIXED picks from, with cumulative weights, parsed from brm.blocking.mixed-weights
+ * such as {@code SLEEP=2,CPU_BOUND=1}. Shared by the servlet and the reactive stack so both pick
+ * the same mix. Immutable, and equal to another selection with the same types and weights.
+ */
+public final class MixedSelection {
+
+    private static final Logger log = LoggerFactory.getLogger(MixedSelection.class);
+
+    public static final String DEFAULT_WEIGHTS = "SLEEP=1,FILE_IO=1,NETWORK_IO=1";
+
+    private final OperationType[] types;
+    private final int[] cumulativeWeights;
+    private final int totalWeight;
+
+    private MixedSelection(OperationType[] types, int[] cumulativeWeights, int totalWeight) {
+        this.types = types;
+        this.cumulativeWeights = cumulativeWeights;
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * Invalid entries are logged and ignored, the default weights apply if none is left
+     */
+    public static MixedSelection parse(String spec) {
+        List<OperationType> types = new ArrayList<>();
+        List<Integer> cumulative = new ArrayList<>();
+        int total = 0;
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split("=");
+            try {
+                OperationType type = OperationType.valueOf(parts[0].trim().toUpperCase());
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+                if (type == OperationType.MIXED || weight < 0) {
+                    throw new IllegalArgumentException(entry);
+                }
+                if (weight > 0) {
+                    total += weight;
+                    types.add(type);
+                    cumulative.add(total);
+                }
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring invalid MIXED weight '{}' in '{}'", entry.trim(), spec);
+            }
+        }
+        if (total == 0) {
+            log.warn("No positive MIXED weights in '{}', using {}", spec, DEFAULT_WEIGHTS);
+            return parse(DEFAULT_WEIGHTS);
+        }
+        return new MixedSelection(types.toArray(OperationType[]::new),
+                cumulative.stream().mapToInt(Integer::intValue).toArray(), total);
+    }
+
+    /**
+     * Types with a positive weight, in the order they were given
+     */
+    public OperationType[] types() {
+        return types.clone();
+    }
+
+    public int totalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * A type at random, in proportion to its weight
+     */
+    public OperationType select() {
+        return select(ThreadLocalRandom.current().nextInt(totalWeight));
+    }
+
+    /**
+     * @param value in [0, totalWeight)
+     */
+    public OperationType select(int value) {
+        for (int i = 0; i < types.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MixedSelection other && totalWeight == other.totalWeight
+                && Arrays.equals(types, other.types) && Arrays.equals(cumulativeWeights, other.cumulativeWeights);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(types) + Arrays.hashCode(cumulativeWeights);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder weights = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            weights.append(i == 0 ? "" : ",").append(types[i])
+                    .append('=').append(cumulativeWeights[i] - (i == 0 ? 0 : cumulativeWeights[i - 1]));
+        }
+        return "MixedSelection[" + weights + "]";
+    }
+}
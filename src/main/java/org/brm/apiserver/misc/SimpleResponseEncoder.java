@@ -0,0 +1,182 @@
+package org.brm.apiserver.misc;
+
+import org.brm.apiserver.model.SimpleResponseSnapshot;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a {@link SimpleResponseSnapshot} as a JSON document equivalent to the one Jackson
+ * produces for a {@link org.brm.apiserver.model.SimpleResponse}, without reflection and without
+ * allocating. The properties and values are the same, not the bytes: properties are written in
+ * declaration order while Jackson sorts them alphabetically, and control characters are escaped
+ * with lower case hex digits.
+ * <p>
+ * One encoder exists per endpoint path: the constant part of the document (host and path)
+ * is encoded to UTF-8 once, the variable fields are formatted straight into the caller's buffer.
+ * The thread is described like {@link Thread#toString()}, except that a virtual thread's
+ * carrier is not included since it is not observable from the virtual thread.
+ */
+public final class SimpleResponseEncoder {
+
+    private static final byte[] TIME_TO_RANDOM = ascii("\",\"randomInteger\":");
+    private static final byte[] RANDOM_TO_THREAD = ascii(",\"threadID\":\"");
+    private static final byte[] DOCUMENT_END = ascii("\"}");
+    private static final byte[] VIRTUAL_THREAD_START = ascii("VirtualThread[#");
+    private static final byte[] VIRTUAL_THREAD_END = ascii("]/runnable");
+    private static final byte[] PLATFORM_THREAD_START = ascii("Thread[#");
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+    // long digits, int digits and the fixed thread decoration
+    private static final int VARIABLE_FIELDS_MAX_BYTES = 20 + 11 + 64;
+    // worst case for a UTF-16 char: JSON escape "\\u00XX"
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    private final String pathString;
+    private final byte[] prefix;
+
+    public SimpleResponseEncoder(String hostString, String pathString) {
+        this.pathString = pathString;
+        this.prefix = ("{\"hostString\":" + jsonString(hostString)
+                + ",\"pathString\":" + jsonString(pathString)
+                + ",\"timeString\":\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String getPathString() {
+        return pathString;
+    }
+
+    /**
+     * Upper bound of the encoded size of a snapshot taken on the given thread
+     */
+    public int maxEncodedLength(Thread thread) {
+        int variableChars = thread.getName().length();
+        if (!thread.isVirtual()) {
+            variableChars += threadGroupName(thread).length();
+        }
+        return prefix.length + TIME_TO_RANDOM.length + RANDOM_TO_THREAD.length + DOCUMENT_END.length
+                + VARIABLE_FIELDS_MAX_BYTES + variableChars * MAX_BYTES_PER_CHAR;
+    }
+
+    /**
+     * Encode a snapshot into {@code dst}, which must hold {@link #maxEncodedLength(Thread)} bytes
+     *
+     * @return number of bytes written
+     */
+    public int encode(SimpleResponseSnapshot snapshot, byte[] dst) {
+        int position = put(dst, 0, prefix);
+        position = putLong(dst, position, snapshot.timeMillis());
+        position = put(dst, position, TIME_TO_RANDOM);
+        position = putLong(dst, position, snapshot.randomInteger());
+        position = put(dst, position, RANDOM_TO_THREAD);
+        position = putThread(dst, position, snapshot.thread());
+        return put(dst, position, DOCUMENT_END);
+    }
+
+    private static int putThread(byte[] dst, int position, Thread thread) {
+        String name = thread.getName();
+        if (thread.isVirtual()) {
+            position = put(dst, position, VIRTUAL_THREAD_START);
+            position = putLong(dst, position, thread.threadId());
+            if (!name.isEmpty()) {
+                dst[position++] = ',';
+                position = putEscaped(dst, position, name);
+            }
+            return put(dst, position, VIRTUAL_THREAD_END);
+        }
+        position = put(dst, position, PLATFORM_THREAD_START);
+        position = putLong(dst, position, thread.threadId());
+        dst[position++] = ',';
+        position = putEscaped(dst, position, name);
+        dst[position++] = ',';
+        position = putLong(dst, position, thread.getPriority());
+        dst[position++] = ',';
+        position = putEscaped(dst, position, threadGroupName(thread));
+        dst[position++] = ']';
+        return position;
+    }
+
+    private static String threadGroupName(Thread thread) {
+        ThreadGroup group = thread.getThreadGroup();
+        return group != null ? group.getName() : "";
+    }
+
+    private static int put(byte[] dst, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, dst, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    /**
+     * Decimal form of a value, written back to front like {@link Long#toString(long)}
+     */
+    private static int putLong(byte[] dst, int position, long value) {
+        if (value == Long.MIN_VALUE) {
+            return put(dst, position, ascii(Long.toString(value)));
+        }
+        if (value < 0) {
+            dst[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            dst[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * UTF-8 encode a string with JSON string escaping
+     */
+    private static int putEscaped(byte[] dst, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                dst[position++] = '\\';
+                dst[position++] = (byte) c;
+            } else if (c < 0x20) {
+                dst[position++] = '\\';
+                dst[position++] = 'u';
+                dst[position++] = '0';
+                dst[position++] = '0';
+                dst[position++] = HEX_DIGITS[c >> 4];
+                dst[position++] = HEX_DIGITS[c & 0xf];
+            } else if (c < 0x80) {
+                dst[position++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[position++] = (byte) (0xc0 | c >> 6);
+                dst[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                dst[position++] = (byte) (0xf0 | codePoint >> 18);
+                dst[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                dst[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                dst[position++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                dst[position++] = '?';
+            } else {
+                dst[position++] = (byte) (0xe0 | c >> 12);
+                dst[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                dst[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        return position;
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        byte[] buffer = new byte[value.length() * MAX_BYTES_PER_CHAR];
+        int length = putEscaped(buffer, 0, value);
+        return "\"" + new String(buffer, 0, length, StandardCharsets.UTF_8) + "\"";
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
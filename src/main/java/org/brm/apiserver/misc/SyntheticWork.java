@@ -0,0 +1,160 @@
+package org.brm.apiserver.misc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Calibrated CPU-bound and allocation-heavy work for {@link BlockingSimulator}.
+ * <p>
+ * Work is done in small units whose rate is measured once, so that a block period keeps meaning
+ * wall time: a period of n milliseconds runs the number of units an idle core completes in n
+ * milliseconds. Under load the same work takes longer, and that stretch is what these modes are
+ * meant to show. Neither mode yields its carrier thread while running.
+ */
+public final class SyntheticWork {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticWork.class);
+
+    public enum Kind {
+        /** SHA-256 over test data, as in checksum verification */
+        CPU_BOUND,
+        /** Short- and mid-lived arrays, as in parsing and decoding */
+        ALLOCATION_HEAVY
+    }
+
+    private static final int DATA_BYTES = 64 * 1024;
+    private static final int HASH_UNIT_BYTES = 4 * 1024;
+    private static final int ALLOCATION_UNIT_ARRAYS = 8;
+    private static final int ALLOCATION_ARRAY_LONGS = 128;
+    // arrays stay reachable for this many units, so not all of them die young
+    private static final int RETAINED_ARRAYS = 1024;
+    private static final long CALIBRATION_WARMUP_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long CALIBRATION_ROUND_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final int CALIBRATION_ROUNDS = 6;
+    // cancellation is checked about once per millisecond of work
+    private static final double CHECK_INTERVAL_MS = 1.0;
+
+    private final byte[] data = new byte[DATA_BYTES];
+    private final double[] unitsPerMs = new double[Kind.values().length];
+    private volatile boolean calibrated;
+    private volatile long sink;
+
+    public SyntheticWork() {
+        ThreadLocalRandom.current().nextBytes(data);
+    }
+
+    /**
+     * Measure the units per millisecond of each kind on the calling thread, once. The best of
+     * several rounds counts, earlier rounds may still run code that is not fully compiled.
+     */
+    public synchronized void calibrate() {
+        if (calibrated) {
+            return;
+        }
+        for (Kind kind : Kind.values()) {
+            WorkState state = new WorkState();
+            runFor(kind, state, CALIBRATION_WARMUP_NANOS);
+            long bestUnits = 0;
+            for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+                bestUnits = Math.max(bestUnits, runFor(kind, state, CALIBRATION_ROUND_NANOS));
+            }
+            unitsPerMs[kind.ordinal()] = Math.max(1.0, bestUnits / (CALIBRATION_ROUND_NANOS / 1_000_000.0));
+            log.info("Calibrated {}: {} units per ms", kind, String.format("%.1f", unitsPerMs[kind.ordinal()]));
+        }
+        calibrated = true;
+    }
+
+    public double getUnitsPerMs(Kind kind) {
+        if (!calibrated) {
+            calibrate();
+        }
+        return unitsPerMs[kind.ordinal()];
+    }
+
+    /**
+     * Run {@code durationMs} worth of calibrated work, stopping early once {@code cancelled} is true
+     *
+     * @return bytes hashed or allocated
+     */
+    public long perform(Kind kind, int durationMs, BooleanSupplier cancelled) {
+        double rate = getUnitsPerMs(kind);
+        long units = Math.round(durationMs * rate);
+        long checkInterval = Math.max(1, Math.round(CHECK_INTERVAL_MS * rate));
+        WorkState state = new WorkState();
+        long done = 0;
+        while (done < units) {
+            if (cancelled.getAsBoolean()) {
+                break;
+            }
+            long batch = Math.min(checkInterval, units - done);
+            for (long i = 0; i < batch; i++) {
+                runUnit(kind, state);
+            }
+            done += batch;
+        }
+        sink = state.checksum;
+        return done * bytesPerUnit(kind);
+    }
+
+    private long runFor(Kind kind, WorkState state, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long units = 0;
+        do {
+            for (int i = 0; i < 16; i++) {
+                runUnit(kind, state);
+            }
+            units += 16;
+        } while (System.nanoTime() - deadline < 0);
+        sink = state.checksum;
+        return units;
+    }
+
+    private void runUnit(Kind kind, WorkState state) {
+        if (kind == Kind.CPU_BOUND) {
+            state.digest.update(data, state.offset, HASH_UNIT_BYTES);
+            state.offset = (state.offset + HASH_UNIT_BYTES) % DATA_BYTES;
+            if (state.offset == 0) {
+                state.checksum += state.digest.digest()[0];
+            }
+        } else {
+            for (int i = 0; i < ALLOCATION_UNIT_ARRAYS; i++) {
+                long[] array = new long[ALLOCATION_ARRAY_LONGS];
+                array[0] = state.checksum;
+                state.retained[state.next] = array;
+                state.next = (state.next + 1) % RETAINED_ARRAYS;
+                state.checksum += state.retained[state.next] == null ? 1 : state.retained[state.next][0];
+            }
+        }
+    }
+
+    private static long bytesPerUnit(Kind kind) {
+        return kind == Kind.CPU_BOUND
+                ? HASH_UNIT_BYTES
+                : (long) ALLOCATION_UNIT_ARRAYS * ALLOCATION_ARRAY_LONGS * Long.BYTES;
+    }
+
+    /**
+     * Per-operation state, nothing is shared between concurrent operations
+     */
+    private static final class WorkState {
+        private final MessageDigest digest;
+        private final long[][] retained = new long[RETAINED_ARRAYS][];
+        private int offset;
+        private int next;
+        private long checksum;
+
+        private WorkState() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is required on every JVM", e);
+            }
+        }
+    }
+}
@@ -4,8 +4,10 @@ package org.brm.apiserver.misc;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.brm.apiserver.model.SimpleResponse;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
 
 public class Utils {
 
@@ -58,4 +60,17 @@ public class Utils {
         );
     }
 
+    /**
+     * Allocation-light variant of {@link #newSimpleResponse(String)}: keeps the raw values,
+     * formatting happens while writing the response.
+     */
+    public static SimpleResponseSnapshot newSimpleResponseSnapshot(String path) {
+        return new SimpleResponseSnapshot(
+                path,
+                System.currentTimeMillis(),
+                ThreadLocalRandom.current().nextInt(),
+                Thread.currentThread()
+        );
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package org.brm.apiserver.model;
+
+/**
+ * An artifact as held by the artifact index, timestamps in epoch millis
+ *
+ * @param classifier empty for the main artifact
+ * @param lsn        log sequence number of the mutation that was just committed, 0 on reads
+ */
+public record ArtifactEntry(String group, String name, String version, String classifier, String sha256,
+                            long size, long createdAtMs, long modifiedAtMs, boolean promoted, long lsn) {
+}
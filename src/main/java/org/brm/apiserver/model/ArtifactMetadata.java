@@ -0,0 +1,10 @@
+package org.brm.apiserver.model;
+
+import java.util.List;
+
+/**
+ * Versions of an artifact as served by {@code GET /rest/metadata/{coordinates}}, oldest first.
+ * {@code fetchedAtMs} is when the backend produced it, so the age of a cached copy shows.
+ */
+public record ArtifactMetadata(String coordinates, String latestVersion, List<String> versions, long fetchedAtMs) {
+}
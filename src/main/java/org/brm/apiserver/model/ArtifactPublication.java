@@ -0,0 +1,10 @@
+package org.brm.apiserver.model;
+
+/**
+ * Body of {@code PUT /rest/artifacts/{group}/{name}/{version}}: the artifact's content, usually
+ * a blob uploaded before, by digest
+ *
+ * @param sha256 hex digest, with or without "sha256:" prefix
+ */
+public record ArtifactPublication(String sha256, long size) {
+}
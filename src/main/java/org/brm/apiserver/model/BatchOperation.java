@@ -0,0 +1,8 @@
+package org.brm.apiserver.model;
+
+/**
+ * One entry of a {@code POST /rest/batch} request, with the same meaning and defaults as the
+ * query parameters of {@code /rest/blocking}
+ */
+public record BatchOperation(String operationType, Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
+}
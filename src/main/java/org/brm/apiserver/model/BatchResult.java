@@ -0,0 +1,17 @@
+package org.brm.apiserver.model;
+
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+
+/**
+ * One NDJSON line of a {@code POST /rest/batch} response, written when the operation finished.
+ * {@code index} refers to the position in the request, {@code completedAtMs} is measured from
+ * the start of the batch; {@code response} is only present for {@link Status#OK}.
+ */
+public record BatchResult(int index, OperationType operationType, OperationType performedOperationType,
+                          Status status, int plannedMs, double durationMs, double completedAtMs,
+                          SimpleResponse response) {
+
+    public enum Status {
+        OK, REJECTED, TIMEOUT, CANCELLED, FAILED
+    }
+}
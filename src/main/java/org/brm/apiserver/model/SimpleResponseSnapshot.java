@@ -0,0 +1,10 @@
+package org.brm.apiserver.model;
+
+/**
+ * Immutable, unformatted form of a {@link SimpleResponse}.
+ * Holds the raw values instead of their string forms, so building one does not allocate
+ * strings or boxes. It is written as an equivalent JSON document by
+ * {@link org.brm.apiserver.misc.SimpleResponseEncoder}.
+ */
+public record SimpleResponseSnapshot(String pathString, long timeMillis, int randomInteger, Thread thread) {
+}
@@ -0,0 +1,219 @@
+package org.brm.apiserver.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pooled {@link AsynchronousSocketChannel} client for {@link BackendProtocol} backends.
+ * <p>
+ * Callers block on the channel futures, which only parks them when they are virtual threads.
+ * Idle connections are reused most-recently-used first, each with its own direct buffer, and the
+ * number of open connections is capped, so excess callers wait for a connection instead of
+ * opening more. A connection that failed or timed out is closed rather than returned to the pool.
+ */
+public class BackendClient implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(BackendClient.class);
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final InetSocketAddress address;
+    private final long timeoutNanos;
+    private final Semaphore connectionPermits;
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private final LongAdder exchanges = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsReused = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+
+    public BackendClient(InetSocketAddress address, int maxConnections, Duration timeout) {
+        this.address = address;
+        this.timeoutNanos = timeout.toNanos();
+        this.connectionPermits = new Semaphore(maxConnections);
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Send {@code requestBytes} to the backend and receive {@code responseBytes}, after the
+     * backend waited {@code delayMs}. The timeout covers the delay plus the configured timeout.
+     *
+     * @return total bytes moved over the wire, headers included
+     */
+    public long exchange(int requestBytes, int responseBytes, int delayMs)
+            throws IOException, InterruptedException, TimeoutException {
+        long deadlineNanos = System.nanoTime() + timeoutNanos + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        if (!connectionPermits.tryAcquire(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS)) {
+            failures.increment();
+            throw new TimeoutException("No backend connection available within the timeout");
+        }
+
+        Connection connection = null;
+        boolean reusable = false;
+        try {
+            connection = idleConnections.pollFirst();
+            if (connection != null) {
+                connectionsReused.increment();
+            } else {
+                connection = connect(deadlineNanos);
+            }
+            long moved = connection.exchange(requestBytes, responseBytes, delayMs, deadlineNanos);
+            reusable = true;
+            exchanges.increment();
+            bytesSent.add(BackendProtocol.REQUEST_HEADER_BYTES + requestBytes);
+            bytesReceived.add(BackendProtocol.RESPONSE_HEADER_BYTES + responseBytes);
+            return moved;
+        } catch (IOException | InterruptedException | TimeoutException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            if (connection != null) {
+                if (reusable && !closed) {
+                    idleConnections.offerFirst(connection);
+                } else {
+                    connection.close();
+                }
+            }
+            connectionPermits.release();
+        }
+    }
+
+    private Connection connect(long deadlineNanos) throws IOException, InterruptedException, TimeoutException {
+        AsynchronousSocketChannel channel = AsynchronousSocketChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            await(channel.connect(address), deadlineNanos);
+        } catch (IOException | InterruptedException | TimeoutException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        connectionsOpened.increment();
+        log.debug("Opened backend connection to {}", address);
+        return new Connection(channel);
+    }
+
+    public Statistics statistics() {
+        return new Statistics(address.toString(), exchanges.sum(), failures.sum(),
+                connectionsOpened.sum(), connectionsReused.sum(), idleConnections.size(),
+                bytesSent.sum(), bytesReceived.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    private static long remainingNanos(long deadlineNanos) {
+        return Math.max(0, deadlineNanos - System.nanoTime());
+    }
+
+    private static <T> T await(Future<T> future, long deadlineNanos)
+            throws IOException, InterruptedException, TimeoutException {
+        try {
+            return future.get(remainingNanos(deadlineNanos), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Backend I/O failed", e.getCause());
+        }
+    }
+
+    /**
+     * One pooled connection with its own direct buffer
+     */
+    private static final class Connection {
+
+        private final AsynchronousSocketChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        Connection(AsynchronousSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        long exchange(int requestBytes, int responseBytes, int delayMs, long deadlineNanos)
+                throws IOException, InterruptedException, TimeoutException {
+            // header and payload go out in buffer-sized writes, the payload content is irrelevant
+            buffer.clear();
+            buffer.putInt(requestBytes).putInt(responseBytes).putInt(delayMs);
+            int remaining = requestBytes;
+            while (true) {
+                int fill = Math.min(remaining, buffer.remaining());
+                buffer.position(buffer.position() + fill);
+                remaining -= fill;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    await(channel.write(buffer), deadlineNanos);
+                }
+                buffer.clear();
+                if (remaining == 0) {
+                    break;
+                }
+            }
+
+            buffer.limit(BackendProtocol.RESPONSE_HEADER_BYTES);
+            readFully(deadlineNanos);
+            int announced = buffer.getInt(0);
+            if (announced != responseBytes) {
+                throw new IOException("Backend announced " + announced + " bytes, expected " + responseBytes);
+            }
+            remaining = announced;
+            while (remaining > 0) {
+                buffer.clear().limit(Math.min(remaining, buffer.capacity()));
+                remaining -= readFully(deadlineNanos);
+            }
+            return BackendProtocol.REQUEST_HEADER_BYTES + requestBytes
+                    + BackendProtocol.RESPONSE_HEADER_BYTES + responseBytes;
+        }
+
+        private int readFully(long deadlineNanos) throws IOException, InterruptedException, TimeoutException {
+            int total = 0;
+            while (buffer.hasRemaining()) {
+                int n = await(channel.read(buffer), deadlineNanos);
+                if (n < 0) {
+                    throw new EOFException("Backend closed the connection");
+                }
+                total += n;
+            }
+            return total;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Closing backend connection failed", e);
+            }
+        }
+    }
+
+    public record Statistics(String address, long exchanges, long failures, long connectionsOpened,
+                             long connectionsReused, int idleConnections, long bytesSent, long bytesReceived) {
+    }
+}
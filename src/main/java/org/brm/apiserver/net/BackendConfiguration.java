@@ -0,0 +1,41 @@
+package org.brm.apiserver.net;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class BackendConfiguration {
+
+    /**
+     * Embedded stand-in backend, port 0 picks a free ephemeral port
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "brm.backend.embedded", havingValue = "true", matchIfMissing = true)
+    public EchoBackendServer echoBackendServer(
+            @Value("${brm.backend.host:127.0.0.1}") String host,
+            @Value("${brm.backend.port:0}") int port) throws IOException {
+        return new EchoBackendServer(new InetSocketAddress(host, port));
+    }
+
+    /**
+     * Client for the embedded backend when it runs, otherwise for the configured host and port
+     */
+    @Bean(destroyMethod = "close")
+    public BackendClient backendClient(
+            ObjectProvider<EchoBackendServer> embeddedBackend,
+            @Value("${brm.backend.host:127.0.0.1}") String host,
+            @Value("${brm.backend.port:0}") int port,
+            @Value("${brm.backend.max-connections:64}") int maxConnections,
+            @Value("${brm.backend.timeout-ms:5000}") long timeoutMs) throws IOException {
+        EchoBackendServer server = embeddedBackend.getIfAvailable();
+        InetSocketAddress address = server != null ? server.getAddress() : new InetSocketAddress(host, port);
+        return new BackendClient(address, maxConnections, Duration.ofMillis(timeoutMs));
+    }
+}
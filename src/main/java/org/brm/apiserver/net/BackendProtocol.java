@@ -0,0 +1,21 @@
+package org.brm.apiserver.net;
+
+/**
+ * Wire format between {@link BackendClient} and {@link EchoBackendServer}.
+ * <pre>
+ * request:  int requestPayloadBytes, int responsePayloadBytes, int delayMs, payload
+ * response: int responsePayloadBytes, payload
+ * </pre>
+ * All integers are big-endian. Connections are kept open for further exchanges.
+ */
+final class BackendProtocol {
+
+    static final int REQUEST_HEADER_BYTES = 12;
+    static final int RESPONSE_HEADER_BYTES = 4;
+
+    // upper bound for a single payload, guards against garbage on the wire
+    static final int MAX_PAYLOAD_BYTES = 64 * 1024 * 1024;
+
+    private BackendProtocol() {
+    }
+}
@@ -0,0 +1,138 @@
+package org.brm.apiserver.net;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for a storage or metadata backend, so NETWORK_IO can move real data offline.
+ * <p>
+ * Serves {@link BackendProtocol} on loopback: it reads and discards the request payload, waits for
+ * the requested delay and answers with the requested number of bytes. Each connection is handled
+ * by its own virtual thread; responses are written from one shared, read-only direct buffer.
+ */
+public class EchoBackendServer implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(EchoBackendServer.class);
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ByteBuffer responsePayload = ByteBuffer.allocateDirect(BUFFER_BYTES).asReadOnlyBuffer();
+
+    public EchoBackendServer(InetSocketAddress bindAddress) throws IOException {
+        this.serverChannel = ServerSocketChannel.open().bind(bindAddress);
+        executor.submit(this::acceptLoop);
+        log.info("Echo backend listening on {}", getAddress());
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    private void acceptLoop() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                executor.submit(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Echo backend accept failed", e);
+            }
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        ByteBuffer header = ByteBuffer.allocateDirect(BackendProtocol.REQUEST_HEADER_BYTES);
+        ByteBuffer discard = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        try (channel) {
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header)) {
+                    return;
+                }
+                int requestBytes = header.getInt(0);
+                int responseBytes = header.getInt(4);
+                int delayMs = header.getInt(8);
+                if (requestBytes < 0 || requestBytes > BackendProtocol.MAX_PAYLOAD_BYTES
+                        || responseBytes < 0 || responseBytes > BackendProtocol.MAX_PAYLOAD_BYTES || delayMs < 0) {
+                    log.warn("Echo backend received a malformed request, closing connection");
+                    return;
+                }
+
+                skipFully(channel, discard, requestBytes);
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+                writeResponse(channel, header, responseBytes);
+            }
+        } catch (EOFException | ClosedChannelException e) {
+            log.debug("Echo backend connection closed mid-request");
+        } catch (IOException e) {
+            log.debug("Echo backend connection failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeResponse(SocketChannel channel, ByteBuffer header, int responseBytes) throws IOException {
+        header.clear().putInt(responseBytes).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        int remaining = responseBytes;
+        while (remaining > 0) {
+            ByteBuffer chunk = responsePayload.duplicate().limit(Math.min(remaining, BUFFER_BYTES));
+            while (chunk.hasRemaining()) {
+                remaining -= channel.write(chunk);
+            }
+        }
+    }
+
+    /**
+     * @return false on a clean end of stream before the first byte
+     */
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+        }
+        return true;
+    }
+
+    private static void skipFully(SocketChannel channel, ByteBuffer discard, int bytes) throws IOException {
+        int remaining = bytes;
+        while (remaining > 0) {
+            discard.clear().limit(Math.min(remaining, discard.capacity()));
+            int n = channel.read(discard);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            remaining -= n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,257 @@
+package org.brm.apiserver.reactive;
+
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.misc.MixedSelection;
+import org.brm.apiserver.misc.SyntheticWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.Channel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Non-blocking equivalents of the {@link BlockingSimulator} modes: no thread waits while an
+ * operation is in progress.
+ * <ul>
+ *   <li>SLEEP - a timer ({@link Mono#delay})</li>
+ *   <li>FILE_IO - repeated reads of the same test files with {@link AsynchronousFileChannel},
+ *   lasting at least the block period</li>
+ *   <li>NETWORK_IO - three {@link AsynchronousSocketChannel} connects to TEST-NET addresses,
+ *   each abandoned after a third of the block period</li>
+ *   <li>CPU_BOUND, ALLOCATION_HEAVY - the same calibrated {@link SyntheticWork}, on the parallel
+ *   scheduler instead of the event loop</li>
+ * </ul>
+ * MIXED picks by brm.blocking.mixed-weights, like BlockingSimulator. NETWORK_IO only has the
+ * {@code connect} mode of brm.blocking.network-io.mode; {@code backend} is rejected at startup
+ * rather than quietly measuring a different workload than the servlet stack.
+ * On Linux, {@link AsynchronousFileChannel} completes reads on a small internal thread pool,
+ * since there is no readiness notification for regular files; the event loop is never blocked.
+ */
+public class NonBlockingSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(NonBlockingSimulator.class);
+
+    private static final Path TEST_DATA_DIR = Path.of("testdata/blocking");
+    private static final Map<String, Integer> TEST_FILES = Map.of(
+            "file_1kb.dat", 1024,
+            "file_100kb.dat", 100 * 1024,
+            "file_1mb.dat", 1024 * 1024,
+            "file_10mb.dat", 10 * 1024 * 1024
+    );
+    // small reads, as in BlockingSimulator, so the number of I/O calls is comparable
+    private static final int READ_BUFFER_BYTES = 4096;
+    private static final InetSocketAddress[] CONNECT_ADDRESSES = {
+            new InetSocketAddress("192.0.2.1", 80),
+            new InetSocketAddress("198.51.100.1", 80),
+            new InetSocketAddress("203.0.113.1", 53)
+    };
+
+    private final String operationTypeConfig;
+    private final int minBlockPeriodMs;
+    private final int maxBlockPeriodMs;
+    private final MixedSelection mixedSelection;
+    private final SyntheticWork syntheticWork = new SyntheticWork();
+
+    public NonBlockingSimulator(String operationTypeConfig, int minBlockPeriodMs, int maxBlockPeriodMs,
+                                String mixedWeights, String networkIoMode) throws IOException {
+        if (!"connect".equalsIgnoreCase(networkIoMode)) {
+            throw new IllegalArgumentException("brm.blocking.network-io.mode '" + networkIoMode
+                    + "' is not supported by the reactive stack, only connect");
+        }
+        this.operationTypeConfig = operationTypeConfig;
+        this.minBlockPeriodMs = minBlockPeriodMs;
+        this.maxBlockPeriodMs = maxBlockPeriodMs;
+        this.mixedSelection = MixedSelection.parse(mixedWeights);
+        ensureTestDataFiles();
+        syntheticWork.calibrate();
+    }
+
+    /**
+     * Same files as BlockingSimulator, created up front so that no request has to write them
+     */
+    private static void ensureTestDataFiles() throws IOException {
+        Files.createDirectories(TEST_DATA_DIR);
+        for (Map.Entry<String, Integer> entry : TEST_FILES.entrySet()) {
+            Path file = TEST_DATA_DIR.resolve(entry.getKey());
+            if (!Files.exists(file)) {
+                byte[] data = new byte[entry.getValue()];
+                ThreadLocalRandom.current().nextBytes(data);
+                Files.write(file, data);
+                log.info("Created test data file: {} ({} bytes)", file, data.length);
+            }
+        }
+    }
+
+    /**
+     * Completes once the operation is done, MIXED picks one of the other types by weight
+     */
+    public Mono<Void> perform(String operationType, Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
+        int resolvedMinMs = minBlockPeriodMs != null ? minBlockPeriodMs : this.minBlockPeriodMs;
+        int resolvedMaxMs = maxBlockPeriodMs != null ? maxBlockPeriodMs : this.maxBlockPeriodMs;
+        int durationMs = resolvedMinMs >= resolvedMaxMs
+                ? resolvedMinMs
+                : ThreadLocalRandom.current().nextInt(resolvedMinMs, resolvedMaxMs + 1);
+
+        OperationType resolvedOperationType = resolveOperationType(operationType);
+        if (resolvedOperationType == OperationType.MIXED) {
+            resolvedOperationType = mixedSelection.select();
+        }
+        log.debug("Performing non-blocking operation: {} for {}ms", resolvedOperationType, durationMs);
+
+        return switch (resolvedOperationType) {
+            case FILE_IO -> performFileIo(durationMs);
+            case NETWORK_IO -> performConnectAttempts(durationMs);
+            case CPU_BOUND -> performSyntheticWork(SyntheticWork.Kind.CPU_BOUND, durationMs);
+            case ALLOCATION_HEAVY -> performSyntheticWork(SyntheticWork.Kind.ALLOCATION_HEAVY, durationMs);
+            default -> Mono.delay(Duration.ofMillis(durationMs)).then();
+        };
+    }
+
+    private Mono<Void> performSyntheticWork(SyntheticWork.Kind kind, int durationMs) {
+        return Mono.fromRunnable(() -> syntheticWork.perform(kind, durationMs, () -> false))
+                .subscribeOn(Schedulers.parallel())
+                .then();
+    }
+
+    private OperationType resolveOperationType(String operationType) {
+        String typeToUse = operationType != null ? operationType : operationTypeConfig;
+        try {
+            return OperationType.valueOf(typeToUse.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid operation type '{}', defaulting to SLEEP", typeToUse);
+            return OperationType.SLEEP;
+        }
+    }
+
+    /**
+     * Same file and read count per block period as BlockingSimulator; the reads run alongside a
+     * timer instead of sleeping between them
+     */
+    private Mono<Void> performFileIo(int durationMs) {
+        String filename;
+        int readIterations;
+        if (durationMs < 100) {
+            filename = "file_1kb.dat";
+            readIterations = durationMs / 2;
+        } else if (durationMs < 500) {
+            filename = "file_100kb.dat";
+            readIterations = durationMs / 5;
+        } else if (durationMs < 2000) {
+            filename = "file_1mb.dat";
+            readIterations = durationMs / 10;
+        } else {
+            filename = "file_10mb.dat";
+            readIterations = durationMs / 20;
+        }
+        Path file = TEST_DATA_DIR.resolve(filename);
+
+        Mono<Long> reads = Flux.range(0, Math.max(1, readIterations))
+                .concatMap(i -> readFile(file))
+                .reduce(0L, Long::sum);
+        return Mono.when(reads, Mono.delay(Duration.ofMillis(durationMs)))
+                .onErrorResume(IOException.class, e -> {
+                    log.warn("File I/O failed, falling back to a timer", e);
+                    return Mono.delay(Duration.ofMillis(durationMs)).then();
+                });
+    }
+
+    /**
+     * Read the whole file, chaining each read from the completion of the previous one
+     *
+     * @return the number of bytes read
+     */
+    private static Mono<Long> readFile(Path file) {
+        return Mono.create(sink -> {
+            AsynchronousFileChannel channel;
+            try {
+                channel = AsynchronousFileChannel.open(file, StandardOpenOption.READ);
+            } catch (IOException e) {
+                sink.error(e);
+                return;
+            }
+            sink.onDispose(() -> closeQuietly(channel));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            channel.read(buffer, 0, 0L, new CompletionHandler<Integer, Long>() {
+                @Override
+                public void completed(Integer bytesRead, Long position) {
+                    if (bytesRead < 0) {
+                        sink.success(position);
+                        return;
+                    }
+                    long next = position + bytesRead;
+                    buffer.clear();
+                    channel.read(buffer, next, next, this);
+                }
+
+                @Override
+                public void failed(Throwable e, Long position) {
+                    sink.error(e);
+                }
+            });
+        });
+    }
+
+    private Mono<Void> performConnectAttempts(int durationMs) {
+        Duration timeoutPerAttempt = Duration.ofMillis(Math.max(1, durationMs / 3));
+        return Flux.fromArray(CONNECT_ADDRESSES)
+                .concatMap(address -> connect(address, timeoutPerAttempt))
+                .then();
+    }
+
+    /**
+     * Connect attempt that completes when it fails or times out, as expected for TEST-NET
+     */
+    private static Mono<Void> connect(InetSocketAddress address, Duration timeout) {
+        return Mono.<Void>create(sink -> {
+                    AsynchronousSocketChannel channel;
+                    try {
+                        channel = AsynchronousSocketChannel.open();
+                    } catch (IOException e) {
+                        sink.error(e);
+                        return;
+                    }
+                    // closing on timeout aborts the pending connect
+                    sink.onDispose(() -> closeQuietly(channel));
+                    channel.connect(address, null, new CompletionHandler<Void, Void>() {
+                        @Override
+                        public void completed(Void result, Void attachment) {
+                            log.debug("Connect to {} completed unexpectedly", address);
+                            sink.success();
+                        }
+
+                        @Override
+                        public void failed(Throwable e, Void attachment) {
+                            sink.error(e);
+                        }
+                    });
+                })
+                .timeout(timeout)
+                .onErrorResume(e -> {
+                    log.debug("Connect to {} completed: {} (expected)", address, e.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing left to release
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.brm.apiserver.reactive;
+
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.misc.MixedSelection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.reactor.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.io.IOException;
+
+/**
+ * Event-loop variant of the /rest/simple and /rest/blocking endpoints on Netty, for comparison
+ * with the Tomcat and virtual thread stack under the same load.
+ * <p>
+ * Deliberately not a {@code @Configuration} or any other stereotype and outside the servlet
+ * application's components: it lives on the same class path as the servlet application (see the
+ * {@code reactive} Maven profile) and must not be picked up by its component scan. Settings are
+ * read from {@code reactive.yaml} instead of {@code application.yaml}.
+ * Run with {@code ./mvnw -Preactive -DskipTests verify}, or {@code SERVER_STACK=reactive
+ * ./build/start-limited.sh}.
+ */
+@EnableAutoConfiguration
+public class ReactiveApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveApplication.class)
+                .web(WebApplicationType.REACTIVE)
+                .properties("spring.config.name=reactive")
+                .run(args);
+    }
+
+    /**
+     * Netty explicitly, Tomcat is on the class path as well and would be preferred
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    public NonBlockingSimulator nonBlockingSimulator(
+            @Value("${brm.blocking.operation-type:sleep}") String operationType,
+            @Value("${brm.blocking.min-block-period-ms:1000}") int minBlockPeriodMs,
+            @Value("${brm.blocking.max-block-period-ms:5000}") int maxBlockPeriodMs,
+            @Value("${brm.blocking.mixed-weights:" + MixedSelection.DEFAULT_WEIGHTS + "}") String mixedWeights,
+            @Value("${brm.blocking.network-io.mode:connect}") String networkIoMode) throws IOException {
+        return new NonBlockingSimulator(operationType, minBlockPeriodMs, maxBlockPeriodMs, mixedWeights,
+                networkIoMode);
+    }
+
+    @Bean
+    public ReactiveRestHandler reactiveRestHandler(NonBlockingSimulator nonBlockingSimulator) {
+        return new ReactiveRestHandler(nonBlockingSimulator);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> reactiveRoutes(ReactiveRestHandler handler) {
+        return RouterFunctions.route()
+                .GET(SimpleRestController.PATH + SimpleRestController.PATH_SIMPLE, handler::simple)
+                .GET(SimpleRestController.PATH + SimpleRestController.PATH_BLOCKING, handler::blocking)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package org.brm.apiserver.reactive;
+
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.misc.Utils;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+/**
+ * Handlers for the reactive routes, same parameters and response documents as
+ * {@link SimpleRestController}
+ */
+public class ReactiveRestHandler {
+
+    private final NonBlockingSimulator nonBlockingSimulator;
+
+    public ReactiveRestHandler(NonBlockingSimulator nonBlockingSimulator) {
+        this.nonBlockingSimulator = nonBlockingSimulator;
+    }
+
+    public Mono<ServerResponse> simple(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Utils.newSimpleResponse(SimpleRestController.PATH_SIMPLE));
+    }
+
+    /**
+     * A block period that is not a number is a 400, as the servlet stack's parameter binding answers
+     */
+    public Mono<ServerResponse> blocking(ServerRequest request) {
+        String operationType = request.queryParam("operation-type").orElse(null);
+        Integer minBlockPeriodMs;
+        Integer maxBlockPeriodMs;
+        try {
+            minBlockPeriodMs = request.queryParam("min-block-period-ms").map(Integer::valueOf).orElse(null);
+            maxBlockPeriodMs = request.queryParam("max-block-period-ms").map(Integer::valueOf).orElse(null);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest()
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .bodyValue("Invalid block period: " + e.getMessage());
+        }
+
+        // the response is built once the wait is over, on whichever thread completed it
+        return nonBlockingSimulator.perform(operationType, minBlockPeriodMs, maxBlockPeriodMs)
+                .then(Mono.fromSupplier(() -> Utils.newSimpleResponse(SimpleRestController.PATH_BLOCKING)))
+                .flatMap(simpleResponse -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(simpleResponse));
+    }
+}
@@ -0,0 +1,92 @@
+package org.brm.apiserver.reactive;
+
+import org.brm.apiserver.controller.rest.SimpleRestController;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.brm.apiserver.misc.MixedSelection;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonBlockingSimulatorTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    // scheduling and completion threads, generous for loaded build machines
+    private static final long SLACK_MS = 500;
+
+    private static NonBlockingSimulator simulator;
+
+    @BeforeAll
+    static void createSimulator() throws Exception {
+        simulator = new NonBlockingSimulator("sleep", 1000, 5000, MixedSelection.DEFAULT_WEIGHTS, "connect");
+    }
+
+    private static long elapsedMs(String operationType, Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
+        long start = System.nanoTime();
+        simulator.perform(operationType, minBlockPeriodMs, maxBlockPeriodMs).block(TIMEOUT);
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @Test
+    void sleepLastsBetweenTheBounds() {
+        for (int i = 0; i < 5; i++) {
+            long elapsed = elapsedMs("SLEEP", 50, 150);
+            assertTrue(elapsed >= 50 && elapsed <= 150 + SLACK_MS, "slept " + elapsed + "ms");
+        }
+    }
+
+    @Test
+    void minimumAtOrAboveTheMaximumIsTheBlockPeriod() {
+        long elapsed = elapsedMs("SLEEP", 200, 100);
+        assertTrue(elapsed >= 200 && elapsed <= 200 + SLACK_MS, "slept " + elapsed + "ms");
+    }
+
+    @Test
+    void configuredBoundsApplyWithoutParameters() throws Exception {
+        NonBlockingSimulator configured = new NonBlockingSimulator("sleep", 80, 80,
+                MixedSelection.DEFAULT_WEIGHTS, "connect");
+        long start = System.nanoTime();
+        configured.perform(null, null, null).block(TIMEOUT);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsed >= 80 && elapsed <= 80 + SLACK_MS, "slept " + elapsed + "ms");
+    }
+
+    @ParameterizedTest
+    @EnumSource(OperationType.class)
+    void everyOperationTypeCompletesWithinItsBlockPeriod(OperationType operationType) {
+        long elapsed = elapsedMs(operationType.name().toLowerCase(), 90, 90);
+        assertTrue(elapsed <= 90 + SLACK_MS, operationType + " took " + elapsed + "ms");
+        // timers bound SLEEP and FILE_IO from below; connects to TEST-NET may fail sooner
+        if (operationType == OperationType.SLEEP || operationType == OperationType.FILE_IO) {
+            assertTrue(elapsed >= 90, operationType + " took " + elapsed + "ms");
+        }
+    }
+
+    @Test
+    void unknownOperationTypeFallsBackToSleep() {
+        long elapsed = elapsedMs("unknown", 60, 60);
+        assertTrue(elapsed >= 60 && elapsed <= 60 + SLACK_MS, "took " + elapsed + "ms");
+    }
+
+    @Test
+    void rejectsTheBackendNetworkIoMode() {
+        assertThrows(IllegalArgumentException.class, () -> new NonBlockingSimulator("sleep", 10, 10,
+                MixedSelection.DEFAULT_WEIGHTS, "backend"));
+    }
+
+    @Test
+    void nonNumericBlockPeriodIsABadRequest() {
+        WebTestClient client = WebTestClient.bindToRouterFunction(
+                new ReactiveApplication().reactiveRoutes(new ReactiveRestHandler(simulator))).build();
+        String path = SimpleRestController.PATH + SimpleRestController.PATH_BLOCKING;
+
+        client.get().uri(path + "?min-block-period-ms=abc").exchange().expectStatus().isBadRequest();
+        client.get().uri(path + "?min-block-period-ms=10&max-block-period-ms=10")
+                .exchange().expectStatus().isOk();
+    }
+}
@@ -1,11 +1,26 @@
 package org.brm.apiserver;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
 
 @SpringBootTest
 class BrmApiserverApplicationTests {
 
+	// keeps the index and the metadata log out of the working directory's data/
+	@TempDir
+	static Path dataDirectory;
+
+	@DynamicPropertySource
+	static void dataProperties(DynamicPropertyRegistry registry) {
+		registry.add("brm.index.file", () -> dataDirectory.resolve("index/artifacts.idx").toString());
+		registry.add("brm.journal.directory", () -> dataDirectory.resolve("journal").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,65 @@
+package org.brm.apiserver.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordRingTests {
+
+    @Test
+    void dropsInsteadOfBlockingWhenFull() {
+        RecordRing ring = new RecordRing(3);
+        assertEquals(4, ring.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i, 0, 0, 0, 0, 0));
+        }
+        assertFalse(ring.offer(4, 0, 0, 0, 0, 0));
+        assertEquals(1, ring.dropped());
+
+        List<Long> drained = new ArrayList<>();
+        assertEquals(2, ring.drain((slots, offset) -> drained.add(slots[offset]), 2));
+        assertTrue(ring.offer(5, 0, 0, 0, 0, 0));
+        ring.drain((slots, offset) -> drained.add(slots[offset]), 10);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 5L), drained);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void deliversEveryRecordOfConcurrentProducersInOrderPerProducer() throws Exception {
+        int producers = 8;
+        int perProducer = 20_000;
+        RecordRing ring = new RecordRing(1024);
+        long[] next = new long[producers];
+        long[] received = {0};
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                executor.submit(() -> {
+                    for (long i = 0; i < perProducer; i++) {
+                        while (!ring.offer(producer, i, -i, 0, 0, 0)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+            }
+            while (received[0] < (long) producers * perProducer) {
+                ring.drain((slots, offset) -> {
+                    int producer = (int) slots[offset];
+                    assertEquals(next[producer], slots[offset + 1]);
+                    assertEquals(-next[producer], slots[offset + 2]);
+                    next[producer]++;
+                    received[0]++;
+                }, 256);
+            }
+        }
+        for (long count : next) {
+            assertEquals(perProducer, count);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.brm.apiserver.batch;
+
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.deadline.CancellationReason;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.fileio.ReadStrategy;
+import org.brm.apiserver.limit.OperationLimiters;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.model.BatchOperation;
+import org.brm.apiserver.model.BatchResult;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchExecutorTests {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final LatencyMetrics latencyMetrics = new LatencyMetrics();
+    private final BatchExecutor batchExecutor = new BatchExecutor(
+            new BlockingSimulator(latencyMetrics, null, AccessLog.disabled(),
+                    new FileReadEngine(ReadStrategy.STREAM, 64 * 1024, 4, 4096)),
+            new OperationLimiters(true, 20, 4, 1000, 1.5, 503),
+            latencyMetrics,
+            jsonMapper);
+
+    private static BatchOperation sleep(int periodMs) {
+        return new BatchOperation("SLEEP", periodMs, periodMs);
+    }
+
+    private List<BatchResult> run(List<BatchOperation> operations, Duration timeout) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batchExecutor.execute(operations, timeout, "/batch", out);
+        return out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> jsonMapper.readValue(line, BatchResult.class))
+                .toList();
+    }
+
+    @Test
+    void streamsResultsInCompletionOrderAndRunsConcurrently() throws Exception {
+        long start = System.nanoTime();
+        List<BatchResult> results = run(List.of(sleep(300), sleep(50), sleep(150)), Duration.ofSeconds(5));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of(1, 2, 0), results.stream().map(BatchResult::index).toList());
+        assertTrue(results.stream().allMatch(result -> result.status() == BatchResult.Status.OK));
+        assertEquals("/batch", results.getFirst().response().getPathString());
+        // fan-out: about the slowest operation, not the sum
+        assertTrue(elapsedMs < 450, "batch took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void reportsOperationsPastTheDeadlineAsTimedOut() throws Exception {
+        long start = System.nanoTime();
+        List<BatchResult> results = run(List.of(sleep(5_000), sleep(10)), Duration.ofMillis(200));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(2, results.size());
+        assertEquals(1, results.getFirst().index());
+        assertEquals(BatchResult.Status.OK, results.getFirst().status());
+        assertEquals(0, results.getLast().index());
+        assertEquals(BatchResult.Status.TIMEOUT, results.getLast().status());
+        assertTrue(elapsedMs < 2_000, "batch took " + elapsedMs + "ms");
+        assertEquals(1L, latencyMetrics.report().cancellations().get("SLEEP").get(CancellationReason.TIMEOUT));
+    }
+}
@@ -0,0 +1,101 @@
+package org.brm.apiserver.blob;
+
+import org.brm.apiserver.http.ContentCoding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobRepresentationsTests {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void uploadedBlobsAreDescribedByTheirDigestAndNamedBlobsHashedOnce() throws Exception {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        BlobRepresentations representations = new BlobRepresentations(store, 100, 60_000, true, 4);
+        byte[] data = "artifact ".repeat(1000).getBytes();
+        StoredBlob stored = store.store(Channels.newChannel(new ByteArrayInputStream(data)), null);
+        Path named = Files.write(root.resolve("named.dat"), data);
+
+        BlobRepresentation uploaded = representations.describe(store.locate(stored.digest()));
+        BlobRepresentation hashed = representations.describe(named);
+
+        assertTrue(uploaded.contentAddressed());
+        assertFalse(hashed.contentAddressed());
+        assertEquals(stored.digest(), uploaded.digest());
+        assertEquals(stored.digest(), hashed.digest());
+        assertEquals("\"" + stored.digest() + "\"", hashed.etag(ContentCoding.IDENTITY));
+        assertEquals("\"" + stored.digest() + "-gzip\"", hashed.etag(ContentCoding.GZIP));
+        assertSame(hashed, representations.describe(named));
+
+        // a changed file is hashed again
+        Files.write(named, "changed".getBytes());
+        Files.setLastModifiedTime(named, FileTime.fromMillis(hashed.lastModified() + 2000));
+        BlobRepresentation changed = representations.describe(named);
+        assertNotEquals(hashed.digest(), changed.digest());
+        assertEquals(7, changed.length());
+    }
+
+    @Test
+    void keepsOnlyGzipVariantsThatAreSmaller() throws Exception {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        BlobRepresentations representations = new BlobRepresentations(store, 100, 60_000, true, 4);
+        byte[] text = "artifact ".repeat(1000).getBytes();
+        byte[] random = new byte[10_000];
+        new Random(42).nextBytes(random);
+        Path compressible = Files.write(root.resolve("text.dat"), text);
+        Path incompressible = Files.write(root.resolve("random.dat"), random);
+
+        assertTrue(representations.precompress(compressible));
+        assertFalse(representations.precompress(compressible));
+        assertFalse(representations.precompress(incompressible));
+
+        BlobRepresentation representation = representations.describe(compressible);
+        Path variant = BlobRepresentations.variantPath(compressible, ContentCoding.GZIP);
+        assertEquals(Set.of(ContentCoding.GZIP), representation.codings());
+        assertEquals(Files.size(variant), representation.variantLength(ContentCoding.GZIP));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(variant))) {
+            assertArrayEquals(text, in.readAllBytes());
+        }
+        assertTrue(representations.describe(incompressible).codings().isEmpty());
+        // no temp files left behind
+        try (var files = Files.list(root)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith(".precompress-")));
+        }
+    }
+
+    @Test
+    void staleVariantsOfReplacedBlobsAreNotServedAndRegenerated() throws Exception {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        BlobRepresentations representations = new BlobRepresentations(store, 100, 60_000, true, 4);
+        Path named = Files.write(root.resolve("named.dat"), "first ".repeat(1000).getBytes());
+        assertTrue(representations.precompress(named));
+        Path variant = BlobRepresentations.variantPath(named, ContentCoding.GZIP);
+
+        // the blob is replaced after its variant was written
+        byte[] replaced = "second ".repeat(1000).getBytes();
+        Files.write(named, replaced);
+        long replacedAt = Files.getLastModifiedTime(named).toMillis();
+        Files.setLastModifiedTime(variant, FileTime.fromMillis(replacedAt - 2000));
+        assertTrue(new BlobRepresentations(store, 100, 60_000, false, 4).describe(named).codings().isEmpty());
+
+        assertTrue(representations.precompress(named));
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(variant))) {
+            assertArrayEquals(replaced, in.readAllBytes());
+        }
+        assertEquals(Set.of(ContentCoding.GZIP),
+                new BlobRepresentations(store, 100, 60_000, false, 4).describe(named).codings());
+    }
+}
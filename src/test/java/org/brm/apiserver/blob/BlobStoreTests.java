@@ -0,0 +1,92 @@
+package org.brm.apiserver.blob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTests {
+
+    @TempDir
+    Path root;
+
+    private static ReadableByteChannel channel(byte[] data) {
+        return Channels.newChannel(new ByteArrayInputStream(data));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    void storesContentUnderItsDigestAndDeduplicates() throws Exception {
+        // 1 KB buffers so the upload spans many alternating writes
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        byte[] data = randomBytes(100_000);
+
+        StoredBlob first = store.store(channel(data), null);
+        StoredBlob second = store.store(channel(data), null);
+
+        assertFalse(first.deduplicated());
+        assertTrue(second.deduplicated());
+        assertEquals(first.digest(), second.digest());
+        assertEquals(data.length, first.size());
+        assertArrayEquals(data, Files.readAllBytes(store.locate(first.digest())));
+        assertEquals(store.locate(first.digest()), store.locate("sha256:" + first.digest()));
+    }
+
+    @Test
+    void verifiesAnnouncedDigest() throws Exception {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        byte[] data = randomBytes(10_000);
+        StoredBlob stored = store.store(channel(data), null);
+
+        StoredBlob again = store.store(channel(data), stored.digest());
+        assertTrue(again.deduplicated());
+
+        assertThrows(DigestMismatchException.class, () -> store.store(channel(new byte[3]), stored.digest()));
+        assertThrows(IllegalArgumentException.class, () -> store.store(channel(data), "not-a-digest"));
+    }
+
+    @Test
+    void rejectsIdsOutsideTheRoot() throws Exception {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        Files.writeString(root.resolve("named.dat"), "payload");
+
+        assertNotNull(store.locate("named.dat"));
+        assertNull(store.locate("../named.dat"));
+        assertNull(store.locate(".tmp"));
+        assertNull(store.locate("missing.dat"));
+    }
+
+    @Test
+    void concurrentUploadsDoNotDeadlockOnThePool() throws Exception {
+        // one upload's worth of buffers, shared by many uploads at once
+        BlobStore store = new BlobStore(root.toString(), 1, 2);
+        List<Future<StoredBlob>> uploads = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 16; i++) {
+                byte[] data = randomBytes(20_000 + i);
+                uploads.add(executor.submit(() -> store.store(channel(data), null)));
+            }
+            for (Future<StoredBlob> upload : uploads) {
+                assertFalse(upload.get(30, TimeUnit.SECONDS).deduplicated());
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.brm.apiserver.blob;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTests {
+
+    @Test
+    void absentOrMalformedHeaderMeansFullContent() {
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("items=0-1", 100));
+        assertNull(ByteRange.parse("bytes=abc", 100));
+        assertNull(ByteRange.parse("bytes=5-1", 100));
+    }
+
+    @Test
+    void parsesSingleOpenAndSuffixRanges() {
+        assertEquals(List.of(new ByteRange(0, 9)), ByteRange.parse("bytes=0-9", 100));
+        assertEquals(List.of(new ByteRange(90, 99)), ByteRange.parse("bytes=90-", 100));
+        assertEquals(List.of(new ByteRange(80, 99)), ByteRange.parse("bytes=-20", 100));
+        assertEquals(List.of(new ByteRange(0, 99)), ByteRange.parse("bytes=-500", 100));
+        assertEquals(List.of(new ByteRange(50, 99)), ByteRange.parse("bytes=50-1000", 100));
+    }
+
+    @Test
+    void parsesMultipleRangesInRequestOrder() {
+        List<ByteRange> ranges = ByteRange.parse("bytes=10-19, 0-4,-5", 100);
+        assertEquals(List.of(new ByteRange(10, 19), new ByteRange(0, 4), new ByteRange(95, 99)), ranges);
+        assertEquals(10, ranges.getFirst().length());
+        assertEquals("bytes 10-19/100", ranges.getFirst().contentRange(100));
+    }
+
+    @Test
+    void unsatisfiableRangesYieldEmptyList() {
+        assertTrue(ByteRange.parse("bytes=100-200", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 100).isEmpty());
+        assertTrue(ByteRange.parse("bytes=0-", 0).isEmpty());
+    }
+}
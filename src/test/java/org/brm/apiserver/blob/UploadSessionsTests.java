@@ -0,0 +1,216 @@
+package org.brm.apiserver.blob;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadSessionsTests {
+
+    private static final int MIB = TreeHash.LEAF_BYTES;
+
+    @TempDir
+    Path root;
+
+    private UploadSessions sessions(int sessionInFlightMb, int inFlightMb, long backpressureWaitMs) {
+        BlobStore store = new BlobStore(root.toString(), 1, 4);
+        // 1 KB buffers, so every leaf spans many reads and writes
+        return new UploadSessions(store, 1, 2, sessionInFlightMb, inFlightMb, backpressureWaitMs, 60_000, 10, 1, 8);
+    }
+
+    private static ReadableByteChannel chunk(byte[] data, int offset, int length) {
+        return Channels.newChannel(new ByteArrayInputStream(data, offset, length));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(42).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] sha256(byte[]... parts) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (byte[] part : parts) {
+            digest.update(part);
+        }
+        return digest.digest();
+    }
+
+    @Test
+    void treeHashOfOneLeafIsItsSha256() throws Exception {
+        byte[] leaf = sha256("leaf".getBytes());
+        assertEquals(HexFormat.of().formatHex(leaf), TreeHash.root(new byte[][]{leaf}));
+
+        byte[] a = sha256("a".getBytes());
+        byte[] b = sha256("b".getBytes());
+        byte[] c = sha256("c".getBytes());
+        // the odd leaf is carried up unchanged
+        assertEquals(HexFormat.of().formatHex(sha256(sha256(a, b), c)), TreeHash.root(new byte[][]{a, b, c}));
+    }
+
+    @Test
+    void assemblesChunksWrittenOutOfOrderAndInParallel() throws Exception {
+        UploadSessions sessions = sessions(8, 8, 5_000);
+        int size = 5 * MIB + 123;
+        byte[] data = randomBytes(size);
+        UploadStatus created = sessions.create(size, MIB);
+        assertEquals(6, created.chunks());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), created.missingChunks());
+
+        List<Future<UploadStatus>> writes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int index = 5; index >= 0; index--) {
+                int offset = index * MIB;
+                int length = Math.min(MIB, size - offset);
+                writes.add(executor.submit(() -> sessions.writeChunk(created.id(), offset, length,
+                        chunk(data, offset, length))));
+            }
+            for (Future<UploadStatus> write : writes) {
+                assertNotNull(write.get());
+            }
+        }
+
+        StoredBlob stored = sessions.commit(created.id(), null);
+        byte[][] leaves = new byte[6][];
+        for (int i = 0; i < 6; i++) {
+            leaves[i] = sha256(Arrays.copyOfRange(data, i * MIB, Math.min(size, (i + 1) * MIB)));
+        }
+        assertEquals("sha256-tree:" + TreeHash.root(leaves), stored.digest());
+        assertEquals(size, stored.size());
+        assertFalse(stored.deduplicated());
+        assertArrayEquals(data, Files.readAllBytes(new BlobStore(root.toString(), 1, 4).locate(stored.digest())));
+        assertThrows(NoSuchElementException.class, () -> sessions.status(created.id()));
+        assertEquals(1, sessions.statistics().commits());
+    }
+
+    @Test
+    void resumesAfterABrokenChunk() throws Exception {
+        UploadSessions sessions = sessions(8, 8, 5_000);
+        int size = 3 * MIB;
+        byte[] data = randomBytes(size);
+        String id = sessions.create(size, MIB).id();
+
+        sessions.writeChunk(id, 0, -1, chunk(data, 0, MIB));
+        // the connection broke halfway through the second chunk
+        assertThrows(IllegalArgumentException.class, () -> sessions.writeChunk(id, MIB, -1, chunk(data, MIB, 1000)));
+        assertThrows(IllegalArgumentException.class, () -> sessions.writeChunk(id, 100, -1, chunk(data, 0, MIB)));
+        assertThrows(IllegalStateException.class, () -> sessions.commit(id, null));
+
+        UploadStatus status = sessions.status(id);
+        assertEquals(List.of(1, 2), status.missingChunks());
+        assertEquals(MIB, status.receivedBytes());
+
+        sessions.writeChunk(id, MIB, -1, chunk(data, MIB, MIB));
+        sessions.writeChunk(id, 2 * MIB, -1, chunk(data, 2 * MIB, MIB));
+        assertTrue(sessions.status(id).missingChunks().isEmpty());
+        StoredBlob stored = sessions.commit(id, null);
+        assertArrayEquals(data, Files.readAllBytes(new BlobStore(root.toString(), 1, 4).locate(stored.digest())));
+    }
+
+    @Test
+    void verifiesAnnouncedTreeHashAndDiscardsOnMismatch() throws Exception {
+        UploadSessions sessions = sessions(8, 8, 5_000);
+        byte[] data = randomBytes(1000);
+        String id = sessions.create(data.length, MIB).id();
+        sessions.writeChunk(id, 0, data.length, chunk(data, 0, data.length));
+
+        String wrong = HexFormat.of().formatHex(sha256("other".getBytes()));
+        assertThrows(DigestMismatchException.class, () -> sessions.commit(id, "sha256-tree:" + wrong));
+        assertThrows(NoSuchElementException.class, () -> sessions.status(id));
+        try (var parts = Files.list(root.resolve(".uploads"))) {
+            assertEquals(0, parts.count());
+        }
+
+        // a single leaf hashes like plain SHA-256
+        String again = sessions.create(data.length, MIB).id();
+        sessions.writeChunk(again, 0, data.length, chunk(data, 0, data.length));
+        StoredBlob stored = sessions.commit(again, HexFormat.of().formatHex(sha256(data)));
+        assertEquals("sha256-tree:" + HexFormat.of().formatHex(sha256(data)), stored.digest());
+    }
+
+    @Test
+    void rejectsChunksWhileTheSessionBudgetIsExhausted() throws Exception {
+        UploadSessions sessions = sessions(2, 8, 50);
+        byte[] data = randomBytes(4 * MIB);
+        String id = sessions.create(data.length, 2 * MIB).id();
+
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream stalled = new ByteArrayInputStream(data, 0, 2 * MIB) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                reading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.read(b, off, len);
+            }
+        };
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<UploadStatus> first = executor.submit(() -> sessions.writeChunk(id, 0, -1, Channels.newChannel(stalled)));
+            reading.await();
+
+            assertNull(sessions.writeChunk(id, 2 * MIB, -1, chunk(data, 2 * MIB, 2 * MIB)));
+            UploadSessions.Statistics statistics = sessions.statistics();
+            assertEquals(2L * MIB, statistics.inFlightBytes());
+            assertEquals(1, statistics.rejectedChunks());
+
+            release.countDown();
+            assertNotNull(first.get());
+        }
+        assertNotNull(sessions.writeChunk(id, 2 * MIB, -1, chunk(data, 2 * MIB, 2 * MIB)));
+        assertEquals(0, sessions.statistics().inFlightBytes());
+    }
+
+    @Test
+    void concurrentCreatesDoNotExceedTheSessionLimit() throws Exception {
+        // at most 10 sessions
+        UploadSessions uploads = sessions(4, 8, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> creates = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                creates.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        uploads.create(MIB, null);
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            for (Future<Boolean> create : creates) {
+                created += create.get() ? 1 : 0;
+            }
+            assertEquals(10, created);
+        }
+        assertEquals(10, uploads.statistics().sessions());
+        try (var parts = Files.list(root.resolve(".uploads"))) {
+            assertEquals(10, parts.count());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.brm.apiserver.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTests {
+
+    private static TinyLfuCache<String, String> newCache(long maximumWeight, Duration expire, Duration refresh) {
+        return new TinyLfuCache<>(maximumWeight, maximumWeight, value -> 1, expire, refresh, Runnable::run);
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        TinyLfuCache<String, String> cache = newCache(100, Duration.ZERO, Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, String> loader = key -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return key.toUpperCase();
+        };
+
+        int callers = 50;
+        List<String> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            threads.add(Thread.startVirtualThread(() -> {
+                String value = cache.get("release", loader);
+                synchronized (results) {
+                    results.add(value);
+                }
+            }));
+        }
+        // all but the loading caller are waiting for its result
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.statistics().coalesced() < callers - 1 && System.nanoTime() < waitUntil) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(callers, results.size());
+        assertTrue(results.stream().allMatch("RELEASE"::equals));
+        TinyLfuCache.Statistics statistics = cache.statistics();
+        assertEquals(callers - 1, statistics.coalesced());
+        assertEquals(1, statistics.loads());
+        assertEquals("RELEASE", cache.getIfPresent("release"));
+    }
+
+    @Test
+    void loadFailureIsNotCached() {
+        TinyLfuCache<String, String> cache = newCache(100, Duration.ZERO, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> cache.get("a", key -> {
+            throw new IllegalStateException("backend down");
+        }));
+
+        assertEquals("A", cache.get("a", String::toUpperCase));
+        assertEquals(1, cache.statistics().loadFailures());
+    }
+
+    @Test
+    void frequentKeysSurviveAScan() {
+        TinyLfuCache<String, String> cache = newCache(100, Duration.ZERO, Duration.ZERO);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot-" + i, Function.identity());
+            }
+        }
+
+        // every hot key is read once per 500 scanned keys, an LRU of 100 entries would lose them all
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("scan-" + i, Function.identity());
+            if (i % 10 == 0) {
+                cache.get("hot-" + (i / 10 % 50), Function.identity());
+            }
+        }
+
+        int hotPresent = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.getIfPresent("hot-" + i) != null) {
+                hotPresent++;
+            }
+        }
+        assertEquals(50, hotPresent);
+        TinyLfuCache.Statistics statistics = cache.statistics();
+        assertTrue(statistics.weightedSize() <= 100, "weighted size " + statistics.weightedSize());
+        assertTrue(statistics.evictions() > 0);
+    }
+
+    @Test
+    void boundedByWeight() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(1000, 100, String::length,
+                Duration.ZERO, Duration.ZERO, Runnable::run);
+        for (int i = 0; i < 200; i++) {
+            cache.put("key-" + i, "x".repeat(1 + i % 50));
+        }
+
+        assertTrue(cache.statistics().weightedSize() <= 1000);
+        // heavier than the main segments, never admitted
+        cache.put("huge", "x".repeat(2000));
+        assertNull(cache.getIfPresent("huge"));
+    }
+
+    @Test
+    void expiredEntriesAreReloadedAndOldOnesRefreshedAhead() throws Exception {
+        AtomicInteger version = new AtomicInteger();
+        Function<String, String> loader = key -> key + version.incrementAndGet();
+
+        TinyLfuCache<String, String> expiring = newCache(100, Duration.ofMillis(20), Duration.ZERO);
+        assertEquals("a1", expiring.get("a", loader));
+        assertEquals("a1", expiring.get("a", loader));
+        Thread.sleep(30);
+        assertNull(expiring.getIfPresent("a"));
+        assertEquals("a2", expiring.get("a", loader));
+
+        // the refresh runs inline here, the caller still gets the value it found
+        TinyLfuCache<String, String> refreshing = newCache(100, Duration.ZERO, Duration.ofMillis(20));
+        assertEquals("b3", refreshing.get("b", loader));
+        Thread.sleep(30);
+        assertEquals("b3", refreshing.get("b", loader));
+        assertEquals("b4", refreshing.getIfPresent("b"));
+        assertEquals(1, refreshing.statistics().refreshes());
+    }
+
+    @Test
+    void sketchEstimatesFrequencyAndAges() {
+        FrequencySketch sketch = new FrequencySketch(64);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("popular");
+        }
+        sketch.increment("rare");
+
+        assertEquals(10, sketch.frequency("popular"));
+        assertTrue(sketch.frequency("rare") >= 1);
+        assertTrue(sketch.frequency("unseen") <= 1);
+
+        // counters saturate at 15 and are halved after 10 increments per table slot
+        for (int i = 0; i < 10 * 64; i++) {
+            sketch.increment("key-" + i);
+        }
+        assertTrue(sketch.frequency("popular") <= 7, "frequency " + sketch.frequency("popular"));
+    }
+}
@@ -0,0 +1,78 @@
+package org.brm.apiserver.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTests {
+
+    private static final int KEYS = 30_000;
+
+    private static final ClusterNode A = ClusterNode.of("http://127.0.0.1:8081");
+    private static final ClusterNode B = ClusterNode.of("http://127.0.0.1:8082");
+    private static final ClusterNode C = ClusterNode.of("http://127.0.0.1:8083");
+    private static final ClusterNode D = ClusterNode.of("http://127.0.0.1:8084/ignored/path");
+
+    private static String key(int i) {
+        return "blob-" + i;
+    }
+
+    @Test
+    void spreadsKeysEvenlyOverTheNodes() {
+        HashRing ring = new HashRing(List.of(A, B, C), 160);
+        Map<ClusterNode, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner(key(i)), 1, Integer::sum);
+        }
+        for (ClusterNode node : List.of(A, B, C)) {
+            double share = counts.get(node) / (double) KEYS;
+            assertEquals(1.0 / 3, share, 0.08, node.id());
+            assertEquals(share, ring.ownership().get(node.id()), 0.03, node.id());
+        }
+        assertEquals(1.0, ring.ownership().values().stream().mapToDouble(Double::doubleValue).sum(), 1e-9);
+        // independent of the order the nodes are listed in
+        HashRing reordered = new HashRing(List.of(C, A, B), 160);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ring.owner(key(i)), reordered.owner(key(i)));
+        }
+    }
+
+    @Test
+    void joiningNodeOnlyTakesKeysFromOthers() {
+        HashRing ring = new HashRing(List.of(A, B, C), 160);
+        HashRing joined = ring.with(D);
+        assertEquals("127.0.0.1:8084", D.id());
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            ClusterNode before = ring.owner(key(i));
+            ClusterNode after = joined.owner(key(i));
+            if (!before.equals(after)) {
+                assertEquals(D, after, "a key moved between existing nodes");
+                moved++;
+            }
+        }
+        assertEquals(0.25, moved / (double) KEYS, 0.07);
+
+        // leaving gives back exactly the keys it took
+        HashRing left = joined.without(D);
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals(ring.owner(key(i)), left.owner(key(i)));
+        }
+        assertSame(joined, joined.with(D));
+        assertSame(ring, ring.without(D));
+    }
+
+    @Test
+    void singleNodeOwnsEverything() {
+        HashRing ring = new HashRing(List.of(A), 4);
+        assertEquals(A, ring.owner("anything"));
+        assertEquals(Map.of(A.id(), 1.0), ring.ownership());
+        assertThrows(IllegalArgumentException.class, () -> new HashRing(List.of(), 4));
+        assertThrows(IllegalArgumentException.class, () -> ClusterNode.of("127.0.0.1:8081"));
+    }
+}
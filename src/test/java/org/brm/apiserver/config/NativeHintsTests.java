@@ -0,0 +1,21 @@
+package org.brm.apiserver.config;
+
+import org.brm.apiserver.model.BatchResult;
+import org.brm.apiserver.model.SimpleResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeHintsTests {
+
+    @Test
+    void registersBindingHintsForTypesSerializedOutsideControllers() {
+        RuntimeHints hints = new RuntimeHints();
+        new NativeHints().registerHints(hints, getClass().getClassLoader());
+
+        assertTrue(RuntimeHintsPredicates.reflection().onType(BatchResult.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(SimpleResponse.class).test(hints));
+    }
+}
@@ -0,0 +1,120 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.blob.BlobRepresentations;
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.blob.StoredBlob;
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.PeerClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestClient;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BlobRestControllerTests {
+
+    private static final int LENGTH = 10_000;
+
+    @TempDir
+    Path root;
+
+    private final byte[] data = new byte[LENGTH];
+    private MockMvc mockMvc;
+    private String path;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(7).nextBytes(data);
+        BlobStore blobStore = new BlobStore(root.toString(), 1, 4);
+        StoredBlob stored = blobStore.store(Channels.newChannel(new ByteArrayInputStream(data)), null);
+        Cluster cluster = new Cluster(false, "http://127.0.0.1:8080", "", 16, true, "");
+        mockMvc = MockMvcBuilders.standaloneSetup(new BlobRestController(blobStore,
+                new BlobRepresentations(blobStore, 100, 60_000, false, 4), cluster,
+                new PeerClient(cluster, RestClient.builder(), 100, 100))).build();
+        path = SimpleRestController.PATH + BlobRestController.PATH_BLOBS + "/" + stored.digest();
+        etag = "\"" + stored.digest() + "\"";
+    }
+
+    @Test
+    void servesTheWholeBlobWithItsValidators() throws Exception {
+        mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().bytes(data));
+    }
+
+    @Test
+    void answersMatchingValidatorsWithNotModified() throws Exception {
+        String lastModified = mockMvc.perform(get(path)).andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get(path).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"other\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void servesASingleRange() throws Exception {
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/" + LENGTH))
+                .andExpect(content().bytes(Arrays.copyOfRange(data, 100, 200)));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() throws Exception {
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=" + LENGTH + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + LENGTH));
+    }
+
+    @Test
+    void ifRangeServesTheRangeOnlyForTheCurrentBlob() throws Exception {
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOf(data, 10)));
+        mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(data));
+    }
+
+    @Test
+    void servesSeveralRangesAsMultipartByteranges() throws Exception {
+        MvcResult result = mockMvc.perform(get(path).header(HttpHeaders.RANGE, "bytes=0-9,5000-5009"))
+                .andExpect(status().isPartialContent())
+                .andReturn();
+
+        String contentType = result.getResponse().getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="), contentType);
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertEquals(body.length, result.getResponse().getContentLengthLong());
+        String text = new String(body, StandardCharsets.ISO_8859_1);
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        assertTrue(text.contains("Content-Range: bytes 0-9/" + LENGTH));
+        assertTrue(text.contains("Content-Range: bytes 5000-5009/" + LENGTH));
+        assertTrue(text.contains(new String(Arrays.copyOfRange(data, 5000, 5010), StandardCharsets.ISO_8859_1)));
+        assertTrue(text.endsWith("--" + boundary + "--\r\n"), "missing the closing boundary");
+    }
+}
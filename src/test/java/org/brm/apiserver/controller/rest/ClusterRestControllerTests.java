@@ -0,0 +1,38 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.cluster.Cluster;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ClusterRestControllerTests {
+
+    private static final String NODES = SimpleRestController.PATH + ClusterRestController.PATH_CLUSTER_NODES;
+
+    private final Cluster cluster = new Cluster(true, "http://127.0.0.1:8080", "http://127.0.0.1:8081", 16, true, "");
+    private final ClusterRestController controller = new ClusterRestController(cluster);
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+    @Test
+    void removingNodesIsForbiddenByDefault() throws Exception {
+        mockMvc.perform(delete(NODES).param("uri", "http://127.0.0.1:8081")).andExpect(status().isForbidden());
+
+        assertEquals(Set.of("127.0.0.1:8080", "127.0.0.1:8081"), cluster.status().ownership().keySet());
+    }
+
+    @Test
+    void removesNodesOnceEnabled() throws Exception {
+        ReflectionTestUtils.setField(controller, "leaveEnabled", true);
+
+        mockMvc.perform(delete(NODES).param("uri", "http://127.0.0.1:8081")).andExpect(status().isOk());
+
+        assertEquals(Set.of("127.0.0.1:8080"), cluster.status().ownership().keySet());
+    }
+}
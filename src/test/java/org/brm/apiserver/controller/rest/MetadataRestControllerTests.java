@@ -0,0 +1,89 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.accesslog.AccessLog;
+import org.brm.apiserver.fileio.FileReadEngine;
+import org.brm.apiserver.fileio.ReadStrategy;
+import org.brm.apiserver.metadata.MetadataService;
+import org.brm.apiserver.metrics.LatencyMetrics;
+import org.brm.apiserver.misc.BlockingSimulator;
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.json.JsonMapper;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MetadataRestControllerTests {
+
+    private static final String PATH = SimpleRestController.PATH + MetadataRestController.PATH_METADATA
+            + "/org.brm:core";
+
+    /**
+     * The metadata backend without its latency
+     */
+    private static final class NoWaitSimulator extends BlockingSimulator {
+
+        NoWaitSimulator() {
+            super(new LatencyMetrics(), null, AccessLog.disabled(),
+                    new FileReadEngine(ReadStrategy.STREAM, 64 * 1024, 4, 4096));
+        }
+
+        @Override
+        public int performBlockingOperation(OperationType resolvedOperationType, OperationType performedOperationType,
+                                            Integer minBlockPeriodMs, Integer maxBlockPeriodMs) {
+            return 0;
+        }
+    }
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new MetadataRestController(
+            new MetadataService(new NoWaitSimulator(), JsonMapper.builder().build(),
+                    1024, 100, 300_000, 60_000, 0, 0))).build();
+
+    @Test
+    void servesMetadataWithWeakETagAndLastModified() throws Exception {
+        MvcResult result = mockMvc.perform(get(PATH))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+
+        assertTrue(result.getResponse().getHeader(HttpHeaders.ETAG).startsWith("W/\""));
+        assertTrue(result.getResponse().getContentAsString().contains("\"coordinates\":\"org.brm:core\""));
+    }
+
+    @Test
+    void answersMatchingValidatorsWithNotModified() throws Exception {
+        MvcResult result = mockMvc.perform(get(PATH)).andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = result.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+        mockMvc.perform(get(PATH).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+        mockMvc.perform(get(PATH).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    void servesChangedMetadataInFull() throws Exception {
+        mockMvc.perform(get(PATH).header(HttpHeaders.IF_NONE_MATCH, "W/\"0123456789abcdef\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(PATH).header(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 01 Jan 2015 00:00:00 GMT"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsMalformedCoordinates() throws Exception {
+        mockMvc.perform(get(SimpleRestController.PATH + MetadataRestController.PATH_METADATA + "/no-colon"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,133 @@
+package org.brm.apiserver.controller.rest;
+
+import org.brm.apiserver.blob.BlobRepresentations;
+import org.brm.apiserver.blob.BlobStore;
+import org.brm.apiserver.blob.StoredBlob;
+import org.brm.apiserver.blob.UploadSessions;
+import org.brm.apiserver.blob.UploadStatus;
+import org.brm.apiserver.cluster.Cluster;
+import org.brm.apiserver.cluster.ClusterNode;
+import org.brm.apiserver.cluster.PeerClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UploadRestControllerTests {
+
+    private static final String PEER = "http://127.0.0.1:9";
+
+    @TempDir
+    Path root;
+
+    private final Cluster cluster = new Cluster(true, "http://127.0.0.1:8080", PEER, 160, true, "");
+    private final List<String> replicated = new ArrayList<>();
+    private RestClientException replicationFailure;
+
+    private BlobStore blobStore;
+    private UploadSessions uploadSessions;
+    private MockMvc mockMvc;
+
+    /**
+     * Records what would be sent to the owner instead of sending it
+     */
+    private final class RecordingPeerClient extends PeerClient {
+
+        RecordingPeerClient() {
+            super(cluster, RestClient.builder(), 100, 100);
+        }
+
+        @Override
+        public void replicate(ClusterNode owner, StoredBlob storedBlob, Path blob) {
+            if (replicationFailure != null) {
+                throw replicationFailure;
+            }
+            assertTrue(Files.isRegularFile(blob));
+            replicated.add(owner.id() + " " + storedBlob.digest());
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new BlobStore(root.toString(), 1, 4);
+        uploadSessions = new UploadSessions(blobStore, 1, 2, 2, 4, 1000, 60_000, 10, 1, 8);
+        BlobRepresentations representations = new BlobRepresentations(blobStore, 100, 60_000, false, 4);
+        mockMvc = MockMvcBuilders.standaloneSetup(new UploadRestController(uploadSessions, blobStore,
+                representations, cluster, new RecordingPeerClient())).build();
+    }
+
+    /**
+     * Upload content in one chunk, picking content whose blob id is owned as requested
+     *
+     * @return session id and the id the blob gets at commit
+     */
+    private String[] upload(boolean ownedByPeer) throws Exception {
+        for (int i = 0; ; i++) {
+            byte[] content = ("chunked blob " + i).getBytes(StandardCharsets.UTF_8);
+            // up to one leaf, the tree hash is the plain sha256
+            String id = BlobStore.TREE_DIGEST_PREFIX + sha256Hex(content);
+            if (cluster.isSelf(cluster.owner(id)) == ownedByPeer) {
+                continue;
+            }
+            UploadStatus status = uploadSessions.create(content.length, null);
+            uploadSessions.writeChunk(status.id(), 0, content.length,
+                    Channels.newChannel(new ByteArrayInputStream(content)));
+            return new String[]{status.id(), id};
+        }
+    }
+
+    private static String sha256Hex(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static String commitPath(String sessionId) {
+        return SimpleRestController.PATH + UploadRestController.PATH_UPLOADS + "/" + sessionId + "/commit";
+    }
+
+    @Test
+    void committedBlobIsPushedToItsOwner() throws Exception {
+        String[] upload = upload(true);
+
+        mockMvc.perform(post(commitPath(upload[0]))).andExpect(status().isCreated());
+
+        assertEquals(List.of("127.0.0.1:9 " + upload[1]), replicated);
+    }
+
+    @Test
+    void blobOwnedHereOrForwardedByAPeerIsNotPushed() throws Exception {
+        String[] ownedHere = upload(false);
+        mockMvc.perform(post(commitPath(ownedHere[0]))).andExpect(status().isCreated());
+
+        String[] forwarded = upload(true);
+        mockMvc.perform(post(commitPath(forwarded[0])).header(PeerClient.HEADER_FORWARDED_BY, "127.0.0.1:9"))
+                .andExpect(status().isCreated());
+
+        assertEquals(List.of(), replicated);
+    }
+
+    @Test
+    void unreachableOwnerIsABadGateway() throws Exception {
+        String[] upload = upload(true);
+        replicationFailure = new ResourceAccessException("Connection refused");
+
+        mockMvc.perform(post(commitPath(upload[0]))).andExpect(status().isBadGateway());
+    }
+}
@@ -0,0 +1,58 @@
+package org.brm.apiserver.deadline;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTests {
+
+    @Test
+    void capsWaitsOnlyWhileBound() throws Exception {
+        assertEquals(5_000, Deadline.capToCurrent(5_000));
+        assertFalse(Deadline.isCurrentExpired());
+
+        long capped = ScopedValue.where(Deadline.CURRENT, Deadline.after(Duration.ofMillis(200)))
+                .call(() -> Deadline.capToCurrent(5_000));
+        assertTrue(capped > 0 && capped <= 200, "capped to " + capped);
+
+        long expired = ScopedValue.where(Deadline.CURRENT, Deadline.after(Duration.ZERO))
+                .call(() -> Deadline.capToCurrent(5_000));
+        assertEquals(0, expired);
+    }
+
+    @Test
+    void interruptsTheWatchedThreadOnlyUntilReleased() throws Exception {
+        try (ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor()) {
+            Deadline expiring = Deadline.after(Duration.ofMillis(50));
+            expiring.watch(Thread.currentThread(), scheduler);
+            assertThrows(InterruptedException.class, () -> Thread.sleep(5_000));
+            assertTrue(expiring.release());
+            assertTrue(expiring.isExpired());
+
+            Deadline released = Deadline.after(Duration.ofMillis(50));
+            released.watch(Thread.currentThread(), scheduler);
+            assertFalse(released.release());
+            Thread.sleep(100);
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    @Test
+    void runBindsAndInterruptsTheTaskWithoutLeakingTheInterrupt() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(50));
+        boolean bound = Deadline.run(deadline, () -> Deadline.current() == deadline);
+        assertTrue(bound);
+
+        Deadline expiring = Deadline.after(Duration.ofMillis(50));
+        assertThrows(InterruptedException.class, () -> Deadline.run(expiring, () -> {
+            Thread.sleep(5_000);
+            return null;
+        }));
+        assertTrue(expiring.isExpired());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
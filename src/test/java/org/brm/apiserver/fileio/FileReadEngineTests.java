@@ -0,0 +1,96 @@
+package org.brm.apiserver.fileio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileReadEngineTests {
+
+    private static final int FILE_BYTES = 1024 * 1024 + 100;
+
+    @TempDir
+    Path tempDir;
+
+    private Path createFile() throws Exception {
+        byte[] data = new byte[FILE_BYTES];
+        new Random(1).nextBytes(data);
+        return Files.write(tempDir.resolve("data.bin"), data);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = ReadStrategy.class, names = {"STREAM", "CHANNEL", "MMAP"})
+    void readsRangesAndStopsAtEndOfFile(ReadStrategy strategy) throws Exception {
+        Path file = createFile();
+        FileReadEngine engine = new FileReadEngine(strategy, 64 * 1024, 2, 4096);
+
+        assertEquals(FILE_BYTES, engine.read(file, 0, FILE_BYTES));
+        assertEquals(100_000, engine.read(file, 12_345, 100_000));
+        assertEquals(100, engine.read(file, 1024 * 1024, 4096));
+        assertEquals(0, engine.read(file, FILE_BYTES, 4096));
+
+        FileReadEngine.Statistics statistics = engine.statistics();
+        assertEquals(strategy, statistics.effectiveStrategy());
+        assertEquals(4, statistics.reads());
+        assertEquals(FILE_BYTES + 100_000 + 100, statistics.bytesRead());
+    }
+
+    @Test
+    void chargesProcessCpuTimeWhenReadsRunOnVirtualThreads() throws Exception {
+        Path file = createFile();
+        FileReadEngine engine = new FileReadEngine(ReadStrategy.CHANNEL, 64 * 1024, 2, 4096);
+
+        engine.read(file, 0, FILE_BYTES);
+        assertEquals(FileReadEngine.CpuSource.THREAD, engine.statistics().cpuSource());
+
+        Thread reader = Thread.ofVirtual().start(() -> {
+            try {
+                engine.read(file, 0, FILE_BYTES);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        reader.join();
+        FileReadEngine.Statistics statistics = engine.statistics();
+        assertEquals(FileReadEngine.CpuSource.PROCESS, statistics.cpuSource());
+        assertNotNull(statistics.cpuMs());
+    }
+
+    @Test
+    void directReadsWholeAlignedBlocksOrFallsBack() throws Exception {
+        Path file = createFile();
+        FileReadEngine engine = new FileReadEngine(ReadStrategy.DIRECT, 64 * 1024, 2, 4096);
+
+        long read = engine.read(file, 5000, 1000);
+
+        if (engine.getEffectiveStrategy() == ReadStrategy.DIRECT) {
+            // widened to the block [4096, 8192)
+            assertEquals(4096, read);
+        } else {
+            assertEquals(ReadStrategy.CHANNEL, engine.getEffectiveStrategy());
+            assertEquals(1000, read);
+        }
+        assertEquals(ReadStrategy.DIRECT, engine.getStrategy());
+    }
+
+    @Test
+    void directReadOfAMissingFileFailsWithoutFallingBack() {
+        FileReadEngine engine = new FileReadEngine(ReadStrategy.DIRECT, 64 * 1024, 2, 4096);
+
+        assertThrows(NoSuchFileException.class, () -> engine.read(tempDir.resolve("missing.bin"), 0, 1000));
+        assertEquals(ReadStrategy.DIRECT, engine.getEffectiveStrategy());
+    }
+
+    @Test
+    void rejectsBuffersNotAMultipleOfTheAlignment() {
+        assertThrows(IllegalArgumentException.class, () -> new FileReadEngine(ReadStrategy.DIRECT, 5000, 2, 4096));
+        assertThrows(IllegalArgumentException.class, () -> new FileReadEngine(ReadStrategy.DIRECT, 6000, 2, 3000));
+    }
+}
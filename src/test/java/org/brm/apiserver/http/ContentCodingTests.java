@@ -0,0 +1,36 @@
+package org.brm.apiserver.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCodingTests {
+
+    private static final Set<ContentCoding> BOTH = EnumSet.of(ContentCoding.GZIP, ContentCoding.ZSTD);
+
+    @Test
+    void prefersZstdOnEqualQuality() {
+        assertEquals(ContentCoding.ZSTD, ContentCoding.negotiate("gzip, deflate, br, zstd", BOTH));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip, deflate, br, zstd", Set.of(ContentCoding.GZIP)));
+        assertEquals(ContentCoding.ZSTD, ContentCoding.negotiate("*", BOTH));
+    }
+
+    @Test
+    void honoursQualityValues() {
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("zstd;q=0.5, gzip", BOTH));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("gzip;q=0.8, zstd;q=0", BOTH));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*;q=0.1, ZSTD;Q=0", BOTH));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("gzip;q=0, zstd;q=0", BOTH));
+    }
+
+    @Test
+    void identityWithoutAcceptableVariant() {
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate(null, BOTH));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("", BOTH));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("br", BOTH));
+        assertEquals(ContentCoding.IDENTITY, ContentCoding.negotiate("gzip", Set.of()));
+    }
+}
@@ -0,0 +1,75 @@
+package org.brm.apiserver.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactIndexTests {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] digest(int seed) {
+        byte[] digest = new byte[ArtifactIndex.DIGEST_BYTES];
+        digest[0] = (byte) seed;
+        return digest;
+    }
+
+    @Test
+    void putFindUpdateAndDelete() throws Exception {
+        try (ArtifactIndex index = ArtifactIndex.open(directory.resolve("a.idx"), 64, 64 * 1024)) {
+            index.put("org.brm", "core", "1.0", "", digest(1), 100, 1_000);
+            index.put("org.brm", "core", "1.0", "sources", digest(2), 50, 1_000);
+
+            long record = index.find("org.brm", "core", "1.0", "");
+            assertNotEquals(ArtifactIndex.NOT_FOUND, record);
+            assertEquals(100, index.size(record));
+            byte[] stored = new byte[ArtifactIndex.DIGEST_BYTES];
+            index.digest(record, stored);
+            assertArrayEquals(digest(1), stored);
+            assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "core", "1.1", ""));
+            assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "cor", "e1.0", ""));
+
+            index.put("org.brm", "core", "1.0", "", digest(3), 300, 2_000);
+            record = index.find("org.brm", "core", "1.0", "");
+            assertEquals(300, index.size(record));
+            assertEquals(1_000, index.createdAt(record));
+            assertEquals(2_000, index.modifiedAt(record));
+            assertEquals(2, index.entryCount());
+
+            assertTrue(index.delete("org.brm", "core", "1.0", "", 3_000));
+            assertFalse(index.delete("org.brm", "core", "1.0", "", 3_000));
+            assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "core", "1.0", ""));
+            assertEquals(1, index.entryCount());
+        }
+    }
+
+    @Test
+    void reopensWithoutRebuilding() throws Exception {
+        Path file = directory.resolve("b.idx");
+        try (ArtifactIndex index = ArtifactIndex.open(file, 1024, 1024 * 1024)) {
+            for (int i = 0; i < 500; i++) {
+                index.put("org.brm", "artifact-" + i, "1.0", "", digest(i), i, 1_000);
+            }
+        }
+        // geometry arguments are ignored for an existing file
+        try (ArtifactIndex index = ArtifactIndex.open(file, 16, 1)) {
+            assertEquals(500, index.entryCount());
+            long record = index.find("org.brm", "artifact-321", "1.0", "");
+            assertEquals(321, index.size(record));
+        }
+    }
+
+    @Test
+    void rejectsInsertsBeyondLoadFactor() throws Exception {
+        try (ArtifactIndex index = ArtifactIndex.open(directory.resolve("c.idx"), 16, 64 * 1024)) {
+            for (int i = 0; i < 12; i++) {
+                index.put("g", "n" + i, "v", "", digest(i), i, 0);
+            }
+            assertThrows(IllegalStateException.class, () -> index.put("g", "overflow", "v", "", digest(0), 0, 0));
+        }
+    }
+}
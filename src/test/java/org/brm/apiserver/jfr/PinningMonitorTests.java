@@ -0,0 +1,80 @@
+package org.brm.apiserver.jfr;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PinningMonitorTests {
+
+    @Test
+    void ranksStacksByTotalPinnedTime() {
+        PinningMonitor monitor = new PinningMonitor(8, 2, Duration.ofMinutes(1), () -> 0L);
+        List<String> frequent = List.of("a.B.short:1", "a.B.caller:2");
+        List<String> longPin = List.of("a.C.slow:10");
+        for (int i = 0; i < 5; i++) {
+            monitor.recordPinned(frequent, Duration.ofMillis(2));
+        }
+        monitor.recordPinned(longPin, Duration.ofMillis(50));
+        monitor.recordPinned(List.of("a.D.untracked:3"), Duration.ofMillis(7));
+
+        PinningMonitor.PinningReport report = monitor.report(10);
+        assertEquals(7, report.pinnedEvents());
+        assertEquals(67.0, report.pinnedMs(), 0.001);
+        assertEquals(2, report.distinctStacks());
+        assertEquals(1, report.droppedStacks());
+        assertEquals(longPin, report.stacks().get(0).frames());
+        assertEquals(frequent, report.stacks().get(1).frames());
+        assertEquals(5, report.stacks().get(1).count());
+        assertEquals(2.0, report.stacks().get(1).maxMs(), 0.001);
+        assertEquals(1, monitor.report(1).stacks().size());
+    }
+
+    @Test
+    void aggregatesBlockingModes() {
+        PinningMonitor monitor = new PinningMonitor(8, 10, Duration.ofMinutes(1), () -> 0L);
+        monitor.recordBlockingMode("FILE_IO", Duration.ofMillis(10), 4096, false);
+        monitor.recordBlockingMode("FILE_IO", Duration.ofMillis(30), 1024, true);
+
+        PinningMonitor.BlockingMode fileIo = monitor.report(10).blockingModes().get("FILE_IO");
+        assertEquals(2, fileIo.count());
+        assertEquals(40.0, fileIo.totalMs(), 0.001);
+        assertEquals(5120, fileIo.bytesTransferred());
+        assertEquals(1, fileIo.cancelled());
+    }
+
+    @Test
+    void forgetsEventsOlderThanTheWindow() {
+        AtomicLong nanos = new AtomicLong();
+        PinningMonitor monitor = new PinningMonitor(8, 1, Duration.ofSeconds(60), nanos::get);
+        List<String> first = List.of("a.B.first:1");
+        List<String> later = List.of("a.C.later:2");
+        monitor.recordPinned(first, Duration.ofMillis(5));
+        monitor.recordPinned(later, Duration.ofMillis(5));
+        monitor.recordBlockingMode("SLEEP", Duration.ofMillis(10), 0, false);
+        assertEquals(1, monitor.report(10).droppedStacks());
+
+        // a later slice tracks the stack the full one dropped, and both count within the window
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        monitor.recordPinned(later, Duration.ofMillis(5));
+        PinningMonitor.PinningReport report = monitor.report(10);
+        assertEquals(60, report.windowSeconds());
+        assertEquals(3, report.pinnedEvents());
+        assertEquals(2, report.distinctStacks());
+        assertEquals(1, report.blockingModes().get("SLEEP").count());
+
+        // once the first slice has left the window, only the later pin remains
+        nanos.addAndGet(Duration.ofSeconds(40).toNanos());
+        report = monitor.report(10);
+        assertEquals(1, report.pinnedEvents());
+        assertEquals(0, report.droppedStacks());
+        assertEquals(later, report.stacks().get(0).frames());
+        assertTrue(report.blockingModes().isEmpty());
+
+        nanos.addAndGet(Duration.ofSeconds(60).toNanos());
+        assertEquals(0, monitor.report(10).pinnedEvents());
+    }
+}
@@ -0,0 +1,158 @@
+package org.brm.apiserver.journal;
+
+import org.brm.apiserver.index.ArtifactIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataLogTests {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] digest(int seed) {
+        byte[] digest = new byte[ArtifactIndex.DIGEST_BYTES];
+        digest[0] = (byte) seed;
+        digest[31] = (byte) (seed >> 8);
+        return digest;
+    }
+
+    private ArtifactIndex openIndex(String name) throws Exception {
+        return ArtifactIndex.open(directory.resolve(name), 4096, 4 * 1024 * 1024);
+    }
+
+    private MetadataLog openLog(ArtifactIndex index, long segmentBytes) throws Exception {
+        return MetadataLog.open(directory.resolve("journal"), index, 1000, 64 * 1024, segmentBytes, 0, 1024);
+    }
+
+    private List<Path> files(String suffix) throws Exception {
+        try (Stream<Path> files = Files.list(directory.resolve("journal"))) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).sorted().toList();
+        }
+    }
+
+    @Test
+    void concurrentWritersShareGroupCommits() throws Exception {
+        try (ArtifactIndex index = openIndex("a.idx");
+             MetadataLog log = openLog(index, 64 * 1024 * 1024);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<MetadataLog.Committed>> commits = Stream.iterate(0, i -> i + 1).limit(2000)
+                    .map(i -> executor.submit(() -> log.append(
+                            Mutation.publish("org.brm", "artifact-" + i, "1.0", "", digest(i), i, 1_000))))
+                    .toList();
+            for (Future<MetadataLog.Committed> commit : commits) {
+                assertTrue(commit.get().applied());
+            }
+            assertEquals(2000, index.entryCount());
+            assertEquals(17, index.size(index.find("org.brm", "artifact-17", "1.0", "")));
+
+            MetadataLog.Statistics statistics = log.statistics();
+            assertEquals(2000, statistics.records());
+            assertEquals(2000, statistics.appliedLsn());
+            assertTrue(statistics.maxBatchRecords() > 1, "no writers shared a commit");
+            assertTrue(statistics.groupCommits() < statistics.records());
+        }
+    }
+
+    @Test
+    void rebuildsIndexAfterCrashAndCutsOffTornRecord() throws Exception {
+        try (ArtifactIndex index = openIndex("b.idx")) {
+            try (MetadataLog log = openLog(index, 64 * 1024 * 1024)) {
+                log.append(Mutation.publish("org.brm", "core", "1.0", "", digest(1), 100, 1_000));
+                log.append(Mutation.publish("org.brm", "core", "1.0", "sources", digest(2), 50, 1_000));
+                log.append(Mutation.publish("org.brm", "core", "1.1", "", digest(3), 110, 2_000));
+                assertTrue(log.append(Mutation.promote("org.brm", "core", "1.0", "", 3_000)).applied());
+                assertTrue(log.append(Mutation.delete("org.brm", "core", "1.1", "", 4_000)).applied());
+                assertFalse(log.append(Mutation.delete("org.brm", "core", "1.1", "", 4_000)).applied());
+            }
+
+            // a crash: no clean shutdown, a half written record, and index pages that never reached the disk
+            Files.delete(directory.resolve("journal/clean-shutdown"));
+            Path segment = files(".log").getLast();
+            long segmentSize = Files.size(segment);
+            Files.write(segment, new byte[]{0, 0, 0, 90, 1, 2, 3}, StandardOpenOption.APPEND);
+            index.put("org.brm", "lost", "1.0", "", digest(9), 9, 5_000);
+
+            try (MetadataLog log = openLog(index, 64 * 1024 * 1024)) {
+                assertEquals(segmentSize, Files.size(segment));
+                assertEquals(6, log.statistics().replayedRecords());
+                assertEquals(2, index.entryCount());
+                assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "lost", "1.0", ""));
+                assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "core", "1.1", ""));
+                long record = index.find("org.brm", "core", "1.0", "");
+                assertEquals(ArtifactIndex.FLAG_PROMOTED, index.flags(record));
+                assertEquals(1_000, index.createdAt(record));
+                assertEquals(3_000, index.modifiedAt(record));
+
+                assertEquals(7, log.append(Mutation.publish("org.brm", "core", "1.2", "", digest(4), 120, 6_000)).lsn());
+            }
+
+            // after a clean shutdown the index is taken as it is
+            try (MetadataLog log = openLog(index, 64 * 1024 * 1024)) {
+                assertEquals(0, log.statistics().replayedRecords());
+                assertEquals(7, log.statistics().appliedLsn());
+                assertEquals(3, index.entryCount());
+            }
+        }
+    }
+
+    @Test
+    void directoryIsOpenedByOneLogAtATime() throws Exception {
+        try (ArtifactIndex index = openIndex("e.idx")) {
+            try (MetadataLog log = openLog(index, 64 * 1024 * 1024)) {
+                IOException e = assertThrows(IOException.class, () -> openLog(index, 64 * 1024 * 1024));
+                assertTrue(e.getMessage().contains("already in use"), e.getMessage());
+                log.append(Mutation.publish("org.brm", "core", "1.0", "", digest(1), 100, 1_000));
+            }
+
+            try (MetadataLog log = openLog(index, 64 * 1024 * 1024)) {
+                assertEquals(1, log.statistics().appliedLsn());
+            }
+        }
+    }
+
+    @Test
+    void snapshotReplacesCoveredSegments() throws Exception {
+        try (ArtifactIndex index = openIndex("c.idx");
+             MetadataLog log = openLog(index, 1024)) {
+            for (int i = 0; i < 100; i++) {
+                log.append(Mutation.publish("org.brm", "artifact-" + i, "1.0", "", digest(i), i, 1_000 + i));
+            }
+            log.append(Mutation.promote("org.brm", "artifact-5", "1.0", "", 2_000));
+            assertTrue(files(".log").size() > 5);
+
+            assertEquals(101, log.snapshot());
+            assertEquals(1, files(".snap").size());
+            assertTrue(files(".log").size() <= 2, "covered segments were kept");
+
+            for (int i = 0; i < 10; i++) {
+                log.append(Mutation.delete("org.brm", "artifact-" + i, "1.0", "", 3_000));
+            }
+        }
+
+        // a new index file, rebuilt from the snapshot plus the records after it
+        Files.delete(directory.resolve("journal/clean-shutdown"));
+        try (ArtifactIndex index = openIndex("d.idx");
+             MetadataLog log = openLog(index, 1024)) {
+            assertEquals(10, log.statistics().replayedRecords());
+            assertEquals(101, log.statistics().snapshotLsn());
+            assertEquals(90, index.entryCount());
+            assertEquals(ArtifactIndex.NOT_FOUND, index.find("org.brm", "artifact-5", "1.0", ""));
+            long record = index.find("org.brm", "artifact-50", "1.0", "");
+            assertEquals(50, index.size(record));
+            assertEquals(1_050, index.createdAt(record));
+            assertEquals(111, log.statistics().appliedLsn());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.brm.apiserver.limit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTests {
+
+    @Test
+    void rejectsBeyondTheLimitWithoutQueueing() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10, 1.5);
+
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        ConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+
+        first.releaseWithoutSample();
+        assertNotNull(limiter.tryAcquire());
+
+        ConcurrencyLimiter.Statistics statistics = limiter.statistics();
+        assertEquals(2, statistics.inFlight());
+        assertEquals(3, statistics.accepted());
+        assertEquals(1, statistics.rejected());
+    }
+
+    @Test
+    void growsWhileSaturatedAndShrinksWhenOperationsSlowDown() {
+        GradientLimit limit = new GradientLimit(20, 4, 1000, 1.5);
+
+        // saturated at a steady slowdown: the limit grows by its queue allowance
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(1.0, limit.limit());
+        }
+        int grown = limit.limit();
+        assertTrue(grown > 20, "limit should grow, was " + grown);
+
+        // operations take four times their planned duration: back off towards the minimum
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(4.0, limit.limit());
+        }
+        assertTrue(limit.limit() < grown / 2, "limit should shrink, was " + limit.limit());
+    }
+
+    @Test
+    void doesNotGrowAnUnderusedLimit() {
+        GradientLimit limit = new GradientLimit(20, 4, 1000, 1.5);
+        for (int i = 0; i < 200; i++) {
+            limit.onSample(1.0, 2);
+        }
+        assertEquals(20, limit.limit());
+    }
+}
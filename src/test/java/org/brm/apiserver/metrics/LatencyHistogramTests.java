@@ -0,0 +1,51 @@
+package org.brm.apiserver.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTests {
+
+    @Test
+    void bucketsAreContiguousAndBoundRelativeError() {
+        for (long value = 0; value < 1_000_000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index < LatencyHistogram.BUCKETS);
+            long highest = LatencyHistogram.bucketHighestValue(index);
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(highest - value <= Math.max(1, value / 32), "value " + value);
+        }
+        assertTrue(LatencyHistogram.bucketIndex((1L << 40) - 1) < LatencyHistogram.BUCKETS);
+    }
+
+    @Test
+    void reportsPercentilesAcrossThreads() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram(4);
+        Thread[] threads = new Thread[10];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = Thread.ofVirtual().start(() -> {
+                for (int value = 1; value <= 1000; value++) {
+                    histogram.recordMicros(value);
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(1000, snapshot.maxMicros());
+        assertEquals(500.5, snapshot.meanMicros(), 0.001);
+        assertEquals(500, snapshot.p50Micros(), 500 / 32.0);
+        assertEquals(990, snapshot.p99Micros(), 990 / 32.0);
+        assertEquals(1000, snapshot.p999Micros(), 1000 / 32.0);
+    }
+
+    @Test
+    void emptySnapshot() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.count());
+        assertEquals(0, snapshot.p99Micros());
+    }
+}
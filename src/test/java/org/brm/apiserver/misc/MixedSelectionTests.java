@@ -0,0 +1,38 @@
+package org.brm.apiserver.misc;
+
+import org.brm.apiserver.misc.BlockingSimulator.OperationType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MixedSelectionTests {
+
+    @Test
+    void selectsInProportionToTheWeights() {
+        MixedSelection selection = MixedSelection.parse("SLEEP=2,FILE_IO=0,cpu_bound=1");
+        assertEquals(3, selection.totalWeight());
+        assertEquals(OperationType.SLEEP, selection.select(0));
+        assertEquals(OperationType.SLEEP, selection.select(1));
+        assertEquals(OperationType.CPU_BOUND, selection.select(2));
+    }
+
+    @Test
+    void ignoresInvalidEntriesAndFallsBackToTheDefaults() {
+        MixedSelection selection = MixedSelection.parse("MIXED=1,UNKNOWN=2,SLEEP=-1,FILE_IO=x");
+        assertEquals(3, selection.totalWeight());
+        assertArrayEquals(new OperationType[]{OperationType.SLEEP, OperationType.FILE_IO, OperationType.NETWORK_IO},
+                selection.types());
+    }
+
+    @Test
+    void equalWeightsMakeEqualSelectionsThatCannotBeChanged() {
+        MixedSelection selection = MixedSelection.parse("SLEEP=2,CPU_BOUND=1");
+        assertEquals(MixedSelection.parse("sleep=2, cpu_bound=1"), selection);
+        assertEquals(MixedSelection.parse("sleep=2, cpu_bound=1").hashCode(), selection.hashCode());
+        assertNotEquals(MixedSelection.parse("SLEEP=1,CPU_BOUND=2"), selection);
+        assertEquals("MixedSelection[SLEEP=2,CPU_BOUND=1]", selection.toString());
+
+        selection.types()[0] = OperationType.FILE_IO;
+        assertEquals(OperationType.SLEEP, selection.select(0));
+    }
+}
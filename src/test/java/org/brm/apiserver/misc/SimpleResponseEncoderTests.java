@@ -0,0 +1,70 @@
+package org.brm.apiserver.misc;
+
+import org.brm.apiserver.model.SimpleResponse;
+import org.brm.apiserver.model.SimpleResponseSnapshot;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimpleResponseEncoderTests {
+
+    private static String encode(SimpleResponseEncoder encoder, SimpleResponseSnapshot snapshot) {
+        byte[] buffer = new byte[encoder.maxEncodedLength(snapshot.thread())];
+        int length = encoder.encode(snapshot, buffer);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void encodesSameDocumentAsSimpleResponse() {
+        SimpleResponseEncoder encoder = new SimpleResponseEncoder("brm-host/10.0.0.1", "/simple");
+        Thread thread = Thread.currentThread();
+
+        String json = encode(encoder, new SimpleResponseSnapshot("/simple", 1700000000123L, -42, thread));
+
+        assertEquals("{\"hostString\":\"brm-host/10.0.0.1\",\"pathString\":\"/simple\","
+                + "\"timeString\":\"1700000000123\",\"randomInteger\":-42,"
+                + "\"threadID\":\"" + thread + "\"}", json);
+    }
+
+    @Test
+    void encodesDocumentEquivalentToJackson() {
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+        SimpleResponseEncoder encoder = new SimpleResponseEncoder("brm-host/10.0.0.1", "/simple");
+        Thread thread = Thread.currentThread();
+
+        String json = encode(encoder, new SimpleResponseSnapshot("/simple", 1700000000123L, 7, thread));
+        String jackson = jsonMapper.writeValueAsString(
+                new SimpleResponse("brm-host/10.0.0.1", "/simple", "1700000000123", 7, thread.toString()));
+
+        // same properties and values, the order differs
+        assertEquals(jsonMapper.readTree(jackson), jsonMapper.readTree(json));
+    }
+
+    @Test
+    void describesVirtualThreadsWithoutCarrier() throws Exception {
+        SimpleResponseEncoder encoder = new SimpleResponseEncoder(null, "/simple");
+        String[] json = new String[1];
+        Thread thread = Thread.ofVirtual().name("vt-1").start(() ->
+                json[0] = encode(encoder, new SimpleResponseSnapshot("/simple", 0, Integer.MIN_VALUE,
+                        Thread.currentThread())));
+        thread.join();
+
+        assertEquals("{\"hostString\":null,\"pathString\":\"/simple\",\"timeString\":\"0\","
+                + "\"randomInteger\":-2147483648,"
+                + "\"threadID\":\"VirtualThread[#" + thread.threadId() + ",vt-1]/runnable\"}", json[0]);
+    }
+
+    @Test
+    void escapesThreadNames() throws Exception {
+        SimpleResponseEncoder encoder = new SimpleResponseEncoder("h", "/p");
+        String[] json = new String[1];
+        Thread thread = Thread.ofPlatform().name("a\"b\\c\u0001dé😀").start(() ->
+                json[0] = encode(encoder, new SimpleResponseSnapshot("/p", 1, 2, Thread.currentThread())));
+        thread.join();
+
+        assertTrue(json[0].contains("a\\\"b\\\\c\\u0001dé😀,"), json[0]);
+    }
+}
@@ -0,0 +1,31 @@
+package org.brm.apiserver.misc;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticWorkTests {
+
+    private final SyntheticWork syntheticWork = new SyntheticWork();
+
+    @Test
+    void calibratedWorkTakesAboutTheRequestedWallTime() {
+        for (SyntheticWork.Kind kind : SyntheticWork.Kind.values()) {
+            assertTrue(syntheticWork.getUnitsPerMs(kind) >= 1.0);
+            long startNanos = System.nanoTime();
+            long bytes = syntheticWork.perform(kind, 50, () -> false);
+            long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+            assertTrue(bytes > 0);
+            // generous bounds, the test may share the machine with other builds
+            assertTrue(elapsedMs >= 10 && elapsedMs < 2_000, kind + " took " + elapsedMs + "ms");
+        }
+    }
+
+    @Test
+    void stopsOnceCancelled() {
+        syntheticWork.calibrate();
+        long startNanos = System.nanoTime();
+        assertEquals(0, syntheticWork.perform(SyntheticWork.Kind.CPU_BOUND, 10_000, () -> true));
+        assertTrue(System.nanoTime() - startNanos < 1_000_000_000L);
+    }
+}
@@ -0,0 +1,55 @@
+package org.brm.apiserver.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackendClientTests {
+
+    @Test
+    void exchangesPayloadsAndReusesConnections() throws Exception {
+        try (EchoBackendServer server = new EchoBackendServer(new InetSocketAddress("127.0.0.1", 0));
+             BackendClient client = new BackendClient(server.getAddress(), 2, Duration.ofSeconds(5));
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                // payloads larger than the client buffer, so both directions take several writes
+                results.add(executor.submit(() -> client.exchange(100_000, 200_000, 1)));
+            }
+            for (Future<Long> result : results) {
+                assertEquals(12 + 100_000 + 4 + 200_000, result.get());
+            }
+
+            BackendClient.Statistics statistics = client.statistics();
+            assertEquals(20, statistics.exchanges());
+            assertEquals(0, statistics.failures());
+            assertTrue(statistics.connectionsOpened() <= 2);
+            assertEquals(20, statistics.connectionsOpened() + statistics.connectionsReused());
+            assertEquals(20L * 200_004, statistics.bytesReceived());
+        }
+    }
+
+    @Test
+    void timesOutAndDiscardsTheConnection() throws Exception {
+        // accepts connections through the backlog but never answers
+        try (ServerSocketChannel silentBackend = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+             BackendClient client = new BackendClient((InetSocketAddress) silentBackend.getLocalAddress(), 1,
+                     Duration.ofMillis(100))) {
+            assertThrows(TimeoutException.class, () -> client.exchange(16, 16, 0));
+
+            BackendClient.Statistics statistics = client.statistics();
+            assertEquals(1, statistics.failures());
+            assertEquals(0, statistics.idleConnections());
+        }
+    }
+}